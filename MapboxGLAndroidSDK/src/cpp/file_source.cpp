@@ -13,6 +13,8 @@
 #include <mbgl/storage/sqlite3.hpp>
 
 #include "asset_manager_file_source.hpp"
+#include "resource_statistics_file_source.hpp"
+#include "resource_transform_rules.hpp"
 
 namespace mbgl {
 namespace android {
@@ -34,6 +36,9 @@ FileSource::FileSource(jni::JNIEnv& _env, const jni::String& accessToken, const
             return assetFileSource;
         });
 
+    // Before the resource loader is created, maps share it
+    ResourceStatisticsFileSource::install();
+
     resourceOptions.withAccessToken(accessToken ? jni::Make<std::string>(_env, accessToken) : "")
         .withCachePath(path + DATABASE_FILE);
 
@@ -82,19 +87,7 @@ void FileSource::setResourceTransform(jni::JNIEnv& env, const jni::Object<FileSo
     }
 
     if (transformCallback) {
-        auto global = jni::NewGlobal<jni::EnvAttachingDeleter>(env, transformCallback);
-        resourceTransform = std::make_unique<Actor<ResourceTransform::TransformCallback>>(
-            *Scheduler::GetCurrent(),
-            // Capture the ResourceTransformCallback object as a managed global into
-            // the lambda. It is released automatically when we're setting a new ResourceTransform in
-            // a subsequent call.
-            // Note: we're converting it to shared_ptr because this lambda is converted to a std::function,
-            // which requires copyability of its captured variables.
-            [callback = std::make_shared<decltype(global)>(std::move(global))](
-                mbgl::Resource::Kind kind, const std::string& url_, ResourceTransform::FinishedCallback cb) {
-                android::UniqueEnv _env = android::AttachEnv();
-                cb(FileSource::ResourceTransformCallback::onURL(*_env, *callback, int(kind), url_));
-            });
+        resourceTransform = makeResourceTransform(env, transformCallback);
         onlineSource->setResourceTransform(
             {[actorRef = resourceTransform->self()](
                  Resource::Kind kind, const std::string& url, ResourceTransform::FinishedCallback cb) {
@@ -107,6 +100,101 @@ void FileSource::setResourceTransform(jni::JNIEnv& env, const jni::Object<FileSo
     }
 }
 
+void FileSource::setResourceTransformRules(jni::JNIEnv& env,
+                                           const jni::Array<jni::jint>& kindMasks,
+                                           const jni::Array<jni::jint>& types,
+                                           const jni::Array<jni::String>& patterns,
+                                           const jni::Array<jni::String>& replacements,
+                                           const jni::Array<jni::String>& queries,
+                                           const jni::Object<FileSource::ResourceTransformCallback>& fallback,
+                                           jni::jint fallbackCacheSize) {
+    // Core could be built without support for network resource provider.
+    if (!onlineSource) {
+        ThrowNew(env, jni::FindClass(env, "java/lang/IllegalStateException"), "Online functionality is disabled.");
+        return;
+    }
+
+    // Compile the rules once, they are applied on the online file source thread without entering Java.
+    auto rules = std::make_shared<ResourceTransformRules>();
+    const auto masks = jni::Make<std::vector<jni::jint>>(env, kindMasks);
+    const auto ruleTypes = jni::Make<std::vector<jni::jint>>(env, types);
+    try {
+        for (std::size_t i = 0; i < masks.size(); i++) {
+            rules->addRule(masks[i],
+                           ResourceTransformRules::Type(ruleTypes[i]),
+                           jni::Make<std::string>(env, patterns.Get(env, i)),
+                           jni::Make<std::string>(env, replacements.Get(env, i)));
+        }
+    } catch (const std::regex_error& error) {
+        ThrowNew(env, jni::FindClass(env, "java/lang/IllegalArgumentException"), error.what());
+        return;
+    }
+    for (jni::jsize kind = 0; kind < queries.Length(env); kind++) {
+        auto query = queries.Get(env, kind);
+        if (query) {
+            rules->setQuery(Resource::Kind(kind), jni::Make<std::string>(env, query));
+        }
+    }
+
+    optional<ActorRef<ResourceTransform::TransformCallback>> fallbackRef;
+    if (fallback) {
+        resourceTransform = makeResourceTransform(env, fallback);
+        fallbackRef = resourceTransform->self();
+    } else {
+        resourceTransform.reset();
+    }
+    std::shared_ptr<ResourceTransformCache> cache;
+    if (fallback && fallbackCacheSize > 0) {
+        cache = std::make_shared<ResourceTransformCache>(fallbackCacheSize);
+    }
+
+    onlineSource->setResourceTransform(
+        {[rules, cache, fallbackRef](
+             Resource::Kind kind, const std::string& url, ResourceTransform::FinishedCallback cb) {
+            std::string result = url;
+            if (rules->rewrite(kind, result) || !fallbackRef) {
+                rules->appendQuery(kind, result);
+                cb(result);
+                return;
+            }
+
+            if (cache) {
+                if (auto cached = cache->get(kind, url)) {
+                    rules->appendQuery(kind, *cached);
+                    cb(*cached);
+                    return;
+                }
+            }
+
+            fallbackRef->invoke(&ResourceTransform::TransformCallback::operator(), kind, url,
+                [rules, cache, kind, url, cb](const std::string& transformed) {
+                    if (cache) {
+                        cache->put(kind, url, transformed);
+                    }
+                    std::string transformedUrl = transformed;
+                    rules->appendQuery(kind, transformedUrl);
+                    cb(transformedUrl);
+                });
+        }});
+}
+
+std::unique_ptr<Actor<ResourceTransform::TransformCallback>> FileSource::makeResourceTransform(
+    jni::JNIEnv& env, const jni::Object<FileSource::ResourceTransformCallback>& transformCallback) {
+    auto global = jni::NewGlobal<jni::EnvAttachingDeleter>(env, transformCallback);
+    return std::make_unique<Actor<ResourceTransform::TransformCallback>>(
+        *Scheduler::GetCurrent(),
+        // Capture the ResourceTransformCallback object as a managed global into
+        // the lambda. It is released automatically when we're setting a new ResourceTransform in
+        // a subsequent call.
+        // Note: we're converting it to shared_ptr because this lambda is converted to a std::function,
+        // which requires copyability of its captured variables.
+        [callback = std::make_shared<decltype(global)>(std::move(global))](
+            mbgl::Resource::Kind kind, const std::string& url_, ResourceTransform::FinishedCallback cb) {
+            android::UniqueEnv _env = android::AttachEnv();
+            cb(FileSource::ResourceTransformCallback::onURL(*_env, *callback, int(kind), url_));
+        });
+}
+
 void FileSource::setResourceCachePath(jni::JNIEnv& env,
                                       const jni::String& path,
                                       const jni::Object<FileSource::ResourcesCachePathChangeCallback>& _callback) {
@@ -164,6 +252,14 @@ void FileSource::pause(jni::JNIEnv&) {
     }
 }
 
+jni::Local<jni::Array<jni::jlong>> FileSource::getResourceStatistics(jni::JNIEnv& env) {
+    const auto values = ResourceStatisticsFileSource::snapshot();
+    std::vector<jni::jlong> longValues(values.begin(), values.end());
+    auto statistics = jni::Array<jni::jlong>::New(env, longValues.size());
+    statistics.SetRegion<std::vector<jni::jlong>>(env, 0, longValues);
+    return statistics;
+}
+
 jni::jboolean FileSource::isResumed(jni::JNIEnv&) {
     if (activationCounter) {
        return  (jboolean) (activationCounter > 0);
@@ -230,10 +326,12 @@ void FileSource::registerNative(jni::JNIEnv& env) {
                                         METHOD(&FileSource::setAccessToken, "setAccessToken"),
                                         METHOD(&FileSource::setAPIBaseUrl, "setApiBaseUrl"),
                                         METHOD(&FileSource::setResourceTransform, "setResourceTransform"),
+                                        METHOD(&FileSource::setResourceTransformRules, "nativeSetResourceTransformRules"),
                                         METHOD(&FileSource::setResourceCachePath, "setResourceCachePath"),
                                         METHOD(&FileSource::resume, "activate"),
                                         METHOD(&FileSource::pause, "deactivate"),
-                                        METHOD(&FileSource::isResumed, "isActivated"));
+                                        METHOD(&FileSource::isResumed, "isActivated"),
+                                        METHOD(&FileSource::getResourceStatistics, "getResourceStatistics"));
 }
 
 
@@ -54,6 +54,15 @@ public:
 
     void setResourceTransform(jni::JNIEnv&, const jni::Object<FileSource::ResourceTransformCallback>&);
 
+    void setResourceTransformRules(jni::JNIEnv&,
+                                   const jni::Array<jni::jint>& kindMasks,
+                                   const jni::Array<jni::jint>& types,
+                                   const jni::Array<jni::String>& patterns,
+                                   const jni::Array<jni::String>& replacements,
+                                   const jni::Array<jni::String>& queries,
+                                   const jni::Object<FileSource::ResourceTransformCallback>& fallback,
+                                   jni::jint fallbackCacheSize);
+
     void setResourceCachePath(jni::JNIEnv&, const jni::String&, const jni::Object<FileSource::ResourcesCachePathChangeCallback>&);
 
     void resume(jni::JNIEnv&);
@@ -62,6 +71,8 @@ public:
 
     jni::jboolean isResumed(jni::JNIEnv&);
 
+    jni::Local<jni::Array<jni::jlong>> getResourceStatistics(jni::JNIEnv&);
+
     static FileSource* getNativePeer(jni::JNIEnv&, const jni::Object<FileSource>&);
 
     static mbgl::ResourceOptions getSharedResourceOptions(jni::JNIEnv&, const jni::Object<FileSource>&);
@@ -69,6 +80,9 @@ public:
     static void registerNative(jni::JNIEnv&);
 
 private:
+    std::unique_ptr<Actor<ResourceTransform::TransformCallback>> makeResourceTransform(
+        jni::JNIEnv&, const jni::Object<FileSource::ResourceTransformCallback>&);
+
     const std::string DATABASE_FILE = "/mbgl-offline.db";
     optional<int> activationCounter;
     mbgl::ResourceOptions resourceOptions;
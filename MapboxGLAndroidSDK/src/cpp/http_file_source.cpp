@@ -1,3 +1,5 @@
+#include <mbgl/actor/actor_ref.hpp>
+#include <mbgl/actor/mailbox.hpp>
 #include <mbgl/storage/http_file_source.hpp>
 #include <mbgl/storage/resource.hpp>
 #include <mbgl/storage/response.hpp>
@@ -6,6 +8,7 @@
 #include <mbgl/util/async_request.hpp>
 #include <mbgl/util/async_task.hpp>
 #include <mbgl/util/http_header.hpp>
+#include <mbgl/util/run_loop.hpp>
 #include <mbgl/util/string.hpp>
 #include <mbgl/util/util.hpp>
 
@@ -26,19 +29,58 @@ public:
     HTTPRequest(jni::JNIEnv&, const Resource&, FileSource::Callback);
     ~HTTPRequest();
 
-    void onFailure(jni::JNIEnv&, int type, const jni::String& message);
-    void onResponse(jni::JNIEnv&, int code,
-                    const jni::String& etag, const jni::String& modified,
-                    const jni::String& cacheControl, const jni::String& expires,
-                    const jni::String& retryAfter, const jni::String& xRateLimitReset,
-                    const jni::Array<jni::jbyte>& body);
+    // Response read from Java before it is committed to a request. Preparing doesn't touch the request,
+    // so the copy of the body doesn't delay a concurrent cancellation, see NativeHttpRequest.
+    struct PreparedResponse {
+        int code;
+        optional<std::string> etag;
+        optional<std::string> modified;
+        optional<std::string> cacheControl;
+        optional<std::string> expires;
+        optional<std::string> retryAfter;
+        optional<std::string> xRateLimitReset;
+        std::shared_ptr<std::string> data;
+    };
+
+    static jni::jlong prepareResponse(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jint code,
+                                      const jni::String& etag, const jni::String& modified,
+                                      const jni::String& cacheControl, const jni::String& expires,
+                                      const jni::String& retryAfter, const jni::String& xRateLimitReset,
+                                      const jni::Array<jni::jbyte>& body);
+    static jni::jlong prepareResponseBuffer(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jint code,
+                                            const jni::String& etag, const jni::String& modified,
+                                            const jni::String& cacheControl, const jni::String& expires,
+                                            const jni::String& retryAfter, const jni::String& xRateLimitReset,
+                                            const jni::Object<>& body, jni::jint length);
+    static void releaseResponse(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong prepared);
+
+    // Responses are committed through a delivery, a reference to the mailbox of the request owned by the Java
+    // request. The mailbox is closed before the request is destroyed, so a delivery racing a cancellation never
+    // touches the request, its response is dropped instead.
+    using Delivery = ActorRef<HTTPRequest>;
+
+    static void commitResponse(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong delivery,
+                               jni::jlong prepared);
+    static void onFailure(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong delivery, jni::jint type,
+                          const jni::String& message);
+    static void releaseDelivery(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong delivery);
+
+    void setResponse(std::unique_ptr<PreparedResponse>);
+    void setFailure(int type, const std::string& message);
 
     jni::Global<jni::Object<HTTPRequest>> javaRequest;
 
 private:
+    static jni::jlong prepare(jni::JNIEnv&, jni::jint code,
+                              const jni::String& etag, const jni::String& modified,
+                              const jni::String& cacheControl, const jni::String& expires,
+                              const jni::String& retryAfter, const jni::String& xRateLimitReset,
+                              std::shared_ptr<std::string> data);
+
     Resource resource;
     FileSource::Callback callback;
     Response response;
+    std::shared_ptr<Mailbox> mailbox;
 
     util::AsyncTask async { [this] {
         // Calling `callback` may result in deleting `this`. Copy data to temporaries first.
@@ -57,18 +99,23 @@ namespace android {
 void RegisterNativeHTTPRequest(jni::JNIEnv& env) {
     static auto& javaClass = jni::Class<HTTPRequest>::Singleton(env);
 
-    #define METHOD(MethodPtr, name) jni::MakeNativePeerMethod<decltype(MethodPtr), (MethodPtr)>(name)
+    #define STATIC_METHOD(MethodPtr, name) jni::MakeNativeMethod<decltype(MethodPtr), (MethodPtr)>(name)
 
-    jni::RegisterNativePeer<HTTPRequest>(env, javaClass, "nativePtr",
-        METHOD(&HTTPRequest::onFailure, "nativeOnFailure"),
-        METHOD(&HTTPRequest::onResponse, "nativeOnResponse"));
+    jni::RegisterNatives(env, *javaClass,
+        STATIC_METHOD(&HTTPRequest::prepareResponse, "nativePrepareResponse"),
+        STATIC_METHOD(&HTTPRequest::prepareResponseBuffer, "nativePrepareResponseBuffer"),
+        STATIC_METHOD(&HTTPRequest::releaseResponse, "nativeReleaseResponse"),
+        STATIC_METHOD(&HTTPRequest::commitResponse, "nativeCommitResponse"),
+        STATIC_METHOD(&HTTPRequest::onFailure, "nativeOnFailure"),
+        STATIC_METHOD(&HTTPRequest::releaseDelivery, "nativeReleaseDelivery"));
 }
 
 } // namespace android
 
 HTTPRequest::HTTPRequest(jni::JNIEnv& env, const Resource& resource_, FileSource::Callback callback_)
     : resource(resource_),
-      callback(callback_) {
+      callback(callback_),
+      mailbox(std::make_shared<Mailbox>(*util::RunLoop::Get())) {
     std::string etagStr;
     std::string modifiedStr;
 
@@ -82,20 +129,29 @@ HTTPRequest::HTTPRequest(jni::JNIEnv& env, const Resource& resource_, FileSource
 
     static auto& javaClass = jni::Class<HTTPRequest>::Singleton(env);
     static auto constructor =
-        javaClass.GetConstructor<jni::jlong, jni::String, jni::String, jni::String, jni::jboolean>(env);
+        javaClass.GetConstructor<jni::jlong, jni::jlong, jni::String, jni::String, jni::String, jni::jboolean, jni::jint, jni::jboolean>(env);
+
+    // Released by the Java request once it was delivered or cancelled, whichever comes first.
+    auto delivery = std::make_unique<Delivery>(*this, mailbox);
 
     javaRequest = jni::NewGlobal(env,
         javaClass.New(env, constructor,
             reinterpret_cast<jlong>(this),
+            reinterpret_cast<jlong>(delivery.release()),
             jni::Make<jni::String>(env, resource.url),
             jni::Make<jni::String>(env, etagStr),
             jni::Make<jni::String>(env, modifiedStr),
-            (jboolean) (resource_.usage == Resource::Usage::Offline)
+            (jboolean) (resource_.usage == Resource::Usage::Offline),
+            (jint) resource_.kind,
+            (jboolean) (resource_.priority == Resource::Priority::Low)
         )
     );
 }
 
 HTTPRequest::~HTTPRequest() {
+    // Drops responses committed from now on, or queued and not received yet.
+    mailbox->close();
+
     android::UniqueEnv env = android::AttachEnv();
 
     static auto& javaClass = jni::Class<HTTPRequest>::Singleton(*env);
@@ -104,40 +160,119 @@ HTTPRequest::~HTTPRequest() {
     javaRequest.Call(*env, cancel);
 }
 
-void HTTPRequest::onResponse(jni::JNIEnv& env, int code,
-                             const jni::String& etag, const jni::String& modified,
-                             const jni::String& cacheControl, const jni::String& expires,
-                             const jni::String& jRetryAfter, const jni::String& jXRateLimitReset,
-                             const jni::Array<jni::jbyte>& body) {
+jni::jlong HTTPRequest::prepareResponse(jni::JNIEnv& env, const jni::Class<HTTPRequest>&, jni::jint code,
+                                       const jni::String& etag, const jni::String& modified,
+                                       const jni::String& cacheControl, const jni::String& expires,
+                                       const jni::String& retryAfter, const jni::String& xRateLimitReset,
+                                       const jni::Array<jni::jbyte>& body) {
+    std::shared_ptr<std::string> data;
+    if (code == 200) {
+        if (body) {
+            data = std::make_shared<std::string>(body.Length(env), char());
+            jni::GetArrayRegion(env, *body, 0, data->size(), reinterpret_cast<jbyte*>(&(*data)[0]));
+        } else {
+            data = std::make_shared<std::string>();
+        }
+    }
 
-    using Error = Response::Error;
+    return prepare(env, code, etag, modified, cacheControl, expires, retryAfter, xRateLimitReset, std::move(data));
+}
 
-    if (etag) {
-        response.etag = jni::Make<std::string>(env, etag);
+jni::jlong HTTPRequest::prepareResponseBuffer(jni::JNIEnv& env, const jni::Class<HTTPRequest>&, jni::jint code,
+                                             const jni::String& etag, const jni::String& modified,
+                                             const jni::String& cacheControl, const jni::String& expires,
+                                             const jni::String& retryAfter, const jni::String& xRateLimitReset,
+                                             const jni::Object<>& body, jni::jint length) {
+    std::shared_ptr<std::string> data;
+    if (code == 200) {
+        // Copies straight out of the direct buffer, the body never exists as a Java array.
+        void* address = body ? env.GetDirectBufferAddress(jni::Unwrap(body.get())) : nullptr;
+        if (address && length > 0) {
+            data = std::make_shared<std::string>(reinterpret_cast<const char*>(address), length);
+        } else {
+            data = std::make_shared<std::string>();
+        }
     }
 
+    return prepare(env, code, etag, modified, cacheControl, expires, retryAfter, xRateLimitReset, std::move(data));
+}
+
+jni::jlong HTTPRequest::prepare(jni::JNIEnv& env, jni::jint code,
+                                const jni::String& etag, const jni::String& modified,
+                                const jni::String& cacheControl, const jni::String& expires,
+                                const jni::String& retryAfter, const jni::String& xRateLimitReset,
+                                std::shared_ptr<std::string> data) {
+    auto prepared = std::make_unique<PreparedResponse>();
+    prepared->code = code;
+    prepared->data = std::move(data);
+
+    if (etag) {
+        prepared->etag = jni::Make<std::string>(env, etag);
+    }
     if (modified) {
-        response.modified = util::parseTimestamp(jni::Make<std::string>(env, modified).c_str());
+        prepared->modified = jni::Make<std::string>(env, modified);
     }
-
     if (cacheControl) {
-        const auto cc = http::CacheControl::parse(jni::Make<std::string>(env, cacheControl).c_str());
+        prepared->cacheControl = jni::Make<std::string>(env, cacheControl);
+    }
+    if (expires) {
+        prepared->expires = jni::Make<std::string>(env, expires);
+    }
+    if (retryAfter) {
+        prepared->retryAfter = jni::Make<std::string>(env, retryAfter);
+    }
+    if (xRateLimitReset) {
+        prepared->xRateLimitReset = jni::Make<std::string>(env, xRateLimitReset);
+    }
+
+    return reinterpret_cast<jni::jlong>(prepared.release());
+}
+
+void HTTPRequest::releaseResponse(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong prepared) {
+    delete reinterpret_cast<PreparedResponse*>(prepared);
+}
+
+void HTTPRequest::commitResponse(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong delivery,
+                                 jni::jlong jPrepared) {
+    std::unique_ptr<PreparedResponse> prepared(reinterpret_cast<PreparedResponse*>(jPrepared));
+    reinterpret_cast<Delivery*>(delivery)->invoke(&HTTPRequest::setResponse, std::move(prepared));
+}
+
+void HTTPRequest::onFailure(jni::JNIEnv& env, const jni::Class<HTTPRequest>&, jni::jlong delivery, jni::jint type,
+                            const jni::String& message) {
+    reinterpret_cast<Delivery*>(delivery)->invoke(&HTTPRequest::setFailure, type,
+                                                  jni::Make<std::string>(env, message));
+}
+
+void HTTPRequest::releaseDelivery(jni::JNIEnv&, const jni::Class<HTTPRequest>&, jni::jlong delivery) {
+    delete reinterpret_cast<Delivery*>(delivery);
+}
+
+void HTTPRequest::setResponse(std::unique_ptr<PreparedResponse> prepared) {
+    using Error = Response::Error;
+
+    const int code = prepared->code;
+
+    if (prepared->etag) {
+        response.etag = std::move(prepared->etag);
+    }
+
+    if (prepared->modified) {
+        response.modified = util::parseTimestamp(prepared->modified->c_str());
+    }
+
+    if (prepared->cacheControl) {
+        const auto cc = http::CacheControl::parse(prepared->cacheControl->c_str());
         response.expires = cc.toTimePoint();
         response.mustRevalidate = cc.mustRevalidate;
     }
 
-    if (expires) {
-        response.expires = util::parseTimestamp(jni::Make<std::string>(env, expires).c_str());
+    if (prepared->expires) {
+        response.expires = util::parseTimestamp(prepared->expires->c_str());
     }
 
     if (code == 200) {
-        if (body) {
-            auto data = std::make_shared<std::string>(body.Length(env), char());
-            jni::GetArrayRegion(env, *body, 0, data->size(), reinterpret_cast<jbyte*>(&(*data)[0]));
-            response.data = data;
-        } else {
-            response.data = std::make_shared<std::string>();
-        }
+        response.data = std::move(prepared->data);
     } else if (code == 204 || (code == 404 && resource.kind == Resource::Kind::Tile)) {
         response.noContent = true;
     } else if (code == 304) {
@@ -145,27 +280,19 @@ void HTTPRequest::onResponse(jni::JNIEnv& env, int code,
     } else if (code == 404) {
         response.error = std::make_unique<Error>(Error::Reason::NotFound, "HTTP status code 404");
     } else if (code == 429) {
-        optional<std::string> retryAfter;
-        optional<std::string> xRateLimitReset;
-        if (jRetryAfter) {
-            retryAfter = jni::Make<std::string>(env, jRetryAfter);
-        }
-        if (jXRateLimitReset) {
-            xRateLimitReset = jni::Make<std::string>(env, jXRateLimitReset);
-        }
-        response.error = std::make_unique<Error>(Error::Reason::RateLimit, "HTTP status code 429", http::parseRetryHeaders(retryAfter, xRateLimitReset));
+        response.error = std::make_unique<Error>(Error::Reason::RateLimit, "HTTP status code 429",
+            http::parseRetryHeaders(prepared->retryAfter, prepared->xRateLimitReset));
     } else if (code >= 500 && code < 600) {
         response.error = std::make_unique<Error>(Error::Reason::Server, std::string{ "HTTP status code " } + util::toString(code));
     } else {
         response.error = std::make_unique<Error>(Error::Reason::Other, std::string{ "HTTP status code " } + util::toString(code));
     }
 
+    // Received from the mailbox, which the callback can't close by deleting the request. Leave it to the task.
     async.send();
 }
 
-void HTTPRequest::onFailure(jni::JNIEnv& env, int type, const jni::String& message) {
-    std::string messageStr = jni::Make<std::string>(env, message);
-
+void HTTPRequest::setFailure(int type, const std::string& messageStr) {
     using Error = Response::Error;
 
     switch (type) {
@@ -35,6 +35,7 @@
 #include "mapbox.hpp"
 #include "native_map_view.hpp"
 #ifndef MBGL_MODULE_OFFLINE_DISABLE
+#include "offline/offline_database_connection.hpp"
 #include "offline/offline_manager.hpp"
 #include "offline/offline_region.hpp"
 #include "offline/offline_region_definition.hpp"
@@ -135,6 +136,7 @@ void registerNatives(JavaVM *vm) {
 
     // Offline
 #ifndef MBGL_MODULE_OFFLINE_DISABLE
+    OfflineDatabaseConnection::registerNative(env);
     OfflineManager::registerNative(env);
     OfflineRegion::registerNative(env);
     OfflineRegionDefinition::registerNative(env);
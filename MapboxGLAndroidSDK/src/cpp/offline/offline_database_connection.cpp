@@ -0,0 +1,156 @@
+#include "offline_database_connection.hpp"
+
+#include <chrono>
+#include <string>
+#include <vector>
+
+namespace mbgl {
+namespace android {
+
+namespace {
+
+// a statement waits this long for the core to release the database, a slice of the packer is retried later
+const std::chrono::milliseconds busyTimeout(1000);
+
+} // namespace
+
+// OfflineDatabaseConnection //
+
+OfflineDatabaseConnection::OfflineDatabaseConnection(jni::JNIEnv&) {}
+
+OfflineDatabaseConnection::~OfflineDatabaseConnection() = default;
+
+void OfflineDatabaseConnection::open(jni::JNIEnv& env, const jni::String& path, jni::jboolean readOnly) {
+    try {
+        database.emplace(mapbox::sqlite::Database::open(
+            jni::Make<std::string>(env, path),
+            readOnly ? mapbox::sqlite::ReadOnly : mapbox::sqlite::ReadWriteCreate));
+        database->setBusyTimeout(busyTimeout);
+    } catch (const mapbox::sqlite::Exception& exception) {
+        database = {};
+        throwException(env, exception);
+    }
+}
+
+jni::jlong OfflineDatabaseConnection::execute(jni::JNIEnv& env,
+                                              const jni::String& sql,
+                                              const jni::Array<jni::String>& arguments) {
+    if (!checkOpen(env)) {
+        return 0;
+    }
+
+    try {
+        mapbox::sqlite::Statement statement(*database, jni::Make<std::string>(env, sql).c_str());
+        mapbox::sqlite::Query query(statement);
+        bind(env, query, arguments);
+        // the statement is stepped to completion, pragmas may return rows
+        while (query.run()) {
+        }
+        return query.changes();
+    } catch (const mapbox::sqlite::Exception& exception) {
+        throwException(env, exception);
+        return 0;
+    }
+}
+
+jni::Local<jni::Array<jni::jlong>> OfflineDatabaseConnection::query(jni::JNIEnv& env,
+                                                                    const jni::String& sql,
+                                                                    jni::jint columns,
+                                                                    const jni::Array<jni::String>& arguments) {
+    std::vector<jni::jlong> values;
+    if (checkOpen(env)) {
+        try {
+            mapbox::sqlite::Statement statement(*database, jni::Make<std::string>(env, sql).c_str());
+            mapbox::sqlite::Query query(statement);
+            bind(env, query, arguments);
+            while (query.run()) {
+                for (jni::jint column = 0; column < columns; column++) {
+                    values.push_back(query.get<int64_t>(column));
+                }
+            }
+        } catch (const mapbox::sqlite::Exception& exception) {
+            throwException(env, exception);
+            values.clear();
+        }
+    }
+
+    auto result = jni::Array<jni::jlong>::New(env, values.size());
+    result.SetRegion<std::vector<jni::jlong>>(env, 0, values);
+    return result;
+}
+
+jni::jlong OfflineDatabaseConnection::incrementalVacuum(jni::JNIEnv& env, jni::jint pages) {
+    if (!checkOpen(env)) {
+        return 0;
+    }
+
+    try {
+        // a count of zero would reclaim all free pages at once
+        if (pages > 0) {
+            const std::string sql = "PRAGMA incremental_vacuum(" + std::to_string(pages) + ")";
+            mapbox::sqlite::Statement vacuum(*database, sql.c_str());
+            mapbox::sqlite::Query query(vacuum);
+            while (query.run()) {
+            }
+        }
+
+        mapbox::sqlite::Statement freelist(*database, "PRAGMA freelist_count");
+        mapbox::sqlite::Query query(freelist);
+        return query.run() ? query.get<int64_t>(0) : 0;
+    } catch (const mapbox::sqlite::Exception& exception) {
+        throwException(env, exception);
+        return 0;
+    }
+}
+
+void OfflineDatabaseConnection::close(jni::JNIEnv&) {
+    database = {};
+}
+
+bool OfflineDatabaseConnection::checkOpen(jni::JNIEnv& env) {
+    if (!database) {
+        ThrowNew(env, jni::FindClass(env, "java/lang/IllegalStateException"), "The connection is closed.");
+        return false;
+    }
+    return true;
+}
+
+void OfflineDatabaseConnection::bind(jni::JNIEnv& env,
+                                     mapbox::sqlite::Query& query,
+                                     const jni::Array<jni::String>& arguments) {
+    // bound as text like the arguments of SQLiteDatabase.rawQuery, compared with the affinity of the columns
+    for (jni::jsize i = 0; i < arguments.Length(env); i++) {
+        query.bind(i + 1, jni::Make<std::string>(env, arguments.Get(env, i)));
+    }
+}
+
+void OfflineDatabaseConnection::throwException(jni::JNIEnv& env, const mapbox::sqlite::Exception& exception) {
+    const bool locked = exception.code == mapbox::sqlite::ResultCode::Busy ||
+                        exception.code == mapbox::sqlite::ResultCode::Locked;
+    ThrowNew(env,
+             jni::FindClass(env,
+                            locked ? "android/database/sqlite/SQLiteDatabaseLockedException"
+                                   : "android/database/SQLException"),
+             exception.what());
+}
+
+void OfflineDatabaseConnection::registerNative(jni::JNIEnv& env) {
+    static auto& javaClass = jni::Class<OfflineDatabaseConnection>::Singleton(env);
+
+    #define METHOD(MethodPtr, name) jni::MakeNativePeerMethod<decltype(MethodPtr), (MethodPtr)>(name)
+
+    jni::RegisterNativePeer<OfflineDatabaseConnection>(env,
+        javaClass,
+        "nativePtr",
+        jni::MakePeer<OfflineDatabaseConnection>,
+        "initialize",
+        "finalize",
+        METHOD(&OfflineDatabaseConnection::open, "nativeOpen"),
+        METHOD(&OfflineDatabaseConnection::execute, "nativeExecute"),
+        METHOD(&OfflineDatabaseConnection::query, "nativeQuery"),
+        METHOD(&OfflineDatabaseConnection::incrementalVacuum, "nativeIncrementalVacuum"),
+        METHOD(&OfflineDatabaseConnection::close, "nativeClose"));
+}
+
+} // namespace android
+} // namespace mbgl
@@ -0,0 +1,50 @@
+#pragma once
+
+#include <mbgl/storage/sqlite3.hpp>
+#include <mbgl/util/optional.hpp>
+
+#include <jni/jni.hpp>
+
+namespace mbgl {
+namespace android {
+
+/**
+ * Peer of the Java NativeOfflineDatabaseConnection. The offline database is opened with the SQLite library of
+ * the core, so that the connection shares the file locks of the connection of the core. Another copy of SQLite
+ * in the process, such as the framework's, drops the locks of the core when it closes the file.
+ */
+class OfflineDatabaseConnection {
+public:
+    static constexpr auto Name() { return "com/mapbox/mapboxsdk/offline/NativeOfflineDatabaseConnection"; };
+
+    OfflineDatabaseConnection(jni::JNIEnv&);
+
+    ~OfflineDatabaseConnection();
+
+    void open(jni::JNIEnv&, const jni::String& path, jni::jboolean readOnly);
+
+    jni::jlong execute(jni::JNIEnv&, const jni::String& sql, const jni::Array<jni::String>& arguments);
+
+    jni::Local<jni::Array<jni::jlong>> query(jni::JNIEnv&,
+                                             const jni::String& sql,
+                                             jni::jint columns,
+                                             const jni::Array<jni::String>& arguments);
+
+    jni::jlong incrementalVacuum(jni::JNIEnv&, jni::jint pages);
+
+    void close(jni::JNIEnv&);
+
+    static void registerNative(jni::JNIEnv&);
+
+private:
+    bool checkOpen(jni::JNIEnv&);
+
+    static void bind(jni::JNIEnv&, mapbox::sqlite::Query&, const jni::Array<jni::String>&);
+
+    static void throwException(jni::JNIEnv&, const mapbox::sqlite::Exception&);
+
+    optional<mapbox::sqlite::Database> database;
+};
+
+} // namespace android
+} // namespace mbgl
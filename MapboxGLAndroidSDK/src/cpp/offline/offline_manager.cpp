@@ -4,6 +4,13 @@
 #include <mbgl/storage/resource.hpp>
 #include <mbgl/util/string.hpp>
 
+#include <mapbox/geometry/envelope.hpp>
+#include <rapidjson/document.h>
+
+#include <algorithm>
+#include <mutex>
+#include <vector>
+
 #include "attach_env.hpp"
 
 namespace mbgl {
@@ -62,6 +69,112 @@ void OfflineManager::listOfflineRegions(jni::JNIEnv& env_, const jni::Object<Fil
     });
 }
 
+namespace {
+
+mbgl::LatLngBounds regionBounds(const mbgl::OfflineRegionDefinition& definition) {
+    return definition.match(
+        [](const mbgl::OfflineTilePyramidRegionDefinition& def) {
+            return def.bounds;
+        },
+        [](const mbgl::OfflineGeometryRegionDefinition& def) {
+            auto box = mapbox::geometry::envelope(def.geometry);
+            return mbgl::LatLngBounds::hull({ box.min.y, box.min.x }, { box.max.y, box.max.x });
+        });
+}
+
+bool hasMetadataKey(const mbgl::OfflineRegionMetadata& metadata, const std::string& key) {
+    // metadata is opaque to the core, applications usually store a JSON object
+    rapidjson::Document document;
+    document.Parse(reinterpret_cast<const char*>(metadata.data()), metadata.size());
+    return !document.HasParseError() && document.IsObject() && document.HasMember(key.c_str());
+}
+
+} // namespace
+
+void OfflineManager::getOfflineRegions(jni::JNIEnv& env_,
+                                       const jni::Object<FileSource>& jFileSource_,
+                                       const jni::Array<jni::jlong>& ids_,
+                                       jni::jboolean filterBounds,
+                                       jni::jdouble north,
+                                       jni::jdouble east,
+                                       jni::jdouble south,
+                                       jni::jdouble west,
+                                       const jni::String& metadataKey_,
+                                       const jni::Object<ListOfflineRegionsCallback>& callback_) {
+    auto globalCallback = jni::NewGlobal<jni::EnvAttachingDeleter>(env_, callback_);
+    auto globalFilesource = jni::NewGlobal<jni::EnvAttachingDeleter>(env_, jFileSource_);
+
+    mbgl::optional<mbgl::LatLngBounds> bounds;
+    if (filterBounds) {
+        bounds = mbgl::LatLngBounds::hull({ south, west }, { north, east });
+    }
+    mbgl::optional<std::string> metadataKey;
+    if (metadataKey_) {
+        metadataKey = jni::Make<std::string>(env_, metadataKey_);
+    }
+
+    std::size_t length = ids_.Length(env_);
+    std::vector<int64_t> ids(length);
+    auto elements = jni::GetArrayElements(env_, *ids_);
+    std::copy(std::get<0>(elements).get(), std::get<0>(elements).get() + length, ids.begin());
+
+    // Only the regions of the ids are read and decoded, results are collected in the order of the ids
+    struct Lookup {
+        explicit Lookup(std::size_t count) : regions(count), pending(count) {}
+        std::mutex mutex;
+        std::vector<mbgl::optional<mbgl::OfflineRegion>> regions;
+        std::size_t pending;
+        std::exception_ptr error;
+    };
+    auto lookup = std::make_shared<Lookup>(length);
+    //Keep a shared ptr to a global reference of the callback and file source so they are not GC'd in the meanwhile
+    auto callback = std::make_shared<decltype(globalCallback)>(std::move(globalCallback));
+    auto jFileSource = std::make_shared<decltype(globalFilesource)>(std::move(globalFilesource));
+
+    if (length == 0) {
+        mbgl::OfflineRegions none;
+        OfflineManager::ListOfflineRegionsCallback::onList(env_, **jFileSource, **callback, none, true);
+        return;
+    }
+
+    for (std::size_t index = 0; index < length; index++) {
+        fileSource->getOfflineRegion(ids[index], [
+            lookup, callback, jFileSource, index, bounds, metadataKey
+        ](mbgl::expected<mbgl::optional<mbgl::OfflineRegion>, std::exception_ptr> region) mutable {
+            {
+                std::lock_guard<std::mutex> lock(lookup->mutex);
+                if (!region) {
+                    lookup->error = region.error();
+                } else if (*region &&
+                           (!bounds || bounds->intersects(regionBounds((*region)->getDefinition()))) &&
+                           (!metadataKey || hasMetadataKey((*region)->getMetadata(), *metadataKey))) {
+                    lookup->regions[index] = std::move(*region);
+                }
+                if (--lookup->pending > 0) {
+                    return;
+                }
+            }
+
+            // Reattach, the callback comes from a different thread
+            android::UniqueEnv env = android::AttachEnv();
+
+            if (lookup->error) {
+                OfflineManager::ListOfflineRegionsCallback::onError(*env, *callback, lookup->error);
+                return;
+            }
+
+            // regions deleted meanwhile are skipped
+            mbgl::OfflineRegions regions;
+            for (auto& found : lookup->regions) {
+                if (found) {
+                    regions.push_back(std::move(*found));
+                }
+            }
+            OfflineManager::ListOfflineRegionsCallback::onList(*env, *jFileSource, *callback, regions, true);
+        });
+    }
+}
+
 void OfflineManager::createOfflineRegion(jni::JNIEnv& env_,
                                          const jni::Object<FileSource>& jFileSource_,
                                          const jni::Object<OfflineRegionDefinition>& definition_,
@@ -216,6 +329,7 @@ void OfflineManager::registerNative(jni::JNIEnv& env) {
         "finalize",
         METHOD(&OfflineManager::setOfflineMapboxTileCountLimit, "setOfflineMapboxTileCountLimit"),
         METHOD(&OfflineManager::listOfflineRegions, "listOfflineRegions"),
+        METHOD(&OfflineManager::getOfflineRegions, "getOfflineRegions"),
         METHOD(&OfflineManager::createOfflineRegion, "createOfflineRegion"),
         METHOD(&OfflineManager::mergeOfflineRegions, "mergeOfflineRegions"),
         METHOD(&OfflineManager::resetDatabase, "nativeResetDatabase"),
@@ -241,14 +355,15 @@ void OfflineManager::ListOfflineRegionsCallback::onError(jni::JNIEnv& env,
 void OfflineManager::ListOfflineRegionsCallback::onList(jni::JNIEnv& env,
                                                         const jni::Object<FileSource>& jFileSource,
                                                         const jni::Object<OfflineManager::ListOfflineRegionsCallback>& callback,
-                                                        mbgl::OfflineRegions& regions) {
+                                                        mbgl::OfflineRegions& regions,
+                                                        bool lazy) {
     static auto& javaClass = jni::Class<OfflineManager::ListOfflineRegionsCallback>::Singleton(env);
     static auto method = javaClass.GetMethod<void (jni::Array<jni::Object<OfflineRegion>>)>(env, "onList");
 
     std::size_t index = 0;
     auto jregions = jni::Array<jni::Object<OfflineRegion>>::New(env, regions.size());
     for (auto& region : regions) {
-        jregions.Set(env, index, OfflineRegion::New(env, jFileSource, std::move(region)));
+        jregions.Set(env, index, OfflineRegion::New(env, jFileSource, std::move(region), lazy));
         index++;
     }
 
@@ -26,7 +26,8 @@ public:
         static void onList(jni::JNIEnv&,
                             const jni::Object<FileSource>&,
                             const jni::Object<OfflineManager::ListOfflineRegionsCallback>&,
-                            mbgl::OfflineRegions&);
+                            mbgl::OfflineRegions&,
+                            bool lazy = false);
     };
 
     class CreateOfflineRegionCallback {
@@ -72,6 +73,17 @@ public:
 
     void listOfflineRegions(jni::JNIEnv&, const jni::Object<FileSource>&, const jni::Object<ListOfflineRegionsCallback>& callback);
 
+    void getOfflineRegions(jni::JNIEnv&,
+                           const jni::Object<FileSource>&,
+                           const jni::Array<jni::jlong>& ids,
+                           jni::jboolean filterBounds,
+                           jni::jdouble north,
+                           jni::jdouble east,
+                           jni::jdouble south,
+                           jni::jdouble west,
+                           const jni::String& metadataKey,
+                           const jni::Object<ListOfflineRegionsCallback>& callback);
+
     void createOfflineRegion(jni::JNIEnv&,
                              const jni::Object<FileSource>& jFileSource_,
                              const jni::Object<OfflineRegionDefinition>& definition,
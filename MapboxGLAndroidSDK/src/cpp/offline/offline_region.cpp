@@ -72,6 +72,63 @@ void OfflineRegion::setOfflineRegionObserver(jni::JNIEnv& env_, const jni::Objec
     fileSource->setOfflineRegionObserver(*region, std::make_unique<Observer>(jni::NewGlobal<jni::EnvAttachingDeleter>(env_, callback)));
 }
 
+void OfflineRegion::setOfflineRegionProgressObserver(jni::JNIEnv& env_,
+                                                     const jni::Object<OfflineRegion::OfflineRegionProgressTracker>& tracker) {
+
+    // Reports the status as primitives, the tracker records it into a reused object
+    class Observer : public mbgl::OfflineRegionObserver {
+    public:
+        Observer(jni::Global<jni::Object<OfflineRegion::OfflineRegionProgressTracker>, jni::EnvAttachingDeleter> tracker_)
+            : tracker(std::move(tracker_)) {
+        }
+
+        void statusChanged(mbgl::OfflineRegionStatus status) override {
+            // Reattach, the callback comes from a different thread
+            android::UniqueEnv env = android::AttachEnv();
+
+            static auto& javaClass = jni::Class<OfflineRegion::OfflineRegionProgressTracker>::Singleton(*env);
+            static auto method = javaClass.GetMethod<void (jni::jint, jni::jlong, jni::jlong, jni::jlong, jni::jlong,
+                                                           jni::jlong, jni::jboolean)>(*env, "onStatusChanged");
+
+            tracker.Call(*env, method,
+                jni::jint(status.downloadState == mbgl::OfflineRegionDownloadState::Active ? 1 : 0),
+                jni::jlong(status.completedResourceCount),
+                jni::jlong(status.completedResourceSize),
+                jni::jlong(status.completedTileCount),
+                jni::jlong(status.completedTileSize),
+                jni::jlong(status.requiredResourceCount),
+                jni::jboolean(status.requiredResourceCountIsPrecise));
+        }
+
+        void responseError(mbgl::Response::Error error) override {
+            // Reattach, the callback comes from a different thread
+            android::UniqueEnv env = android::AttachEnv();
+
+            static auto& javaClass = jni::Class<OfflineRegion::OfflineRegionProgressTracker>::Singleton(*env);
+            static auto method = javaClass.GetMethod<void (jni::String, jni::String)>(*env, "onError");
+
+            tracker.Call(*env, method,
+                jni::Make<jni::String>(*env, std::string(OfflineRegionError::reason(error.reason))),
+                jni::Make<jni::String>(*env, error.message));
+        }
+
+        void mapboxTileCountLimitExceeded(uint64_t limit) override {
+            // Reattach, the callback comes from a different thread
+            android::UniqueEnv env = android::AttachEnv();
+
+            static auto& javaClass = jni::Class<OfflineRegion::OfflineRegionProgressTracker>::Singleton(*env);
+            static auto method = javaClass.GetMethod<void (jni::jlong)>(*env, "mapboxTileCountLimitExceeded");
+
+            tracker.Call(*env, method, jlong(limit));
+        }
+
+        jni::Global<jni::Object<OfflineRegion::OfflineRegionProgressTracker>, jni::EnvAttachingDeleter> tracker;
+    };
+
+    // Set the observer
+    fileSource->setOfflineRegionObserver(*region, std::make_unique<Observer>(jni::NewGlobal<jni::EnvAttachingDeleter>(env_, tracker)));
+}
+
 void OfflineRegion::setOfflineRegionDownloadState(jni::JNIEnv&, jni::jint jState) {
     // State
     mbgl::OfflineRegionDownloadState state;
@@ -168,26 +225,50 @@ void OfflineRegion::updateOfflineRegionMetadata(jni::JNIEnv& env_, const jni::Ar
 
 jni::Local<jni::Object<OfflineRegion>> OfflineRegion::New(jni::JNIEnv& env,
                                                           const jni::Object<FileSource>& jFileSource,
-                                                          mbgl::OfflineRegion region) {
-    // Definition
-    auto definition = region.getDefinition().match(
+                                                          mbgl::OfflineRegion region,
+                                                          bool lazy) {
+    // Create region java object
+    static auto& javaClass = jni::Class<OfflineRegion>::Singleton(env);
+    static auto constructor = javaClass.GetConstructor<jni::jlong, jni::Object<FileSource>, jni::jlong, jni::Object<OfflineRegionDefinition>, jni::Array<jni::jbyte>>(env);
+
+    auto id = jni::jlong(region.getID());
+    if (lazy) {
+        // Definition and metadata are read from the peer on first access
+        return javaClass.New(env, constructor,
+            reinterpret_cast<jni::jlong>(new mbgl::OfflineRegion(std::move(region))),
+            jFileSource,
+            id,
+            jni::Object<OfflineRegionDefinition>(),
+            jni::Array<jni::jbyte>());
+    }
+
+    auto jDefinition = OfflineRegion::definition(env, region.getDefinition());
+    auto jMetadata = OfflineRegion::metadata(env, region.getMetadata());
+    return javaClass.New(env, constructor,
+        reinterpret_cast<jni::jlong>(new mbgl::OfflineRegion(std::move(region))), //Copy a region to the heap
+        jFileSource,
+        id,
+        jDefinition,
+        jMetadata);
+}
+
+jni::Local<jni::Object<OfflineRegionDefinition>> OfflineRegion::definition(jni::JNIEnv& env,
+                                                                          const mbgl::OfflineRegionDefinition& definition_) {
+    return definition_.match(
         [&](const mbgl::OfflineTilePyramidRegionDefinition def) {
             return OfflineTilePyramidRegionDefinition::New(env, def);
         },
         [&](const mbgl::OfflineGeometryRegionDefinition def) {
             return OfflineGeometryRegionDefinition::New(env, def);
         });
+}
 
-    // Create region java object
-    static auto& javaClass = jni::Class<OfflineRegion>::Singleton(env);
-    static auto constructor = javaClass.GetConstructor<jni::jlong, jni::Object<FileSource>, jni::jlong, jni::Object<OfflineRegionDefinition>, jni::Array<jni::jbyte>>(env);
+jni::Local<jni::Object<OfflineRegionDefinition>> OfflineRegion::getOfflineRegionDefinition(jni::JNIEnv& env_) {
+    return OfflineRegion::definition(env_, region->getDefinition());
+}
 
-    return javaClass.New(env, constructor,
-        reinterpret_cast<jni::jlong>(new mbgl::OfflineRegion(std::move(region))), //Copy a region to the heap
-        jFileSource,
-        jni::jlong(region.getID()),
-        definition,
-        OfflineRegion::metadata(env, region.getMetadata()));
+jni::Local<jni::Array<jni::jbyte>> OfflineRegion::getOfflineRegionMetadata(jni::JNIEnv& env_) {
+    return OfflineRegion::metadata(env_, region->getMetadata());
 }
 
 jni::Local<jni::Array<jni::jbyte>> OfflineRegion::metadata(jni::JNIEnv& env, mbgl::OfflineRegionMetadata metadata_) {
@@ -209,6 +290,7 @@ mbgl::OfflineRegionMetadata OfflineRegion::metadata(jni::JNIEnv& env, const jni:
 
 void OfflineRegion::registerNative(jni::JNIEnv& env) {
     jni::Class<OfflineRegionObserver>::Singleton(env);
+    jni::Class<OfflineRegionProgressTracker>::Singleton(env);
     jni::Class<OfflineRegionStatusCallback>::Singleton(env);
     jni::Class<OfflineRegionDeleteCallback>::Singleton(env);
     jni::Class<OfflineRegionUpdateMetadataCallback>::Singleton(env);
@@ -226,11 +308,14 @@ void OfflineRegion::registerNative(jni::JNIEnv& env) {
         "initialize",
         "finalize",
         METHOD(&OfflineRegion::setOfflineRegionObserver, "setOfflineRegionObserver"),
+        METHOD(&OfflineRegion::setOfflineRegionProgressObserver, "setOfflineRegionProgressObserver"),
         METHOD(&OfflineRegion::setOfflineRegionDownloadState, "setOfflineRegionDownloadState"),
         METHOD(&OfflineRegion::getOfflineRegionStatus, "getOfflineRegionStatus"),
         METHOD(&OfflineRegion::deleteOfflineRegion, "deleteOfflineRegion"),
         METHOD(&OfflineRegion::invalidateOfflineRegion, "invalidateOfflineRegion"),
-        METHOD(&OfflineRegion::updateOfflineRegionMetadata, "updateOfflineRegionMetadata"));
+        METHOD(&OfflineRegion::updateOfflineRegionMetadata, "updateOfflineRegionMetadata"),
+        METHOD(&OfflineRegion::getOfflineRegionDefinition, "getOfflineRegionDefinition"),
+        METHOD(&OfflineRegion::getOfflineRegionMetadata, "getOfflineRegionMetadata"));
 }
 
 // OfflineRegionObserver //
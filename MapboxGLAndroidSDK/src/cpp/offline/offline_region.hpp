@@ -4,6 +4,7 @@
 #include <jni/jni.hpp>
 
 #include "../file_source.hpp"
+#include "offline_region_definition.hpp"
 
 #include <memory>
 
@@ -17,6 +18,11 @@ public:
         static constexpr auto Name() { return "com/mapbox/mapboxsdk/offline/OfflineRegion$OfflineRegionObserver"; };
     };
 
+    class OfflineRegionProgressTracker {
+    public:
+        static constexpr auto Name() { return "com/mapbox/mapboxsdk/offline/OfflineRegionProgressTracker"; };
+    };
+
     class OfflineRegionStatusCallback {
     public:
         static constexpr auto Name() { return "com/mapbox/mapboxsdk/offline/OfflineRegion$OfflineRegionStatusCallback"; };
@@ -65,6 +71,8 @@ public:
 
     void setOfflineRegionObserver(jni::JNIEnv&, const jni::Object<OfflineRegion::OfflineRegionObserver>&);
 
+    void setOfflineRegionProgressObserver(jni::JNIEnv&, const jni::Object<OfflineRegion::OfflineRegionProgressTracker>&);
+
     void setOfflineRegionDownloadState(jni::JNIEnv&, jni::jint);
 
     void getOfflineRegionStatus(jni::JNIEnv&, const jni::Object<OfflineRegion::OfflineRegionStatusCallback>&);
@@ -75,7 +83,14 @@ public:
 
     void updateOfflineRegionMetadata(jni::JNIEnv&, const jni::Array<jni::jbyte>&, const jni::Object<OfflineRegionUpdateMetadataCallback>&);
 
-    static jni::Local<jni::Object<OfflineRegion>> New(jni::JNIEnv&, const jni::Object<FileSource>&, mbgl::OfflineRegion);
+    jni::Local<jni::Object<OfflineRegionDefinition>> getOfflineRegionDefinition(jni::JNIEnv&);
+
+    jni::Local<jni::Array<jni::jbyte>> getOfflineRegionMetadata(jni::JNIEnv&);
+
+    // A lazy region leaves its definition and metadata to be converted on first access
+    static jni::Local<jni::Object<OfflineRegion>> New(jni::JNIEnv&, const jni::Object<FileSource>&, mbgl::OfflineRegion, bool lazy = false);
+
+    static jni::Local<jni::Object<OfflineRegionDefinition>> definition(jni::JNIEnv&, const mbgl::OfflineRegionDefinition&);
 
     static jni::Local<jni::Array<jni::jbyte>> metadata(jni::JNIEnv&, mbgl::OfflineRegionMetadata);
 
@@ -4,36 +4,31 @@ namespace mbgl {
 namespace android {
 
 jni::Local<jni::Object<OfflineRegionError>> OfflineRegionError::New(jni::JNIEnv& env, mbgl::Response::Error error) {
+    static auto& javaClass = jni::Class<OfflineRegionError>::Singleton(env);
+    static auto constructor = javaClass.GetConstructor<jni::String, jni::String>(env);
+
+    return javaClass.New(env, constructor,
+        jni::Make<jni::String>(env, std::string(reason(error.reason))),
+        jni::Make<jni::String>(env, error.message));
+}
 
+const char* OfflineRegionError::reason(mbgl::Response::Error::Reason reason) {
     // Handle the value of reason independently of the underlying int value
-    std::string reason;
-    switch(error.reason) {
+    switch(reason) {
         case mbgl::Response::Error::Reason::Success:
-            reason = "REASON_SUCCESS";
-            break;
+            return "REASON_SUCCESS";
         case mbgl::Response::Error::Reason::NotFound:
-            reason = "REASON_NOT_FOUND";
-            break;
+            return "REASON_NOT_FOUND";
         case mbgl::Response::Error::Reason::Server:
-            reason = "REASON_SERVER";
-            break;
+            return "REASON_SERVER";
         case mbgl::Response::Error::Reason::Connection:
-            reason = "REASON_CONNECTION";
-            break;
+            return "REASON_CONNECTION";
         case mbgl::Response::Error::Reason::RateLimit:
-            reason = "REASON_RATE_LIMIT";
-            break;
+            return "REASON_RATE_LIMIT";
         case mbgl::Response::Error::Reason::Other:
-            reason = "REASON_OTHER";
-            break;
+            return "REASON_OTHER";
     }
-
-    static auto& javaClass = jni::Class<OfflineRegionError>::Singleton(env);
-    static auto constructor = javaClass.GetConstructor<jni::String, jni::String>(env);
-
-    return javaClass.New(env, constructor,
-        jni::Make<jni::String>(env, reason),
-        jni::Make<jni::String>(env, error.message));
+    return "REASON_OTHER";
 }
 
 void OfflineRegionError::registerNative(jni::JNIEnv& env) {
@@ -12,6 +12,8 @@ public:
 
     static jni::Local<jni::Object<OfflineRegionError>> New(jni::JNIEnv&, mbgl::Response::Error);
 
+    static const char* reason(mbgl::Response::Error::Reason);
+
     static void registerNative(jni::JNIEnv&);
 };
 
@@ -0,0 +1,130 @@
+#include "resource_statistics_file_source.hpp"
+
+#include <mbgl/storage/file_source_manager.hpp>
+#include <mbgl/storage/response.hpp>
+
+#include <mutex>
+
+namespace mbgl {
+namespace android {
+
+// ResourceStatisticsFileSource //
+
+std::array<std::atomic<int64_t>, ResourceStatisticsFileSource::KIND_COUNT> ResourceStatisticsFileSource::requests{};
+std::array<std::atomic<int64_t>, ResourceStatisticsFileSource::KIND_COUNT> ResourceStatisticsFileSource::answered{};
+std::array<std::atomic<int64_t>, ResourceStatisticsFileSource::KIND_COUNT> ResourceStatisticsFileSource::deliveredBytes{};
+
+ResourceStatisticsFileSource::ResourceStatisticsFileSource(std::unique_ptr<mbgl::FileSource> source_)
+    : source(std::move(source_)) {}
+
+ResourceStatisticsFileSource::~ResourceStatisticsFileSource() = default;
+
+std::unique_ptr<AsyncRequest> ResourceStatisticsFileSource::request(const Resource& resource, Callback callback) {
+    // Local resources are never cached, mapbox:// URLs are only resolved to network URLs by the loader
+    if (isLocal(resource.url)) {
+        return source->request(resource, std::move(callback));
+    }
+
+    const std::size_t kind = index(resource.kind);
+    requests[kind]++;
+    // A request canceled before its first response isn't answered. A stale cached copy may be followed by a
+    // revalidated one, only the bytes of the latest copy are counted. The loader may copy the callback.
+    struct Delivery {
+        bool answered = false;
+        int64_t bytes = 0;
+    };
+    auto delivery = std::make_shared<Delivery>();
+    return source->request(resource, [kind, delivery, callback = std::move(callback)](Response response) {
+        if (!delivery->answered) {
+            delivery->answered = true;
+            answered[kind]++;
+        }
+        if (response.data) {
+            const auto size = static_cast<int64_t>(response.data->size());
+            deliveredBytes[kind] += size - delivery->bytes;
+            delivery->bytes = size;
+        }
+        callback(std::move(response));
+    });
+}
+
+void ResourceStatisticsFileSource::forward(const Resource& resource,
+                                           const Response& response,
+                                           std::function<void()> callback) {
+    source->forward(resource, response, std::move(callback));
+}
+
+bool ResourceStatisticsFileSource::supportsCacheOnlyRequests() const {
+    return source->supportsCacheOnlyRequests();
+}
+
+bool ResourceStatisticsFileSource::canRequest(const Resource& resource) const {
+    return source->canRequest(resource);
+}
+
+void ResourceStatisticsFileSource::pause() {
+    source->pause();
+}
+
+void ResourceStatisticsFileSource::resume() {
+    source->resume();
+}
+
+void ResourceStatisticsFileSource::setProperty(const std::string& key, const mapbox::base::Value& value) {
+    source->setProperty(key, value);
+}
+
+mapbox::base::Value ResourceStatisticsFileSource::getProperty(const std::string& key) const {
+    return source->getProperty(key);
+}
+
+void ResourceStatisticsFileSource::setResourceTransform(ResourceTransform transform) {
+    source->setResourceTransform(std::move(transform));
+}
+
+void ResourceStatisticsFileSource::install() {
+    static std::once_flag installed;
+    std::call_once(installed, [] {
+        auto* manager = mbgl::FileSourceManager::get();
+        auto factory = manager->unRegisterFileSourceFactory(mbgl::FileSourceType::ResourceLoader);
+        if (!factory) {
+            // Core built without a resource loader
+            return;
+        }
+        manager->registerFileSourceFactory(
+            mbgl::FileSourceType::ResourceLoader,
+            [factory](const mbgl::ResourceOptions& options) -> std::unique_ptr<mbgl::FileSource> {
+                auto loader = factory(options);
+                if (!loader) {
+                    return loader;
+                }
+                return std::make_unique<ResourceStatisticsFileSource>(std::move(loader));
+            });
+    });
+}
+
+std::array<int64_t, ResourceStatisticsFileSource::KIND_COUNT * 3> ResourceStatisticsFileSource::snapshot() {
+    std::array<int64_t, KIND_COUNT * 3> values{};
+    for (std::size_t kind = 0; kind < KIND_COUNT; kind++) {
+        values[kind] = requests[kind];
+        values[KIND_COUNT + kind] = answered[kind];
+        values[KIND_COUNT * 2 + kind] = deliveredBytes[kind];
+    }
+    return values;
+}
+
+bool ResourceStatisticsFileSource::isLocal(const std::string& url) {
+    // Schemes the core serves itself, the render test assets served by LocalRequestTask, and the tile archives
+    // served by TileArchiveHttpRequest
+    return url.compare(0, 8, "asset://") == 0 || url.compare(0, 7, "file://") == 0 ||
+           url.compare(0, 8, "local://") == 0 || url.compare(0, 10, "mbtiles://") == 0 ||
+           url.compare(0, 10, "pmtiles://") == 0;
+}
+
+std::size_t ResourceStatisticsFileSource::index(Resource::Kind kind) {
+    const auto position = static_cast<std::size_t>(kind);
+    return position < KIND_COUNT ? position : 0;
+}
+
+} // namespace android
+} // namespace mbgl
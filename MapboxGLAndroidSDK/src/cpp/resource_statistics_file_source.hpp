@@ -0,0 +1,57 @@
+#pragma once
+
+#include <mbgl/storage/file_source.hpp>
+#include <mbgl/storage/resource.hpp>
+
+#include <array>
+#include <atomic>
+#include <cstdint>
+#include <memory>
+#include <string>
+
+namespace mbgl {
+namespace android {
+
+/**
+ * Decorates the resource loader of the core, counting the resources requested by maps that aren't local,
+ * the requests answered and the bytes delivered to them, per resource kind. Answered requests without a
+ * network response are served from the ambient cache, compare with the network responses counted by the
+ * Java HTTP module.
+ */
+class ResourceStatisticsFileSource : public mbgl::FileSource {
+public:
+    // Kinds of mbgl::Resource::Kind known to the Java Resource class, other kinds are counted as unknown.
+    static constexpr std::size_t KIND_COUNT = 7;
+
+    explicit ResourceStatisticsFileSource(std::unique_ptr<mbgl::FileSource>);
+    ~ResourceStatisticsFileSource() override;
+
+    std::unique_ptr<AsyncRequest> request(const Resource&, Callback) override;
+    void forward(const Resource&, const Response&, std::function<void()> callback) override;
+    bool supportsCacheOnlyRequests() const override;
+    bool canRequest(const Resource&) const override;
+    void pause() override;
+    void resume() override;
+    void setProperty(const std::string&, const mapbox::base::Value&) override;
+    mapbox::base::Value getProperty(const std::string&) const override;
+    void setResourceTransform(ResourceTransform) override;
+
+    // Wraps the resource loader factory registered in the FileSourceManager, once per process.
+    static void install();
+
+    // Request counts of every kind, followed by the answered request counts and the delivered byte counts.
+    static std::array<int64_t, KIND_COUNT * 3> snapshot();
+
+private:
+    static std::size_t index(Resource::Kind);
+    static bool isLocal(const std::string& url);
+
+    static std::array<std::atomic<int64_t>, KIND_COUNT> requests;
+    static std::array<std::atomic<int64_t>, KIND_COUNT> answered;
+    static std::array<std::atomic<int64_t>, KIND_COUNT> deliveredBytes;
+
+    std::unique_ptr<mbgl::FileSource> source;
+};
+
+} // namespace android
+} // namespace mbgl
@@ -0,0 +1,108 @@
+#include "resource_transform_rules.hpp"
+
+namespace mbgl {
+namespace android {
+
+// ResourceTransformRules //
+
+void ResourceTransformRules::addRule(int kindMask, Type type, const std::string& pattern, std::string replacement) {
+    Rule rule { kindMask, type, {}, {}, std::move(replacement) };
+    if (type == Type::Regex) {
+        rule.regex = std::regex(pattern, std::regex::ECMAScript | std::regex::optimize);
+    } else {
+        rule.prefix = pattern;
+    }
+    rules.push_back(std::move(rule));
+}
+
+void ResourceTransformRules::setQuery(Resource::Kind kind, std::string query) {
+    const auto position = static_cast<std::size_t>(kind);
+    if (queries.size() <= position) {
+        queries.resize(position + 1);
+    }
+    queries[position] = std::move(query);
+}
+
+bool ResourceTransformRules::rewrite(Resource::Kind kind, std::string& url) const {
+    const int kindBit = 1 << static_cast<int>(kind);
+    for (const auto& rule : rules) {
+        if (!(rule.kindMask & kindBit)) {
+            continue;
+        }
+        if (rule.type == Type::Prefix) {
+            if (url.compare(0, rule.prefix.size(), rule.prefix) == 0) {
+                url = rule.replacement + url.substr(rule.prefix.size());
+                return true;
+            }
+        } else if (std::regex_search(url, rule.regex)) {
+            url = std::regex_replace(url, rule.regex, rule.replacement);
+            return true;
+        }
+    }
+    return false;
+}
+
+void ResourceTransformRules::appendQuery(Resource::Kind kind, std::string& url) const {
+    const auto position = static_cast<std::size_t>(kind);
+    if (position >= queries.size() || queries[position].empty()) {
+        return;
+    }
+
+    // The query goes before the fragment, if any.
+    const auto fragment = url.find('#');
+    const auto end = fragment == std::string::npos ? url.size() : fragment;
+    const auto questionMark = url.find('?');
+    const char separator = questionMark < end ? (end == questionMark + 1 ? '\0' : '&') : '?';
+
+    std::string query;
+    query.reserve(queries[position].size() + 1);
+    if (separator != '\0') {
+        query += separator;
+    }
+    query += queries[position];
+    url.insert(end, query);
+}
+
+// ResourceTransformCache //
+
+ResourceTransformCache::ResourceTransformCache(std::size_t capacity_) : capacity(capacity_) {
+}
+
+optional<std::string> ResourceTransformCache::get(Resource::Kind kind, const std::string& url) {
+    std::lock_guard<std::mutex> lock(mutex);
+    auto it = index.find(key(kind, url));
+    if (it == index.end()) {
+        return {};
+    }
+    entries.splice(entries.begin(), entries, it->second);
+    return it->second->second;
+}
+
+void ResourceTransformCache::put(Resource::Kind kind, const std::string& url, const std::string& result) {
+    std::lock_guard<std::mutex> lock(mutex);
+    std::string entryKey = key(kind, url);
+    auto it = index.find(entryKey);
+    if (it != index.end()) {
+        it->second->second = result;
+        entries.splice(entries.begin(), entries, it->second);
+        return;
+    }
+
+    entries.emplace_front(entryKey, result);
+    index.emplace(std::move(entryKey), entries.begin());
+    if (entries.size() > capacity) {
+        index.erase(entries.back().first);
+        entries.pop_back();
+    }
+}
+
+std::string ResourceTransformCache::key(Resource::Kind kind, const std::string& url) {
+    std::string result;
+    result.reserve(url.size() + 1);
+    result += static_cast<char>('0' + static_cast<int>(kind));
+    result += url;
+    return result;
+}
+
+} // namespace android
+} // namespace mbgl
@@ -0,0 +1,72 @@
+#pragma once
+
+#include <mbgl/storage/resource.hpp>
+#include <mbgl/util/noncopyable.hpp>
+#include <mbgl/util/optional.hpp>
+
+#include <list>
+#include <mutex>
+#include <regex>
+#include <string>
+#include <unordered_map>
+#include <utility>
+#include <vector>
+
+namespace mbgl {
+namespace android {
+
+/**
+ * URL transform rules compiled from the Java ResourceTransformRules, applied without calling into Java.
+ */
+class ResourceTransformRules : private mbgl::util::noncopyable {
+public:
+    enum class Type { Prefix = 0, Regex = 1 };
+
+    // Throws std::regex_error if the pattern of a regex rule is invalid.
+    void addRule(int kindMask, Type, const std::string& pattern, std::string replacement);
+
+    void setQuery(Resource::Kind, std::string query);
+
+    // Rewrites the url with the first matching rule. Returns false if no rule matched.
+    bool rewrite(Resource::Kind, std::string& url) const;
+
+    // Appends the query parameters of the resource kind, if any.
+    void appendQuery(Resource::Kind, std::string& url) const;
+
+private:
+    struct Rule {
+        int kindMask;
+        Type type;
+        std::string prefix;
+        std::regex regex;
+        std::string replacement;
+    };
+
+    std::vector<Rule> rules;
+    std::vector<std::string> queries;
+};
+
+/**
+ * Bounded LRU cache of transformed urls, safe to use from multiple threads.
+ */
+class ResourceTransformCache : private mbgl::util::noncopyable {
+public:
+    explicit ResourceTransformCache(std::size_t capacity);
+
+    optional<std::string> get(Resource::Kind, const std::string& url);
+
+    void put(Resource::Kind, const std::string& url, const std::string& result);
+
+private:
+    using Entry = std::pair<std::string, std::string>;
+
+    static std::string key(Resource::Kind, const std::string& url);
+
+    std::mutex mutex;
+    const std::size_t capacity;
+    std::list<Entry> entries;
+    std::unordered_map<std::string, std::list<Entry>::iterator> index;
+};
+
+} // namespace android
+} // namespace mbgl
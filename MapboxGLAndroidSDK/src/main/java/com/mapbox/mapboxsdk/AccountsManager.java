@@ -39,10 +39,21 @@ class AccountsManager {
 
   private SharedPreferences sharedPreferences;
   private String userId;
-  private String skuToken;
-  private long timestamp;
+  private volatile String skuToken;
+  private volatile long timestamp;
   private boolean isManaged;
 
+  // SharedPreferences only keeps a weak reference to its listeners
+  private final SharedPreferences.OnSharedPreferenceChangeListener skuTokenListener =
+    new SharedPreferences.OnSharedPreferenceChangeListener() {
+      @Override
+      public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (KEY_PREFERENCE_SKU_TOKEN.equals(key)) {
+          skuToken = sharedPreferences.getString(KEY_PREFERENCE_SKU_TOKEN, "");
+        }
+      }
+    };
+
   AccountsManager() {
     isManaged = isSkuTokenManaged();
     initialize();
@@ -59,6 +70,9 @@ class AccountsManager {
     retrieveSkuTokenAndTimestamp();
     if (isManaged) {
       validateRotation();
+    } else {
+      // the token is managed by the app, keep the cached copy in sync instead of reading it for every request
+      getSharedPreferences().registerOnSharedPreferenceChangeListener(skuTokenListener);
     }
   }
 
@@ -100,19 +114,21 @@ class AccountsManager {
   }
 
   String getSkuToken() {
-    if (isManaged) {
-      if (isExpired()) {
-        skuToken = generateSkuToken(getUserId());
-        timestamp = persistRotation(skuToken);
-      }
-    } else {
-      SharedPreferences sharedPreferences = getSharedPreferences();
-      String notManagedSkuToken = sharedPreferences.getString(KEY_PREFERENCE_SKU_TOKEN, "");
-      skuToken = notManagedSkuToken;
+    if (isManaged && isExpired()) {
+      rotateSkuToken();
     }
     return skuToken;
   }
 
+  private synchronized void rotateSkuToken() {
+    // concurrent requests may have rotated the token in the meantime
+    if (isExpired()) {
+      String rotatedSkuToken = generateSkuToken(getUserId());
+      timestamp = persistRotation(rotatedSkuToken);
+      skuToken = rotatedSkuToken;
+    }
+  }
+
   private boolean isExpired() {
     return isExpired(getNow(), timestamp);
   }
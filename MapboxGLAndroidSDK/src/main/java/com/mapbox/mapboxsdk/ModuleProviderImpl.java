@@ -5,6 +5,7 @@ import androidx.annotation.Nullable;
 import com.mapbox.mapboxsdk.http.HttpRequest;
 import com.mapbox.mapboxsdk.maps.TelemetryDefinition;
 import com.mapbox.mapboxsdk.module.http.HttpRequestImpl;
+import com.mapbox.mapboxsdk.module.http.TileArchiveHttpRequest;
 import com.mapbox.mapboxsdk.module.loader.LibraryLoaderProviderImpl;
 import com.mapbox.mapboxsdk.module.telemetry.TelemetryImpl;
 
@@ -13,7 +14,7 @@ public class ModuleProviderImpl implements ModuleProvider {
   @Override
   @NonNull
   public HttpRequest createHttpRequest() {
-    return new HttpRequestImpl();
+    return new TileArchiveHttpRequest(new HttpRequestImpl());
   }
 
   @Override
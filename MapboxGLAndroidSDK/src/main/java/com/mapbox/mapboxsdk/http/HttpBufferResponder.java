@@ -0,0 +1,33 @@
+package com.mapbox.mapboxsdk.http;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link HttpResponder} that also accepts response bodies held in a direct byte buffer, without copying them into
+ * an array of bytes first.
+ * <p>
+ * Request implementations check for this interface and fall back to
+ * {@link #onResponse(int, String, String, String, String, String, String, byte[])} for other responders.
+ * </p>
+ */
+public interface HttpBufferResponder extends HttpResponder {
+
+  /**
+   * Invoked when a resource has finished, with the response body held in a direct byte buffer.
+   * <p>
+   * The body is read from the buffer's position up to its limit. The buffer is only valid for the
+   * duration of this call, implementations must not retain it.
+   * </p>
+   *
+   * @param responseCode    http response code
+   * @param eTag            http header, identifier for a specific version of a resource
+   * @param lastModified    http header, used to determine if a resource hasn't been modified since
+   * @param cacheControl    http header, used to determine cache strategy of a resource
+   * @param expires         http header, used to determine when a resource is stale
+   * @param retryAfter      http header, used to indicate when the service is expected to be unavailable to the client
+   * @param xRateLimitReset http header, used to determine the remaining window before the rate limit resets
+   * @param body            http response body, in a direct byte buffer representation
+   */
+  void onResponseBuffer(int responseCode, String eTag, String lastModified, String cacheControl, String expires,
+                        String retryAfter, String xRateLimitReset, ByteBuffer body);
+}
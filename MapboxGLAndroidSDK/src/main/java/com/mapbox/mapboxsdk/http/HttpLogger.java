@@ -1,11 +1,25 @@
 package com.mapbox.mapboxsdk.http;
 
 import android.util.Log;
+
+import androidx.annotation.NonNull;
+
 import com.mapbox.mapboxsdk.log.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.mapbox.mapboxsdk.http.HttpRequest.CONNECTION_ERROR;
 import static com.mapbox.mapboxsdk.http.HttpRequest.TEMPORARY_ERROR;
 
+/**
+ * Logger of the HTTP layer.
+ * <p>
+ * Messages are only formatted when they are emitted, either to {@link Logger} or to the in-memory ring buffer
+ * enabled with {@link #setBufferSize(int)}. Use the overloads taking format arguments instead of formatting
+ * the message up front, so that disabled log statements don't allocate.
+ * </p>
+ */
 public class HttpLogger {
 
   private static final String TAG = "Mbgl-HttpRequest";
@@ -13,23 +27,133 @@ public class HttpLogger {
   public static boolean logRequestUrl;
   public static boolean logEnabled = true;
 
+  private static final Object bufferLock = new Object();
+  private static volatile int bufferSize;
+  private static String[] buffer = new String[0];
+  private static int bufferNext;
+  private static int bufferCount;
+
   private HttpLogger(){
   }
 
+  /**
+   * Returns true if a message of a severity would be emitted.
+   *
+   * @param type the log severity
+   * @return true if loggable
+   */
+  public static boolean isLoggable(int type) {
+    return logEnabled && (bufferSize > 0 || Logger.isLoggable(type));
+  }
+
   public static void logFailure(int type, String errorMessage, String requestUrl) {
-    log(type == TEMPORARY_ERROR ? Log.DEBUG : type == CONNECTION_ERROR ? Log.INFO : Log.WARN,
-      String.format(
-        "Request failed due to a %s error: %s %s",
-        type == TEMPORARY_ERROR ? "temporary" : type == CONNECTION_ERROR ? "connection" : "permanent",
-        errorMessage,
-        logRequestUrl ? requestUrl : ""
-      )
-    );
+    int severity = type == TEMPORARY_ERROR ? Log.DEBUG : type == CONNECTION_ERROR ? Log.INFO : Log.WARN;
+    if (isLoggable(severity)) {
+      log(severity,
+        String.format(
+          "Request failed due to a %s error: %s %s",
+          type == TEMPORARY_ERROR ? "temporary" : type == CONNECTION_ERROR ? "connection" : "permanent",
+          errorMessage,
+          logRequestUrl ? requestUrl : ""
+        )
+      );
+    }
   }
 
   public static void log(int type, String errorMessage) {
-    if (logEnabled) {
+    if (!logEnabled) {
+      return;
+    }
+    if (Logger.isLoggable(type)) {
       Logger.log(type, TAG, errorMessage);
     }
+    if (bufferSize > 0) {
+      append(type, errorMessage);
+    }
+  }
+
+  public static void log(int type, String format, Object arg) {
+    if (isLoggable(type)) {
+      log(type, String.format(format, arg));
+    }
+  }
+
+  public static void log(int type, String format, Object arg1, Object arg2) {
+    if (isLoggable(type)) {
+      log(type, String.format(format, arg1, arg2));
+    }
+  }
+
+  public static void log(int type, String format, int arg) {
+    if (isLoggable(type)) {
+      log(type, String.format(format, arg));
+    }
+  }
+
+  public static void log(int type, String format, int arg1, Object arg2) {
+    if (isLoggable(type)) {
+      log(type, String.format(format, arg1, arg2));
+    }
+  }
+
+  /**
+   * Keeps the most recent messages in memory, regardless of the verbosity of {@link Logger}.
+   * The buffer is disabled by default.
+   *
+   * @param size the number of messages to keep, 0 disables the buffer
+   */
+  public static void setBufferSize(int size) {
+    synchronized (bufferLock) {
+      buffer = new String[size];
+      bufferNext = 0;
+      bufferCount = 0;
+      bufferSize = size;
+    }
+  }
+
+  /**
+   * Returns the messages kept in the buffer, from oldest to newest.
+   *
+   * @return the buffered messages
+   */
+  @NonNull
+  public static List<String> dumpBuffer() {
+    synchronized (bufferLock) {
+      List<String> messages = new ArrayList<>(bufferCount);
+      int first = (bufferNext - bufferCount + buffer.length) % Math.max(1, buffer.length);
+      for (int i = 0; i < bufferCount; i++) {
+        messages.add(buffer[(first + i) % buffer.length]);
+      }
+      return messages;
+    }
+  }
+
+  private static void append(int type, String message) {
+    String entry = System.currentTimeMillis() + " " + severityOf(type) + " " + message;
+    synchronized (bufferLock) {
+      if (buffer.length == 0) {
+        return;
+      }
+      buffer[bufferNext] = entry;
+      bufferNext = (bufferNext + 1) % buffer.length;
+      if (bufferCount < buffer.length) {
+        bufferCount++;
+      }
+    }
+  }
+
+  private static char severityOf(int type) {
+    switch (type) {
+      case Log.VERBOSE:
+        return 'V';
+      case Log.DEBUG:
+        return 'D';
+      case Log.INFO:
+        return 'I';
+      case Log.WARN:
+        return 'W';
+      default:
+        return 'E';
+    }
   }
 }
@@ -6,6 +6,11 @@ import com.mapbox.mapboxsdk.Mapbox;
 
 public class HttpRequestUrl {
 
+  private static final String OFFLINE_QUERY = "?offline=true";
+  private static final String OFFLINE_PARAMETER = "&offline=true";
+
+  private static volatile SkuSuffix skuSuffix = new SkuSuffix("");
+
   private HttpRequestUrl() {
   }
 
@@ -23,21 +28,33 @@ public class HttpRequestUrl {
    */
   public static String buildResourceUrl(@NonNull String host, String resourceUrl, int querySize, boolean offline) {
     if (isValidMapboxEndpoint(host)) {
-      if (querySize == 0) {
-        resourceUrl = resourceUrl + "?";
-      } else {
-        resourceUrl = resourceUrl + "&";
-      }
       // Only add SKU token to requests not tagged as "offline" usage.
       if (offline) {
-        resourceUrl = resourceUrl + "offline=true";
+        resourceUrl = resourceUrl.concat(querySize == 0 ? OFFLINE_QUERY : OFFLINE_PARAMETER);
       } else {
-        resourceUrl = resourceUrl + "sku=" + Mapbox.getSkuToken();
+        SkuSuffix suffix = getSkuSuffix(Mapbox.getSkuToken());
+        resourceUrl = resourceUrl.concat(querySize == 0 ? suffix.query : suffix.parameter);
       }
     }
     return resourceUrl;
   }
 
+  /**
+   * Returns the query suffixes for a SKU token, rebuilding them only when the token was rotated.
+   *
+   * @param skuToken the current SKU token
+   * @return the suffixes
+   */
+  @NonNull
+  private static SkuSuffix getSkuSuffix(String skuToken) {
+    SkuSuffix suffix = skuSuffix;
+    if (skuToken == null ? suffix.skuToken != null : !skuToken.equals(suffix.skuToken)) {
+      suffix = new SkuSuffix(skuToken);
+      skuSuffix = suffix;
+    }
+    return suffix;
+  }
+
   /**
    * Validates if the host used as endpoint is a valid Mapbox endpoint.
    *
@@ -50,4 +67,17 @@ public class HttpRequestUrl {
       || host.equals("mapbox.cn")
       || host.endsWith(".mapbox.cn");
   }
+
+  private static final class SkuSuffix {
+
+    private final String skuToken;
+    private final String query;
+    private final String parameter;
+
+    SkuSuffix(String skuToken) {
+      this.skuToken = skuToken;
+      this.query = "?sku=" + skuToken;
+      this.parameter = "&sku=" + skuToken;
+    }
+  }
 }
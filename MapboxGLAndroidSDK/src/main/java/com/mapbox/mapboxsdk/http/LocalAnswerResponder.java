@@ -0,0 +1,16 @@
+package com.mapbox.mapboxsdk.http;
+
+/**
+ * A {@link HttpResponder} told when its request is answered without a network request, for example from a memory
+ * cache or a local tile archive, so that the answer isn't counted as a network response.
+ * <p>
+ * Request implementations answering locally check for this interface, other responders count every answer.
+ * </p>
+ */
+public interface LocalAnswerResponder extends HttpResponder {
+
+  /**
+   * Invoked before the response or the failure of a request answered without a network request.
+   */
+  void onLocalAnswer();
+}
@@ -1,66 +1,202 @@
 package com.mapbox.mapboxsdk.http;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
-import android.os.AsyncTask;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.mapbox.mapboxsdk.MapStrictMode;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.log.Logger;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-class LocalRequestTask extends AsyncTask<String, Void, byte[]> {
+/**
+ * Serves the render test assets under {@code integration/} for {@code local://} urls.
+ * <p>
+ * The core serves {@code asset://} and {@code file://} urls itself, these never reach the HTTP module.
+ * Requests run in parallel on a small pool of threads. Uncompressed assets are memory mapped and handed
+ * to the responder without an intermediate copy.
+ * </p>
+ */
+class LocalRequestTask implements Runnable {
 
   private static final String TAG = "Mbgl-LocalRequestTask";
 
-  private OnLocalRequestResponse requestResponse;
+  private static final String LOCAL_SCHEME = "local://";
+  private static final String LOCAL_ASSET_DIRECTORY = "integration/";
 
-  LocalRequestTask(OnLocalRequestResponse requestResponse) {
-    this.requestResponse = requestResponse;
+  private static final int THREAD_COUNT = 4;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final ThreadPoolExecutor executor = getExecutor();
+
+  private final String resourceUrl;
+  private final HttpResponder httpResponder;
+
+  private LocalRequestTask(@NonNull String resourceUrl, @NonNull HttpResponder httpResponder) {
+    this.resourceUrl = resourceUrl;
+    this.httpResponder = httpResponder;
   }
 
-  @Nullable
-  @Override
-  protected byte[] doInBackground(String... strings) {
-    return loadFile(Mapbox.getApplicationContext().getAssets(),
-      "integration/" + strings[0]
-        .substring(8)
-        .replaceAll("%20", " ")
-        .replaceAll("%2c", ","));
+  /**
+   * Returns true if the url addresses a render test asset.
+   *
+   * @param url the url to check
+   * @return true if served by this task
+   */
+  static boolean isLocalUrl(@NonNull String url) {
+    return url.startsWith(LOCAL_SCHEME);
+  }
+
+  /**
+   * Schedules the request of a local resource.
+   *
+   * @param resourceUrl   the url of the resource
+   * @param httpResponder the responder to deliver the resource to
+   * @return the scheduled request, can be cancelled
+   */
+  @NonNull
+  static Future<?> execute(@NonNull String resourceUrl, @NonNull HttpResponder httpResponder) {
+    return executor.submit(new LocalRequestTask(resourceUrl, httpResponder));
   }
 
   @Override
-  protected void onPostExecute(@Nullable byte[] bytes) {
-    super.onPostExecute(bytes);
-    if (bytes != null && requestResponse != null) {
-      requestResponse.onResponse(bytes);
+  public void run() {
+    ByteBuffer buffer;
+    try {
+      buffer = loadAsset(Mapbox.getApplicationContext().getAssets(), getPath(resourceUrl));
+    } catch (FileNotFoundException exception) {
+      // answer first, the strict mode violation throws
+      httpResponder.onResponse(404, null, null, null, null, null, null, null);
+      logFileError(exception);
+      return;
+    } catch (IOException | RuntimeException exception) {
+      // the task runs as a future, an exception escaping it would be lost along with the response
+      String message = exception.getMessage() != null ? exception.getMessage() : "Load file failed";
+      httpResponder.handleFailure(HttpRequest.PERMANENT_ERROR, message);
+      logFileError(exception);
+      return;
+    }
+
+    if (buffer.isDirect() && httpResponder instanceof HttpBufferResponder) {
+      ((HttpBufferResponder) httpResponder).onResponseBuffer(200, null, null, null, null, null, null, buffer);
+    } else {
+      httpResponder.onResponse(200, null, null, null, null, null, null, toArray(buffer));
+    }
+  }
+
+  /**
+   * Returns the decoded path of a local url, relative to the assets.
+   *
+   * @param url the local url
+   * @return the path
+   */
+  @VisibleForTesting
+  @NonNull
+  static String getPath(@NonNull String url) {
+    return LOCAL_ASSET_DIRECTORY + percentDecode(url, LOCAL_SCHEME.length());
+  }
+
+  /**
+   * Decodes the percent encoded UTF-8 sequences of a url, in a single pass.
+   */
+  @VisibleForTesting
+  @NonNull
+  static String percentDecode(@NonNull String url, int start) {
+    int index = url.indexOf('%', start);
+    if (index < 0) {
+      return url.substring(start);
+    }
+
+    StringBuilder builder = new StringBuilder(url.length() - start);
+    builder.append(url, start, index);
+    byte[] bytes = null;
+    while (index < url.length()) {
+      char c = url.charAt(index);
+      if (c != '%') {
+        builder.append(c);
+        index++;
+        continue;
+      }
+
+      // a sequence of encoded bytes can form a single multi-byte character
+      if (bytes == null) {
+        bytes = new byte[(url.length() - index) / 3];
+      }
+      int count = 0;
+      while (index + 2 < url.length() && url.charAt(index) == '%') {
+        int high = Character.digit(url.charAt(index + 1), 16);
+        int low = Character.digit(url.charAt(index + 2), 16);
+        if (high < 0 || low < 0) {
+          break;
+        }
+        bytes[count++] = (byte) ((high << 4) + low);
+        index += 3;
+      }
+      if (count == 0) {
+        // not an escape sequence, keep as is
+        builder.append(c);
+        index++;
+      } else {
+        builder.append(new String(bytes, 0, count, UTF_8));
+      }
     }
+    return builder.toString();
   }
 
-  @Nullable
-  private static byte[] loadFile(AssetManager assets, @NonNull String path) {
-    byte[] buffer = null;
-    InputStream input = null;
+  @NonNull
+  private static ByteBuffer loadAsset(@NonNull AssetManager assets, @NonNull String path) throws IOException {
+    AssetFileDescriptor descriptor;
     try {
-      input = assets.open(path);
-      int size = input.available();
-      buffer = new byte[size];
-      input.read(buffer);
-    } catch (IOException exception) {
-      logFileError(exception);
+      descriptor = assets.openFd(path);
+    } catch (FileNotFoundException exception) {
+      // compressed assets can't be mapped, stream them instead
+      return ByteBuffer.wrap(readFully(assets.open(path)));
+    }
+
+    try {
+      FileChannel channel = descriptor.createInputStream().getChannel();
+      return channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength());
     } finally {
-      if (input != null) {
-        try {
-          input.close();
-        } catch (IOException exception) {
-          logFileError(exception);
-        }
+      descriptor.close();
+    }
+  }
+
+  @NonNull
+  private static byte[] toArray(@NonNull ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return buffer.array();
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  @NonNull
+  private static byte[] readFully(@NonNull InputStream input) throws IOException {
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(input.available(), 8192));
+      byte[] chunk = new byte[8192];
+      int read;
+      while ((read = input.read(chunk)) != -1) {
+        output.write(chunk, 0, read);
       }
+      return output.toByteArray();
+    } finally {
+      input.close();
     }
-    return buffer;
   }
 
   private static void logFileError(Exception exception) {
@@ -69,7 +205,16 @@ class LocalRequestTask extends AsyncTask<String, Void, byte[]> {
     MapStrictMode.strictModeViolation(message, exception);
   }
 
-  public interface OnLocalRequestResponse {
-    void onResponse(byte[] bytes);
+  @NonNull
+  private static ThreadPoolExecutor getExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+          return new Thread(runnable, "Mbgl-LocalRequest");
+        }
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 }
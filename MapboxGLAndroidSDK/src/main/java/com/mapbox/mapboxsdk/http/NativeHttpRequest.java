@@ -4,87 +4,213 @@ import androidx.annotation.Keep;
 import androidx.annotation.Nullable;
 import com.mapbox.mapboxsdk.Mapbox;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
 
 @Keep
-public class NativeHttpRequest implements HttpResponder {
+public class NativeHttpRequest implements HttpBufferResponder, LocalAnswerResponder {
 
   private final HttpRequest httpRequest = Mapbox.getModuleProvider().createHttpRequest();
 
-  // Reentrancy is not needed, but "Lock" is an abstract class.
-  private final ReentrantLock lock = new ReentrantLock();
+  private final RequestCompletion completion = new RequestCompletion();
+
+  @Nullable
+  private Future<?> localRequest;
+
+  private final boolean interactive;
+
+  private final boolean offline;
+
+  private final int kind;
+
+  // answered from a memory cache or a tile archive, not counted as a network response
+  private volatile boolean local;
 
   @Keep
   private long nativePtr;
 
+  // commits responses to the native peer, if it is still alive, released once delivered or cancelled
+  private final long nativeDelivery;
+
   @Keep
-  private NativeHttpRequest(long nativePtr, String resourceUrl, String etag, String modified, boolean offlineUsage) {
+  private NativeHttpRequest(final long nativePtr, final long nativeDelivery, final String resourceUrl,
+                            final String etag, final String modified, final boolean offlineUsage, final int kind,
+                            final boolean lowPriority) {
     this.nativePtr = nativePtr;
+    this.nativeDelivery = nativeDelivery;
+    this.kind = kind;
 
-    if (resourceUrl.startsWith("local://")) {
-      // used by render test to serve files from assets
-      executeLocalRequest(resourceUrl);
+    if (LocalRequestTask.isLocalUrl(resourceUrl)) {
+      interactive = false;
+      offline = false;
+      localRequest = LocalRequestTask.execute(resourceUrl, this);
+      return;
+    }
+
+    interactive = !offlineUsage;
+    offline = offlineUsage;
+    if (interactive) {
+      NetworkResponseStatistics.requested(kind);
+      OfflineRequestGate.interactiveStarted();
+    } else if (OfflineRequestGate.isEnabled() && OfflineRequestGate.hold(this, new Runnable() {
+      @Override
+      public void run() {
+        if (completion.isPending()) {
+          execute(nativePtr, resourceUrl, etag, modified, true, kind, lowPriority);
+          // a cancel racing the release found the request neither held nor started
+          if (completion.getState() == RequestCompletion.CANCELLED) {
+            httpRequest.cancelRequest();
+          }
+        }
+      }
+    })) {
       return;
     }
-    httpRequest.executeRequest(this, nativePtr, resourceUrl, etag, modified, offlineUsage);
+    execute(nativePtr, resourceUrl, etag, modified, offlineUsage, kind, lowPriority);
+  }
+
+  private void execute(long nativePtr, String resourceUrl, String etag, String modified, boolean offlineUsage,
+                       int kind, boolean lowPriority) {
+    if (httpRequest instanceof ResourceHttpRequest) {
+      ((ResourceHttpRequest) httpRequest).executeRequest(this, nativePtr, resourceUrl, etag, modified, offlineUsage,
+        kind, lowPriority);
+    } else {
+      httpRequest.executeRequest(this, nativePtr, resourceUrl, etag, modified, offlineUsage);
+    }
   }
 
   public void cancel() {
-    httpRequest.cancelRequest();
-
-    // TODO: We need a lock here because we can try
-    // to cancel at the same time the request is getting
-    // answered on the OkHTTP thread. We could get rid of
-    // this lock by using Runnable when we move Android
-    // implementation of mbgl::RunLoop to Looper.
-    lock.lock();
-    nativePtr = 0;
-    lock.unlock();
+    // marked first, so that a request released by the offline gate meanwhile cancels itself once started
+    boolean pending = completion.cancel();
+    if (localRequest != null) {
+      localRequest.cancel(false);
+    } else if (!OfflineRequestGate.remove(this)) {
+      httpRequest.cancelRequest();
+    }
+    if (pending) {
+      // no delivery started, nor will
+      nativeReleaseDelivery(nativeDelivery);
+      finished();
+    }
+  }
+
+  @Override
+  public void onLocalAnswer() {
+    if (!local) {
+      local = true;
+      if (interactive) {
+        NetworkResponseStatistics.answeredLocally(kind);
+      }
+    }
   }
 
   public void onResponse(int responseCode, String etag, String lastModified, String cacheControl, String expires,
                          String retryAfter, String xRateLimitReset, byte[] body) {
-    lock.lock();
-    if (nativePtr != 0) {
-      nativeOnResponse(responseCode,
+    if (completion.isPending()) {
+      if (local) {
+        // not a network response
+      } else if (offline) {
+        OfflineResponseStatistics.record(responseCode, body != null ? body.length : 0);
+      } else if (interactive) {
+        NetworkResponseStatistics.record(kind, responseCode, body != null ? body.length : 0);
+      }
+      deliver(nativePrepareResponse(responseCode,
         etag,
         lastModified,
         cacheControl,
         expires,
         retryAfter,
         xRateLimitReset,
-        body);
+        body));
     }
-    lock.unlock();
   }
 
-  private void executeLocalRequest(String resourceUrl) {
-    new LocalRequestTask(new LocalRequestTask.OnLocalRequestResponse() {
-      @Override
-      public void onResponse(@Nullable byte[] bytes) {
-        if (bytes != null) {
-          lock.lock();
-          if (nativePtr != 0) {
-            NativeHttpRequest.this.nativeOnResponse(200, null, null, null, null, null, null, bytes);
-          }
-          lock.unlock();
-        }
+  public void onResponseBuffer(int responseCode, String etag, String lastModified, String cacheControl,
+                               String expires, String retryAfter, String xRateLimitReset, ByteBuffer body) {
+    if (completion.isPending()) {
+      // the native side reads from the start of the buffer
+      ByteBuffer data = body.position() == 0 ? body : body.slice();
+      if (local) {
+        // not a network response
+      } else if (offline) {
+        OfflineResponseStatistics.record(responseCode, data.remaining());
+      } else if (interactive) {
+        NetworkResponseStatistics.record(kind, responseCode, data.remaining());
       }
-    }).execute(resourceUrl);
+      deliver(nativePrepareResponseBuffer(responseCode,
+        etag,
+        lastModified,
+        cacheControl,
+        expires,
+        retryAfter,
+        xRateLimitReset,
+        data,
+        data.remaining()));
+    }
   }
 
   public void handleFailure(int type, String errorMessage) {
-    lock.lock();
-    if (nativePtr != 0) {
-      nativeOnFailure(type, errorMessage);
+    if (completion.beginDelivery()) {
+      if (interactive && !local) {
+        NetworkResponseStatistics.failed(kind);
+      }
+      try {
+        nativeOnFailure(nativeDelivery, type, errorMessage);
+      } finally {
+        endDelivery();
+      }
+    }
+  }
+
+  /**
+   * Hands a response prepared off the native peer over to it, or releases it if the request was cancelled
+   * in the meantime. A {@link #cancel()} racing the hand over doesn't wait for it: the peer closes its mailbox
+   * before it is released, which drops the committed response.
+   */
+  private void deliver(long response) {
+    if (completion.beginDelivery()) {
+      try {
+        nativeCommitResponse(nativeDelivery, response);
+      } finally {
+        endDelivery();
+      }
+    } else {
+      nativeReleaseResponse(response);
     }
-    lock.unlock();
   }
 
+  private void endDelivery() {
+    completion.endDelivery();
+    // a cancel during the delivery left the delivery to this thread
+    nativeReleaseDelivery(nativeDelivery);
+    finished();
+  }
+
+  private void finished() {
+    if (interactive) {
+      OfflineRequestGate.interactiveFinished();
+    }
+  }
+
+  @Keep
+  private static native void nativeOnFailure(long delivery, int type, String message);
+
+  @Keep
+  private static native void nativeCommitResponse(long delivery, long response);
+
+  @Keep
+  private static native void nativeReleaseDelivery(long delivery);
+
+  @Keep
+  private static native long nativePrepareResponse(int code, String etag, String modified, String cacheControl,
+                                                   String expires, String retryAfter, String xRateLimitReset,
+                                                   byte[] body);
+
   @Keep
-  private native void nativeOnFailure(int type, String message);
+  private static native long nativePrepareResponseBuffer(int code, String etag, String modified,
+                                                         String cacheControl, String expires, String retryAfter,
+                                                         String xRateLimitReset, ByteBuffer body, int length);
 
   @Keep
-  private native void nativeOnResponse(int code, String etag, String modified, String cacheControl, String expires,
-                                       String retryAfter, String xRateLimitReset, byte[] body);
+  private static native void nativeReleaseResponse(long response);
 }
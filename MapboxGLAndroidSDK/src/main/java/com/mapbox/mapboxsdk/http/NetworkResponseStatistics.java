@@ -0,0 +1,108 @@
+package com.mapbox.mapboxsdk.http;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the network requests made for maps since the process started, per {@link Resource.Kind}.
+ * <p>
+ * Maps only request a resource from the network if the ambient cache doesn't hold it, or holds a copy that
+ * expired. A revalidated copy is either modified, answered with a new body, or not modified, answered with
+ * status code 304. Offline region downloads are counted by {@link OfflineResponseStatistics} instead. Requests
+ * answered without a network request, see {@link LocalAnswerResponder}, aren't counted.
+ * </p>
+ */
+public final class NetworkResponseStatistics {
+
+  /**
+   * Number of resource kinds counted, kinds out of range are counted as {@link Resource#UNKNOWN}.
+   */
+  public static final int KIND_COUNT = Resource.SPRITE_JSON + 1;
+
+  private static final AtomicLongArray requestCount = new AtomicLongArray(KIND_COUNT);
+  private static final AtomicLongArray answeredCount = new AtomicLongArray(KIND_COUNT);
+  private static final AtomicLongArray modifiedCount = new AtomicLongArray(KIND_COUNT);
+  private static final AtomicLongArray notModifiedCount = new AtomicLongArray(KIND_COUNT);
+  private static final AtomicLongArray receivedBytes = new AtomicLongArray(KIND_COUNT);
+
+  private NetworkResponseStatistics() {
+  }
+
+  static void requested(int kind) {
+    requestCount.incrementAndGet(index(kind));
+  }
+
+  static void answeredLocally(int kind) {
+    requestCount.decrementAndGet(index(kind));
+  }
+
+  static void record(int kind, int responseCode, long length) {
+    answeredCount.incrementAndGet(index(kind));
+    if (responseCode == 304) {
+      notModifiedCount.incrementAndGet(index(kind));
+    } else if (responseCode >= 200 && responseCode < 300) {
+      modifiedCount.incrementAndGet(index(kind));
+      receivedBytes.addAndGet(index(kind), length);
+    }
+  }
+
+  /**
+   * Returns the number of network requests made for maps, including the failed and canceled ones.
+   *
+   * @param kind the resource kind
+   * @return the request count
+   */
+  public static long getRequestCount(@Resource.Kind int kind) {
+    return requestCount.get(index(kind));
+  }
+
+  static void failed(int kind) {
+    answeredCount.incrementAndGet(index(kind));
+  }
+
+  /**
+   * Returns the number of network requests made for maps which got a response or failed, leaving out the
+   * canceled ones.
+   *
+   * @param kind the resource kind
+   * @return the answered request count
+   */
+  public static long getAnsweredCount(@Resource.Kind int kind) {
+    return answeredCount.get(index(kind));
+  }
+
+  /**
+   * Returns the number of successful responses carrying a body.
+   *
+   * @param kind the resource kind
+   * @return the modified resource count
+   */
+  public static long getModifiedCount(@Resource.Kind int kind) {
+    return modifiedCount.get(index(kind));
+  }
+
+  /**
+   * Returns the number of responses confirming that a cached resource didn't change.
+   *
+   * @param kind the resource kind
+   * @return the not modified resource count
+   */
+  public static long getNotModifiedCount(@Resource.Kind int kind) {
+    return notModifiedCount.get(index(kind));
+  }
+
+  /**
+   * Returns the size of the bodies of the successful responses, in bytes.
+   *
+   * @param kind the resource kind
+   * @return the received byte count
+   */
+  public static long getReceivedBytes(@Resource.Kind int kind) {
+    return receivedBytes.get(index(kind));
+  }
+
+  private static int index(int kind) {
+    return kind >= 0 && kind < KIND_COUNT ? kind : Resource.UNKNOWN;
+  }
+}
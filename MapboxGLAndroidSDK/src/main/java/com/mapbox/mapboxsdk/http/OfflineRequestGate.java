@@ -0,0 +1,119 @@
+package com.mapbox.mapboxsdk.http;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds back the requests of offline region downloads while the interactive map is loading resources.
+ * <p>
+ * Every request that isn't made for an offline download counts as interactive while it is in flight.
+ * When enabled, offline requests created while interactive requests are in flight are held, and started
+ * together once the last interactive request completed. Requests already started aren't interrupted.
+ * </p>
+ */
+public final class OfflineRequestGate {
+
+  private static final AtomicInteger interactiveRequests = new AtomicInteger();
+  private static final Map<Object, Runnable> held = new LinkedHashMap<>();
+  private static volatile boolean enabled;
+
+  private OfflineRequestGate() {
+  }
+
+  /**
+   * Enables or disables holding back offline requests. Requests held so far are started when disabled.
+   *
+   * @param enabled true to hold offline requests while interactive requests are in flight
+   */
+  public static void setEnabled(boolean enabled) {
+    synchronized (held) {
+      OfflineRequestGate.enabled = enabled;
+    }
+    if (!enabled) {
+      release(true);
+    }
+  }
+
+  /**
+   * Returns true if offline requests are held back while interactive requests are in flight.
+   *
+   * @return true if enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the number of offline requests currently held back.
+   *
+   * @return the held request count
+   */
+  public static int getHeldRequestCount() {
+    synchronized (held) {
+      return held.size();
+    }
+  }
+
+  /**
+   * Holds an offline request if interactive requests are in flight.
+   *
+   * @param request the offline request
+   * @param start   starts the request once released
+   * @return true if the request was held, false if it should start right away
+   */
+  static boolean hold(@NonNull Object request, @NonNull Runnable start) {
+    synchronized (held) {
+      if (!enabled || interactiveRequests.get() == 0) {
+        return false;
+      }
+      held.put(request, start);
+      return true;
+    }
+  }
+
+  /**
+   * Removes a held request which got cancelled.
+   *
+   * @param request the cancelled request
+   * @return true if the request was still held
+   */
+  static boolean remove(@NonNull Object request) {
+    synchronized (held) {
+      return held.remove(request) != null;
+    }
+  }
+
+  static void interactiveStarted() {
+    interactiveRequests.incrementAndGet();
+  }
+
+  static void interactiveFinished() {
+    if (interactiveRequests.decrementAndGet() == 0) {
+      release(false);
+    }
+  }
+
+  static int getInteractiveRequestCount() {
+    return interactiveRequests.get();
+  }
+
+  private static void release(boolean all) {
+    List<Runnable> starts;
+    synchronized (held) {
+      // an interactive request may have started meanwhile
+      if (held.isEmpty() || (!all && interactiveRequests.get() > 0)) {
+        return;
+      }
+      starts = new ArrayList<>(held.values());
+      held.clear();
+    }
+    for (Runnable start : starts) {
+      start.run();
+    }
+  }
+}
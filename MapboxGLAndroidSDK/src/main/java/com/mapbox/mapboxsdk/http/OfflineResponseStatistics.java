@@ -0,0 +1,56 @@
+package com.mapbox.mapboxsdk.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the responses received for offline region downloads since the process started.
+ * <p>
+ * A revalidated resource is either modified, answered with a new body, or not modified, answered with
+ * status code 304. Comparing the counts before and after a download tells how many resources changed.
+ * </p>
+ */
+public final class OfflineResponseStatistics {
+
+  private static final AtomicLong modifiedCount = new AtomicLong();
+  private static final AtomicLong notModifiedCount = new AtomicLong();
+  private static final AtomicLong receivedBytes = new AtomicLong();
+
+  private OfflineResponseStatistics() {
+  }
+
+  static void record(int responseCode, long length) {
+    if (responseCode == 304) {
+      notModifiedCount.incrementAndGet();
+    } else if (responseCode >= 200 && responseCode < 300) {
+      modifiedCount.incrementAndGet();
+      receivedBytes.addAndGet(length);
+    }
+  }
+
+  /**
+   * Returns the number of successful offline responses carrying a body.
+   *
+   * @return the modified resource count
+   */
+  public static long getModifiedCount() {
+    return modifiedCount.get();
+  }
+
+  /**
+   * Returns the number of offline responses confirming that a resource didn't change.
+   *
+   * @return the not modified resource count
+   */
+  public static long getNotModifiedCount() {
+    return notModifiedCount.get();
+  }
+
+  /**
+   * Returns the size of the bodies of the successful offline responses, in bytes.
+   *
+   * @return the received byte count
+   */
+  public static long getReceivedBytes() {
+    return receivedBytes.get();
+  }
+}
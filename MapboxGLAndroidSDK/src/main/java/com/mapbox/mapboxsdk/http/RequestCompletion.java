@@ -0,0 +1,69 @@
+package com.mapbox.mapboxsdk.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completion state of a {@link NativeHttpRequest}, shared by the thread delivering the response and the
+ * thread cancelling the request.
+ * <p>
+ * A request is delivered at most once: PENDING moves to DELIVERING and then DONE, or to CANCELLED.
+ * A cancel racing a delivery doesn't wait for it: DELIVERING moves to CANCELLED, and the delivering thread
+ * completes the delivery into the mailbox of the native peer, which the peer closed before being released.
+ * </p>
+ */
+final class RequestCompletion {
+
+  static final int PENDING = 0;
+  static final int DELIVERING = 1;
+  static final int DONE = 2;
+  static final int CANCELLED = 3;
+
+  private final AtomicInteger state = new AtomicInteger(PENDING);
+
+  /**
+   * Claims the delivery of the response.
+   *
+   * @return true if the caller may deliver, false if the request was delivered or cancelled already
+   */
+  boolean beginDelivery() {
+    return state.compareAndSet(PENDING, DELIVERING);
+  }
+
+  /**
+   * Ends a delivery claimed with {@link #beginDelivery()}. A request cancelled during the delivery stays
+   * cancelled.
+   */
+  void endDelivery() {
+    state.compareAndSet(DELIVERING, DONE);
+  }
+
+  /**
+   * Prevents any further delivery, without waiting for a delivery in progress.
+   *
+   * @return true if the request was still pending, false if it was being delivered, delivered or cancelled
+   */
+  boolean cancel() {
+    while (true) {
+      int current = state.get();
+      if (current == DONE || current == CANCELLED) {
+        return false;
+      }
+      if (state.compareAndSet(current, CANCELLED)) {
+        return current == PENDING;
+      }
+    }
+  }
+
+  /**
+   * Returns true if a response may still be delivered.
+   *
+   * @return true if pending
+   */
+  boolean isPending() {
+    return state.get() == PENDING;
+  }
+
+  int getState() {
+    return state.get();
+  }
+}
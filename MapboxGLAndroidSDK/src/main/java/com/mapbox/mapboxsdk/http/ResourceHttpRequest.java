@@ -0,0 +1,30 @@
+package com.mapbox.mapboxsdk.http;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+/**
+ * Extension of {@link HttpRequest} for implementations that take the kind and the priority of the requested
+ * resource into account.
+ * <p>
+ * When the {@link HttpRequest} created by the module provider implements this interface, requests are executed
+ * through {@link #executeRequest(HttpResponder, long, String, String, String, boolean, int, boolean)} instead.
+ * </p>
+ */
+public interface ResourceHttpRequest extends HttpRequest {
+
+  /**
+   * Executes the request.
+   *
+   * @param httpRequest  callback to be invoked when we receive a response
+   * @param nativePtr    the pointer associated to the request
+   * @param resourceUrl  the resource url to download
+   * @param etag         http header, identifier for a specific version of a resource
+   * @param modified     http header, used to determine if a resource hasn't been modified since
+   * @param offlineUsage flag to indicate a resource will be used for offline, appends offline=true as a query parameter
+   * @param kind         the kind of the requested resource
+   * @param lowPriority  flag to indicate the resource isn't needed to render the current viewport, eg. prefetching
+   */
+  void executeRequest(HttpResponder httpRequest, long nativePtr, String resourceUrl,
+                      String etag, String modified, boolean offlineUsage,
+                      @Resource.Kind int kind, boolean lowPriority);
+}
@@ -89,6 +89,19 @@ public final class Logger {
     Logger.logLevel = logLevel;
   }
 
+  /**
+   * Check whether a log message of a severity is emitted with the current verbosity.
+   * <p>
+   * This can be used to skip building log messages that won't be emitted.
+   * </p>
+   *
+   * @param severity the log severity
+   * @return true if a message of this severity is emitted
+   */
+  public static boolean isLoggable(int severity) {
+    return logLevel <= severity;
+  }
+
   /**
    * Replace the current used logger definition.
    *
@@ -0,0 +1,433 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.http.HttpLogger;
+import com.mapbox.mapboxsdk.http.HttpBufferResponder;
+import com.mapbox.mapboxsdk.http.HttpResponder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Shares a single OkHttp call between all requests for the same resource that are in flight at the same time.
+ * <p>
+ * Requests are keyed on the normalized url and their conditional headers. The response of the shared call is
+ * fanned out to every attached {@link HttpResponder}. The call is only cancelled once all of them detached.
+ * </p>
+ * <p>
+ * Calls are dispatched through a {@link HttpRequestScheduler}, with the highest priority of the attached requests.
+ * Calls to a host paused by its {@link HostBackoff} wait outside the scheduler until the pause ends, calls failing
+ * temporarily are dispatched again after a backoff delay.
+ * </p>
+ * <p>
+ * Cancellations are batched: they are queued without locking and drained together on a background executor,
+ * so that the hundreds of requests the core cancels after a large camera change cost one pass over the
+ * scheduler and one log line instead of one each.
+ * </p>
+ */
+final class CallCoalescer {
+
+  private final Map<String, CoalescedCall> calls = new HashMap<>();
+  private final HttpRequestScheduler scheduler;
+  private final HostBackoff backoff;
+  private final Executor cancelExecutor;
+  private final Queue<Cancellation> cancellations = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final Runnable drainTask = new Runnable() {
+    @Override
+    public void run() {
+      int cancelled = drainCancellations();
+      if (cancelled > 0) {
+        HttpLogger.log(Log.DEBUG, "[HTTP] %d requests were cancelled. This is expected for tiles that were being"
+          + " prefetched but are no longer needed for the map to render.", cancelled);
+      }
+    }
+  };
+
+  CallCoalescer(@NonNull HttpRequestScheduler scheduler, @NonNull HostBackoff backoff,
+                @NonNull Executor cancelExecutor) {
+    this.scheduler = scheduler;
+    this.backoff = backoff;
+    this.cancelExecutor = cancelExecutor;
+  }
+
+  /**
+   * Attaches a responder to the in-flight call for the request, creating it if needed.
+   * The call still needs to be started with {@link CoalescedCall#start(OkHttpClient, Callback)}.
+   *
+   * @param request   the request to execute
+   * @param responder the responder to notify
+   * @param priority  the priority class of the request
+   * @return the shared call
+   */
+  @NonNull
+  CoalescedCall join(@NonNull Request request, @NonNull HttpResponder responder,
+                     @HttpRequestPriority.Priority int priority) {
+    String key = keyOf(request);
+    CoalescedCall call;
+    int previousPriority;
+    synchronized (calls) {
+      call = calls.get(key);
+      if (call == null) {
+        call = new CoalescedCall(this, key, request, priority);
+        calls.put(key, call);
+      }
+      call.responders.add(responder);
+      previousPriority = call.priority;
+      if (priority >= previousPriority || !call.submitted) {
+        call.priority = Math.min(priority, previousPriority);
+        return call;
+      }
+      call.priority = priority;
+    }
+    // a more urgent request joined a call that is still waiting to be dispatched
+    scheduler.reprioritize(call, previousPriority, priority);
+    return call;
+  }
+
+  /**
+   * Queues the detachment of a responder from its call, to be drained with other cancellations.
+   * The responder may still be notified until then.
+   *
+   * @param call      the call the responder joined
+   * @param responder the responder to detach
+   */
+  void cancel(@NonNull CoalescedCall call, @NonNull HttpResponder responder) {
+    cancellations.add(new Cancellation(call, responder));
+    if (drainScheduled.compareAndSet(false, true)) {
+      cancelExecutor.execute(drainTask);
+    }
+  }
+
+  /**
+   * Detaches all queued responders at once, cancelling the calls left without responders.
+   *
+   * @return the number of requests cancelled, a call shared by several requests counts once for each of them
+   */
+  int drainCancellations() {
+    // cancellations queued from now on schedule another drain
+    drainScheduled.set(false);
+
+    int requests = 0;
+    List<Call> running = new ArrayList<>();
+    Set<HttpRequestScheduler.Task> pending = new HashSet<>();
+    synchronized (calls) {
+      Cancellation cancellation;
+      while ((cancellation = cancellations.poll()) != null) {
+        requests++;
+        CoalescedCall call = cancellation.call;
+        if (!call.release(cancellation.responder)) {
+          continue;
+        }
+        if (call.call != null) {
+          running.add(call.call);
+        } else if (call.submitted) {
+          pending.add(call);
+        }
+      }
+    }
+
+    if (!pending.isEmpty()) {
+      scheduler.removeAll(pending);
+    }
+    for (Call call : running) {
+      call.cancel();
+    }
+    return requests;
+  }
+
+  int size() {
+    synchronized (calls) {
+      return calls.size();
+    }
+  }
+
+  @NonNull
+  private static String keyOf(@NonNull Request request) {
+    String etag = request.header("If-None-Match");
+    String modified = request.header("If-Modified-Since");
+    String url = request.url().toString();
+    if (etag == null && modified == null) {
+      return url;
+    }
+    return url + '\n' + (etag != null ? etag : "") + '\n' + (modified != null ? modified : "");
+  }
+
+  private static final class Cancellation {
+
+    final CoalescedCall call;
+    final HttpResponder responder;
+
+    Cancellation(@NonNull CoalescedCall call, @NonNull HttpResponder responder) {
+      this.call = call;
+      this.responder = responder;
+    }
+  }
+
+  /**
+   * An OkHttp call shared by one or more responders, which forwards its result to all of them.
+   */
+  static final class CoalescedCall implements HttpBufferResponder, HttpRequestScheduler.Task {
+
+    private final CallCoalescer coalescer;
+    private final String key;
+    private final Request request;
+    private final List<HttpResponder> responders = new ArrayList<>(1);
+    @HttpRequestPriority.Priority
+    private int priority;
+    private boolean submitted;
+    private boolean completed;
+    private int retries;
+    @Nullable
+    private OkHttpClient client;
+    @Nullable
+    private Callback callback;
+    @Nullable
+    private Call call;
+
+    private CoalescedCall(@NonNull CallCoalescer coalescer, @NonNull String key, @NonNull Request request,
+                          @HttpRequestPriority.Priority int priority) {
+      this.coalescer = coalescer;
+      this.key = key;
+      this.request = request;
+      this.priority = priority;
+    }
+
+    /**
+     * Submits the call to the scheduler, unless it was already submitted by another responder.
+     *
+     * @param client   the client to execute the call with
+     * @param callback the callback receiving the response
+     */
+    void start(@NonNull OkHttpClient client, @NonNull Callback callback) {
+      synchronized (coalescer.calls) {
+        if (submitted || completed || responders.isEmpty()) {
+          return;
+        }
+        this.client = client;
+        this.callback = callback;
+        submitted = true;
+      }
+      coalescer.scheduler.submit(this, priority);
+    }
+
+    /**
+     * Enqueues the call, invoked by the scheduler once the priority class of the call has capacity.
+     *
+     * @param startedPriority the priority class the call was dispatched from
+     */
+    @Override
+    public void dispatch(@HttpRequestPriority.Priority final int startedPriority) {
+      final String host = request.url().host();
+      long pause = coalescer.backoff.getDelay(host);
+      if (pause > 0) {
+        // give the slot to requests for other hosts while this one is rate limited
+        coalescer.scheduler.finished(this, startedPriority);
+        resubmit(pause);
+        return;
+      }
+
+      final Callback delegate;
+      final Call newCall;
+      synchronized (coalescer.calls) {
+        delegate = callback;
+        newCall = completed ? null : client.newCall(request);
+        call = newCall;
+      }
+
+      if (newCall == null) {
+        // detached by all responders in the meantime
+        coalescer.scheduler.finished(this, startedPriority);
+        return;
+      }
+
+      newCall.enqueue(new Callback() {
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException exception) {
+          if (retry(call, host, exception)) {
+            coalescer.scheduler.finished(CoalescedCall.this, startedPriority);
+            return;
+          }
+          try {
+            delegate.onFailure(call, exception);
+          } finally {
+            coalescer.scheduler.finished(CoalescedCall.this, startedPriority);
+          }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+          if (response.code() == HostBackoff.HTTP_TOO_MANY_REQUESTS) {
+            coalescer.backoff.onRateLimited(host, response.header("Retry-After"),
+              response.header("x-rate-limit-reset"));
+          } else {
+            coalescer.backoff.onSuccess(host);
+          }
+          try {
+            delegate.onResponse(call, response);
+          } finally {
+            coalescer.scheduler.finished(CoalescedCall.this, startedPriority);
+          }
+        }
+      });
+    }
+
+    /**
+     * Schedules a temporarily failed call to be dispatched again, unless it ran out of retries.
+     *
+     * @return true if the call will be retried
+     */
+    private boolean retry(@NonNull Call failed, @NonNull String host, @NonNull IOException exception) {
+      // timeouts, reported to the core as HttpRequest#TEMPORARY_ERROR
+      if (failed.isCanceled() || !(exception instanceof InterruptedIOException)) {
+        return false;
+      }
+      long delay;
+      synchronized (coalescer.calls) {
+        if (completed) {
+          return false;
+        }
+        delay = coalescer.backoff.onTemporaryFailure(host, retries);
+        if (delay < 0) {
+          return false;
+        }
+        retries++;
+        call = null;
+      }
+      resubmit(delay);
+      return true;
+    }
+
+    /**
+     * Submits the call to the scheduler again once a delay elapsed, if it wasn't detached meanwhile.
+     */
+    private void resubmit(long delay) {
+      coalescer.backoff.schedule(new Runnable() {
+        @Override
+        public void run() {
+          int pendingPriority;
+          synchronized (coalescer.calls) {
+            if (completed) {
+              return;
+            }
+            pendingPriority = priority;
+          }
+          coalescer.scheduler.submit(CoalescedCall.this, pendingPriority);
+        }
+      }, delay);
+    }
+
+    /**
+     * Detaches a responder, cancelling the call when no responders remain.
+     *
+     * @param responder the responder to detach
+     * @return true if the underlying call was cancelled
+     */
+    boolean detach(@NonNull HttpResponder responder) {
+      Call cancelled;
+      int pendingPriority;
+      synchronized (coalescer.calls) {
+        if (!release(responder)) {
+          return false;
+        }
+        cancelled = call;
+        pendingPriority = priority;
+      }
+
+      if (cancelled != null) {
+        cancelled.cancel();
+      } else if (submitted) {
+        // if the call was dispatched meanwhile, dispatch() reports it finished right away
+        coalescer.scheduler.remove(this, pendingPriority);
+      }
+      return true;
+    }
+
+    /**
+     * Removes a responder, completing the call when it was the last one. Must hold the lock of the coalescer.
+     *
+     * @return true if the call needs to be cancelled
+     */
+    private boolean release(@NonNull HttpResponder responder) {
+      responders.remove(responder);
+      if (!responders.isEmpty() || completed) {
+        return false;
+      }
+      completed = true;
+      coalescer.calls.remove(key);
+      return true;
+    }
+
+    @NonNull
+    Request getRequest() {
+      return request;
+    }
+
+    @NonNull
+    @Override
+    public String getHost() {
+      return request.url().host();
+    }
+
+    @NonNull
+    private HttpResponder[] complete() {
+      synchronized (coalescer.calls) {
+        if (!completed) {
+          completed = true;
+          coalescer.calls.remove(key);
+        }
+        HttpResponder[] result = responders.toArray(new HttpResponder[responders.size()]);
+        responders.clear();
+        return result;
+      }
+    }
+
+    @Override
+    public void onResponse(int responseCode, String eTag, String lastModified, String cacheControl, String expires,
+                           String retryAfter, String xRateLimitReset, byte[] body) {
+      for (HttpResponder responder : complete()) {
+        responder.onResponse(responseCode, eTag, lastModified, cacheControl, expires, retryAfter, xRateLimitReset,
+          body);
+      }
+    }
+
+    @Override
+    public void onResponseBuffer(int responseCode, String eTag, String lastModified, String cacheControl,
+                                 String expires, String retryAfter, String xRateLimitReset, ByteBuffer body) {
+      int position = body.position();
+      for (HttpResponder responder : complete()) {
+        body.position(position);
+        ResponseDelivery.respond(responder, responseCode, eTag, lastModified, cacheControl, expires, retryAfter,
+          xRateLimitReset, body);
+      }
+    }
+
+    @Override
+    public void handleFailure(int type, String errorMessage) {
+      for (HttpResponder responder : complete()) {
+        responder.handleFailure(type, errorMessage);
+      }
+    }
+  }
+}
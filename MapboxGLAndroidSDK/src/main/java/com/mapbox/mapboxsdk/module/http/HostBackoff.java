@@ -0,0 +1,222 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+
+/**
+ * Backoff state shared by all requests to a host.
+ * <p>
+ * A rate limited response pauses the dispatch of requests to its host until the time given by the
+ * {@code Retry-After} or {@code x-rate-limit-reset} header, or for an exponentially growing time if the server
+ * didn't tell. Temporary failures are retried after an exponentially growing, jittered delay.
+ * A successful response resets the backoff of the host.
+ * </p>
+ */
+class HostBackoff {
+
+  static final int HTTP_TOO_MANY_REQUESTS = 429;
+  static final int MAX_RETRIES = 2;
+
+  static final long BASE_DELAY = 500;
+  static final long MAX_DELAY = 30 * 1000;
+  static final long MAX_PAUSE = 5 * 60 * 1000;
+
+  private final Map<String, State> states = new HashMap<>();
+  private final Random random = new Random();
+  @Nullable
+  private ScheduledThreadPoolExecutor timer;
+  private long rateLimitCount;
+  private long retryCount;
+
+  /**
+   * Returns the time to wait before a request to the host may be dispatched.
+   *
+   * @param host the host of the request
+   * @return the delay in milliseconds, 0 if the host isn't paused
+   */
+  long getDelay(@NonNull String host) {
+    long now = currentTimeMillis();
+    synchronized (states) {
+      State state = states.get(host);
+      return state != null ? Math.max(0, state.pausedUntil - now) : 0;
+    }
+  }
+
+  /**
+   * Pauses the host after a rate limited response.
+   *
+   * @param host            the host of the request
+   * @param retryAfter      the Retry-After header, in seconds or as HTTP date
+   * @param xRateLimitReset the x-rate-limit-reset header, in seconds since the epoch
+   * @return the time the host is paused for, in milliseconds
+   */
+  long onRateLimited(@NonNull String host, @Nullable String retryAfter, @Nullable String xRateLimitReset) {
+    long now = currentTimeMillis();
+    long resetTime = parseResetTime(retryAfter, xRateLimitReset, now);
+    synchronized (states) {
+      rateLimitCount++;
+      State state = getState(host);
+      long pause = resetTime > now ? resetTime - now : jitter(state.failures);
+      state.failures++;
+      state.pausedUntil = Math.max(state.pausedUntil, now + Math.min(pause, MAX_PAUSE));
+      return state.pausedUntil - now;
+    }
+  }
+
+  /**
+   * Returns the delay before retrying a request after a temporary failure, or -1 if it shouldn't be retried.
+   *
+   * @param host    the host of the request
+   * @param attempt the number of retries of the request so far
+   * @return the delay in milliseconds, or -1
+   */
+  long onTemporaryFailure(@NonNull String host, int attempt) {
+    if (attempt >= MAX_RETRIES) {
+      return -1;
+    }
+    synchronized (states) {
+      retryCount++;
+      State state = getState(host);
+      return jitter(state.failures++);
+    }
+  }
+
+  /**
+   * Resets the backoff of the host after a response that wasn't rate limited.
+   * A pause that is still running is kept.
+   *
+   * @param host the host of the request
+   */
+  void onSuccess(@NonNull String host) {
+    long now = currentTimeMillis();
+    synchronized (states) {
+      State state = states.get(host);
+      if (state != null && state.pausedUntil <= now) {
+        states.remove(host);
+      }
+    }
+  }
+
+  /**
+   * Runs a task once a delay elapsed, on a shared timer thread.
+   *
+   * @param task  the task to run
+   * @param delay the delay in milliseconds
+   */
+  void schedule(@NonNull Runnable task, long delay) {
+    ScheduledThreadPoolExecutor executor;
+    synchronized (states) {
+      if (timer == null) {
+        timer = getTimer();
+      }
+      executor = timer;
+    }
+    executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the number of hosts that are currently paused.
+   */
+  int getPausedHostCount() {
+    long now = currentTimeMillis();
+    int count = 0;
+    synchronized (states) {
+      for (State state : states.values()) {
+        if (state.pausedUntil > now) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  long getRateLimitCount() {
+    synchronized (states) {
+      return rateLimitCount;
+    }
+  }
+
+  long getRetryCount() {
+    synchronized (states) {
+      return retryCount;
+    }
+  }
+
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Returns an exponentially growing delay, randomized between half and all of it so that requests
+   * which failed together don't retry together.
+   */
+  long jitter(int failures) {
+    long delay = Math.min(MAX_DELAY, BASE_DELAY << Math.min(failures, 16));
+    long half = delay / 2;
+    return half + (long) (random.nextDouble() * (delay - half));
+  }
+
+  /**
+   * Returns the time in milliseconds since the epoch at which the rate limit resets, or 0 if unknown.
+   */
+  static long parseResetTime(@Nullable String retryAfter, @Nullable String xRateLimitReset, long now) {
+    if (retryAfter != null) {
+      try {
+        return now + Long.parseLong(retryAfter.trim()) * 1000;
+      } catch (NumberFormatException exception) {
+        Date date = Headers.of("Retry-After", retryAfter).getDate("Retry-After");
+        if (date != null) {
+          return date.getTime();
+        }
+      }
+    }
+    if (xRateLimitReset != null) {
+      try {
+        return Long.parseLong(xRateLimitReset.trim()) * 1000;
+      } catch (NumberFormatException exception) {
+        // ignore malformed header
+      }
+    }
+    return 0;
+  }
+
+  @NonNull
+  private State getState(@NonNull String host) {
+    State state = states.get(host);
+    if (state == null) {
+      state = new State();
+      states.put(host, state);
+    }
+    return state;
+  }
+
+  @NonNull
+  private static ScheduledThreadPoolExecutor getTimer() {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread(@NonNull Runnable runnable) {
+        Thread thread = new Thread(runnable, "Mbgl-HttpBackoff");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static final class State {
+    long pausedUntil;
+    int failures;
+  }
+}
@@ -1,5 +1,6 @@
 package com.mapbox.mapboxsdk.module.http;
 
+import android.content.Context;
 import android.os.Build;
 import android.text.TextUtils;
 import android.util.Log;
@@ -8,16 +9,25 @@ import com.mapbox.mapboxsdk.BuildConfig;
 import com.mapbox.mapboxsdk.constants.MapboxConstants;
 import com.mapbox.mapboxsdk.http.HttpIdentifier;
 import com.mapbox.mapboxsdk.http.HttpLogger;
-import com.mapbox.mapboxsdk.http.HttpRequest;
 import com.mapbox.mapboxsdk.http.HttpRequestUrl;
 import com.mapbox.mapboxsdk.http.HttpResponder;
+import com.mapbox.mapboxsdk.http.ResourceHttpRequest;
+import com.mapbox.mapboxsdk.storage.FileSource;
+import com.mapbox.mapboxsdk.storage.Resource;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.NoRouteToHostException;
 import java.net.ProtocolException;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLException;
 
@@ -27,15 +37,17 @@ import androidx.annotation.VisibleForTesting;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Dispatcher;
+import okhttp3.Dns;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
 
 import static com.mapbox.mapboxsdk.module.http.HttpRequestUtil.toHumanReadableAscii;
 
-public class HttpRequestImpl implements HttpRequest {
+public class HttpRequestImpl implements ResourceHttpRequest {
 
   private static final String userAgentString = toHumanReadableAscii(
     String.format("%s %s (%s) Android/%s (%s)",
@@ -46,22 +58,74 @@ public class HttpRequestImpl implements HttpRequest {
       Build.CPU_ABI)
   );
 
+  private static final String CONNECTION_CACHE_DIRECTORY = "mbgl-http";
+
+  @VisibleForTesting
+  static final int DEFAULT_MAX_REQUESTS = 64;
+
+  @VisibleForTesting
+  static final int DEFAULT_MAX_REQUESTS_PER_HOST = getDefaultMaxRequestsPerHost();
+
+  private static final Dispatcher DEFAULT_DISPATCHER = getDispatcher();
+
   @VisibleForTesting
-  static final OkHttpClient DEFAULT_CLIENT = new OkHttpClient.Builder().dispatcher(getDispatcher()).build();
+  static final PersistentDns dns = new PersistentDns(Dns.SYSTEM, PersistentDns.DEFAULT_TTL,
+    PersistentDns.DEFAULT_PERSISTED_TTL);
 
   @VisibleForTesting
-  static OkHttpClient client = DEFAULT_CLIENT;
+  static final HttpRequestMonitor monitor = new HttpRequestMonitor(dns);
 
-  private Call call;
+  @VisibleForTesting
+  static final OkHttpClient DEFAULT_CLIENT = getDefaultClient();
+
+  // the default client resolving hosts through the persistent DNS, once connection persistence is enabled
+  @Nullable
+  private static volatile OkHttpClient persistentClient;
+
+  @VisibleForTesting
+  static volatile OkHttpClient client = DEFAULT_CLIENT;
+
+  @VisibleForTesting
+  static final ResponseBufferPool bufferPool = new ResponseBufferPool(ResponseBufferPool.DEFAULT_MAX_POOL_SIZE);
+
+  @VisibleForTesting
+  static final ResourceMemoryCache memoryCache = new ResourceMemoryCache(0);
+
+  @VisibleForTesting
+  static final HttpRequestScheduler scheduler = new HttpRequestScheduler(DEFAULT_MAX_REQUESTS,
+    DEFAULT_MAX_REQUESTS_PER_HOST);
+
+  @VisibleForTesting
+  static final HostBackoff backoff = new HostBackoff();
+
+  @VisibleForTesting
+  static final CallCoalescer coalescer = new CallCoalescer(scheduler, backoff, getCancelExecutor());
+
+  private HttpResponder httpResponder;
+  // offline requests released by OfflineRequestGate are executed and cancelled on different threads
+  private volatile CallCoalescer.CoalescedCall call;
 
   @Override
   public void executeRequest(HttpResponder httpRequest, long nativePtr, @NonNull String resourceUrl,
                              @NonNull String etag, @NonNull String modified, boolean offlineUsage) {
-    OkHttpCallback callback = new OkHttpCallback(httpRequest);
+    executeRequest(httpRequest, nativePtr, resourceUrl, etag, modified, offlineUsage, Resource.UNKNOWN, false);
+  }
+
+  @Override
+  public void executeRequest(HttpResponder httpRequest, long nativePtr, @NonNull String resourceUrl,
+                             @NonNull String etag, @NonNull String modified, boolean offlineUsage,
+                             @Resource.Kind int kind, boolean lowPriority) {
+    httpResponder = httpRequest;
     try {
+      final String cacheKey = ResourceMemoryCache.isCacheable(kind) ? resourceUrl : null;
+      if (cacheKey != null && memoryCache.respond(cacheKey, etag, modified, httpRequest)) {
+        monitor.reportMemoryHit(kind, cacheKey);
+        return;
+      }
+
       HttpUrl httpUrl = HttpUrl.parse(resourceUrl);
       if (httpUrl == null) {
-        HttpLogger.log(Log.ERROR, String.format("[HTTP] Unable to parse resourceUrl %s", resourceUrl));
+        HttpLogger.log(Log.ERROR, "[HTTP] Unable to parse resourceUrl %s", resourceUrl);
         return;
       }
 
@@ -71,6 +135,7 @@ public class HttpRequestImpl implements HttpRequest {
       final Request.Builder builder = new Request.Builder()
         .url(resourceUrl)
         .tag(resourceUrl.toLowerCase(MapboxConstants.MAPBOX_LOCALE))
+        .tag(HttpRequestMonitor.ResourceTag.class, HttpRequestMonitor.ResourceTag.of(kind))
         .addHeader("User-Agent", userAgentString);
       if (etag.length() > 0) {
         builder.addHeader("If-None-Match", etag);
@@ -79,10 +144,13 @@ public class HttpRequestImpl implements HttpRequest {
       }
 
       final Request request = builder.build();
-      call = client.newCall(request);
-      call.enqueue(callback);
+      call = coalescer.join(request, httpRequest, HttpRequestPriority.of(kind, lowPriority, offlineUsage));
+      call.start(client, new OkHttpCallback(call, cacheKey));
     } catch (Exception exception) {
-      callback.handleFailure(call, exception);
+      if (call != null) {
+        call.detach(httpRequest);
+      }
+      new OkHttpCallback(httpRequest, null).handleFailure(null, exception);
     }
   }
 
@@ -90,9 +158,7 @@ public class HttpRequestImpl implements HttpRequest {
   public void cancelRequest() {
     // call can be null if the constructor gets aborted (e.g, under a NoRouteToHostException).
     if (call != null) {
-      HttpLogger.log(Log.DEBUG, String.format("[HTTP] This request was cancelled (%s). This is expected for tiles"
-        + " that were being prefetched but are no longer needed for the map to render.", call.request().url()));
-      call.cancel();
+      coalescer.cancel(call, httpResponder);
     }
   }
 
@@ -104,20 +170,89 @@ public class HttpRequestImpl implements HttpRequest {
     HttpLogger.logEnabled = enabled;
   }
 
+  public static void setLogBufferSize(int size) {
+    HttpLogger.setBufferSize(size);
+  }
+
+  @NonNull
+  public static List<String> dumpLogBuffer() {
+    return HttpLogger.dumpBuffer();
+  }
+
+  public static void setResponseBufferPoolSize(int maxPoolSize) {
+    bufferPool.setMaxPoolSize(maxPoolSize);
+  }
+
+  public static void setMemoryCacheSize(int maxSize) {
+    memoryCache.setMaxSize(maxSize);
+  }
+
+  public static void addRequestListener(@NonNull HttpRequestListener listener) {
+    monitor.addListener(listener);
+  }
+
+  public static void removeRequestListener(@NonNull HttpRequestListener listener) {
+    monitor.removeListener(listener);
+  }
+
+  public static long getRequestDurationPercentile(@Resource.Kind int kind, double percentile) {
+    return monitor.getDurationPercentile(kind, percentile);
+  }
+
+  public static void setMaxConcurrentRequests(int maxRequests) {
+    scheduler.setMaxRequests(maxRequests);
+  }
+
+  public static void setMaxConcurrentRequests(@HttpRequestPriority.Priority int priority, int maxRequests) {
+    scheduler.setBudget(priority, maxRequests);
+  }
+
+  public static void setMaxConcurrentRequestsPerHost(int maxRequestsPerHost) {
+    scheduler.setMaxRequestsPerHost(maxRequestsPerHost);
+  }
+
+  public static void prewarmConnections(@NonNull Context context, @NonNull String[] hosts) {
+    final Context appContext = context.getApplicationContext();
+    final Request[] requests = new Request[hosts.length];
+    for (int i = 0; i < hosts.length; i++) {
+      requests[i] = new Request.Builder()
+        .url(new HttpUrl.Builder().scheme("https").host(hosts[i]).build())
+        .head()
+        .addHeader("User-Agent", userAgentString)
+        .build();
+    }
+
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        // addresses of the previous process need to be loaded before connecting
+        enableConnectionPersistence(new File(FileSource.getInternalCachePath(appContext), CONNECTION_CACHE_DIRECTORY));
+        for (Request request : requests) {
+          client.newCall(request).enqueue(PREWARM_CALLBACK);
+        }
+      }
+    }, "Mbgl-HttpPrewarm").start();
+  }
+
   public static void setOkHttpClient(@Nullable OkHttpClient okHttpClient) {
-    if (okHttpClient != null) {
-      HttpRequestImpl.client = okHttpClient;
-    } else {
-      HttpRequestImpl.client = DEFAULT_CLIENT;
+    synchronized (HttpRequestImpl.class) {
+      if (okHttpClient != null) {
+        HttpRequestImpl.client = okHttpClient;
+      } else {
+        HttpRequestImpl.client = persistentClient != null ? persistentClient : DEFAULT_CLIENT;
+      }
     }
   }
 
   private static class OkHttpCallback implements Callback {
 
     private HttpResponder httpRequest;
+    @Nullable
+    private String cacheKey;
 
-    OkHttpCallback(HttpResponder httpRequest) {
+    OkHttpCallback(HttpResponder httpRequest, @Nullable String cacheKey) {
       this.httpRequest = httpRequest;
+      this.cacheKey = cacheKey;
     }
 
     @Override
@@ -128,11 +263,11 @@ public class HttpRequestImpl implements HttpRequest {
     @Override
     public void onResponse(@NonNull Call call, @NonNull Response response) {
       if (response.isSuccessful()) {
-        HttpLogger.log(Log.VERBOSE, String.format("[HTTP] Request was successful (code = %s).", response.code()));
+        HttpLogger.log(Log.VERBOSE, "[HTTP] Request was successful (code = %s).", response.code());
       } else {
         // We don't want to call this unsuccessful because a 304 isn't really an error
         String message = !TextUtils.isEmpty(response.message()) ? response.message() : "No additional information";
-        HttpLogger.log(Log.DEBUG, String.format("[HTTP] Request with response = %s: %s", response.code(), message));
+        HttpLogger.log(Log.DEBUG, "[HTTP] Request with response = %s: %s", response.code(), message);
       }
 
       ResponseBody responseBody = response.body();
@@ -141,9 +276,9 @@ public class HttpRequestImpl implements HttpRequest {
         return;
       }
 
-      byte[] body;
+      ByteBuffer body;
       try {
-        body = responseBody.bytes();
+        body = readBody(responseBody);
       } catch (IOException ioException) {
         onFailure(call, ioException);
         // throw ioException;
@@ -152,14 +287,53 @@ public class HttpRequestImpl implements HttpRequest {
         response.close();
       }
 
-      httpRequest.onResponse(response.code(),
-        response.header("ETag"),
-        response.header("Last-Modified"),
-        response.header("Cache-Control"),
-        response.header("Expires"),
-        response.header("Retry-After"),
-        response.header("x-rate-limit-reset"),
-        body);
+      if (cacheKey != null) {
+        if (response.code() == 200) {
+          memoryCache.put(cacheKey, response.headers(), body);
+        } else if (response.code() == 304) {
+          memoryCache.refresh(cacheKey, response.request().header("If-None-Match"), response.headers());
+        }
+      }
+
+      try {
+        ResponseDelivery.respond(httpRequest, response.code(),
+          response.header("ETag"),
+          response.header("Last-Modified"),
+          response.header("Cache-Control"),
+          response.header("Expires"),
+          response.header("Retry-After"),
+          response.header("x-rate-limit-reset"),
+          body);
+      } finally {
+        bufferPool.release(body);
+      }
+    }
+
+    /**
+     * Streams the response body into a pooled direct buffer, avoiding an intermediate byte array.
+     *
+     * @param responseBody the body to read
+     * @return the buffer in read mode, to be released to the pool once delivered
+     * @throws IOException if reading the body failed
+     */
+    @NonNull
+    private ByteBuffer readBody(@NonNull ResponseBody responseBody) throws IOException {
+      long contentLength = responseBody.contentLength();
+      ByteBuffer buffer = bufferPool.acquire(contentLength > 0 && contentLength <= Integer.MAX_VALUE
+        ? (int) contentLength : ResponseBufferPool.MIN_BUFFER_SIZE);
+      try {
+        BufferedSource source = responseBody.source();
+        while (source.read(buffer) != -1) {
+          if (!buffer.hasRemaining() && !source.exhausted()) {
+            buffer = bufferPool.grow(buffer);
+          }
+        }
+      } catch (IOException ioException) {
+        bufferPool.release(buffer);
+        throw ioException;
+      }
+      buffer.flip();
+      return buffer;
     }
 
     private void handleFailure(@Nullable Call call, Exception e) {
@@ -172,30 +346,87 @@ public class HttpRequestImpl implements HttpRequest {
       }
       httpRequest.handleFailure(type, errorMessage);
     }
+  }
+
+  static int getFailureType(Exception e) {
+    if ((e instanceof NoRouteToHostException) || (e instanceof UnknownHostException) || (e instanceof SocketException)
+      || (e instanceof ProtocolException) || (e instanceof SSLException)) {
+      return CONNECTION_ERROR;
+    } else if ((e instanceof InterruptedIOException)) {
+      return TEMPORARY_ERROR;
+    }
+    return PERMANENT_ERROR;
+  }
 
-    private int getFailureType(Exception e) {
-      if ((e instanceof NoRouteToHostException) || (e instanceof UnknownHostException) || (e instanceof SocketException)
-        || (e instanceof ProtocolException) || (e instanceof SSLException)) {
-        return CONNECTION_ERROR;
-      } else if ((e instanceof InterruptedIOException)) {
-        return TEMPORARY_ERROR;
-      }
-      return PERMANENT_ERROR;
+  private static final Callback PREWARM_CALLBACK = new Callback() {
+    @Override
+    public void onFailure(@NonNull Call call, @NonNull IOException exception) {
+      HttpLogger.log(Log.DEBUG, "[HTTP] Unable to prewarm connection to %s: %s",
+        call.request().url().host(), exception.getMessage());
+    }
+
+    @Override
+    public void onResponse(@NonNull Call call, @NonNull Response response) {
+      // the connection is kept in the pool of the client for reuse
+      response.close();
     }
+  };
+
+  private static synchronized void enableConnectionPersistence(@NonNull File directory) {
+    if (persistentClient != null) {
+      return;
+    }
+
+    dns.load(new File(directory, "dns"));
+    // shares the dispatcher and the connection pool of the default client, TLS sessions are resumed from
+    // the session cache of its SSLContext
+    persistentClient = DEFAULT_CLIENT.newBuilder()
+      .dns(dns)
+      .build();
+    if (client == DEFAULT_CLIENT) {
+      client = persistentClient;
+    }
+  }
+
+  @NonNull
+  private static OkHttpClient getDefaultClient() {
+    return new OkHttpClient.Builder()
+      .dispatcher(DEFAULT_DISPATCHER)
+      .eventListenerFactory(monitor)
+      .build();
+  }
+
+  @NonNull
+  private static ThreadPoolExecutor getCancelExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+          return new Thread(runnable, "Mbgl-HttpCancel");
+        }
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   @NonNull
   private static Dispatcher getDispatcher() {
+    // the scheduler limits the concurrent requests, limits of the dispatcher would cap the ones set on it
     Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(Integer.MAX_VALUE);
+    dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+    return dispatcher;
+  }
+
+  private static int getDefaultMaxRequestsPerHost() {
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
       // Matches core limit set on
       // https://github.com/mapbox/mapbox-gl-native/blob/master/platform/android/src/http_file_source.cpp#L192
-      dispatcher.setMaxRequestsPerHost(20);
+      return 20;
     } else {
       // Limiting concurrent request on Android 4.4, to limit impact of SSL handshake platform library crash
       // https://github.com/mapbox/mapbox-gl-native/issues/14910
-      dispatcher.setMaxRequestsPerHost(10);
+      return 10;
     }
-    return dispatcher;
   }
 }
\ No newline at end of file
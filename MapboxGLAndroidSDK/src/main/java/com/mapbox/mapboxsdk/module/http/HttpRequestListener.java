@@ -0,0 +1,20 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Interface definition for a callback to be invoked when a map resource request finished.
+ * <p>
+ * Register with {@link HttpRequestUtil#addRequestListener(HttpRequestListener)}.
+ * The callback is invoked on a network thread and should return quickly.
+ * </p>
+ */
+public interface HttpRequestListener {
+
+  /**
+   * Invoked when a request finished, successfully or not.
+   *
+   * @param metrics the timings and outcome of the request
+   */
+  void onRequestFinished(@NonNull HttpRequestMetrics metrics);
+}
@@ -0,0 +1,212 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.HttpRequest;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Timings and outcome of a single map resource request, reported to a {@link HttpRequestListener}.
+ * <p>
+ * Durations are in milliseconds. A phase that didn't take place, for example name resolution and
+ * connecting when a pooled connection was reused, has a duration of -1.
+ * </p>
+ */
+public final class HttpRequestMetrics {
+
+  /**
+   * Cache status variants.
+   */
+  @IntDef( {CACHE_MISS, CACHE_NOT_MODIFIED, CACHE_MEMORY_HIT})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface CacheStatus {
+  }
+
+  /**
+   * The resource was downloaded.
+   */
+  public static final int CACHE_MISS = 0;
+
+  /**
+   * The server confirmed that the copy held by the requester is still valid.
+   */
+  public static final int CACHE_NOT_MODIFIED = 1;
+
+  /**
+   * The request was answered from the memory cache, without a network request.
+   */
+  public static final int CACHE_MEMORY_HIT = 2;
+
+  /**
+   * Failure type of a request that succeeded.
+   */
+  public static final int NO_FAILURE = -1;
+
+  @Resource.Kind
+  private final int kind;
+  private final String url;
+  private final int responseCode;
+  private final long dnsDuration;
+  private final long connectDuration;
+  private final long tlsDuration;
+  private final long timeToFirstByte;
+  private final long downloadDuration;
+  private final long totalDuration;
+  private final long bytes;
+  @CacheStatus
+  private final int cacheStatus;
+  private final int failureType;
+
+  HttpRequestMetrics(@Resource.Kind int kind, @NonNull String url, int responseCode, long dnsDuration,
+                     long connectDuration, long tlsDuration, long timeToFirstByte, long downloadDuration,
+                     long totalDuration, long bytes, @CacheStatus int cacheStatus, int failureType) {
+    this.kind = kind;
+    this.url = url;
+    this.responseCode = responseCode;
+    this.dnsDuration = dnsDuration;
+    this.connectDuration = connectDuration;
+    this.tlsDuration = tlsDuration;
+    this.timeToFirstByte = timeToFirstByte;
+    this.downloadDuration = downloadDuration;
+    this.totalDuration = totalDuration;
+    this.bytes = bytes;
+    this.cacheStatus = cacheStatus;
+    this.failureType = failureType;
+  }
+
+  /**
+   * Get the kind of the requested resource.
+   *
+   * @return the resource kind, see {@link Resource}
+   */
+  @Resource.Kind
+  public int getKind() {
+    return kind;
+  }
+
+  /**
+   * Get the requested url.
+   *
+   * @return the url
+   */
+  @NonNull
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Get the HTTP status code of the response.
+   *
+   * @return the status code, or -1 if no response was received
+   */
+  public int getResponseCode() {
+    return responseCode;
+  }
+
+  /**
+   * Get the duration of the name resolution.
+   *
+   * @return the duration in milliseconds, or -1
+   */
+  public long getDnsDuration() {
+    return dnsDuration;
+  }
+
+  /**
+   * Get the duration of establishing the connection, including the TLS handshake.
+   *
+   * @return the duration in milliseconds, or -1
+   */
+  public long getConnectDuration() {
+    return connectDuration;
+  }
+
+  /**
+   * Get the duration of the TLS handshake.
+   *
+   * @return the duration in milliseconds, or -1
+   */
+  public long getTlsDuration() {
+    return tlsDuration;
+  }
+
+  /**
+   * Get the time between sending the request and receiving the response headers.
+   *
+   * @return the duration in milliseconds, or -1
+   */
+  public long getTimeToFirstByte() {
+    return timeToFirstByte;
+  }
+
+  /**
+   * Get the duration of reading the response body.
+   *
+   * @return the duration in milliseconds, or -1
+   */
+  public long getDownloadDuration() {
+    return downloadDuration;
+  }
+
+  /**
+   * Get the duration of the whole request, from the start of the call until the response was read or it failed.
+   * Time spent waiting to be dispatched isn't included.
+   *
+   * @return the duration in milliseconds
+   */
+  public long getTotalDuration() {
+    return totalDuration;
+  }
+
+  /**
+   * Get the size of the response body.
+   *
+   * @return the size in bytes
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Get how the request was answered.
+   *
+   * @return the cache status
+   */
+  @CacheStatus
+  public int getCacheStatus() {
+    return cacheStatus;
+  }
+
+  /**
+   * Get the failure type of the request.
+   *
+   * @return {@link HttpRequest#CONNECTION_ERROR}, {@link HttpRequest#TEMPORARY_ERROR},
+   * {@link HttpRequest#PERMANENT_ERROR} or {@link #NO_FAILURE}
+   */
+  public int getFailureType() {
+    return failureType;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return "HttpRequestMetrics{"
+      + "kind=" + kind
+      + ", url='" + url + '\''
+      + ", responseCode=" + responseCode
+      + ", dnsDuration=" + dnsDuration
+      + ", connectDuration=" + connectDuration
+      + ", tlsDuration=" + tlsDuration
+      + ", timeToFirstByte=" + timeToFirstByte
+      + ", downloadDuration=" + downloadDuration
+      + ", totalDuration=" + totalDuration
+      + ", bytes=" + bytes
+      + ", cacheStatus=" + cacheStatus
+      + ", failureType=" + failureType
+      + '}';
+  }
+}
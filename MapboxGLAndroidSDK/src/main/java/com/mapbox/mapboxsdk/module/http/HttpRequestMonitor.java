@@ -0,0 +1,260 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Collects the timings of map resource requests through OkHttp events, reports them to the registered
+ * {@link HttpRequestListener}s and keeps rolling latency histograms per resource kind.
+ * <p>
+ * Only requests with a {@link ResourceTag} are monitored. Hosts whose addresses couldn't be connected to are
+ * evicted from the {@link PersistentDns} of all calls, including unmonitored ones, so that stale addresses
+ * are resolved again.
+ * </p>
+ */
+final class HttpRequestMonitor implements EventListener.Factory {
+
+  private static final int KIND_COUNT = Resource.SPRITE_JSON + 1;
+
+  private final CopyOnWriteArrayList<HttpRequestListener> listeners = new CopyOnWriteArrayList<>();
+  private final LatencyHistogram[] histograms = new LatencyHistogram[KIND_COUNT];
+  private final PersistentDns dns;
+  private final EventListener connectFailures = new ConnectFailures();
+
+  HttpRequestMonitor(@NonNull PersistentDns dns) {
+    this.dns = dns;
+    for (int i = 0; i < KIND_COUNT; i++) {
+      histograms[i] = new LatencyHistogram(LatencyHistogram.DEFAULT_WINDOW_SIZE);
+    }
+  }
+
+  void addListener(@NonNull HttpRequestListener listener) {
+    listeners.addIfAbsent(listener);
+  }
+
+  void removeListener(@NonNull HttpRequestListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns the request duration below which the given fraction of recent successful network requests
+   * of a resource kind completed.
+   *
+   * @param kind       the resource kind
+   * @param percentile the percentile, between 0 and 1
+   * @return the duration in milliseconds, or -1 without samples
+   * @throws IllegalArgumentException if the kind isn't a resource kind or the percentile is out of range
+   */
+  long getDurationPercentile(@Resource.Kind int kind, double percentile) {
+    if (kind < 0 || kind >= KIND_COUNT) {
+      throw new IllegalArgumentException("Unknown resource kind: " + kind);
+    }
+    if (!(percentile >= 0 && percentile <= 1)) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 1: " + percentile);
+    }
+    return histograms[kind].percentile(percentile);
+  }
+
+  /**
+   * Reports a request answered from the memory cache.
+   *
+   * @param kind the resource kind
+   * @param url  the requested url
+   */
+  void reportMemoryHit(@Resource.Kind int kind, @NonNull String url) {
+    if (!listeners.isEmpty()) {
+      notifyListeners(new HttpRequestMetrics(kind, url, -1, -1, -1, -1, -1, -1, 0, 0,
+        HttpRequestMetrics.CACHE_MEMORY_HIT, HttpRequestMetrics.NO_FAILURE));
+    }
+  }
+
+  void report(@NonNull HttpRequestMetrics metrics) {
+    if (metrics.getFailureType() == HttpRequestMetrics.NO_FAILURE) {
+      histograms[metrics.getKind()].add(metrics.getTotalDuration());
+    }
+    notifyListeners(metrics);
+  }
+
+  private void notifyListeners(@NonNull HttpRequestMetrics metrics) {
+    for (HttpRequestListener listener : listeners) {
+      listener.onRequestFinished(metrics);
+    }
+  }
+
+  @NonNull
+  @Override
+  public EventListener create(@NonNull Call call) {
+    ResourceTag tag = call.request().tag(ResourceTag.class);
+    // calls that aren't map resource requests, such as connection prewarming, aren't monitored
+    return tag != null ? new CallMetrics(tag.kind) : connectFailures;
+  }
+
+  /**
+   * Request tag carrying the kind of the requested resource.
+   */
+  static final class ResourceTag {
+
+    private static final ResourceTag[] TAGS = new ResourceTag[KIND_COUNT];
+
+    static {
+      for (int i = 0; i < KIND_COUNT; i++) {
+        TAGS[i] = new ResourceTag(i);
+      }
+    }
+
+    @Resource.Kind
+    private final int kind;
+
+    private ResourceTag(@Resource.Kind int kind) {
+      this.kind = kind;
+    }
+
+    @NonNull
+    static ResourceTag of(@Resource.Kind int kind) {
+      return TAGS[kind >= 0 && kind < KIND_COUNT ? kind : Resource.UNKNOWN];
+    }
+  }
+
+  /**
+   * Evicts the host of a call from the DNS cache once connecting to one of its addresses failed.
+   */
+  private class ConnectFailures extends EventListener {
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                              @Nullable Protocol protocol, IOException ioe) {
+      dns.evict(call.request().url().host());
+    }
+  }
+
+  /**
+   * Records the event timestamps of a single call.
+   */
+  private final class CallMetrics extends ConnectFailures {
+
+    @Resource.Kind
+    private final int kind;
+    private long callStart;
+    private long dnsStart;
+    private long dnsDuration = -1;
+    private long connectStart;
+    private long connectDuration = -1;
+    private long tlsStart;
+    private long tlsDuration = -1;
+    private long requestStart;
+    private long timeToFirstByte = -1;
+    private long bodyStart;
+    private long downloadDuration = -1;
+    private long bytes;
+    private int responseCode = -1;
+
+    CallMetrics(@Resource.Kind int kind) {
+      this.kind = kind;
+    }
+
+    @Override
+    public void callStart(Call call) {
+      callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+      dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+      dnsDuration = millisSince(dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+      // a failed route is retried, measure until the last attempt completes
+      if (connectStart == 0) {
+        connectStart = System.nanoTime();
+      }
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+      tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, @Nullable Handshake handshake) {
+      tlsDuration = millisSince(tlsStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                           @Nullable Protocol protocol) {
+      connectDuration = millisSince(connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+      requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+      timeToFirstByte = millisSince(requestStart);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+      responseCode = response.code();
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+      bodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+      downloadDuration = millisSince(bodyStart);
+      bytes = byteCount;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+      report(build(call, HttpRequestMetrics.NO_FAILURE));
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+      if (call.isCanceled()) {
+        // requests no longer needed by the renderer aren't failures
+        return;
+      }
+      report(build(call, HttpRequestImpl.getFailureType(ioe)));
+    }
+
+    @NonNull
+    private HttpRequestMetrics build(@NonNull Call call, int failureType) {
+      return new HttpRequestMetrics(kind, call.request().url().toString(), responseCode, dnsDuration,
+        connectDuration, tlsDuration, timeToFirstByte, downloadDuration, millisSince(callStart), bytes,
+        responseCode == 304 ? HttpRequestMetrics.CACHE_NOT_MODIFIED : HttpRequestMetrics.CACHE_MISS, failureType);
+    }
+
+    private long millisSince(long start) {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+  }
+}
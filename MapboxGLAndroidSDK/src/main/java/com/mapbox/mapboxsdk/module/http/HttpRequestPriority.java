@@ -0,0 +1,84 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.IntDef;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Priority classes used to schedule map resource requests.
+ * <p>
+ * Requests of a higher priority class are always dispatched before requests of a lower one,
+ * within the concurrency budget of each class, see
+ * {@link HttpRequestUtil#setMaxConcurrentRequests(int, int)}.
+ * </p>
+ */
+public final class HttpRequestPriority {
+
+  /**
+   * Priority class variants, from highest to lowest priority.
+   */
+  @IntDef( {STYLE, GLYPHS, TILE, PREFETCH, OFFLINE})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface Priority {
+  }
+
+  /**
+   * Style sheets, TileJSON sources and sprites.
+   */
+  public static final int STYLE = 0;
+
+  /**
+   * Glyphs required for text rendering.
+   */
+  public static final int GLYPHS = 1;
+
+  /**
+   * Tiles needed to render the visible viewport, and any resource of unknown kind.
+   */
+  public static final int TILE = 2;
+
+  /**
+   * Tiles that are prefetched and not yet needed for the visible viewport.
+   */
+  public static final int PREFETCH = 3;
+
+  /**
+   * Resources requested by offline region downloads.
+   */
+  public static final int OFFLINE = 4;
+
+  static final int COUNT = 5;
+
+  private HttpRequestPriority() {
+  }
+
+  /**
+   * Returns the priority class of a request.
+   *
+   * @param kind         the kind of the requested resource
+   * @param lowPriority  true if the resource isn't needed to render the current viewport
+   * @param offlineUsage true if the resource is requested for an offline region
+   * @return the priority class
+   */
+  @Priority
+  static int of(@Resource.Kind int kind, boolean lowPriority, boolean offlineUsage) {
+    if (offlineUsage) {
+      return OFFLINE;
+    }
+
+    switch (kind) {
+      case Resource.STYLE:
+      case Resource.SOURCE:
+      case Resource.SPRITE_IMAGE:
+      case Resource.SPRITE_JSON:
+        return STYLE;
+      case Resource.GLYPHS:
+        return GLYPHS;
+      default:
+        return lowPriority ? PREFETCH : TILE;
+    }
+  }
+}
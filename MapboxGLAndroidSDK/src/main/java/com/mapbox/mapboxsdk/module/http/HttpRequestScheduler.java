@@ -0,0 +1,255 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dispatches requests in strict priority order, see {@link HttpRequestPriority}.
+ * <p>
+ * A request is started when the total amount of running requests is below the global limit, the running
+ * requests to its host are below the per host limit and the running requests of its own priority class are below
+ * the budget of that class. Lower classes therefore can never occupy the connections needed by higher ones beyond
+ * their own budget.
+ * </p>
+ * <p>
+ * Every dispatched task must be reported back with {@link #finished(Task, int)} exactly once. Tasks reported
+ * finished from within {@link Task#dispatch(int)} don't dispatch the next task recursively, the dispatching
+ * thread keeps on with it instead.
+ * </p>
+ */
+final class HttpRequestScheduler {
+
+  /**
+   * A request waiting to be dispatched.
+   */
+  interface Task {
+
+    /**
+     * Starts the request.
+     *
+     * @param priority the priority class the task was dispatched from, to be reported to
+     *                 {@link #finished(Task, int)}
+     */
+    void dispatch(@HttpRequestPriority.Priority int priority);
+
+    /**
+     * Returns the host the request is sent to.
+     *
+     * @return the host
+     */
+    @NonNull
+    String getHost();
+  }
+
+  private final ArrayDeque<Task>[] pending;
+  private final int[] running = new int[HttpRequestPriority.COUNT];
+  private final int[] budgets = new int[HttpRequestPriority.COUNT];
+  private final Map<String, Integer> runningPerHost = new HashMap<>();
+  private int maxRequests;
+  private int maxRequestsPerHost;
+  private int runningTotal;
+  private boolean promoting;
+
+  @SuppressWarnings("unchecked")
+  HttpRequestScheduler(int maxRequests, int maxRequestsPerHost) {
+    this.maxRequests = maxRequests;
+    this.maxRequestsPerHost = maxRequestsPerHost;
+    this.pending = new ArrayDeque[HttpRequestPriority.COUNT];
+    for (int i = 0; i < HttpRequestPriority.COUNT; i++) {
+      pending[i] = new ArrayDeque<>();
+      budgets[i] = Integer.MAX_VALUE;
+    }
+    // class-wide budgets over all hosts, sized from the per-host limit: with the tiles of a map served by
+    // one host, background work takes at most half of its connections, leaving room for the visible map.
+    // They are set once, see setBudget(int, int)
+    budgets[HttpRequestPriority.PREFETCH] = Math.max(1, maxRequestsPerHost / 2);
+    budgets[HttpRequestPriority.OFFLINE] = Math.max(1, maxRequestsPerHost / 2);
+  }
+
+  /**
+   * Queues a task, running it right away if its priority class has capacity left.
+   *
+   * @param task     the task to queue
+   * @param priority the priority class of the request
+   */
+  void submit(@NonNull Task task, @HttpRequestPriority.Priority int priority) {
+    synchronized (this) {
+      pending[priority].addLast(task);
+    }
+    promote();
+  }
+
+  /**
+   * Removes a task which didn't start yet.
+   *
+   * @param task     the task to remove
+   * @param priority the priority class it was submitted with
+   * @return true if the task was still pending
+   */
+  synchronized boolean remove(@NonNull Task task, @HttpRequestPriority.Priority int priority) {
+    return pending[priority].remove(task);
+  }
+
+  /**
+   * Removes a batch of tasks which didn't start yet, in a single pass over the pending tasks.
+   *
+   * @param tasks the tasks to remove, in any priority class
+   */
+  synchronized void removeAll(@NonNull Set<Task> tasks) {
+    for (int priority = 0; priority < HttpRequestPriority.COUNT; priority++) {
+      if (pending[priority].isEmpty()) {
+        continue;
+      }
+      ArrayDeque<Task> remaining = new ArrayDeque<>(pending[priority].size());
+      for (Task task : pending[priority]) {
+        if (!tasks.contains(task)) {
+          remaining.addLast(task);
+        }
+      }
+      pending[priority] = remaining;
+    }
+  }
+
+  /**
+   * Moves a pending task to another priority class.
+   *
+   * @param task     the task to move
+   * @param from     the priority class it was submitted with
+   * @param to       the new priority class
+   * @return true if the task was still pending and got moved
+   */
+  boolean reprioritize(@NonNull Task task, @HttpRequestPriority.Priority int from,
+                       @HttpRequestPriority.Priority int to) {
+    synchronized (this) {
+      if (!pending[from].remove(task)) {
+        return false;
+      }
+      pending[to].addLast(task);
+    }
+    promote();
+    return true;
+  }
+
+  /**
+   * Reports that a started request completed, freeing its slot.
+   *
+   * @param task     the task that was dispatched
+   * @param priority the priority class the request was started with
+   */
+  void finished(@NonNull Task task, @HttpRequestPriority.Priority int priority) {
+    synchronized (this) {
+      running[priority]--;
+      runningTotal--;
+      String host = task.getHost();
+      Integer count = runningPerHost.get(host);
+      if (count == null || count <= 1) {
+        runningPerHost.remove(host);
+      } else {
+        runningPerHost.put(host, count - 1);
+      }
+    }
+    promote();
+  }
+
+  void setMaxRequests(int maxRequests) {
+    synchronized (this) {
+      this.maxRequests = maxRequests;
+    }
+    promote();
+  }
+
+  void setMaxRequestsPerHost(int maxRequestsPerHost) {
+    synchronized (this) {
+      this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+    promote();
+  }
+
+  void setBudget(@HttpRequestPriority.Priority int priority, int budget) {
+    synchronized (this) {
+      budgets[priority] = budget;
+    }
+    promote();
+  }
+
+  synchronized int getRunningCount(@HttpRequestPriority.Priority int priority) {
+    return running[priority];
+  }
+
+  synchronized int getPendingCount(@HttpRequestPriority.Priority int priority) {
+    return pending[priority].size();
+  }
+
+  synchronized int getRunningCount(@NonNull String host) {
+    Integer count = runningPerHost.get(host);
+    return count != null ? count : 0;
+  }
+
+  /**
+   * Dispatches pending tasks while there is capacity. Only one thread dispatches at a time, a thread freeing a
+   * slot meanwhile, including the dispatching thread itself, leaves the next task to the dispatching thread.
+   */
+  private void promote() {
+    synchronized (this) {
+      if (promoting) {
+        return;
+      }
+      promoting = true;
+    }
+    boolean idle = false;
+    try {
+      while (true) {
+        Task task = null;
+        int priority = 0;
+        synchronized (this) {
+          for (int i = 0; i < HttpRequestPriority.COUNT && runningTotal < maxRequests; i++) {
+            if (running[i] < budgets[i]) {
+              task = pollDispatchable(pending[i]);
+              if (task != null) {
+                priority = i;
+                break;
+              }
+            }
+          }
+          if (task == null) {
+            promoting = false;
+            idle = true;
+            return;
+          }
+          running[priority]++;
+          runningTotal++;
+          String host = task.getHost();
+          runningPerHost.put(host, getRunningCount(host) + 1);
+        }
+        task.dispatch(priority);
+      }
+    } finally {
+      if (!idle) {
+        // a task threw, leave the dispatching to the next caller
+        synchronized (this) {
+          promoting = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes and returns the first task whose host has capacity left, if any. Must hold the lock.
+   */
+  private Task pollDispatchable(@NonNull ArrayDeque<Task> tasks) {
+    Iterator<Task> iterator = tasks.iterator();
+    while (iterator.hasNext()) {
+      Task task = iterator.next();
+      if (getRunningCount(task.getHost()) < maxRequestsPerHost) {
+        iterator.remove();
+        return task;
+      }
+    }
+    return null;
+  }
+}
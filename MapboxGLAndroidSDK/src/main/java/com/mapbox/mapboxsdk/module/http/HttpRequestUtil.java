@@ -1,5 +1,12 @@
 package com.mapbox.mapboxsdk.module.http;
 
+import android.content.Context;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.util.List;
+
+import androidx.annotation.FloatRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import okhttp3.OkHttpClient;
@@ -10,6 +17,8 @@ import okio.Buffer;
  */
 public class HttpRequestUtil {
 
+  private static final String[] DEFAULT_PREWARM_HOSTS = new String[] {"api.mapbox.com"};
+
   /**
    * Set the log state of OkHttpRequest. Default value is true.
    * <p>
@@ -37,6 +46,34 @@ public class HttpRequestUtil {
     HttpRequestImpl.enablePrintRequestUrlOnFailure(enabled);
   }
 
+  /**
+   * Keep the most recent log messages of OkHttpRequest in memory, regardless of the verbosity set
+   * on {@link com.mapbox.mapboxsdk.log.Logger}. Default value is 0, which disables the buffer.
+   * <p>
+   * The buffered messages can be retrieved with {@link #dumpLogBuffer()}, for example to attach them to a
+   * bug report. Messages are only formatted when they are logged or buffered.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param size the number of messages to keep
+   */
+  public static void setLogBufferSize(int size) {
+    HttpRequestImpl.setLogBufferSize(size);
+  }
+
+  /**
+   * Get the log messages kept in memory, from oldest to newest.
+   *
+   * @return the buffered log messages
+   * @see #setLogBufferSize(int)
+   */
+  @NonNull
+  public static List<String> dumpLogBuffer() {
+    return HttpRequestImpl.dumpLogBuffer();
+  }
+
   /**
    * Set the OkHttpClient used for requesting map resources.
    * <p>
@@ -50,6 +87,247 @@ public class HttpRequestUtil {
     HttpRequestImpl.setOkHttpClient(client);
   }
 
+  /**
+   * Set the maximum amount of memory, in bytes, retained by the pool of direct buffers used to
+   * deliver response bodies to the renderer. Default value is 4 MB.
+   * <p>
+   * Buffers exceeding the limit are released to the garbage collector after use. Setting the size
+   * to 0 disables pooling.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param maxPoolSize the maximum pool size in bytes
+   */
+  public static void setResponseBufferPoolSize(int maxPoolSize) {
+    HttpRequestImpl.setResponseBufferPoolSize(maxPoolSize);
+  }
+
+  /**
+   * Set the maximum amount of memory, in bytes, used to cache styles, sources, sprites and glyphs in memory.
+   * Default value is 0, which disables the cache.
+   * <p>
+   * Fresh responses, according to their Cache-Control or Expires headers, are answered from memory without
+   * a network request. This benefits apps that show multiple maps using the same style.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param maxSize the maximum cache size in bytes
+   */
+  public static void setMemoryCacheSize(int maxSize) {
+    HttpRequestImpl.setMemoryCacheSize(maxSize);
+  }
+
+  /**
+   * Get the amount of requests answered by the memory cache.
+   *
+   * @return the hit count
+   * @see #setMemoryCacheSize(int)
+   */
+  public static long getMemoryCacheHitCount() {
+    return HttpRequestImpl.memoryCache.getHitCount();
+  }
+
+  /**
+   * Get the amount of cacheable requests that weren't found in the memory cache, or that expired.
+   *
+   * @return the miss count
+   * @see #setMemoryCacheSize(int)
+   */
+  public static long getMemoryCacheMissCount() {
+    return HttpRequestImpl.memoryCache.getMissCount();
+  }
+
+  /**
+   * Get the amount of entries evicted from the memory cache to stay within its size.
+   *
+   * @return the eviction count
+   * @see #setMemoryCacheSize(int)
+   */
+  public static long getMemoryCacheEvictionCount() {
+    return HttpRequestImpl.memoryCache.getEvictionCount();
+  }
+
+  /**
+   * Add a listener to be notified with the timings and outcome of every map resource request.
+   * <p>
+   * Network timings are only collected by the default OkHttpClient, not by a client set with
+   * {@link #setOkHttpClient(OkHttpClient)}. Cancelled requests aren't reported.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param listener the listener to add
+   */
+  public static void addRequestListener(@NonNull HttpRequestListener listener) {
+    HttpRequestImpl.addRequestListener(listener);
+  }
+
+  /**
+   * Remove a listener added with {@link #addRequestListener(HttpRequestListener)}.
+   *
+   * @param listener the listener to remove
+   */
+  public static void removeRequestListener(@NonNull HttpRequestListener listener) {
+    HttpRequestImpl.removeRequestListener(listener);
+  }
+
+  /**
+   * Get a percentile of the duration of recent successful network requests for a resource kind,
+   * for example 0.95 for the 95th percentile.
+   * <p>
+   * Durations are kept in a rolling window of the last 512 requests per kind.
+   * Requests answered from the memory cache aren't included.
+   * </p>
+   *
+   * @param kind       the resource kind, see {@link Resource}
+   * @param percentile the percentile, between 0 and 1
+   * @return the duration in milliseconds, or -1 if no requests of that kind completed yet
+   * @throws IllegalArgumentException if the kind isn't a resource kind or the percentile is out of range
+   */
+  public static long getRequestDurationPercentile(@Resource.Kind int kind,
+                                                  @FloatRange(from = 0.0, to = 1.0) double percentile) {
+    return HttpRequestImpl.getRequestDurationPercentile(kind, percentile);
+  }
+
+  /**
+   * Set the maximum number of map resource requests executed concurrently, to all hosts together.
+   * Default value is 64.
+   * <p>
+   * Requests are dispatched by priority class, see {@link HttpRequestPriority}. Pending requests of a
+   * higher class always start before pending requests of a lower class.
+   * </p>
+   * <p>
+   * The dispatcher of the default OkHttpClient doesn't limit requests further. A client set with
+   * {@link #setOkHttpClient(OkHttpClient)} also applies the limits of its own dispatcher.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param maxRequests the maximum number of concurrent requests
+   */
+  public static void setMaxConcurrentRequests(int maxRequests) {
+    HttpRequestImpl.setMaxConcurrentRequests(maxRequests);
+  }
+
+  /**
+   * Set the maximum number of concurrent requests of a priority class.
+   * <p>
+   * By default, {@link HttpRequestPriority#PREFETCH} and {@link HttpRequestPriority#OFFLINE} requests may
+   * each run half as many requests as the default per host limit, to all hosts together. Other classes are
+   * only bound by {@link #setMaxConcurrentRequests(int)} and {@link #setMaxConcurrentRequestsPerHost(int)}.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param priority    the priority class
+   * @param maxRequests the maximum number of concurrent requests of that class
+   */
+  public static void setMaxConcurrentRequests(@HttpRequestPriority.Priority int priority, int maxRequests) {
+    HttpRequestImpl.setMaxConcurrentRequests(priority, maxRequests);
+  }
+
+  /**
+   * Set the maximum number of map resource requests executed concurrently to a single host.
+   * Default value is 20, 10 on Android 4.4.
+   * <p>
+   * The dispatcher of the default OkHttpClient doesn't limit requests further. A client set with
+   * {@link #setOkHttpClient(OkHttpClient)} also applies the limits of its own dispatcher.
+   * </p>
+   * <p>
+   * This configuration will outlast the lifecycle of the Map.
+   * </p>
+   *
+   * @param maxRequestsPerHost the maximum number of concurrent requests per host
+   */
+  public static void setMaxConcurrentRequestsPerHost(int maxRequestsPerHost) {
+    HttpRequestImpl.setMaxConcurrentRequestsPerHost(maxRequestsPerHost);
+  }
+
+  /**
+   * Get the number of hosts whose requests are currently held back after a rate limited response.
+   * <p>
+   * A response with status code 429 pauses the dispatch of requests to its host until the time given by the
+   * Retry-After or x-rate-limit-reset header. Requests failing with a timeout are retried up to twice,
+   * after a randomized, exponentially growing delay.
+   * </p>
+   *
+   * @return the number of paused hosts
+   */
+  public static int getRateLimitedHostCount() {
+    return HttpRequestImpl.backoff.getPausedHostCount();
+  }
+
+  /**
+   * Get the amount of rate limited responses received.
+   *
+   * @return the rate limited response count
+   * @see #getRateLimitedHostCount()
+   */
+  public static long getRateLimitedResponseCount() {
+    return HttpRequestImpl.backoff.getRateLimitCount();
+  }
+
+  /**
+   * Get the amount of requests retried after a temporary failure.
+   *
+   * @return the retry count
+   * @see #getRateLimitedHostCount()
+   */
+  public static long getRequestRetryCount() {
+    return HttpRequestImpl.backoff.getRetryCount();
+  }
+
+  /**
+   * Resolve and connect to the Mapbox API host ahead of the first map request.
+   *
+   * @param context the context used to locate the cache directory
+   * @see #prewarmConnections(Context, String...)
+   */
+  public static void prewarmConnections(@NonNull Context context) {
+    prewarmConnections(context, DEFAULT_PREWARM_HOSTS);
+  }
+
+  /**
+   * Resolve and connect to a list of hosts ahead of the first map request, for example while the
+   * Activity hosting the map is still being inflated.
+   * <p>
+   * Established connections are kept in the connection pool of the OkHttpClient and reused by subsequent
+   * requests to the same hosts. The work is done on a background thread, this method returns immediately.
+   * </p>
+   * <p>
+   * The first invocation also enables persisting DNS results of the default OkHttpClient in the cache
+   * directory for a day, so that the next process start can skip name resolution. TLS sessions aren't
+   * persisted, Android offers no supported way to restore them in another process. Within the process,
+   * requests to a prewarmed host resume its session. Persistence doesn't apply to a client set with
+   * {@link #setOkHttpClient(OkHttpClient)}.
+   * </p>
+   *
+   * @param context the context used to locate the cache directory
+   * @param hosts   the host names to connect to, for example "api.mapbox.com"
+   * @throws IllegalArgumentException if a host name is invalid
+   */
+  public static void prewarmConnections(@NonNull Context context, @NonNull String... hosts) {
+    HttpRequestImpl.prewarmConnections(context, hosts);
+  }
+
+  /**
+   * Close the MBTiles and PMTiles archives opened to serve {@code mbtiles://} and {@code pmtiles://} urls.
+   * <p>
+   * Archives are kept open once used, close them before replacing or deleting an archive file.
+   * They are opened again on the next request.
+   * </p>
+   */
+  public static void closeTileArchives() {
+    TileArchiveHttpRequest.closeArchives();
+  }
+
   @NonNull
   static String toHumanReadableAscii(String s) {
     for (int i = 0, length = s.length(), c; i < length; i += Character.charCount(c)) {
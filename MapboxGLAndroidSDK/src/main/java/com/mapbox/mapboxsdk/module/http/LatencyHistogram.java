@@ -0,0 +1,56 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a ring buffer, to compute percentiles over a rolling window.
+ */
+final class LatencyHistogram {
+
+  static final int DEFAULT_WINDOW_SIZE = 512;
+
+  private final long[] samples;
+  private int count;
+  private int next;
+
+  LatencyHistogram(int windowSize) {
+    this.samples = new long[windowSize];
+  }
+
+  /**
+   * Adds a sample, replacing the oldest one if the window is full.
+   *
+   * @param value the latency in milliseconds
+   */
+  synchronized void add(long value) {
+    samples[next] = value;
+    next = (next + 1) % samples.length;
+    if (count < samples.length) {
+      count++;
+    }
+  }
+
+  /**
+   * Returns the latency below which the given fraction of the samples in the window falls.
+   *
+   * @param percentile the percentile, between 0 and 1
+   * @return the latency in milliseconds, or -1 without samples
+   */
+  long percentile(double percentile) {
+    long[] sorted;
+    synchronized (this) {
+      if (count == 0) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(samples, count);
+    }
+    Arrays.sort(sorted);
+    // nearest rank
+    int rank = (int) Math.ceil(percentile * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+  }
+
+  synchronized int getCount() {
+    return count;
+  }
+}
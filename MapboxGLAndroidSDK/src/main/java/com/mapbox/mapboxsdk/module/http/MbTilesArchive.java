@@ -0,0 +1,245 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * MBTiles archive, read through a pool of read-only SQLite connections.
+ * <p>
+ * Tiles are stored in TMS order, rows are counted from the south. Vector tiles are stored gzip compressed,
+ * tiles starting with the gzip magic bytes are inflated.
+ * </p>
+ */
+final class MbTilesArchive extends TileArchive {
+
+  private static final String TILE_QUERY =
+    "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
+  private static final String METADATA_QUERY = "SELECT name, value FROM metadata";
+  private static final String ZOOM_QUERY = "SELECT MIN(zoom_level), MAX(zoom_level) FROM tiles";
+
+  // lets SQLite read pages from a memory mapping of the file instead of copying them into its page cache
+  private static final String MMAP_PRAGMA = "PRAGMA mmap_size = 268435456";
+
+  private final File file;
+  private final BlockingQueue<SQLiteDatabase> idle;
+  private final int maxConnections;
+  private int connections;
+  private boolean closed;
+
+  MbTilesArchive(@NonNull File file, int maxConnections) throws IOException {
+    if (!file.isFile()) {
+      throw new FileNotFoundException(file.getPath());
+    }
+    this.file = file;
+    this.maxConnections = maxConnections;
+    this.idle = new ArrayBlockingQueue<>(maxConnections);
+    // fail early on files that aren't databases
+    release(acquire());
+  }
+
+  @Nullable
+  @Override
+  ByteBuffer getTile(int z, int x, int y) throws IOException {
+    String row = String.valueOf((1 << z) - 1 - y);
+    SQLiteDatabase database = acquire();
+    try {
+      Cursor cursor = database.rawQuery(TILE_QUERY, new String[] {String.valueOf(z), String.valueOf(x), row});
+      try {
+        if (!cursor.moveToFirst()) {
+          return null;
+        }
+        ByteBuffer tile = ByteBuffer.wrap(cursor.getBlob(0));
+        return isGzip(tile) ? gunzip(tile) : tile;
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException exception) {
+      throw new IOException(exception);
+    } finally {
+      release(database);
+    }
+  }
+
+  @NonNull
+  @Override
+  String getTileJson(@NonNull String tilesUrl) throws IOException {
+    JsonObject tileJson = new JsonObject();
+    int minZoom = -1;
+    int maxZoom = -1;
+    double[] bounds = null;
+    double[] center = null;
+
+    SQLiteDatabase database = acquire();
+    try {
+      Cursor cursor = database.rawQuery(METADATA_QUERY, null);
+      try {
+        while (cursor.moveToNext()) {
+          String name = cursor.getString(0);
+          String value = cursor.getString(1);
+          if (name == null || value == null) {
+            continue;
+          }
+          switch (name) {
+            case "minzoom":
+              minZoom = parseInt(value);
+              break;
+            case "maxzoom":
+              maxZoom = parseInt(value);
+              break;
+            case "bounds":
+              bounds = parseNumbers(value, 4);
+              break;
+            case "center":
+              center = parseNumbers(value, 3);
+              break;
+            case "json":
+              mergeJson(tileJson, value);
+              break;
+            default:
+              tileJson.addProperty(name, value);
+          }
+        }
+      } finally {
+        cursor.close();
+      }
+
+      if (minZoom < 0 || maxZoom < 0) {
+        cursor = database.rawQuery(ZOOM_QUERY, null);
+        try {
+          if (cursor.moveToFirst() && !cursor.isNull(0)) {
+            minZoom = cursor.getInt(0);
+            maxZoom = cursor.getInt(1);
+          }
+        } finally {
+          cursor.close();
+        }
+      }
+    } catch (SQLiteException exception) {
+      throw new IOException(exception);
+    } finally {
+      release(database);
+    }
+
+    return buildTileJson(tileJson, tilesUrl, Math.max(0, minZoom), maxZoom < 0 ? 22 : maxZoom, bounds, center);
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    SQLiteDatabase database;
+    while ((database = idle.poll()) != null) {
+      database.close();
+    }
+  }
+
+  @NonNull
+  private SQLiteDatabase acquire() throws IOException {
+    SQLiteDatabase database = idle.poll();
+    if (database != null) {
+      return database;
+    }
+
+    synchronized (this) {
+      if (closed) {
+        throw new IOException("Archive closed: " + file.getPath());
+      }
+      if (connections < maxConnections) {
+        database = openConnection();
+        connections++;
+        return database;
+      }
+    }
+
+    try {
+      return idle.take();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IOException(exception);
+    }
+  }
+
+  private void release(@NonNull SQLiteDatabase database) {
+    boolean closeDatabase;
+    synchronized (this) {
+      closeDatabase = closed;
+    }
+    if (closeDatabase || !idle.offer(database)) {
+      database.close();
+    }
+  }
+
+  @NonNull
+  private SQLiteDatabase openConnection() throws IOException {
+    try {
+      SQLiteDatabase database = SQLiteDatabase.openDatabase(file.getPath(), null,
+        SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+      Cursor cursor = database.rawQuery(MMAP_PRAGMA, null);
+      try {
+        cursor.moveToFirst();
+      } finally {
+        cursor.close();
+      }
+      return database;
+    } catch (SQLiteException exception) {
+      throw new IOException(exception);
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private static void mergeJson(@NonNull JsonObject tileJson, @NonNull String json) {
+    try {
+      JsonElement element = new JsonParser().parse(json);
+      if (element.isJsonObject()) {
+        for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+          tileJson.add(entry.getKey(), entry.getValue());
+        }
+      }
+    } catch (JsonParseException exception) {
+      // the layer description is informative only
+    }
+  }
+
+  private static int parseInt(@NonNull String value) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException exception) {
+      return -1;
+    }
+  }
+
+  @Nullable
+  private static double[] parseNumbers(@NonNull String value, int count) {
+    String[] parts = value.split(",");
+    if (parts.length != count) {
+      return null;
+    }
+    double[] numbers = new double[count];
+    try {
+      for (int i = 0; i < count; i++) {
+        numbers[i] = Double.parseDouble(parts[i].trim());
+      }
+    } catch (NumberFormatException exception) {
+      return null;
+    }
+    return numbers;
+  }
+}
@@ -0,0 +1,277 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import android.util.Log;
+
+import com.mapbox.mapboxsdk.http.HttpLogger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import okhttp3.Dns;
+
+/**
+ * A {@link Dns} caching lookups for a fixed time to live, which can be persisted to disk so that a
+ * new process can connect without waiting for name resolution.
+ * <p>
+ * Persisted entries are kept for a longer time to live, so that processes started hours apart still skip
+ * name resolution. A loaded entry is used for the in-memory time to live at most before the host is resolved
+ * again, and hosts are evicted once connecting to them failed, see {@link #evict(String)}.
+ * </p>
+ * <p>
+ * Entries are stored as one line per host: the host name, the expiry time and the literal addresses,
+ * separated by tabs. The file is written once per {@link #SAVE_DELAY} at most, on a background thread.
+ * </p>
+ */
+class PersistentDns implements Dns {
+
+  static final long DEFAULT_TTL = 10 * 60 * 1000;
+
+  static final long DEFAULT_PERSISTED_TTL = 24 * 60 * 60 * 1000;
+
+  /**
+   * Delay between a change of the entries and writing them, changes in between are written together.
+   */
+  static final long SAVE_DELAY = 5000;
+
+  private static final String CHARSET = "UTF-8";
+
+  private final Dns delegate;
+  private final long ttl;
+  private final long persistedTtl;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Runnable saveTask = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+  @Nullable
+  private ScheduledThreadPoolExecutor executor;
+  @Nullable
+  private File file;
+  private boolean savePending;
+
+  PersistentDns(@NonNull Dns delegate, long ttl, long persistedTtl) {
+    this.delegate = delegate;
+    this.ttl = ttl;
+    this.persistedTtl = persistedTtl;
+  }
+
+  @NonNull
+  @Override
+  public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+    long now = currentTimeMillis();
+    synchronized (entries) {
+      Entry entry = entries.get(hostname);
+      if (entry != null && entry.expires > now) {
+        return entry.addresses;
+      }
+    }
+
+    List<InetAddress> addresses = delegate.lookup(hostname);
+    synchronized (entries) {
+      entries.put(hostname,
+        new Entry(Collections.unmodifiableList(new ArrayList<>(addresses)), now + ttl, now + persistedTtl));
+      scheduleSave();
+    }
+    return addresses;
+  }
+
+  /**
+   * Removes the entry of a host, for example once connecting to its addresses failed, so that the next
+   * connection resolves the host again.
+   *
+   * @param hostname the host name
+   */
+  void evict(@NonNull String hostname) {
+    synchronized (entries) {
+      if (entries.remove(hostname) != null) {
+        scheduleSave();
+      }
+    }
+  }
+
+  /**
+   * Loads the entries persisted in a file, and persists new lookups to it from now on.
+   * Entries that already expired are skipped, entries resolved in this process are kept. Loaded entries are
+   * resolved again after the in-memory time to live.
+   *
+   * @param file the file to read and write
+   */
+  @WorkerThread
+  void load(@NonNull File file) {
+    long now = currentTimeMillis();
+    Map<String, Entry> loaded = new HashMap<>();
+    if (file.exists()) {
+      try {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            String[] fields = line.split("\t");
+            if (fields.length < 3) {
+              continue;
+            }
+            long persistedUntil = Long.parseLong(fields[1]);
+            if (persistedUntil <= now) {
+              continue;
+            }
+            List<InetAddress> addresses = new ArrayList<>(fields.length - 2);
+            for (int i = 2; i < fields.length; i++) {
+              // literal addresses are parsed without a lookup
+              byte[] address = InetAddress.getByName(fields[i]).getAddress();
+              addresses.add(InetAddress.getByAddress(fields[0], address));
+            }
+            loaded.put(fields[0],
+              new Entry(Collections.unmodifiableList(addresses), Math.min(persistedUntil, now + ttl), persistedUntil));
+          }
+        } finally {
+          reader.close();
+        }
+      } catch (IOException | NumberFormatException exception) {
+        HttpLogger.log(Log.WARN, "[HTTP] Unable to read DNS cache: %s", exception.getMessage());
+      }
+    }
+
+    synchronized (entries) {
+      for (Map.Entry<String, Entry> entry : loaded.entrySet()) {
+        if (!entries.containsKey(entry.getKey())) {
+          entries.put(entry.getKey(), entry.getValue());
+        }
+      }
+      this.file = file;
+    }
+  }
+
+  /**
+   * Removes all entries, including the persisted ones.
+   */
+  void clear() {
+    File target;
+    synchronized (entries) {
+      entries.clear();
+      savePending = false;
+      target = file;
+    }
+    if (target != null) {
+      save(target, currentTimeMillis());
+    }
+  }
+
+  /**
+   * Writes the changes not written yet to the file.
+   */
+  @WorkerThread
+  void flush() {
+    File target;
+    synchronized (entries) {
+      if (!savePending) {
+        return;
+      }
+      savePending = false;
+      target = file;
+    }
+    if (target != null) {
+      save(target, currentTimeMillis());
+    }
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private void scheduleSave() {
+    // called holding the lock of the entries
+    if (file == null || savePending) {
+      return;
+    }
+    savePending = true;
+    if (executor == null) {
+      executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+          return new Thread(runnable, "Mbgl-DnsCache");
+        }
+      });
+      executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+      executor.allowCoreThreadTimeOut(true);
+    }
+    executor.schedule(saveTask, SAVE_DELAY, TimeUnit.MILLISECONDS);
+  }
+
+  private void save(@NonNull File target, long now) {
+    // serialize writers so the file is never written concurrently
+    synchronized (this) {
+      StringBuilder builder = new StringBuilder();
+      synchronized (entries) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          if (entry.getValue().persistedUntil <= now) {
+            continue;
+          }
+          builder.append(entry.getKey()).append('\t').append(entry.getValue().persistedUntil);
+          for (InetAddress address : entry.getValue().addresses) {
+            builder.append('\t').append(address.getHostAddress());
+          }
+          builder.append('\n');
+        }
+      }
+
+      File temp = new File(target.getPath() + ".tmp");
+      try {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+          throw new IOException("Unable to create " + parent);
+        }
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), CHARSET));
+        try {
+          writer.write(builder.toString());
+        } finally {
+          writer.close();
+        }
+        if (!temp.renameTo(target)) {
+          throw new IOException("Unable to replace " + target);
+        }
+      } catch (IOException exception) {
+        HttpLogger.log(Log.WARN, "[HTTP] Unable to write DNS cache: %s", exception.getMessage());
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final List<InetAddress> addresses;
+    private final long expires;
+    private final long persistedUntil;
+
+    Entry(@NonNull List<InetAddress> addresses, long expires, long persistedUntil) {
+      this.addresses = addresses;
+      this.expires = expires;
+      this.persistedUntil = persistedUntil;
+    }
+  }
+}
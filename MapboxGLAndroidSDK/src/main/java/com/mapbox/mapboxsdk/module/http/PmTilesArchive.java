@@ -0,0 +1,354 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * PMTiles (version 3) archive, read from a memory mapping of the file.
+ * <p>
+ * Tiles are located through the root directory, decoded once, and leaf directories, decoded on demand and
+ * kept in a small LRU cache. Uncompressed tiles are returned as slices of the mapping, without copying, gzip
+ * compressed tiles are inflated. Archives of brotli or zstd compressed tiles are rejected.
+ * </p>
+ */
+final class PmTilesArchive extends TileArchive {
+
+  @VisibleForTesting
+  static final int HEADER_LENGTH = 127;
+
+  @VisibleForTesting
+  static final int COMPRESSION_UNKNOWN = 0;
+  @VisibleForTesting
+  static final int COMPRESSION_NONE = 1;
+  @VisibleForTesting
+  static final int COMPRESSION_GZIP = 2;
+  @VisibleForTesting
+  static final int COMPRESSION_BROTLI = 3;
+
+  private static final byte[] MAGIC = "PMTiles".getBytes(Charset.forName("US-ASCII"));
+  private static final int VERSION = 3;
+  private static final int MAX_DIRECTORY_DEPTH = 4;
+  private static final int LEAF_CACHE_SIZE = 64;
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  // null for archives larger than a single mapping, which are read with positional reads instead
+  @Nullable
+  private final MappedByteBuffer mapping;
+
+  private final long metadataOffset;
+  private final long metadataLength;
+  private final long leafDirectoriesOffset;
+  private final long tileDataOffset;
+  private final int internalCompression;
+  private final int tileCompression;
+  private final int minZoom;
+  private final int maxZoom;
+  private final double[] bounds;
+  private final double[] center;
+  private final Directory rootDirectory;
+
+  private final Map<Long, Directory> leafDirectories = new LinkedHashMap<Long, Directory>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Directory> eldest) {
+      return size() > LEAF_CACHE_SIZE;
+    }
+  };
+
+  PmTilesArchive(@NonNull File path) throws IOException {
+    file = new RandomAccessFile(path, "r");
+    try {
+      channel = file.getChannel();
+      long size = channel.size();
+      mapping = size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+
+      ByteBuffer header = read(0, HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < MAGIC.length; i++) {
+        if (header.get(i) != MAGIC[i]) {
+          throw new IOException("Not a PMTiles archive: " + path.getPath());
+        }
+      }
+      if (header.get(7) != VERSION) {
+        throw new IOException("Unsupported PMTiles version " + header.get(7) + ": " + path.getPath());
+      }
+
+      long rootOffset = header.getLong(8);
+      long rootLength = header.getLong(16);
+      metadataOffset = header.getLong(24);
+      metadataLength = header.getLong(32);
+      leafDirectoriesOffset = header.getLong(40);
+      tileDataOffset = header.getLong(56);
+      internalCompression = header.get(97) & 0xFF;
+      tileCompression = header.get(98) & 0xFF;
+      if (tileCompression != COMPRESSION_UNKNOWN && tileCompression != COMPRESSION_NONE
+        && tileCompression != COMPRESSION_GZIP) {
+        throw new IOException("Unsupported PMTiles tile compression " + tileCompression + ": " + path.getPath());
+      }
+      minZoom = header.get(100) & 0xFF;
+      maxZoom = header.get(101) & 0xFF;
+      bounds = new double[] {
+        header.getInt(102) / 1e7, header.getInt(106) / 1e7, header.getInt(110) / 1e7, header.getInt(114) / 1e7
+      };
+      center = new double[] {header.getInt(119) / 1e7, header.getInt(123) / 1e7, header.get(118) & 0xFF};
+
+      rootDirectory = Directory.decode(decompress(read(rootOffset, toInt(rootLength))));
+    } catch (IOException | RuntimeException exception) {
+      file.close();
+      throw exception;
+    }
+  }
+
+  @Nullable
+  @Override
+  ByteBuffer getTile(int z, int x, int y) throws IOException {
+    if (z < minZoom || z > maxZoom) {
+      return null;
+    }
+    long tileId = tileId(z, x, y);
+    Directory directory = rootDirectory;
+    for (int depth = 0; depth < MAX_DIRECTORY_DEPTH; depth++) {
+      int index = directory.find(tileId);
+      if (index < 0) {
+        return null;
+      }
+      long offset = directory.offsets[index];
+      int length = directory.lengths[index];
+      if (directory.runLengths[index] > 0) {
+        if (tileId - directory.tileIds[index] >= directory.runLengths[index]) {
+          return null;
+        }
+        return decompressTile(read(tileDataOffset + offset, length));
+      }
+      directory = getLeafDirectory(leafDirectoriesOffset + offset, length);
+    }
+    throw new IOException("Directory nesting too deep");
+  }
+
+  @NonNull
+  @Override
+  String getTileJson(@NonNull String tilesUrl) throws IOException {
+    JsonObject tileJson = new JsonObject();
+    if (metadataLength > 0) {
+      ByteBuffer metadata = decompress(read(metadataOffset, toInt(metadataLength)));
+      byte[] bytes = new byte[metadata.remaining()];
+      metadata.get(bytes);
+      try {
+        JsonElement element = parse(new String(bytes, Charset.forName("UTF-8")));
+        if (element.isJsonObject()) {
+          tileJson = element.getAsJsonObject();
+        }
+      } catch (JsonParseException exception) {
+        // the metadata is informative only
+      }
+    }
+    return buildTileJson(tileJson, tilesUrl, minZoom, maxZoom, bounds, center);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  /**
+   * Returns the position of a tile on the Hilbert curves of all zoom levels.
+   */
+  @VisibleForTesting
+  static long tileId(int z, int x, int y) {
+    // tiles of the lower zoom levels
+    long id = ((1L << (2 * z)) - 1) / 3;
+    long n = 1L << z;
+    long tx = x;
+    long ty = y;
+    for (long s = n / 2; s > 0; s /= 2) {
+      long rx = (tx & s) > 0 ? 1 : 0;
+      long ry = (ty & s) > 0 ? 1 : 0;
+      id += s * s * ((3 * rx) ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          tx = n - 1 - tx;
+          ty = n - 1 - ty;
+        }
+        long t = tx;
+        tx = ty;
+        ty = t;
+      }
+    }
+    return id;
+  }
+
+  @NonNull
+  private Directory getLeafDirectory(long offset, int length) throws IOException {
+    synchronized (leafDirectories) {
+      Directory directory = leafDirectories.get(offset);
+      if (directory != null) {
+        return directory;
+      }
+    }
+    Directory directory = Directory.decode(decompress(read(offset, length)));
+    synchronized (leafDirectories) {
+      leafDirectories.put(offset, directory);
+    }
+    return directory;
+  }
+
+  /**
+   * Returns a buffer over a range of the file, a slice of the mapping if the file is mapped.
+   */
+  @NonNull
+  private ByteBuffer read(long offset, int length) throws IOException {
+    if (mapping != null) {
+      if (offset < 0 || offset + length > mapping.capacity()) {
+        throw new IOException("Range out of bounds: " + offset + "+" + length);
+      }
+      ByteBuffer slice = mapping.duplicate();
+      slice.position((int) offset);
+      slice.limit((int) offset + length);
+      return slice.slice();
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @NonNull
+  private ByteBuffer decompress(@NonNull ByteBuffer buffer) throws IOException {
+    switch (internalCompression) {
+      case COMPRESSION_NONE:
+        return buffer;
+      case COMPRESSION_GZIP:
+        return gunzip(buffer);
+      default:
+        throw new IOException("Unsupported PMTiles compression " + internalCompression);
+    }
+  }
+
+  @NonNull
+  private ByteBuffer decompressTile(@NonNull ByteBuffer tile) throws IOException {
+    // tiles of an unknown compression are told apart by the gzip header
+    if (tileCompression == COMPRESSION_GZIP || (tileCompression == COMPRESSION_UNKNOWN && isGzip(tile))) {
+      return gunzip(tile);
+    }
+    return tile;
+  }
+
+  @SuppressWarnings("deprecation")
+  @NonNull
+  private static JsonElement parse(@NonNull String json) {
+    return new JsonParser().parse(json);
+  }
+
+  private static int toInt(long length) throws IOException {
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      throw new IOException("Invalid length " + length);
+    }
+    return (int) length;
+  }
+
+  /**
+   * Decoded directory, entries sorted by tile id.
+   * <p>
+   * An entry with a run length addresses that many consecutive tiles with the same data, an entry without
+   * run length points to a leaf directory.
+   * </p>
+   */
+  @VisibleForTesting
+  static final class Directory {
+
+    final long[] tileIds;
+    final long[] runLengths;
+    final int[] lengths;
+    final long[] offsets;
+
+    private Directory(int size) {
+      tileIds = new long[size];
+      runLengths = new long[size];
+      lengths = new int[size];
+      offsets = new long[size];
+    }
+
+    /**
+     * Returns the index of the last entry starting at or before a tile id.
+     */
+    int find(long tileId) {
+      int low = 0;
+      int high = tileIds.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        long middleId = tileIds[middle];
+        if (middleId < tileId) {
+          low = middle + 1;
+        } else if (middleId > tileId) {
+          high = middle - 1;
+        } else {
+          return middle;
+        }
+      }
+      return high;
+    }
+
+    @NonNull
+    static Directory decode(@NonNull ByteBuffer buffer) throws IOException {
+      long size = readVarint(buffer);
+      if (size < 0 || size > buffer.remaining()) {
+        throw new IOException("Invalid directory size " + size);
+      }
+      Directory directory = new Directory((int) size);
+      long lastId = 0;
+      for (int i = 0; i < size; i++) {
+        lastId += readVarint(buffer);
+        directory.tileIds[i] = lastId;
+      }
+      for (int i = 0; i < size; i++) {
+        directory.runLengths[i] = readVarint(buffer);
+      }
+      for (int i = 0; i < size; i++) {
+        directory.lengths[i] = toInt(readVarint(buffer));
+      }
+      for (int i = 0; i < size; i++) {
+        long offset = readVarint(buffer);
+        // 0 means the data directly follows the previous entry
+        directory.offsets[i] = offset == 0 && i > 0
+          ? directory.offsets[i - 1] + directory.lengths[i - 1] : offset - 1;
+      }
+      return directory;
+    }
+
+    private static long readVarint(@NonNull ByteBuffer buffer) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (!buffer.hasRemaining()) {
+          throw new IOException("Truncated directory");
+        }
+        byte b = buffer.get();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Invalid varint");
+    }
+  }
+}
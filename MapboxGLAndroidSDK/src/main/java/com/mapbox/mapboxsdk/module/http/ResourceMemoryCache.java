@@ -0,0 +1,236 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.mapbox.mapboxsdk.http.HttpResponder;
+import com.mapbox.mapboxsdk.http.LocalAnswerResponder;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okhttp3.CacheControl;
+import okhttp3.Headers;
+
+/**
+ * A byte size bounded, least recently used cache of small resources that are requested repeatedly,
+ * such as styles, sources, sprites and glyphs.
+ * <p>
+ * Responses are cached by url for as long as they are fresh according to their Cache-Control or Expires headers.
+ * A fresh entry is answered without a network request, as a 304 if the request carries a matching
+ * ETag or Last-Modified date and as a 200 with the cached body otherwise.
+ * </p>
+ */
+class ResourceMemoryCache {
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private int maxSize;
+  private int size;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  ResourceMemoryCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns true if resources of a kind are kept in the cache.
+   *
+   * @param kind the resource kind
+   * @return true if cacheable
+   */
+  static boolean isCacheable(@Resource.Kind int kind) {
+    switch (kind) {
+      case Resource.STYLE:
+      case Resource.SOURCE:
+      case Resource.GLYPHS:
+      case Resource.SPRITE_IMAGE:
+      case Resource.SPRITE_JSON:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Answers a request from the cache if a fresh entry exists.
+   *
+   * @param url       the resource url
+   * @param etag      the ETag of the copy held by the requester, or an empty string
+   * @param modified  the Last-Modified date of the copy held by the requester, or an empty string
+   * @param responder the responder to notify on a hit
+   * @return true if the request was answered
+   */
+  boolean respond(@NonNull String url, @NonNull String etag, @NonNull String modified,
+                  @NonNull HttpResponder responder) {
+    long now = currentTimeMillis();
+    Entry entry;
+    synchronized (this) {
+      if (maxSize == 0) {
+        return false;
+      }
+      entry = entries.get(url);
+      if (entry == null || entry.expires <= now) {
+        // stale entries are kept until evicted, a 304 from the network makes them fresh again
+        missCount++;
+        return false;
+      }
+      hitCount++;
+    }
+
+    boolean notModified = (etag.length() > 0 && etag.equals(entry.etag))
+      || (etag.length() == 0 && modified.length() > 0 && modified.equals(entry.lastModified));
+    // the remaining lifetime, so the requester doesn't extend the freshness of the entry
+    long maxAge = (entry.expires - now) / 1000;
+    String cacheControl = "max-age=" + maxAge + (entry.mustRevalidate ? ", must-revalidate" : "");
+    if (responder instanceof LocalAnswerResponder) {
+      ((LocalAnswerResponder) responder).onLocalAnswer();
+    }
+    if (notModified) {
+      responder.onResponse(304, entry.etag, entry.lastModified, cacheControl, null, null, null, null);
+    } else {
+      ResponseDelivery.respond(responder, 200, entry.etag, entry.lastModified, cacheControl, null, null, null,
+        entry.body.duplicate());
+    }
+    return true;
+  }
+
+  /**
+   * Stores a successful response, if it's allowed to be cached and fresh.
+   *
+   * @param url     the resource url
+   * @param headers the response headers
+   * @param body    the response body, in read mode, which is copied
+   */
+  void put(@NonNull String url, @NonNull Headers headers, @NonNull ByteBuffer body) {
+    long now = currentTimeMillis();
+    long expires = expiresOf(headers, now);
+    int length = body.remaining();
+    synchronized (this) {
+      // large entries would evict most of the cache
+      if (expires <= now || length > maxSize / 4) {
+        remove(url);
+        return;
+      }
+    }
+
+    ByteBuffer copy = ByteBuffer.allocateDirect(length);
+    copy.put(body.duplicate());
+    copy.flip();
+    Entry entry = new Entry(copy, headers.get("ETag"), headers.get("Last-Modified"), expires,
+      CacheControl.parse(headers).mustRevalidate());
+
+    synchronized (this) {
+      remove(url);
+      entries.put(url, entry);
+      size += length;
+      trimToSize(maxSize);
+    }
+  }
+
+  /**
+   * Extends the freshness of an entry after the server confirmed that it wasn't modified.
+   *
+   * @param url         the resource url
+   * @param requestEtag the ETag the request was conditional on
+   * @param headers     the headers of the 304 response
+   */
+  void refresh(@NonNull String url, @Nullable String requestEtag, @NonNull Headers headers) {
+    long now = currentTimeMillis();
+    long expires = expiresOf(headers, now);
+    synchronized (this) {
+      Entry entry = entries.get(url);
+      if (entry == null) {
+        return;
+      }
+      // only a response to a request conditional on the cached copy confirms it
+      if (expires <= now || requestEtag == null || !requestEtag.equals(entry.etag)) {
+        remove(url);
+        return;
+      }
+      entries.put(url, new Entry(entry.body, entry.etag, entry.lastModified, expires,
+        CacheControl.parse(headers).mustRevalidate()));
+    }
+  }
+
+  synchronized void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    trimToSize(maxSize);
+  }
+
+  synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  synchronized int getSize() {
+    return size;
+  }
+
+  synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  synchronized long getMissCount() {
+    return missCount;
+  }
+
+  synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private void remove(@NonNull String url) {
+    Entry previous = entries.remove(url);
+    if (previous != null) {
+      size -= previous.body.capacity();
+    }
+  }
+
+  private void trimToSize(int maxSize) {
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while (size > maxSize && iterator.hasNext()) {
+      size -= iterator.next().getValue().body.capacity();
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+
+  private static long expiresOf(@NonNull Headers headers, long now) {
+    CacheControl cacheControl = CacheControl.parse(headers);
+    if (cacheControl.noStore() || cacheControl.noCache()) {
+      return 0;
+    }
+    if (cacheControl.maxAgeSeconds() != -1) {
+      return now + cacheControl.maxAgeSeconds() * 1000L;
+    }
+    Date expires = headers.getDate("Expires");
+    return expires != null ? expires.getTime() : 0;
+  }
+
+  private static final class Entry {
+
+    private final ByteBuffer body;
+    @Nullable
+    private final String etag;
+    @Nullable
+    private final String lastModified;
+    private final long expires;
+    private final boolean mustRevalidate;
+
+    Entry(@NonNull ByteBuffer body, @Nullable String etag, @Nullable String lastModified, long expires,
+          boolean mustRevalidate) {
+      this.body = body;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.expires = expires;
+      this.mustRevalidate = mustRevalidate;
+    }
+  }
+}
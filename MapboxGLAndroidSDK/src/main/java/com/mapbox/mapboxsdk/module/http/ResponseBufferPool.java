@@ -0,0 +1,112 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of reusable direct byte buffers used to hand response bodies to the native peer
+ * without materializing them as Java byte arrays.
+ * <p>
+ * Buffers are grouped in power-of-two size classes. Buffers larger than {@link #MAX_BUFFER_SIZE}
+ * are allocated on demand and never retained, and the total amount of retained memory is capped
+ * by {@link #setMaxPoolSize(int)}.
+ * </p>
+ */
+final class ResponseBufferPool {
+
+  static final int MIN_BUFFER_SIZE = 16 * 1024;
+  static final int MAX_BUFFER_SIZE = 1024 * 1024;
+  static final int DEFAULT_MAX_POOL_SIZE = 4 * 1024 * 1024;
+
+  private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE / MIN_BUFFER_SIZE) + 1;
+
+  private final ArrayDeque<ByteBuffer>[] buffers;
+  private int maxPoolSize;
+  private int pooledSize;
+
+  @SuppressWarnings("unchecked")
+  ResponseBufferPool(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+    this.buffers = new ArrayDeque[SIZE_CLASSES];
+    for (int i = 0; i < SIZE_CLASSES; i++) {
+      buffers[i] = new ArrayDeque<>();
+    }
+  }
+
+  /**
+   * Returns a cleared direct buffer with at least the requested capacity.
+   *
+   * @param capacity the minimum capacity in bytes
+   * @return a direct byte buffer
+   */
+  @NonNull
+  synchronized ByteBuffer acquire(int capacity) {
+    int sizeClass = sizeClassOf(capacity);
+    if (sizeClass < 0) {
+      return ByteBuffer.allocateDirect(capacity);
+    }
+
+    ByteBuffer buffer = buffers[sizeClass].pollFirst();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(MIN_BUFFER_SIZE << sizeClass);
+    }
+    pooledSize -= buffer.capacity();
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the pool. The buffer must not be used by the caller afterwards.
+   *
+   * @param buffer the buffer to release
+   */
+  synchronized void release(@NonNull ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    int sizeClass = sizeClassOf(capacity);
+    if (sizeClass < 0 || (MIN_BUFFER_SIZE << sizeClass) != capacity || pooledSize + capacity > maxPoolSize) {
+      return;
+    }
+    buffers[sizeClass].addFirst(buffer);
+    pooledSize += capacity;
+  }
+
+  /**
+   * Replaces a full buffer in write mode with a larger one holding the same content.
+   *
+   * @param buffer the buffer to grow, released to the pool afterwards
+   * @return a buffer in write mode with at least double the capacity
+   */
+  @NonNull
+  ByteBuffer grow(@NonNull ByteBuffer buffer) {
+    ByteBuffer larger = acquire(buffer.capacity() * 2);
+    buffer.flip();
+    larger.put(buffer);
+    release(buffer);
+    return larger;
+  }
+
+  synchronized void setMaxPoolSize(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+    for (int i = SIZE_CLASSES - 1; i >= 0 && pooledSize > maxPoolSize; i--) {
+      while (pooledSize > maxPoolSize && !buffers[i].isEmpty()) {
+        pooledSize -= buffers[i].pollFirst().capacity();
+      }
+    }
+  }
+
+  synchronized int getPooledSize() {
+    return pooledSize;
+  }
+
+  private static int sizeClassOf(int capacity) {
+    if (capacity > MAX_BUFFER_SIZE) {
+      return -1;
+    }
+    if (capacity <= MIN_BUFFER_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros((capacity - 1) / MIN_BUFFER_SIZE);
+  }
+}
@@ -0,0 +1,62 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.HttpBufferResponder;
+import com.mapbox.mapboxsdk.http.HttpResponder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Delivers response bodies held in a byte buffer to a {@link HttpResponder}.
+ * <p>
+ * A {@link HttpBufferResponder} receives the buffer itself, other responders receive a copy of its content.
+ * </p>
+ */
+final class ResponseDelivery {
+
+  private ResponseDelivery() {
+  }
+
+  /**
+   * Delivers a response, the body is read from the buffer's position up to its limit.
+   *
+   * @param responder       the responder to deliver the response to
+   * @param responseCode    http response code
+   * @param eTag            http header, identifier for a specific version of a resource
+   * @param lastModified    http header, used to determine if a resource hasn't been modified since
+   * @param cacheControl    http header, used to determine cache strategy of a resource
+   * @param expires         http header, used to determine when a resource is stale
+   * @param retryAfter      http header, used to indicate when the service is expected to be unavailable to the client
+   * @param xRateLimitReset http header, used to determine the remaining window before the rate limit resets
+   * @param body            http response body, only valid for the duration of this call
+   */
+  static void respond(@NonNull HttpResponder responder, int responseCode, String eTag, String lastModified,
+                      String cacheControl, String expires, String retryAfter, String xRateLimitReset,
+                      @NonNull ByteBuffer body) {
+    if (body.isDirect() && responder instanceof HttpBufferResponder) {
+      ((HttpBufferResponder) responder).onResponseBuffer(responseCode, eTag, lastModified, cacheControl, expires,
+        retryAfter, xRateLimitReset, body);
+    } else {
+      responder.onResponse(responseCode, eTag, lastModified, cacheControl, expires, retryAfter, xRateLimitReset,
+        toArray(body));
+    }
+  }
+
+  /**
+   * Returns the content of a buffer from its position up to its limit, without copying a whole backing array.
+   *
+   * @param buffer the buffer to read, its position is left unchanged
+   * @return the content
+   */
+  @NonNull
+  static byte[] toArray(@NonNull ByteBuffer buffer) {
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+      && buffer.remaining() == buffer.array().length) {
+      return buffer.array();
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+}
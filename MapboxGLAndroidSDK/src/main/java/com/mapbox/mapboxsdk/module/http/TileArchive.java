@@ -0,0 +1,144 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Local package of pre-built tiles, served by {@link TileArchiveHttpRequest}.
+ * <p>
+ * Archives commonly store vector tiles gzip compressed. The core doesn't inflate response bodies, tiles are
+ * returned decompressed.
+ * </p>
+ */
+abstract class TileArchive implements Closeable {
+
+  /**
+   * Returns the data of a tile.
+   *
+   * @param z the zoom level
+   * @param x the column, from the west
+   * @param y the row, from the north
+   * @return the tile data, decompressed, or null if the archive has no such tile
+   * @throws IOException if the archive couldn't be read
+   */
+  @Nullable
+  abstract ByteBuffer getTile(int z, int x, int y) throws IOException;
+
+  /**
+   * Returns a TileJSON document describing the archive.
+   *
+   * @param tilesUrl the url template of the tiles of the archive
+   * @return the TileJSON document
+   * @throws IOException if the archive couldn't be read
+   */
+  @NonNull
+  abstract String getTileJson(@NonNull String tilesUrl) throws IOException;
+
+  @NonNull
+  static TileArchive open(@NonNull String scheme, @NonNull File file, int connections) throws IOException {
+    if (TileArchiveHttpRequest.PMTILES_SCHEME.equals(scheme)) {
+      return new PmTilesArchive(file);
+    }
+    return new MbTilesArchive(file, connections);
+  }
+
+  /**
+   * Returns true if the data starts with the gzip magic bytes.
+   *
+   * @param data the data, its position is left unchanged
+   * @return true if gzip compressed
+   */
+  static boolean isGzip(@NonNull ByteBuffer data) {
+    int position = data.position();
+    return data.remaining() >= 2 && data.get(position) == (byte) 0x1f && data.get(position + 1) == (byte) 0x8b;
+  }
+
+  /**
+   * Inflates gzip compressed data.
+   *
+   * @param data the compressed data, read from its position up to its limit
+   * @return the inflated data
+   * @throws IOException if the data isn't valid gzip
+   */
+  @NonNull
+  static ByteBuffer gunzip(@NonNull ByteBuffer data) throws IOException {
+    InputStream input = new GZIPInputStream(new ByteBufferInputStream(data));
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(data.remaining() * 4);
+      byte[] chunk = new byte[8192];
+      int read;
+      while ((read = input.read(chunk)) != -1) {
+        output.write(chunk, 0, read);
+      }
+      return ByteBuffer.wrap(output.toByteArray());
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Completes the archive metadata with the fields needed to load the archive as a source.
+   */
+  @NonNull
+  static String buildTileJson(@NonNull JsonObject metadata, @NonNull String tilesUrl, int minZoom, int maxZoom,
+                              @Nullable double[] bounds, @Nullable double[] center) {
+    JsonArray tiles = new JsonArray();
+    tiles.add(tilesUrl);
+    metadata.addProperty("tilejson", "2.2.0");
+    metadata.add("tiles", tiles);
+    metadata.addProperty("scheme", "xyz");
+    metadata.addProperty("minzoom", minZoom);
+    metadata.addProperty("maxzoom", maxZoom);
+    if (bounds != null) {
+      metadata.add("bounds", toJsonArray(bounds));
+    }
+    if (center != null) {
+      metadata.add("center", toJsonArray(center));
+    }
+    return metadata.toString();
+  }
+
+  @NonNull
+  private static JsonArray toJsonArray(@NonNull double[] values) {
+    JsonArray array = new JsonArray();
+    for (double value : values) {
+      array.add(value);
+    }
+    return array;
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(@NonNull ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(@NonNull byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import android.util.Log;
+
+import com.mapbox.mapboxsdk.http.HttpLogger;
+import com.mapbox.mapboxsdk.http.HttpRequest;
+import com.mapbox.mapboxsdk.http.HttpResponder;
+import com.mapbox.mapboxsdk.http.LocalAnswerResponder;
+import com.mapbox.mapboxsdk.http.ResourceHttpRequest;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * {@link HttpRequest} serving tiles from local MBTiles and PMTiles archives, without network access.
+ * <p>
+ * Archives are addressed with the {@code mbtiles://} and {@code pmtiles://} schemes followed by the absolute path
+ * of the file, eg. {@code pmtiles:///sdcard/tiles/city.pmtiles}. Used as the url of a source, the archive is
+ * described with a TileJSON document built from its metadata, pointing to tiles of the same archive.
+ * Other urls are handed to the delegate request.
+ * </p>
+ * <p>
+ * Archives are opened on first use and kept open until {@link #closeArchives()}.
+ * </p>
+ */
+public class TileArchiveHttpRequest implements ResourceHttpRequest {
+
+  static final String MBTILES_SCHEME = "mbtiles";
+  static final String PMTILES_SCHEME = "pmtiles";
+
+  private static final String SCHEME_SEPARATOR = "://";
+  private static final int THREAD_COUNT = 2;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final ThreadPoolExecutor executor = getExecutor();
+  private static final Map<String, TileArchive> archives = new HashMap<>();
+
+  private final HttpRequest delegate;
+  @Nullable
+  private Future<?> task;
+
+  public TileArchiveHttpRequest() {
+    this(new HttpRequestImpl());
+  }
+
+  public TileArchiveHttpRequest(@NonNull HttpRequest delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Returns true if the url addresses a local tile archive.
+   *
+   * @param url the url to check
+   * @return true if served from a tile archive
+   */
+  public static boolean isArchiveUrl(@NonNull String url) {
+    return url.startsWith(MBTILES_SCHEME + SCHEME_SEPARATOR) || url.startsWith(PMTILES_SCHEME + SCHEME_SEPARATOR);
+  }
+
+  @Override
+  public void executeRequest(HttpResponder httpRequest, long nativePtr, @NonNull String resourceUrl,
+                             @NonNull String etag, @NonNull String modified, boolean offlineUsage) {
+    executeRequest(httpRequest, nativePtr, resourceUrl, etag, modified, offlineUsage, Resource.UNKNOWN, false);
+  }
+
+  @Override
+  public void executeRequest(HttpResponder httpRequest, long nativePtr, @NonNull String resourceUrl,
+                             @NonNull String etag, @NonNull String modified, boolean offlineUsage,
+                             @Resource.Kind int kind, boolean lowPriority) {
+    if (!isArchiveUrl(resourceUrl)) {
+      if (delegate instanceof ResourceHttpRequest) {
+        ((ResourceHttpRequest) delegate).executeRequest(httpRequest, nativePtr, resourceUrl, etag, modified,
+          offlineUsage, kind, lowPriority);
+      } else {
+        delegate.executeRequest(httpRequest, nativePtr, resourceUrl, etag, modified, offlineUsage);
+      }
+      return;
+    }
+    task = executor.submit(new ArchiveRequest(httpRequest, resourceUrl));
+  }
+
+  @Override
+  public void cancelRequest() {
+    if (task != null) {
+      task.cancel(false);
+    } else {
+      delegate.cancelRequest();
+    }
+  }
+
+  /**
+   * Closes the archives opened so far, eg. before replacing an archive file.
+   */
+  public static void closeArchives() {
+    synchronized (archives) {
+      for (TileArchive archive : archives.values()) {
+        try {
+          archive.close();
+        } catch (IOException exception) {
+          HttpLogger.log(Log.WARN, "[HTTP] Unable to close tile archive: %s", exception.getMessage());
+        }
+      }
+      archives.clear();
+    }
+  }
+
+  @NonNull
+  private static TileArchive getArchive(@NonNull String scheme, @NonNull String path) throws IOException {
+    String key = scheme + SCHEME_SEPARATOR + path;
+    synchronized (archives) {
+      TileArchive archive = archives.get(key);
+      if (archive == null) {
+        archive = TileArchive.open(scheme, new File(path), THREAD_COUNT);
+        archives.put(key, archive);
+      }
+      return archive;
+    }
+  }
+
+  /**
+   * Location of a resource within an archive, either the archive itself or one of its tiles.
+   */
+  @VisibleForTesting
+  static final class ArchiveUrl {
+
+    final String scheme;
+    final String path;
+    // -1 for the archive itself
+    final int z;
+    final int x;
+    final int y;
+
+    private ArchiveUrl(String scheme, String path, int z, int x, int y) {
+      this.scheme = scheme;
+      this.path = path;
+      this.z = z;
+      this.x = x;
+      this.y = y;
+    }
+
+    boolean isTile() {
+      return z >= 0;
+    }
+
+    /**
+     * Parses an archive url, eg. {@code mbtiles:///data/city.mbtiles} or {@code mbtiles:///data/city.mbtiles/3/4/2}.
+     *
+     * @param url the url to parse
+     * @return the parsed url, or null if it's not a valid archive url
+     */
+    @Nullable
+    static ArchiveUrl parse(@NonNull String url) {
+      int separator = url.indexOf(SCHEME_SEPARATOR);
+      if (separator < 0) {
+        return null;
+      }
+      String scheme = url.substring(0, separator);
+      String location = url.substring(separator + SCHEME_SEPARATOR.length());
+      int query = location.indexOf('?');
+      if (query >= 0) {
+        location = location.substring(0, query);
+      }
+
+      String extension = "." + scheme;
+      int end = location.indexOf(extension + "/");
+      if (end < 0) {
+        return location.endsWith(extension) ? new ArchiveUrl(scheme, location, -1, -1, -1) : null;
+      }
+      end += extension.length();
+
+      String[] tile = location.substring(end + 1).split("/");
+      if (tile.length != 3) {
+        return null;
+      }
+      // the tile format is implied by the archive, ignore any extension
+      int dot = tile[2].indexOf('.');
+      if (dot >= 0) {
+        tile[2] = tile[2].substring(0, dot);
+      }
+      try {
+        int z = Integer.parseInt(tile[0]);
+        int x = Integer.parseInt(tile[1]);
+        int y = Integer.parseInt(tile[2]);
+        if (z < 0 || z > 30 || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+          return null;
+        }
+        return new ArchiveUrl(scheme, location.substring(0, end), z, x, y);
+      } catch (NumberFormatException exception) {
+        return null;
+      }
+    }
+  }
+
+  private static class ArchiveRequest implements Runnable {
+
+    private final HttpResponder httpRequest;
+    private final String resourceUrl;
+
+    ArchiveRequest(HttpResponder httpRequest, String resourceUrl) {
+      this.httpRequest = httpRequest;
+      this.resourceUrl = resourceUrl;
+    }
+
+    @Override
+    public void run() {
+      if (httpRequest instanceof LocalAnswerResponder) {
+        ((LocalAnswerResponder) httpRequest).onLocalAnswer();
+      }
+      ArchiveUrl url = ArchiveUrl.parse(resourceUrl);
+      if (url == null) {
+        HttpLogger.log(Log.ERROR, "[HTTP] Unable to parse tile archive url %s", resourceUrl);
+        httpRequest.onResponse(404, null, null, null, null, null, null, null);
+        return;
+      }
+
+      try {
+        TileArchive archive = getArchive(url.scheme, url.path);
+        if (!url.isTile()) {
+          String tilesUrl = url.scheme + SCHEME_SEPARATOR + url.path + "/{z}/{x}/{y}";
+          byte[] tileJson = archive.getTileJson(tilesUrl).getBytes(UTF_8);
+          httpRequest.onResponse(200, null, null, null, null, null, null, tileJson);
+          return;
+        }
+
+        ByteBuffer tile = archive.getTile(url.z, url.x, url.y);
+        if (tile == null) {
+          httpRequest.onResponse(204, null, null, null, null, null, null, null);
+        } else {
+          ResponseDelivery.respond(httpRequest, 200, null, null, null, null, null, null, tile);
+        }
+      } catch (FileNotFoundException exception) {
+        HttpLogger.log(Log.WARN, "[HTTP] Tile archive not found: %s", url.path);
+        httpRequest.onResponse(404, null, null, null, null, null, null, null);
+      } catch (IOException exception) {
+        String message = exception.getMessage() != null ? exception.getMessage() : "Unable to read tile archive";
+        HttpLogger.logFailure(PERMANENT_ERROR, message, resourceUrl);
+        httpRequest.handleFailure(PERMANENT_ERROR, message);
+      }
+    }
+  }
+
+  @NonNull
+  private static ThreadPoolExecutor getExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+          return new Thread(runnable, "Mbgl-TileArchive");
+        }
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
@@ -0,0 +1,99 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.SQLException;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.http.NetworkResponseStatistics;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+/**
+ * Counts the tiles and resources the core evicted from the ambient cache since the process started, per
+ * {@link Resource.Kind}.
+ * <p>
+ * The core doesn't report its evictions. It only deletes rows when evicting, when a region is deleted, which
+ * evicts the tiles and resources the region held if the ambient cache is full, and when the ambient cache is
+ * cleared or the database reset. Rows are never updated to another id and ids aren't reused, so the rows that
+ * existed at a snapshot and are gone at the next one were evicted, unless the cache was cleared in between,
+ * see {@link #reset()}. Rows added and evicted between two snapshots aren't counted.
+ * </p>
+ */
+final class AmbientCacheEvictions {
+
+  private static final String LAST_TILE = "SELECT IFNULL(MAX(id), 0) FROM tiles";
+  private static final String LAST_RESOURCE = "SELECT IFNULL(MAX(id), 0) FROM resources";
+  private static final String TILES = "SELECT COUNT(*) FROM tiles WHERE id <= ?";
+  private static final String RESOURCES = "SELECT kind, COUNT(*) FROM resources WHERE id <= ? GROUP BY kind";
+
+  private static final AmbientCacheEvictions instance = new AmbientCacheEvictions();
+
+  private final long[] evictions = new long[NetworkResponseStatistics.KIND_COUNT];
+  private final long[] counts = new long[NetworkResponseStatistics.KIND_COUNT];
+  private long lastTile = -1;
+  private long lastResource;
+
+  AmbientCacheEvictions() {
+  }
+
+  @NonNull
+  static AmbientCacheEvictions getInstance() {
+    return instance;
+  }
+
+  /**
+   * Counts the rows deleted since the last update and takes a new snapshot.
+   *
+   * @param connection a connection to the offline database
+   * @return the eviction counts since the process started, indexed by kind
+   * @throws SQLException if the database can't be read
+   */
+  @WorkerThread
+  @NonNull
+  synchronized long[] update(@NonNull OfflineDatabaseConnection connection) {
+    if (lastTile >= 0) {
+      long[] left = count(connection, lastTile, lastResource);
+      for (int kind = 0; kind < evictions.length; kind++) {
+        evictions[kind] += Math.max(0, counts[kind] - left[kind]);
+      }
+    }
+    // rows evicted between the two counts are missed, the queries follow each other
+    lastTile = queryLong(connection, LAST_TILE);
+    lastResource = queryLong(connection, LAST_RESOURCE);
+    long[] current = count(connection, lastTile, lastResource);
+    System.arraycopy(current, 0, counts, 0, counts.length);
+    return evictions.clone();
+  }
+
+  /**
+   * Drops the snapshot, the rows deleted until the next update aren't counted. Call before the SDK deletes
+   * rows for another reason than evicting them.
+   */
+  synchronized void reset() {
+    lastTile = -1;
+  }
+
+  /**
+   * Returns the number of tiles and resources with an id up to the given ones, per kind.
+   */
+  @NonNull
+  private long[] count(@NonNull OfflineDatabaseConnection connection, long lastTile, long lastResource) {
+    long[] values = new long[counts.length];
+    values[Resource.TILE] += queryLong(connection, TILES, lastTile);
+    long[] rows = connection.query(RESOURCES, 2, String.valueOf(lastResource));
+    for (int row = 0; row < rows.length; row += 2) {
+      int kind = (int) rows[row];
+      values[kind >= 0 && kind < values.length ? kind : Resource.UNKNOWN] += rows[row + 1];
+    }
+    return values;
+  }
+
+  private static long queryLong(@NonNull OfflineDatabaseConnection connection, @NonNull String query,
+                                long... arguments) {
+    String[] values = new String[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      values[i] = String.valueOf(arguments[i]);
+    }
+    long[] rows = connection.query(query, 1, values);
+    return rows.length > 0 ? rows[0] : 0;
+  }
+}
@@ -0,0 +1,299 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.turf.TurfConstants;
+import com.mapbox.turf.TurfMeasurement;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Downloads the tiles along a route into the ambient cache, started with
+ * {@link OfflineManager#prewarmAmbientCache(String, LineString, double, double, double, float, Callback)}.
+ * <p>
+ * The corridor is downloaded as a transient offline region, which is deleted once complete: its resources
+ * then remain in the database as ambient cache, subject to its maximum size and eviction. Tiles cached
+ * already and still fresh aren't requested again, and the requests are made in the offline priority class
+ * of the HTTP module, behind the requests of the map.
+ * </p>
+ * <p>
+ * The ids of the transient regions are kept in the shared preferences while downloading, so that regions
+ * left over by a process that ended while prewarming are deleted once the {@link OfflineManager} is created.
+ * </p>
+ */
+@UiThread
+public final class AmbientCachePrewarm {
+
+  // tells the transient regions apart from the regions of the application
+  static final byte[] REGION_METADATA = "mapbox-ambient-prewarm".getBytes(Charset.forName("UTF-8"));
+
+  private static final String PREFERENCES = "MapboxAmbientCachePrewarm";
+  private static final String KEY_REGIONS = "regions";
+
+  /**
+   * This callback receives the outcome of a prewarm.
+   */
+  public interface Callback {
+    /**
+     * Invoked on the main thread once the tiles of the corridor were downloaded.
+     *
+     * @param status the status of the transient region at the end of the download
+     */
+    void onComplete(@NonNull OfflineRegionStatus status);
+
+    /**
+     * Invoked on the main thread if the prewarm failed.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
+  @NonNull
+  private final SharedPreferences preferences;
+  @Nullable
+  private final Callback callback;
+  @Nullable
+  private OfflineRegion region;
+  private boolean done;
+
+  AmbientCachePrewarm(@NonNull SharedPreferences preferences, @Nullable Callback callback) {
+    this.preferences = preferences;
+    this.callback = callback;
+  }
+
+  /**
+   * Stops the download and deletes the transient region. Tiles downloaded so far stay in the ambient cache.
+   * The callback isn't invoked.
+   */
+  public void cancel() {
+    if (done) {
+      return;
+    }
+    done = true;
+    if (region != null) {
+      region.setDownloadState(OfflineRegion.STATE_INACTIVE);
+      delete(preferences, region, null);
+    }
+  }
+
+  /**
+   * Returns true once the prewarm completed, failed or was canceled.
+   *
+   * @return true if done
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  OfflineManager.CreateOfflineRegionCallback createCallback() {
+    return new OfflineManager.CreateOfflineRegionCallback() {
+      @Override
+      public void onCreate(OfflineRegion offlineRegion) {
+        track(preferences, offlineRegion.getID(), true);
+        if (done) {
+          // canceled while the region was created
+          delete(preferences, offlineRegion, null);
+          return;
+        }
+        region = offlineRegion;
+        offlineRegion.setObserver(new PrewarmObserver());
+        offlineRegion.setDownloadState(OfflineRegion.STATE_ACTIVE);
+      }
+
+      @Override
+      public void onError(String error) {
+        if (!done) {
+          done = true;
+          if (callback != null) {
+            callback.onError(error);
+          }
+        }
+      }
+    };
+  }
+
+  private void finish(@Nullable final OfflineRegionStatus status, @Nullable final String error) {
+    if (done || region == null) {
+      return;
+    }
+    done = true;
+    region.setDownloadState(OfflineRegion.STATE_INACTIVE);
+    delete(preferences, region, new Runnable() {
+      @Override
+      public void run() {
+        if (callback == null) {
+          return;
+        }
+        if (status != null) {
+          callback.onComplete(status);
+        } else {
+          callback.onError(error);
+        }
+      }
+    });
+  }
+
+  static boolean isTransient(@NonNull OfflineRegion region) {
+    return Arrays.equals(REGION_METADATA, region.getMetadata());
+  }
+
+  @NonNull
+  static SharedPreferences getPreferences(@NonNull Context context) {
+    return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+  }
+
+  /**
+   * Deletes the transient regions of prewarms which didn't end, their resources stay in the ambient cache.
+   * Only the regions kept in the shared preferences are looked up, nothing is queried if there are none.
+   *
+   * @param offlineManager the offline manager to look the regions up with
+   * @param preferences    the preferences holding the ids of the transient regions
+   */
+  static void deleteLeftoverRegions(@NonNull OfflineManager offlineManager,
+                                    @NonNull final SharedPreferences preferences) {
+    Set<String> ids = preferences.getStringSet(KEY_REGIONS, Collections.<String>emptySet());
+    for (String value : ids) {
+      final long id;
+      try {
+        id = Long.parseLong(value);
+      } catch (NumberFormatException exception) {
+        continue;
+      }
+      // a page of one region starting at the id, ids are positive
+      OfflineRegionQuery query = new OfflineRegionQuery.Builder().startAfter(id - 1).pageSize(1).build();
+      offlineManager.listOfflineRegions(query, new OfflineManager.ListOfflineRegionsPageCallback() {
+        @Override
+        public void onPage(OfflineRegion[] offlineRegions, boolean hasMore) {
+          if (offlineRegions != null && offlineRegions.length > 0 && offlineRegions[0].getID() == id
+            && isTransient(offlineRegions[0])) {
+            delete(preferences, offlineRegions[0], null);
+          } else {
+            track(preferences, id, false);
+          }
+        }
+
+        @Override
+        public void onError(String error) {
+          // a leftover region only holds its resources longer, the next start tries again
+        }
+      });
+    }
+  }
+
+  private static void track(@NonNull SharedPreferences preferences, long id, boolean add) {
+    // the returned set must not be modified
+    Set<String> ids = new HashSet<>(preferences.getStringSet(KEY_REGIONS, Collections.<String>emptySet()));
+    boolean changed = add ? ids.add(String.valueOf(id)) : ids.remove(String.valueOf(id));
+    if (!changed) {
+      return;
+    }
+    if (ids.isEmpty()) {
+      preferences.edit().remove(KEY_REGIONS).apply();
+    } else {
+      preferences.edit().putStringSet(KEY_REGIONS, ids).apply();
+    }
+  }
+
+  private static void delete(@NonNull final SharedPreferences preferences, @NonNull final OfflineRegion region,
+                             @Nullable final Runnable then) {
+    region.setObserver(null);
+    region.delete(new OfflineRegion.OfflineRegionDeleteCallback() {
+      @Override
+      public void onDelete() {
+        track(preferences, region.getID(), false);
+        if (then != null) {
+          then.run();
+        }
+      }
+
+      @Override
+      public void onError(String error) {
+        // the resources are downloaded already, a leftover region only holds them longer until the next start
+        if (then != null) {
+          then.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Builds a corridor around a route: a quad along every segment and a square around every vertex, so that
+   * joints are covered whatever the turn.
+   *
+   * @param route        the route
+   * @param bufferMeters the distance covered on each side of the route, in meters
+   * @return the corridor
+   */
+  @NonNull
+  static MultiPolygon corridor(@NonNull LineString route, double bufferMeters) {
+    List<Point> points = route.coordinates();
+    List<Polygon> polygons = new ArrayList<>(points.size() * 2);
+    double diagonal = bufferMeters * Math.sqrt(2);
+    for (int i = 0; i < points.size(); i++) {
+      Point point = points.get(i);
+      polygons.add(polygon(
+        destination(point, diagonal, 45),
+        destination(point, diagonal, 135),
+        destination(point, diagonal, -135),
+        destination(point, diagonal, -45)));
+      if (i == 0) {
+        continue;
+      }
+      Point previous = points.get(i - 1);
+      double bearing = TurfMeasurement.bearing(previous, point);
+      polygons.add(polygon(
+        destination(previous, bufferMeters, bearing - 90),
+        destination(point, bufferMeters, bearing - 90),
+        destination(point, bufferMeters, bearing + 90),
+        destination(previous, bufferMeters, bearing + 90)));
+    }
+    return MultiPolygon.fromPolygons(polygons);
+  }
+
+  private static Point destination(@NonNull Point point, double meters, double bearing) {
+    return TurfMeasurement.destination(point, meters, bearing, TurfConstants.UNIT_METERS);
+  }
+
+  private static Polygon polygon(Point first, Point second, Point third, Point fourth) {
+    return Polygon.fromLngLats(Collections.singletonList(Arrays.asList(first, second, third, fourth, first)));
+  }
+
+  /**
+   * Completes the prewarm when the download is complete or can't go on.
+   */
+  private final class PrewarmObserver implements OfflineRegion.OfflineRegionObserver {
+
+    @Override
+    public void onStatusChanged(OfflineRegionStatus status) {
+      if (status.isComplete() && status.isRequiredResourceCountPrecise()) {
+        finish(status, null);
+      }
+    }
+
+    @Override
+    public void onError(OfflineRegionError error) {
+      // the core retries failed resources while the region is active
+    }
+
+    @Override
+    public void mapboxTileCountLimitExceeded(long limit) {
+      finish(null, "The Mapbox tile count limit of " + limit + " was exceeded");
+    }
+  }
+}
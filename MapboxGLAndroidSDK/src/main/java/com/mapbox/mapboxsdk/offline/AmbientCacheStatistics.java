@@ -0,0 +1,303 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.NetworkResponseStatistics;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+/**
+ * A snapshot of the effectiveness of the ambient cache since the process started, per
+ * {@link Resource.Kind}, obtained with {@link OfflineManager#getAmbientCacheStatistics}.
+ * <p>
+ * Requests are the resources requested by maps which aren't local files or tile archives, including the
+ * {@code mapbox://} ones and the requests canceled before they were answered. An answered request without a
+ * network response, such as one answered from the memory cache of the HTTP module, is a hit.
+ * Otherwise the cached copy, if any, is revalidated: a not modified response is a revalidation, any other
+ * network response or failure a miss. Bytes served from the cache are those of the copies delivered last to
+ * the requests which didn't get a new copy from the network: an expired copy followed by a modified one only
+ * counts as bytes from the network.
+ * </p>
+ * <p>
+ * The current size is read from the database and only counts the resources and tiles no offline region
+ * holds. Evictions are the tiles and resources the core deleted to keep the ambient cache within its maximum
+ * size, found by comparing the rows of the database at each snapshot: those added and evicted between two
+ * snapshots aren't counted. Take the difference of two snapshots with {@link #since(AmbientCacheStatistics)} to
+ * measure a period of use.
+ * </p>
+ */
+public final class AmbientCacheStatistics {
+
+  private final Counts[] kinds;
+  private final Counts total;
+
+  AmbientCacheStatistics(@NonNull Counts[] kinds) {
+    this.kinds = kinds;
+    Counts total = new Counts(0, 0, 0, 0, 0, 0, 0, 0, 0);
+    for (Counts counts : kinds) {
+      total = total.plus(counts);
+    }
+    this.total = total;
+  }
+
+  /**
+   * Reads the counters of the HTTP module: the answered request counts, the not modified counts and the
+   * received byte counts, per kind.
+   *
+   * @return the network statistics, indexed by kind
+   */
+  @NonNull
+  static long[] readNetworkStatistics() {
+    int kindCount = NetworkResponseStatistics.KIND_COUNT;
+    long[] values = new long[kindCount * 3];
+    for (int kind = 0; kind < kindCount; kind++) {
+      values[kind] = NetworkResponseStatistics.getAnsweredCount(kind);
+      values[kindCount + kind] = NetworkResponseStatistics.getNotModifiedCount(kind);
+      values[kindCount * 2 + kind] = NetworkResponseStatistics.getReceivedBytes(kind);
+    }
+    return values;
+  }
+
+  /**
+   * Combines the counters of the resource loader of the core, the counters of the HTTP module and the
+   * content of the database.
+   *
+   * @param loaderStatistics  the request counts, answered request counts and delivered byte counts of the
+   *                          resource loader, per kind
+   * @param networkStatistics the network statistics, see {@link #readNetworkStatistics()}
+   * @param cachedCounts      the number of cached resources, per kind
+   * @param cachedSizes       the size of the cached resources, per kind
+   * @param evictions         the number of evicted resources, per kind
+   * @return the statistics
+   */
+  @NonNull
+  static AmbientCacheStatistics create(@NonNull long[] loaderStatistics, @NonNull long[] networkStatistics,
+                                       @NonNull long[] cachedCounts, @NonNull long[] cachedSizes,
+                                       @NonNull long[] evictions) {
+    int kindCount = NetworkResponseStatistics.KIND_COUNT;
+    Counts[] kinds = new Counts[kindCount];
+    for (int kind = 0; kind < kindCount; kind++) {
+      long requests = valueAt(loaderStatistics, kind);
+      long answered = valueAt(loaderStatistics, kindCount + kind);
+      long deliveredBytes = valueAt(loaderStatistics, kindCount * 2 + kind);
+      long networkResponses = valueAt(networkStatistics, kind);
+      long revalidations = valueAt(networkStatistics, kindCount + kind);
+      long networkBytes = valueAt(networkStatistics, kindCount * 2 + kind);
+      kinds[kind] = new Counts(requests,
+        Math.max(0, answered - networkResponses),
+        Math.max(0, networkResponses - revalidations),
+        revalidations,
+        Math.max(0, deliveredBytes - networkBytes),
+        networkBytes,
+        valueAt(cachedCounts, kind),
+        valueAt(cachedSizes, kind),
+        valueAt(evictions, kind));
+    }
+    return new AmbientCacheStatistics(kinds);
+  }
+
+  /**
+   * Returns the statistics of a resource kind.
+   *
+   * @param kind the resource kind
+   * @return the counts of the kind
+   */
+  @NonNull
+  public Counts get(@Resource.Kind int kind) {
+    return kind >= 0 && kind < kinds.length ? kinds[kind] : kinds[Resource.UNKNOWN];
+  }
+
+  /**
+   * Returns the statistics of all resource kinds.
+   *
+   * @return the total counts
+   */
+  @NonNull
+  public Counts getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the counters accumulated since an earlier snapshot, along with the current cache size.
+   *
+   * @param earlier the earlier snapshot
+   * @return the statistics of the period between the snapshots
+   */
+  @NonNull
+  public AmbientCacheStatistics since(@NonNull AmbientCacheStatistics earlier) {
+    Counts[] difference = new Counts[kinds.length];
+    for (int kind = 0; kind < kinds.length; kind++) {
+      difference[kind] = kinds[kind].minus(earlier.get(kind));
+    }
+    return new AmbientCacheStatistics(difference);
+  }
+
+  @Override
+  public String toString() {
+    return "AmbientCacheStatistics{total=" + total + '}';
+  }
+
+  private static long valueAt(@NonNull long[] values, int index) {
+    return index < values.length ? values[index] : 0;
+  }
+
+  /**
+   * The counters of a resource kind, or of all kinds.
+   */
+  public static final class Counts {
+
+    private final long requestCount;
+    private final long hitCount;
+    private final long missCount;
+    private final long revalidationCount;
+    private final long bytesFromCache;
+    private final long bytesFromNetwork;
+    private final long cachedResourceCount;
+    private final long cachedSize;
+    private final long evictionCount;
+
+    Counts(long requestCount, long hitCount, long missCount, long revalidationCount, long bytesFromCache,
+           long bytesFromNetwork, long cachedResourceCount, long cachedSize, long evictionCount) {
+      this.requestCount = requestCount;
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.revalidationCount = revalidationCount;
+      this.bytesFromCache = bytesFromCache;
+      this.bytesFromNetwork = bytesFromNetwork;
+      this.cachedResourceCount = cachedResourceCount;
+      this.cachedSize = cachedSize;
+      this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Returns the number of resources requested by maps which aren't local.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+      return requestCount;
+    }
+
+    /**
+     * Returns the number of requests answered from the cache without a network response.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    /**
+     * Returns the number of network responses and failures that weren't a not modified response.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /**
+     * Returns the number of cached resources revalidated with a not modified response.
+     *
+     * @return the revalidation count
+     */
+    public long getRevalidationCount() {
+      return revalidationCount;
+    }
+
+    /**
+     * Returns the share of the answered requests that were hits, leaving out the canceled requests.
+     *
+     * @return the hit ratio between 0 and 1, 0 without answered requests
+     */
+    public double getHitRatio() {
+      long answeredCount = hitCount + missCount + revalidationCount;
+      return answeredCount > 0 ? (double) hitCount / answeredCount : 0;
+    }
+
+    /**
+     * Returns the number of bytes delivered to maps from the cache.
+     *
+     * @return the byte count
+     */
+    public long getBytesFromCache() {
+      return bytesFromCache;
+    }
+
+    /**
+     * Returns the number of bytes received from the network for maps.
+     *
+     * @return the byte count
+     */
+    public long getBytesFromNetwork() {
+      return bytesFromNetwork;
+    }
+
+    /**
+     * Returns the number of resources in the ambient cache.
+     *
+     * @return the resource count
+     */
+    public long getCachedResourceCount() {
+      return cachedResourceCount;
+    }
+
+    /**
+     * Returns the size of the resources in the ambient cache, as stored in the database.
+     *
+     * @return the size in bytes
+     */
+    public long getCachedSize() {
+      return cachedSize;
+    }
+
+    /**
+     * Returns the number of resources evicted from the ambient cache to keep it within its maximum size.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+    @NonNull
+    Counts plus(@NonNull Counts other) {
+      return new Counts(requestCount + other.requestCount,
+        hitCount + other.hitCount,
+        missCount + other.missCount,
+        revalidationCount + other.revalidationCount,
+        bytesFromCache + other.bytesFromCache,
+        bytesFromNetwork + other.bytesFromNetwork,
+        cachedResourceCount + other.cachedResourceCount,
+        cachedSize + other.cachedSize,
+        evictionCount + other.evictionCount);
+    }
+
+    @NonNull
+    Counts minus(@NonNull Counts earlier) {
+      return new Counts(requestCount - earlier.requestCount,
+        hitCount - earlier.hitCount,
+        missCount - earlier.missCount,
+        revalidationCount - earlier.revalidationCount,
+        bytesFromCache - earlier.bytesFromCache,
+        bytesFromNetwork - earlier.bytesFromNetwork,
+        cachedResourceCount,
+        cachedSize,
+        evictionCount - earlier.evictionCount);
+    }
+
+    @Override
+    public String toString() {
+      return "Counts{"
+        + "requestCount=" + requestCount
+        + ", hitCount=" + hitCount
+        + ", missCount=" + missCount
+        + ", revalidationCount=" + revalidationCount
+        + ", bytesFromCache=" + bytesFromCache
+        + ", bytesFromNetwork=" + bytesFromNetwork
+        + ", cachedResourceCount=" + cachedResourceCount
+        + ", cachedSize=" + cachedSize
+        + ", evictionCount=" + evictionCount
+        + '}';
+    }
+  }
+}
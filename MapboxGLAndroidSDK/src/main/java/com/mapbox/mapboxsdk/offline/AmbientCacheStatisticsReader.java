@@ -0,0 +1,102 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.SQLException;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.NetworkResponseStatistics;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import java.io.File;
+
+/**
+ * Reads the number and size of the resources of the ambient cache from the offline database, and combines
+ * them with the request counters and the evictions into {@link AmbientCacheStatistics}. The database is read
+ * through the SQLite library of the core, see {@link NativeOfflineDatabaseConnection}.
+ */
+final class AmbientCacheStatisticsReader implements Runnable {
+
+  // tiles and resources no offline region holds, see offline_database.cpp
+  private static final String AMBIENT_TILES =
+    "SELECT COUNT(*), IFNULL(SUM(LENGTH(data)), 0) FROM tiles "
+      + "WHERE id NOT IN (SELECT tile_id FROM region_tiles)";
+  private static final String AMBIENT_RESOURCES =
+    "SELECT kind, COUNT(*), IFNULL(SUM(LENGTH(data)), 0) FROM resources "
+      + "WHERE id NOT IN (SELECT resource_id FROM region_resources) GROUP BY kind";
+
+  private final File database;
+  private final OfflineDatabaseConnection.Opener opener;
+  private final AmbientCacheEvictions evictions;
+  private final long[] loaderStatistics;
+  private final long[] networkStatistics;
+  private final OfflineManager.AmbientCacheStatisticsCallback callback;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  AmbientCacheStatisticsReader(@NonNull File database, @NonNull OfflineDatabaseConnection.Opener opener,
+                               @NonNull AmbientCacheEvictions evictions, @NonNull long[] loaderStatistics,
+                               @NonNull long[] networkStatistics,
+                               @NonNull OfflineManager.AmbientCacheStatisticsCallback callback) {
+    this.database = database;
+    this.opener = opener;
+    this.evictions = evictions;
+    this.loaderStatistics = loaderStatistics;
+    this.networkStatistics = networkStatistics;
+    this.callback = callback;
+  }
+
+  @Override
+  public void run() {
+    long[] counts = new long[NetworkResponseStatistics.KIND_COUNT];
+    long[] sizes = new long[NetworkResponseStatistics.KIND_COUNT];
+    long[] evicted = new long[NetworkResponseStatistics.KIND_COUNT];
+    if (database.exists()) {
+      OfflineDatabaseConnection connection = null;
+      try {
+        connection = opener.open(database.getPath(), true);
+        read(connection, AMBIENT_TILES, false, counts, sizes);
+        read(connection, AMBIENT_RESOURCES, true, counts, sizes);
+        evicted = evictions.update(connection);
+      } catch (final SQLException exception) {
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            callback.onError(exception.getMessage());
+          }
+        });
+        return;
+      } finally {
+        if (connection != null) {
+          connection.close();
+        }
+      }
+    }
+
+    final AmbientCacheStatistics statistics = AmbientCacheStatistics.create(loaderStatistics, networkStatistics,
+      counts, sizes, evicted);
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onStatistics(statistics);
+      }
+    });
+  }
+
+  /**
+   * Adds the counts and sizes of a query, grouped by kind if the query has a kind column first.
+   */
+  private static void read(@NonNull OfflineDatabaseConnection connection, @NonNull String query, boolean grouped,
+                           @NonNull long[] counts, @NonNull long[] sizes) {
+    int columns = grouped ? 3 : 2;
+    long[] rows = connection.query(query, columns);
+    for (int row = 0; row < rows.length; row += columns) {
+      int kind = grouped ? (int) rows[row] : Resource.TILE;
+      if (kind < 0 || kind >= counts.length) {
+        kind = Resource.UNKNOWN;
+      }
+      int column = row + (grouped ? 1 : 0);
+      counts[kind] += rows[column];
+      sizes[kind] += rows[column + 1];
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.LibraryLoader;
+
+/**
+ * A connection opened with the SQLite library of the core.
+ * <p>
+ * The core keeps the offline database open with its own copy of SQLite. File locks are held per process, and
+ * a copy of SQLite only knows of the locks taken through it: closing the file through another copy, such as
+ * the one of the framework, drops the locks of the core and may corrupt the database. Connections opened
+ * through the same copy share their locks instead.
+ * </p>
+ */
+final class NativeOfflineDatabaseConnection implements OfflineDatabaseConnection {
+
+  static {
+    LibraryLoader.load();
+  }
+
+  static final Opener OPENER = new Opener() {
+    @NonNull
+    @Override
+    public OfflineDatabaseConnection open(@NonNull String path, boolean readOnly) {
+      return new NativeOfflineDatabaseConnection(path, readOnly);
+    }
+  };
+
+  // Holds the C++ peer
+  @Keep
+  private long nativePtr;
+
+  private NativeOfflineDatabaseConnection(@NonNull String path, boolean readOnly) {
+    initialize();
+    nativeOpen(path, readOnly);
+  }
+
+  @Override
+  public long execute(@NonNull String sql, @NonNull String... arguments) {
+    return nativeExecute(sql, arguments);
+  }
+
+  @NonNull
+  @Override
+  public long[] query(@NonNull String sql, int columns, @NonNull String... arguments) {
+    return nativeQuery(sql, columns, arguments);
+  }
+
+  @Override
+  public long incrementalVacuum(int pages) {
+    return nativeIncrementalVacuum(pages);
+  }
+
+  @Override
+  public void close() {
+    nativeClose();
+  }
+
+  @Keep
+  private native void initialize();
+
+  @Override
+  @Keep
+  protected native void finalize();
+
+  @Keep
+  private native void nativeOpen(String path, boolean readOnly);
+
+  @Keep
+  private native long nativeExecute(String sql, String[] arguments);
+
+  @Keep
+  private native long[] nativeQuery(String sql, int columns, String[] arguments);
+
+  @Keep
+  private native long nativeIncrementalVacuum(int pages);
+
+  @Keep
+  private native void nativeClose();
+}
@@ -0,0 +1,64 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A connection to the offline database, or to a database in its schema, used by the work of the offline package
+ * which reads or writes the database besides the core. Connections to the offline database are opened with
+ * {@link NativeOfflineDatabaseConnection#OPENER}.
+ * <p>
+ * Arguments are bound as text, like those of {@link android.database.sqlite.SQLiteDatabase#rawQuery}, and
+ * columns are read as integers. Errors are thrown as {@link android.database.SQLException}, a statement which
+ * couldn't lock the database in time as {@link android.database.sqlite.SQLiteDatabaseLockedException}.
+ * </p>
+ */
+interface OfflineDatabaseConnection {
+
+  /**
+   * Opens connections to a database file.
+   */
+  interface Opener {
+    /**
+     * Opens a connection, creating the file if it doesn't exist and the connection isn't read only.
+     *
+     * @param path     the path of the database file
+     * @param readOnly true to open the database read only
+     * @return the connection
+     */
+    @NonNull
+    OfflineDatabaseConnection open(@NonNull String path, boolean readOnly);
+  }
+
+  /**
+   * Runs a statement to completion.
+   *
+   * @param sql       the statement
+   * @param arguments the arguments bound to the statement
+   * @return the number of rows changed by the statement
+   */
+  long execute(@NonNull String sql, @NonNull String... arguments);
+
+  /**
+   * Runs a query and returns the values of its rows, one row after the other.
+   *
+   * @param sql       the query
+   * @param columns   the number of columns read from every row
+   * @param arguments the arguments bound to the query
+   * @return the values
+   */
+  @NonNull
+  long[] query(@NonNull String sql, int columns, @NonNull String... arguments);
+
+  /**
+   * Reclaims free pages of a database in incremental auto vacuum mode.
+   *
+   * @param pages the maximum number of pages to reclaim, none if 0
+   * @return the number of free pages left
+   */
+  long incrementalVacuum(int pages);
+
+  /**
+   * Closes the connection.
+   */
+  void close();
+}
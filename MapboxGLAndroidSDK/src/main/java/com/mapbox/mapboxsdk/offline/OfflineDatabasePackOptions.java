@@ -0,0 +1,125 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Options of an incremental pack started with
+ * {@link OfflineManager#packDatabaseIncrementally(OfflineDatabasePackOptions, OfflineDatabasePacker.Callback)}.
+ * <p>
+ * The free pages of the database are reclaimed a slice at a time, each slice locking the database only for
+ * the time it takes to move its pages, with a pause between slices during which the map reads freely.
+ * </p>
+ */
+public final class OfflineDatabasePackOptions {
+
+  /**
+   * Default number of pages reclaimed per slice.
+   */
+  public static final int DEFAULT_PAGES_PER_SLICE = 128;
+
+  /**
+   * Default pause between two slices, in milliseconds.
+   */
+  public static final long DEFAULT_SLICE_INTERVAL = 50;
+
+  private final int pagesPerSlice;
+  private final long sliceInterval;
+  private final boolean pauseWhileMapActive;
+
+  private OfflineDatabasePackOptions(@NonNull Builder builder) {
+    this.pagesPerSlice = builder.pagesPerSlice;
+    this.sliceInterval = builder.sliceInterval;
+    this.pauseWhileMapActive = builder.pauseWhileMapActive;
+  }
+
+  /**
+   * Returns the number of pages reclaimed per slice.
+   *
+   * @return the page count
+   */
+  public int getPagesPerSlice() {
+    return pagesPerSlice;
+  }
+
+  /**
+   * Returns the pause between two slices.
+   *
+   * @return the interval in milliseconds
+   */
+  public long getSliceInterval() {
+    return sliceInterval;
+  }
+
+  /**
+   * Returns true if slices are held back while maps load resources.
+   *
+   * @return true to pause while maps are active
+   */
+  public boolean isPauseWhileMapActive() {
+    return pauseWhileMapActive;
+  }
+
+  /**
+   * Builder for {@link OfflineDatabasePackOptions}.
+   */
+  public static final class Builder {
+
+    private int pagesPerSlice = DEFAULT_PAGES_PER_SLICE;
+    private long sliceInterval = DEFAULT_SLICE_INTERVAL;
+    private boolean pauseWhileMapActive = true;
+
+    /**
+     * Sets the number of pages reclaimed per slice, which bounds the time the database is locked by a slice.
+     * Defaults to {@link #DEFAULT_PAGES_PER_SLICE}.
+     *
+     * @param pagesPerSlice the page count, at least 1
+     * @return this builder
+     */
+    @NonNull
+    public Builder pagesPerSlice(int pagesPerSlice) {
+      if (pagesPerSlice < 1) {
+        throw new IllegalArgumentException("Page count must be at least 1: " + pagesPerSlice);
+      }
+      this.pagesPerSlice = pagesPerSlice;
+      return this;
+    }
+
+    /**
+     * Sets the pause between two slices, which is also how often a paused pack checks whether it may go on.
+     * Defaults to {@link #DEFAULT_SLICE_INTERVAL}.
+     *
+     * @param sliceInterval the interval in milliseconds
+     * @return this builder
+     */
+    @NonNull
+    public Builder sliceInterval(long sliceInterval) {
+      if (sliceInterval < 0) {
+        throw new IllegalArgumentException("Interval can't be negative: " + sliceInterval);
+      }
+      this.sliceInterval = sliceInterval;
+      return this;
+    }
+
+    /**
+     * Holds back slices while maps load resources, from the network or the database. Defaults to true.
+     *
+     * @param pauseWhileMapActive true to pause while maps are active
+     * @return this builder
+     */
+    @NonNull
+    public Builder pauseWhileMapActive(boolean pauseWhileMapActive) {
+      this.pauseWhileMapActive = pauseWhileMapActive;
+      return this;
+    }
+
+    /**
+     * Builds the options.
+     *
+     * @return the pack options
+     */
+    @NonNull
+    public OfflineDatabasePackOptions build() {
+      return new OfflineDatabasePackOptions(this);
+    }
+  }
+}
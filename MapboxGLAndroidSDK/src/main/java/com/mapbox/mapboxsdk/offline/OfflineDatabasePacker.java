@@ -0,0 +1,278 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.storage.FileSource;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Reclaims the free pages of the offline database in bounded slices on a background thread, started with
+ * {@link OfflineManager#packDatabaseIncrementally(OfflineDatabasePackOptions, Callback)}.
+ * <p>
+ * The offline database is created with incremental auto vacuum: deleting a region or clearing the ambient
+ * cache leaves free pages in the file, which {@link OfflineManager#packDatabase(OfflineManager.FileSourceCallback)}
+ * reclaims all at once, locking the database meanwhile. The packer runs the same incremental vacuum a few pages
+ * at a time instead, and may be paused, resumed or canceled between slices. The slices run in a connection
+ * opened with the SQLite library of the core, see {@link NativeOfflineDatabaseConnection}. Every slice is a
+ * transaction of its own, a canceled pack keeps the pages reclaimed so far. SQLite serializes the slices and the
+ * writes of the core, a slice which can't lock the database in time is tried again after the interval.
+ * </p>
+ * <p>
+ * Disable automatic packing with {@link OfflineManager#runPackDatabaseAutomatically(boolean)} so that deletes
+ * leave the free pages to the packer rather than reclaiming them at once.
+ * </p>
+ */
+public final class OfflineDatabasePacker {
+
+  // see offline_database.cpp, the database is migrated to incremental auto vacuum when packed once
+  private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+  /**
+   * This callback receives the progress and the outcome of an incremental pack.
+   */
+  public interface Callback {
+    /**
+     * Receives the progress of the pack, after every slice.
+     *
+     * @param reclaimedBytes the size reclaimed so far
+     * @param totalBytes     the size of the free pages when the pack started, plus the pages freed meanwhile
+     */
+    void onProgress(long reclaimedBytes, long totalBytes);
+
+    /**
+     * Receives the outcome of the pack, once no free page remains or it was canceled.
+     *
+     * @param reclaimedBytes the size reclaimed
+     * @param complete       false if the pack was canceled before all free pages were reclaimed
+     */
+    void onPack(long reclaimedBytes, boolean complete);
+
+    /**
+     * Receives the error message if the database couldn't be packed incrementally.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
+  private final File database;
+  private final OfflineDatabaseConnection.Opener opener;
+  private final FileSource fileSource;
+  private final OfflineDatabasePackOptions options;
+  private final Callback callback;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private volatile boolean canceled;
+  private volatile boolean paused;
+  private volatile boolean done;
+  // the next slice, guarded by this packer
+  @Nullable
+  private ScheduledFuture<?> next;
+
+  // only accessed by the slices, which run one after the other
+  private OfflineDatabaseConnection connection;
+  private long pageSize;
+  private long freePages;
+  private long totalPages;
+  private long reclaimedPages;
+  @Nullable
+  private long[] loaderStatistics;
+
+  /**
+   * Reclaims a slice of free pages, then schedules the next slice after the slice interval. While paused,
+   * checks again after the interval without holding a thread.
+   */
+  private final Runnable slice = new Runnable() {
+    @Override
+    public void run() {
+      if (freePages == 0 || canceled) {
+        finish();
+        return;
+      }
+      if (paused || (options.isPauseWhileMapActive() && isMapActive())) {
+        scheduleSlice(Math.max(options.getSliceInterval(), 1));
+        return;
+      }
+
+      try {
+        long remaining = connection.incrementalVacuum(options.getPagesPerSlice());
+        // deletes made meanwhile free more pages
+        reclaimedPages += Math.max(0, freePages - remaining);
+        totalPages = Math.max(totalPages, reclaimedPages + remaining);
+        freePages = remaining;
+      } catch (SQLiteDatabaseLockedException exception) {
+        scheduleSlice(Math.max(options.getSliceInterval(), 1));
+        return;
+      } catch (SQLException exception) {
+        fail(exception);
+        return;
+      }
+      postProgress(reclaimedPages * pageSize, totalPages * pageSize);
+      scheduleSlice(options.getSliceInterval());
+    }
+  };
+
+  OfflineDatabasePacker(@NonNull File database, @NonNull OfflineDatabaseConnection.Opener opener,
+                        @NonNull FileSource fileSource, @NonNull OfflineDatabasePackOptions options,
+                        @NonNull Callback callback) {
+    this.database = database;
+    this.opener = opener;
+    this.fileSource = fileSource;
+    this.options = options;
+    this.callback = callback;
+  }
+
+  void start() {
+    OfflineExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        begin();
+      }
+    });
+  }
+
+  /**
+   * Holds back the next slices until {@link #resume()}. The slice in progress, if any, completes.
+   */
+  public void pause() {
+    paused = true;
+  }
+
+  /**
+   * Resumes a paused pack.
+   */
+  public void resume() {
+    paused = false;
+  }
+
+  /**
+   * Returns true if the pack is paused.
+   *
+   * @return true if paused
+   */
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Stops the pack after the slice in progress, if any, without waiting for the next slice. The callback
+   * receives the size reclaimed so far.
+   */
+  public void cancel() {
+    synchronized (this) {
+      if (canceled) {
+        return;
+      }
+      canceled = true;
+      // a slice in progress, or the first one, ends the pack itself
+      if (next == null || !next.cancel(false)) {
+        return;
+      }
+    }
+    OfflineExecutor.execute(slice);
+  }
+
+  /**
+   * Returns true once the pack completed, was canceled or failed.
+   *
+   * @return true if done
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  @WorkerThread
+  private void begin() {
+    try {
+      if (!database.exists()) {
+        throw new SQLException("The offline database doesn't exist");
+      }
+      connection = opener.open(database.getPath(), false);
+      if (queryLong(connection, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+        throw new SQLException("The database isn't in incremental auto vacuum mode, pack it with packDatabase");
+      }
+      pageSize = queryLong(connection, "PRAGMA page_size");
+      freePages = connection.incrementalVacuum(0);
+      totalPages = freePages;
+      postProgress(0, totalPages * pageSize);
+    } catch (SQLException exception) {
+      fail(exception);
+      return;
+    }
+    slice.run();
+  }
+
+  private void scheduleSlice(long delay) {
+    synchronized (this) {
+      if (!canceled) {
+        next = OfflineExecutor.schedule(slice, delay);
+        return;
+      }
+    }
+    finish();
+  }
+
+  private void finish() {
+    close();
+    final long reclaimedBytes = reclaimedPages * pageSize;
+    final boolean complete = !canceled;
+    done = true;
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onPack(reclaimedBytes, complete);
+      }
+    });
+  }
+
+  private void fail(@NonNull final SQLException exception) {
+    close();
+    done = true;
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onError(exception.getMessage());
+      }
+    });
+  }
+
+  private void close() {
+    if (connection != null) {
+      connection.close();
+      connection = null;
+    }
+  }
+
+  /**
+   * Returns true if maps requested resources, or got them from the database or the network, since the last
+   * check. A request waiting for the network doesn't use the database meanwhile.
+   */
+  private boolean isMapActive() {
+    long[] statistics = fileSource.getResourceStatistics();
+    boolean active = loaderStatistics != null && !Arrays.equals(statistics, loaderStatistics);
+    loaderStatistics = statistics;
+    return active;
+  }
+
+  private void postProgress(final long reclaimedBytes, final long totalBytes) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onProgress(reclaimedBytes, totalBytes);
+      }
+    });
+  }
+
+  private static long queryLong(@NonNull OfflineDatabaseConnection connection, @NonNull String query) {
+    long[] values = connection.query(query, 1);
+    return values.length > 0 ? values[0] : 0;
+  }
+}
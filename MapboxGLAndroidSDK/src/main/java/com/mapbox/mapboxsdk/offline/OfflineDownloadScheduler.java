@@ -0,0 +1,429 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.http.OfflineRequestGate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downloads offline regions within a global budget of concurrently active regions.
+ * <p>
+ * Activating many regions with {@link OfflineRegion#setDownloadState(int)} makes them compete for the network
+ * and the database. Regions added to the scheduler are activated in order of priority instead, at most
+ * {@link #setMaxActiveRegions(int)} at a time, and deactivated once complete. A waiting region of a higher
+ * priority preempts an active region of a lower one.
+ * </p>
+ * <p>
+ * Regions of the same priority run in the order they were added. With a time slice set, they take turns
+ * instead: an active region yields to a waiting region of the same priority after running for its weight
+ * times the time slice, and the next region chosen is the one that ran the shortest time relative to its
+ * weight. Note that resuming a region checks its already downloaded resources again, time slices should
+ * be long.
+ * </p>
+ * <p>
+ * The scheduler sets itself as the progress observer of its regions, see
+ * {@link OfflineRegion#setProgressObserver(OfflineRegion.OfflineRegionProgressObserver, long)}, and forwards
+ * the progress to the observer given when adding them, at most once per {@link #setProgressInterval(long)}.
+ * Obtain the scheduler with {@link OfflineManager#getDownloadScheduler()}.
+ * </p>
+ */
+@UiThread
+public final class OfflineDownloadScheduler {
+
+  /**
+   * Default number of regions downloading at the same time.
+   */
+  public static final int DEFAULT_MAX_ACTIVE_REGIONS = 2;
+
+  /**
+   * Default minimum time between two progress notifications of a region, in milliseconds.
+   */
+  public static final long DEFAULT_PROGRESS_INTERVAL = 500;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final List<Entry> entries = new ArrayList<>();
+  private final Runnable rotation = new Runnable() {
+    @Override
+    public void run() {
+      promote();
+    }
+  };
+  private int maxActiveRegions = DEFAULT_MAX_ACTIVE_REGIONS;
+  private long timeSlice;
+  private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+  private boolean paused;
+  private long sequence;
+
+  OfflineDownloadScheduler() {
+  }
+
+  /**
+   * Adds a region with the default priority and weight.
+   *
+   * @param region   the region to download
+   * @param observer the observer to notify of the progress of the region, may be null
+   */
+  public void add(@NonNull OfflineRegion region, @Nullable OfflineRegion.OfflineRegionProgressObserver observer) {
+    add(region, 0, 1, observer);
+  }
+
+  /**
+   * Adds a region, or updates the priority and weight of a region added already.
+   *
+   * @param region   the region to download
+   * @param priority the priority of the region, regions with a higher priority are downloaded first
+   * @param weight   the share of the time slices given to the region, at least 1
+   * @param observer the observer to notify of the progress of the region, may be null
+   */
+  public void add(@NonNull OfflineRegion region, int priority, int weight,
+                  @Nullable OfflineRegion.OfflineRegionProgressObserver observer) {
+    if (weight < 1) {
+      throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+    }
+    Entry entry = find(region);
+    if (entry == null) {
+      entry = new Entry(region, sequence++);
+      entries.add(entry);
+      region.setProgressObserver(new SchedulerObserver(entry), progressInterval);
+    }
+    entry.priority = priority;
+    entry.weight = weight;
+    entry.observer = observer;
+    promote();
+  }
+
+  /**
+   * Removes a region, deactivating it if it was downloading.
+   *
+   * @param region the region to remove
+   */
+  public void remove(@NonNull OfflineRegion region) {
+    Entry entry = find(region);
+    if (entry != null) {
+      finish(entry);
+      region.setObserver(null);
+    }
+  }
+
+  /**
+   * Pauses all downloads of the scheduler, active regions are deactivated until {@link #resume()}.
+   */
+  public void pause() {
+    paused = true;
+    promote();
+  }
+
+  /**
+   * Resumes the downloads paused with {@link #pause()}.
+   */
+  public void resume() {
+    paused = false;
+    promote();
+  }
+
+  /**
+   * Returns true if the downloads were paused with {@link #pause()}.
+   *
+   * @return true if paused
+   */
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Sets the number of regions downloading at the same time. Defaults to {@link #DEFAULT_MAX_ACTIVE_REGIONS}.
+   * <p>
+   * Every active region issues several requests at once, in the offline priority class of the HTTP module.
+   * Their total is bound by {@code HttpRequestUtil#setMaxConcurrentRequests(int, int)}.
+   * </p>
+   *
+   * @param maxActiveRegions the number of regions, at least 1
+   */
+  public void setMaxActiveRegions(int maxActiveRegions) {
+    if (maxActiveRegions < 1) {
+      throw new IllegalArgumentException("At least one region must be active: " + maxActiveRegions);
+    }
+    this.maxActiveRegions = maxActiveRegions;
+    promote();
+  }
+
+  /**
+   * Sets the time a region of weight 1 downloads before yielding to a waiting region of the same priority.
+   * Defaults to 0, regions then download until complete.
+   *
+   * @param timeSlice the time slice in milliseconds, 0 to disable
+   */
+  public void setTimeSlice(long timeSlice) {
+    if (timeSlice < 0) {
+      throw new IllegalArgumentException("Time slice can't be negative: " + timeSlice);
+    }
+    this.timeSlice = timeSlice;
+    promote();
+  }
+
+  /**
+   * Sets the minimum time between two progress notifications of a region. Status changes of the core are
+   * coalesced in between, so that many regions downloading don't flood the main thread. Applies to the
+   * regions added afterwards. Defaults to {@link #DEFAULT_PROGRESS_INTERVAL}.
+   *
+   * @param progressInterval the interval in milliseconds
+   */
+  public void setProgressInterval(long progressInterval) {
+    if (progressInterval < 0) {
+      throw new IllegalArgumentException("Interval can't be negative: " + progressInterval);
+    }
+    this.progressInterval = progressInterval;
+  }
+
+  /**
+   * Holds back the requests of offline downloads while maps are loading resources, so that offline downloads
+   * don't slow down panning the map. Regions stay active, only the start of their requests is delayed.
+   * This applies to all offline downloads, including those not added to the scheduler.
+   *
+   * @param pause true to hold back offline requests while maps are loading
+   */
+  public void setPauseWhileMapLoading(boolean pause) {
+    OfflineRequestGate.setEnabled(pause);
+  }
+
+  /**
+   * Returns true if offline requests are held back while maps are loading resources.
+   *
+   * @return true if pausing while maps are loading
+   */
+  public boolean isPausingWhileMapLoading() {
+    return OfflineRequestGate.isEnabled();
+  }
+
+  /**
+   * Returns the number of regions added to the scheduler that didn't complete yet.
+   *
+   * @return the region count
+   */
+  public int getRegionCount() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of regions currently downloading.
+   *
+   * @return the active region count
+   */
+  public int getActiveRegionCount() {
+    int count = 0;
+    for (Entry entry : entries) {
+      if (entry.active) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns true if a region with the id was added and didn't complete yet, active or waiting.
+   */
+  boolean contains(long regionId) {
+    for (Entry entry : entries) {
+      if (entry.region.getID() == regionId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private Entry find(@NonNull OfflineRegion region) {
+    for (Entry entry : entries) {
+      if (entry.region == region) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private void finish(@NonNull Entry entry) {
+    entries.remove(entry);
+    if (entry.active) {
+      deactivate(entry, SystemClock.elapsedRealtime());
+    }
+    promote();
+  }
+
+  /**
+   * Activates and deactivates regions to match their priorities, the budget and the time slices.
+   */
+  private void promote() {
+    handler.removeCallbacks(rotation);
+    long now = SystemClock.elapsedRealtime();
+    if (paused) {
+      for (Entry entry : entries) {
+        if (entry.active) {
+          deactivate(entry, now);
+        }
+      }
+      return;
+    }
+
+    // regions that used up their time slice yield to waiting regions of the same priority
+    if (timeSlice > 0) {
+      for (Entry entry : entries) {
+        if (entry.active && now - entry.activeSince >= timeSlice * entry.weight
+          && hasWaiting(entry.priority)) {
+          deactivate(entry, now);
+        }
+      }
+    }
+
+    while (true) {
+      Entry next = nextWaiting();
+      if (next == null) {
+        break;
+      }
+      if (getActiveRegionCount() < maxActiveRegions) {
+        activate(next, now);
+        continue;
+      }
+      Entry lowest = lowestActive();
+      if (lowest == null || lowest.priority >= next.priority) {
+        break;
+      }
+      deactivate(lowest, now);
+      activate(next, now);
+    }
+
+    if (timeSlice > 0) {
+      scheduleRotation(now);
+    }
+  }
+
+  private void scheduleRotation(long now) {
+    long delay = Long.MAX_VALUE;
+    for (Entry entry : entries) {
+      if (entry.active && hasWaiting(entry.priority)) {
+        delay = Math.min(delay, entry.activeSince + timeSlice * entry.weight - now);
+      }
+    }
+    if (delay != Long.MAX_VALUE) {
+      handler.postDelayed(rotation, Math.max(0, delay));
+    }
+  }
+
+  private boolean hasWaiting(int priority) {
+    for (Entry entry : entries) {
+      if (!entry.active && entry.priority >= priority) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the waiting region of the highest priority that ran the shortest time relative to its weight.
+   */
+  @Nullable
+  private Entry nextWaiting() {
+    Entry next = null;
+    for (Entry entry : entries) {
+      if (entry.active) {
+        continue;
+      }
+      if (next == null || entry.priority > next.priority
+        || (entry.priority == next.priority && compareShare(entry, next) < 0)) {
+        next = entry;
+      }
+    }
+    return next;
+  }
+
+  @Nullable
+  private Entry lowestActive() {
+    Entry lowest = null;
+    for (Entry entry : entries) {
+      if (entry.active && (lowest == null || entry.priority < lowest.priority
+        || (entry.priority == lowest.priority && compareShare(entry, lowest) > 0))) {
+        lowest = entry;
+      }
+    }
+    return lowest;
+  }
+
+  private static int compareShare(@NonNull Entry first, @NonNull Entry second) {
+    // compare ran / weight without dividing
+    long firstShare = first.ran * second.weight;
+    long secondShare = second.ran * first.weight;
+    if (firstShare != secondShare) {
+      return firstShare < secondShare ? -1 : 1;
+    }
+    return first.sequence < second.sequence ? -1 : 1;
+  }
+
+  private static void activate(@NonNull Entry entry, long now) {
+    entry.active = true;
+    entry.activeSince = now;
+    entry.region.setDownloadState(OfflineRegion.STATE_ACTIVE);
+  }
+
+  private static void deactivate(@NonNull Entry entry, long now) {
+    entry.active = false;
+    entry.ran += now - entry.activeSince;
+    entry.region.setDownloadState(OfflineRegion.STATE_INACTIVE);
+  }
+
+  private static final class Entry {
+
+    final OfflineRegion region;
+    final long sequence;
+    int priority;
+    int weight;
+    @Nullable
+    OfflineRegion.OfflineRegionProgressObserver observer;
+    boolean active;
+    long activeSince;
+    long ran;
+
+    Entry(@NonNull OfflineRegion region, long sequence) {
+      this.region = region;
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * Removes regions once complete, or once they can't download further tiles, and forwards the progress.
+   */
+  private final class SchedulerObserver implements OfflineRegion.OfflineRegionProgressObserver {
+
+    private final Entry entry;
+
+    SchedulerObserver(@NonNull Entry entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public void onProgress(@NonNull OfflineRegionProgress progress) {
+      // the required count is only final once precise, until then more resources are still to be discovered
+      if (progress.isComplete() && progress.isRequiredResourceCountPrecise() && entries.contains(entry)) {
+        finish(entry);
+      }
+      if (entry.observer != null) {
+        entry.observer.onProgress(progress);
+      }
+    }
+
+    @Override
+    public void mapboxTileCountLimitExceeded(long limit) {
+      if (entries.contains(entry)) {
+        finish(entry);
+      }
+      if (entry.observer != null) {
+        entry.observer.mapboxTileCountLimitExceeded(limit);
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the work of the offline package which reads or writes the database besides the core: exports, sizes,
+ * statistics, estimates and incremental packs. The threads are shared and stop when idle.
+ * <p>
+ * Long running work is split into tasks scheduled one after the other, so that it doesn't hold a thread
+ * while waiting and other work isn't queued behind it.
+ * </p>
+ */
+final class OfflineExecutor {
+
+  private static final int THREAD_COUNT = 2;
+
+  private static final ScheduledThreadPoolExecutor executor = getExecutor();
+
+  private OfflineExecutor() {
+  }
+
+  static void execute(@NonNull Runnable runnable) {
+    executor.execute(runnable);
+  }
+
+  @NonNull
+  static ScheduledFuture<?> schedule(@NonNull Runnable runnable, long delay) {
+    return executor.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+  }
+
+  @NonNull
+  private static ScheduledThreadPoolExecutor getExecutor() {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(THREAD_COUNT, new ThreadFactory() {
+      @Override
+      public Thread newThread(@NonNull Runnable runnable) {
+        Thread thread = new Thread(runnable, "Mbgl-Offline");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
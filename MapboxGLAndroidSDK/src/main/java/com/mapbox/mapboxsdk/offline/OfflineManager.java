@@ -9,6 +9,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
 
+import com.mapbox.geojson.LineString;
 import com.mapbox.mapboxsdk.LibraryLoader;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.R;
@@ -56,6 +57,12 @@ public class OfflineManager {
   // Makes sure callbacks come back to the main thread
   private final Handler handler = new Handler(Looper.getMainLooper());
 
+  @Nullable
+  private OfflineDownloadScheduler downloadScheduler;
+
+  @Nullable
+  private OfflineStorageQuota storageQuota;
+
   // This object is implemented as a singleton
   @SuppressLint("StaticFieldLeak")
   private static OfflineManager instance;
@@ -84,6 +91,28 @@ public class OfflineManager {
     void onError(String error);
   }
 
+  /**
+   * This callback receives an asynchronous response containing a page of
+   * OfflineRegion in the database or an error message otherwise.
+   */
+  @Keep
+  public interface ListOfflineRegionsPageCallback {
+    /**
+     * Receives a page of offline regions.
+     *
+     * @param offlineRegions the offline region array, in ascending order of id
+     * @param hasMore        true if more regions match the query after this page
+     */
+    void onPage(OfflineRegion[] offlineRegions, boolean hasMore);
+
+    /**
+     * Receives the error message.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
   /**
    * This callback receives an asynchronous response containing the newly created
    * OfflineRegion in the database or an error message otherwise.
@@ -136,6 +165,9 @@ public class OfflineManager {
 
     // Delete any existing previous ambient cache database
     deleteAmbientDatabase(this.context);
+
+    // Delete the transient regions of prewarms interrupted by the end of the process
+    AmbientCachePrewarm.deleteLeftoverRegions(this, AmbientCachePrewarm.getPreferences(this.context));
   }
 
   private void deleteAmbientDatabase(final Context context) {
@@ -194,6 +226,55 @@ public class OfflineManager {
     });
   }
 
+  /**
+   * Retrieve a page of the regions in the offline database, optionally filtered by location and metadata.
+   * <p>
+   * The ids of the page are read from the offline database, and only the regions of the page are loaded from
+   * the core and passed to Java, so that a page costs the same however many regions the database holds. Regions
+   * filtered by location or metadata are loaded in batches of the page size until the page is filled, sparse
+   * matches therefore cost a batch per page size of regions skipped. The definition and metadata of listed regions
+   * are converted on first access of {@link OfflineRegion#getDefinition()} and {@link OfflineRegion#getMetadata()}.
+   * </p>
+   * <p>
+   * The query will be executed asynchronously and the results passed to the given
+   * callback on the main thread. Request the next page with {@link OfflineRegionQuery#next(OfflineRegion[])}
+   * while the callback reports more regions.
+   * </p>
+   *
+   * @param query    the page to retrieve
+   * @param callback the callback to be invoked
+   */
+  public void listOfflineRegions(@NonNull OfflineRegionQuery query,
+                                 @NonNull final ListOfflineRegionsPageCallback callback) {
+    final LatLngBounds bounds = query.getBounds();
+    final String metadataKey = query.getMetadataKey();
+    fileSource.activate();
+    File database = new File(FileSource.getResourcesCachePath(context), OfflineRegionExporter.DATABASE_FILE);
+    OfflineRegionPager.Loader loader = new OfflineRegionPager.Loader() {
+      @Override
+      public void load(@NonNull long[] ids, @NonNull ListOfflineRegionsCallback callback) {
+        getOfflineRegions(fileSource, ids, bounds != null,
+          bounds != null ? bounds.getLatNorth() : 0, bounds != null ? bounds.getLonEast() : 0,
+          bounds != null ? bounds.getLatSouth() : 0, bounds != null ? bounds.getLonWest() : 0,
+          metadataKey, callback);
+      }
+    };
+    OfflineExecutor.execute(new OfflineRegionPager(database, NativeOfflineDatabaseConnection.OPENER, loader, query,
+      new ListOfflineRegionsPageCallback() {
+        @Override
+        public void onPage(OfflineRegion[] offlineRegions, boolean hasMore) {
+          fileSource.deactivate();
+          callback.onPage(offlineRegions, hasMore);
+        }
+
+        @Override
+        public void onError(String error) {
+          fileSource.deactivate();
+          callback.onError(error);
+        }
+      }));
+  }
+
   /**
    * Merge offline regions from a secondary database into the main offline database.
    * <p>
@@ -281,6 +362,8 @@ public class OfflineManager {
     nativeResetDatabase(new FileSourceCallback() {
       @Override
       public void onSuccess() {
+        // the deleted rows weren't evicted
+        AmbientCacheEvictions.getInstance().reset();
         handler.post(new Runnable() {
           @Override
           public void run() {
@@ -294,6 +377,7 @@ public class OfflineManager {
 
       @Override
       public void onError(@NonNull final String message) {
+        AmbientCacheEvictions.getInstance().reset();
         handler.post(new Runnable() {
           @Override
           public void run() {
@@ -352,6 +436,29 @@ public class OfflineManager {
     });
   }
 
+  /**
+   * Packs the database file in slices on a background thread, reclaiming a bounded number of free pages at a
+   * time so that maps reading the database aren't stalled, unlike {@link #packDatabase(FileSourceCallback)}.
+   * <p>
+   * Slices are held back while maps load resources unless disabled in the options. The returned packer
+   * pauses, resumes or cancels the pack between slices. Disable {@link #runPackDatabaseAutomatically(boolean)}
+   * for deletes to leave their free pages to the incremental pack. The callback is executed on the main thread.
+   * </p>
+   *
+   * @param options  the pack options
+   * @param callback the callback to be invoked
+   * @return the packer of the database
+   */
+  @NonNull
+  public OfflineDatabasePacker packDatabaseIncrementally(@NonNull OfflineDatabasePackOptions options,
+                                                         @NonNull OfflineDatabasePacker.Callback callback) {
+    File database = new File(FileSource.getResourcesCachePath(context), OfflineRegionExporter.DATABASE_FILE);
+    OfflineDatabasePacker packer = new OfflineDatabasePacker(database, NativeOfflineDatabaseConnection.OPENER,
+      fileSource, options, callback);
+    packer.start();
+    return packer;
+  }
+
   /**
    * Forces re-validation of the ambient cache.
    * <p>
@@ -417,6 +524,8 @@ public class OfflineManager {
     nativeClearAmbientCache(new FileSourceCallback() {
       @Override
       public void onSuccess() {
+        // the deleted rows weren't evicted
+        AmbientCacheEvictions.getInstance().reset();
         handler.post(new Runnable() {
           @Override
           public void run() {
@@ -430,6 +539,7 @@ public class OfflineManager {
 
       @Override
       public void onError(@NonNull final String message) {
+        AmbientCacheEvictions.getInstance().reset();
         handler.post(new Runnable() {
           @Override
           public void run() {
@@ -504,6 +614,43 @@ public class OfflineManager {
     });
   }
 
+  /**
+   * Takes a snapshot of the effectiveness of the ambient cache: hits, misses, revalidations, evictions and bytes
+   * served from the cache and the network since the process started, and the current size of the cache, per
+   * resource kind. Use it to tune the maximum ambient cache size.
+   * <p>
+   * The size of the cache is read from the database on a background thread, the snapshot is passed to the
+   * given callback on the main thread.
+   * </p>
+   *
+   * @param callback the callback to be invoked
+   */
+  public void getAmbientCacheStatistics(@NonNull AmbientCacheStatisticsCallback callback) {
+    File database = new File(FileSource.getResourcesCachePath(context), OfflineRegionExporter.DATABASE_FILE);
+    OfflineExecutor.execute(new AmbientCacheStatisticsReader(database, NativeOfflineDatabaseConnection.OPENER,
+      AmbientCacheEvictions.getInstance(), fileSource.getResourceStatistics(),
+      AmbientCacheStatistics.readNetworkStatistics(), callback));
+  }
+
+  /**
+   * This callback receives a snapshot of the ambient cache statistics or an error message otherwise.
+   */
+  public interface AmbientCacheStatisticsCallback {
+    /**
+     * Receives the statistics.
+     *
+     * @param statistics the ambient cache statistics
+     */
+    void onStatistics(@NonNull AmbientCacheStatistics statistics);
+
+    /**
+     * Receives the error message.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
   /**
    * This callback receives an asynchronous response indicating if an operation has succeeded or failed.
    */
@@ -626,6 +773,9 @@ public class OfflineManager {
             ConnectivityReceiver.instance(context).deactivate();
             FileSource.getInstance(context).deactivate();
             callback.onCreate(offlineRegion);
+            if (storageQuota != null) {
+              storageQuota.onRegionCreated(offlineRegion);
+            }
           }
         });
       }
@@ -650,6 +800,80 @@ public class OfflineManager {
     }
   }
 
+  /**
+   * Downloads the tiles along a route into the ambient cache, so that they're available before the camera
+   * gets there, without keeping an offline region.
+   * <p>
+   * The route is buffered into a corridor, downloaded as a transient offline region which is deleted once
+   * complete. The tiles then remain in the ambient cache, subject to {@link #setMaximumAmbientCacheSize}.
+   * Tiles cached already and still fresh aren't downloaded again. While downloading, the transient region
+   * counts towards the Mapbox tile count limit; use {@link OfflineRegionEstimator} to check the size of the
+   * corridor beforehand.
+   * </p>
+   *
+   * @param styleUrl     the style to download the tiles of
+   * @param route        the route ahead, for example the next kilometers of a trip
+   * @param bufferMeters the distance covered on each side of the route, in meters
+   * @param minZoom      the lowest zoom level to download
+   * @param maxZoom      the highest zoom level to download
+   * @param pixelRatio   the pixel ratio of the device
+   * @param callback     the callback to be invoked on the main thread, may be null
+   * @return the prewarm, which can be canceled
+   */
+  @NonNull
+  public AmbientCachePrewarm prewarmAmbientCache(@NonNull String styleUrl, @NonNull LineString route,
+                                                 double bufferMeters, double minZoom, double maxZoom,
+                                                 float pixelRatio, @Nullable AmbientCachePrewarm.Callback callback) {
+    if (bufferMeters <= 0) {
+      throw new IllegalArgumentException("Buffer must be positive: " + bufferMeters);
+    }
+    if (route.coordinates().isEmpty()) {
+      throw new IllegalArgumentException("The route has no coordinates");
+    }
+    OfflineGeometryRegionDefinition definition = new OfflineGeometryRegionDefinition(styleUrl,
+      AmbientCachePrewarm.corridor(route, bufferMeters), minZoom, maxZoom, pixelRatio);
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(AmbientCachePrewarm.getPreferences(context), callback);
+    createOfflineRegion(definition, AmbientCachePrewarm.REGION_METADATA, prewarm.createCallback());
+    return prewarm;
+  }
+
+  /**
+   * Get the scheduler downloading offline regions within a global budget, in order of priority.
+   *
+   * @return the download scheduler
+   */
+  @NonNull
+  public OfflineDownloadScheduler getDownloadScheduler() {
+    if (downloadScheduler == null) {
+      downloadScheduler = new OfflineDownloadScheduler();
+    }
+    return downloadScheduler;
+  }
+
+  /**
+   * Get the quota keeping the ambient cache and the offline regions within a number of bytes, by evicting
+   * offline regions.
+   *
+   * @return the storage quota
+   */
+  @NonNull
+  public OfflineStorageQuota getStorageQuota() {
+    if (storageQuota == null) {
+      storageQuota = new OfflineStorageQuota(this, context);
+    }
+    return storageQuota;
+  }
+
+  /**
+   * Returns true if a region was added to the download scheduler and didn't complete yet.
+   *
+   * @param regionId the id of the region
+   * @return true if scheduled
+   */
+  boolean isDownloadScheduled(long regionId) {
+    return downloadScheduler != null && downloadScheduler.contains(regionId);
+  }
+
   /**
    * Validates if the offline region definition bounds is valid for an offline region download.
    *
@@ -703,6 +927,11 @@ public class OfflineManager {
   @Keep
   private native void listOfflineRegions(FileSource fileSource, ListOfflineRegionsCallback callback);
 
+  @Keep
+  private native void getOfflineRegions(FileSource fileSource, long[] ids, boolean filterBounds,
+                                        double north, double east, double south, double west,
+                                        String metadataKey, ListOfflineRegionsCallback callback);
+
   @Keep
   private native void createOfflineRegion(FileSource fileSource, OfflineRegionDefinition definition,
                                           byte[] metadata, CreateOfflineRegionCallback callback);
@@ -1,6 +1,7 @@
 package com.mapbox.mapboxsdk.offline;
 
 import android.content.Context;
+import android.database.SQLException;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.IntDef;
@@ -12,6 +13,7 @@ import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.net.ConnectivityReceiver;
 import com.mapbox.mapboxsdk.storage.FileSource;
 
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
@@ -48,6 +50,8 @@ public class OfflineRegion {
   // delete status
   private boolean isDeleted;
 
+  // null until first accessed for regions listed with OfflineManager#listOfflineRegions(OfflineRegionQuery, ...)
+  @Nullable
   private OfflineRegionDefinition definition;
 
   /**
@@ -55,6 +59,7 @@ public class OfflineRegion {
    * it just stores and retrieves a byte[]. Check the `OfflineActivity` in the TestApp
    * for a sample implementation that uses JSON to store an offline region name.
    */
+  @Nullable
   private byte[] metadata;
 
   // Makes sure callbacks come back to the main thread
@@ -105,6 +110,35 @@ public class OfflineRegion {
     void mapboxTileCountLimitExceeded(long limit);
   }
 
+  /**
+   * An observer receiving the progress of a download at a limited rate, set with
+   * {@link #setProgressObserver(OfflineRegionProgressObserver, long)}.
+   */
+  public interface OfflineRegionProgressObserver {
+    /**
+     * Implement this method to be notified of the progress of the download. Status changes and errors
+     * are coalesced, this method is invoked at most once per interval.
+     * <p>
+     * This method will be executed on the main thread. The progress is reused for the next invocation.
+     * </p>
+     *
+     * @param progress the progress of the download
+     */
+    void onProgress(@NonNull OfflineRegionProgress progress);
+
+    /**
+     * Implement this method to be notified when the limit on the number of Mapbox
+     * tiles stored for offline regions has been reached.
+     * <p>
+     * This method will be executed on the main thread.
+     * </p>
+     *
+     * @param limit the limit that was reached
+     * @see OfflineRegionObserver#mapboxTileCountLimitExceeded(long)
+     */
+    void mapboxTileCountLimitExceeded(long limit);
+  }
+
   /**
    * This callback receives an asynchronous response containing the OfflineRegionStatus
    * of the offline region, or a {@link String} error message otherwise.
@@ -164,6 +198,83 @@ public class OfflineRegion {
     void onError(String error);
   }
 
+  /**
+   * This callback receives the progress and the outcome of a refresh started with
+   * {@link #refresh(OfflineRegionRefreshOptions, OfflineRegionRefreshCallback)}.
+   */
+  public interface OfflineRegionRefreshCallback {
+    /**
+     * Receives the progress of the refresh, at most once per progress interval.
+     * The progress is reused for the next invocation.
+     *
+     * @param progress the progress of the download
+     */
+    void onProgress(@NonNull OfflineRegionProgress progress);
+
+    /**
+     * Receives the outcome of the refresh once it ended.
+     *
+     * @param result the changes made by the refresh
+     */
+    void onRefresh(@NonNull OfflineRegionRefreshResult result);
+
+    /**
+     * Receives the error message if a full revalidation failed to invalidate the region, or if another
+     * region is being refreshed.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
+  /**
+   * This callback receives the progress and the outcome of an export started with
+   * {@link #exportTo(String, OfflineRegionExportCallback)}.
+   */
+  public interface OfflineRegionExportCallback {
+    /**
+     * Receives the progress of the export, after every batch of tiles or resources copied.
+     *
+     * @param exportedCount the number of tiles and resources copied so far
+     * @param totalCount    the number of tiles and resources of the region
+     */
+    void onProgress(long exportedCount, long totalCount);
+
+    /**
+     * Receives the path of the database file once the export is complete.
+     *
+     * @param path the path of the exported database
+     */
+    void onExport(@NonNull String path);
+
+    /**
+     * Receives the error message if the export failed. No file is left at the path.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
+  /**
+   * This callback receives the size of the region, telling apart the bytes it shares with other regions,
+   * or an error message otherwise.
+   */
+  public interface OfflineRegionSizeCallback {
+    /**
+     * Receives the size of the region.
+     *
+     * @param size the size of the region
+     */
+    void onSize(@NonNull OfflineRegionSize size);
+
+    /**
+     * Receives the error message.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
   /**
    * This callback receives an asynchronous response containing the newly update
    * OfflineMetadata in the database, or an error message otherwise.
@@ -207,8 +318,19 @@ public class OfflineRegion {
   // Keep track of the region state
   private int state = STATE_INACTIVE;
 
+  // The state and observer set by the application, applied again once a refresh ended
+  private int requestedState = STATE_INACTIVE;
+  @Nullable
+  private OfflineRegionObserver observer;
+  @Nullable
+  private OfflineRegionProgressObserver progressObserver;
+  private long progressInterval;
+
   private boolean deliverInactiveMessages = false;
 
+  @Nullable
+  private OfflineRegionRefresher refresher;
+
   /**
    * Gets whether or not the `OfflineRegionObserver` will continue to deliver messages even if
    * the region state has been set as STATE_INACTIVE.
@@ -230,7 +352,7 @@ public class OfflineRegion {
     this.deliverInactiveMessages = deliverInactiveMessages;
   }
 
-  private boolean deliverMessages() {
+  boolean deliverMessages() {
     if (state == STATE_ACTIVE) {
       return true;
     }
@@ -245,7 +367,7 @@ public class OfflineRegion {
    */
   @Keep
   private OfflineRegion(long offlineRegionPtr, FileSource fileSource, long id,
-                        OfflineRegionDefinition definition, byte[] metadata) {
+                        @Nullable OfflineRegionDefinition definition, @Nullable byte[] metadata) {
     this.context = Mapbox.getApplicationContext();
     this.fileSource = fileSource;
     this.id = id;
@@ -262,20 +384,63 @@ public class OfflineRegion {
     return id;
   }
 
+  /**
+   * Returns the definition of the region. Regions of a paginated listing convert their definition on first
+   * access, or when deleted.
+   *
+   * @return the region definition
+   */
   public OfflineRegionDefinition getDefinition() {
+    if (definition == null) {
+      definition = loadDefinition();
+    }
     return definition;
   }
 
+  /**
+   * Returns the metadata of the region. Regions of a paginated listing copy their metadata on first access,
+   * or when deleted.
+   *
+   * @return the region metadata
+   */
   public byte[] getMetadata() {
+    if (metadata == null) {
+      metadata = loadMetadata();
+    }
     return metadata;
   }
 
+  OfflineRegionDefinition loadDefinition() {
+    return getOfflineRegionDefinition();
+  }
+
+  byte[] loadMetadata() {
+    return getOfflineRegionMetadata();
+  }
+
   /**
    * Register an observer to be notified when the state of the region changes.
+   * <p>
+   * While a refresh runs, the observer is registered once the refresh ended.
+   * </p>
    *
    * @param observer the observer to be notified
    */
   public void setObserver(@Nullable final OfflineRegionObserver observer) {
+    this.observer = observer;
+    this.progressObserver = null;
+    if (refresher == null) {
+      registerObserver();
+    }
+  }
+
+  private void registerObserver() {
+    if (progressObserver != null) {
+      setOfflineRegionProgressObserver(new OfflineRegionProgressTracker(this, progressObserver, progressInterval));
+      return;
+    }
+
+    final OfflineRegionObserver observer = this.observer;
     setOfflineRegionObserver(new OfflineRegionObserver() {
       @Override
       public void onStatusChanged(final OfflineRegionStatus status) {
@@ -321,15 +486,48 @@ public class OfflineRegion {
     });
   }
 
+  /**
+   * Register an observer to be notified of the progress of the download at most once per interval,
+   * along with the throughput, the estimated time remaining and error counts.
+   * <p>
+   * Unlike {@link #setObserver(OfflineRegionObserver)}, which posts every status change of the core to the
+   * main thread, status changes and errors are coalesced and delivered without allocating.
+   * A region has a single observer, this replaces an observer set with {@link #setObserver(OfflineRegionObserver)}.
+   * While a refresh runs, the observer is registered once the refresh ended.
+   * </p>
+   *
+   * @param observer the observer to be notified
+   * @param interval the minimum time between two notifications, in milliseconds
+   */
+  public void setProgressObserver(@Nullable OfflineRegionProgressObserver observer, long interval) {
+    if (interval < 0) {
+      throw new IllegalArgumentException("Interval can't be negative: " + interval);
+    }
+    this.observer = null;
+    this.progressObserver = observer;
+    this.progressInterval = interval;
+    if (refresher == null) {
+      registerObserver();
+    }
+  }
+
   /**
    * Pause or resume downloading of regional resources.
    * <p>
    * After a download has been completed, you are required to reset the state of the region to STATE_INACTIVE.
+   * While a refresh of this or another region runs, the state is applied once the refresh ended.
    * </p>
    *
    * @param state the download state
    */
   public void setDownloadState(@DownloadState int state) {
+    requestedState = state;
+    if (refresher == null && !OfflineRegionRefresher.suspends(this)) {
+      applyDownloadState(state);
+    }
+  }
+
+  void applyDownloadState(@DownloadState int state) {
     if (this.state == state) {
       return;
     }
@@ -343,9 +541,19 @@ public class OfflineRegion {
     }
 
     this.state = state;
+    OfflineRegionRefresher.onDownloadState(this, state);
     setOfflineRegionDownloadState(state);
   }
 
+  /**
+   * Applies the download state requested by the application, once a refresh of another region ended.
+   */
+  void resumeDownloadState() {
+    if (!isDeleted && refresher == null) {
+      applyDownloadState(requestedState);
+    }
+  }
+
   /**
    * Retrieve the current status of the region. The query will be executed
    * asynchronously and the results passed to the given callback which will be
@@ -394,13 +602,17 @@ public class OfflineRegion {
    * Note that this operation can be potentially slow if packing the database
    * occurs automatically ({@link OfflineManager#runPackDatabaseAutomatically(boolean)})
    * <p>
-   * After you call this method, you may not call any additional methods on this object.
+   * After you call this method, you may not call any additional methods on this object, except
+   * {@link #getID()}, {@link #getDefinition()} and {@link #getMetadata()}.
    * </p>
    *
    * @param callback the callback to be invoked
    */
   public void delete(@NonNull final OfflineRegionDeleteCallback callback) {
     if (!isDeleted) {
+      // the core region is released once deleted, keep what the getters return
+      getDefinition();
+      getMetadata();
       isDeleted = true;
       fileSource.activate();
       deleteOfflineRegion(new OfflineRegionDeleteCallback() {
@@ -410,6 +622,7 @@ public class OfflineRegion {
             @Override
             public void run() {
               fileSource.deactivate();
+              OfflineRegionRefresher.onDownloadState(OfflineRegion.this, STATE_INACTIVE);
               callback.onDelete();
               OfflineRegion.this.finalize();
             }
@@ -471,6 +684,127 @@ public class OfflineRegion {
     });
   }
 
+  /**
+   * Refresh the resources of an offline region with the server.
+   * <p>
+   * Unlike {@link #invalidate(OfflineRegionInvalidateCallback)}, which revalidates every resource, a delta
+   * refresh only sends conditional requests for the resources whose expiration passed, as many at once as
+   * the offline request budget of the HTTP module allows. The region is activated until every expired
+   * resource was checked, or until the maximum duration or byte count of the options was reached. The
+   * callback then receives how many resources changed.
+   * </p>
+   * <p>
+   * The refresh observes the region in place of its observer. Once it ended, the region gets back the
+   * observer and the download state it had, or those set while the refresh ran. Starting a refresh cancels
+   * a refresh of this region in progress, and fails while another region is being refreshed, as the changes
+   * are counted for all offline requests. For the same reason, other regions downloading are suspended while
+   * the refresh runs, and regions activated meanwhile start once it ended.
+   * </p>
+   *
+   * @param options  the refresh options
+   * @param callback the callback to be invoked on the main thread
+   */
+  public void refresh(@NonNull OfflineRegionRefreshOptions options,
+                      @NonNull final OfflineRegionRefreshCallback callback) {
+    cancelRefresh();
+    if (OfflineRegionRefresher.isRefreshing()) {
+      handler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onError("Another offline region is being refreshed");
+        }
+      });
+      return;
+    }
+    refresher = new OfflineRegionRefresher(this, options, callback);
+    refresher.start();
+  }
+
+  /**
+   * Cancel the refresh in progress, if any. Its callback receives the changes made so far.
+   */
+  public void cancelRefresh() {
+    if (refresher != null) {
+      refresher.cancel();
+    }
+  }
+
+  void observeRefresh(@NonNull OfflineRegionProgressObserver observer, long interval) {
+    setOfflineRegionProgressObserver(new OfflineRegionProgressTracker(this, observer, interval));
+  }
+
+  void onRefreshEnded(@NonNull OfflineRegionRefresher refresher) {
+    if (this.refresher == refresher) {
+      this.refresher = null;
+      registerObserver();
+      applyDownloadState(requestedState);
+    }
+  }
+
+  /**
+   * Export the tiles and resources of this region into a new database file, which another device can import
+   * with {@link OfflineManager#mergeOfflineRegions(String, OfflineManager.MergeOfflineRegionsCallback)}.
+   * <p>
+   * The export runs on a background thread. Rows are copied in batches by SQLite, without loading tiles into
+   * memory, and the file only holds this region. It is written next to the path first and moved to the path
+   * once complete, replacing an existing file. The export can be canceled with the returned exporter. The
+   * callback is executed on the main thread.
+   * </p>
+   * <p>
+   * Tiles and resources downloaded while the export runs may be missing from the file, the file holds every tile
+   * and resource it refers to.
+   * </p>
+   *
+   * @param path     the path of the database file to create
+   * @param callback the callback to be invoked
+   * @return the export, which can be canceled
+   */
+  @NonNull
+  public OfflineRegionExporter exportTo(@NonNull String path, @NonNull OfflineRegionExportCallback callback) {
+    File database = new File(FileSource.getResourcesCachePath(context), OfflineRegionExporter.DATABASE_FILE);
+    OfflineRegionExporter exporter = new OfflineRegionExporter(database, NativeOfflineDatabaseConnection.OPENER,
+      new File(path), id, callback);
+    exporter.start();
+    return exporter;
+  }
+
+  /**
+   * Get the size of this region telling apart the tiles and resources it shares with other regions, to know
+   * how much deleting it would reclaim.
+   * <p>
+   * The size is read from the database on a background thread and kept until the region, or a region sharing
+   * its tiles and resources, gains or loses tiles and resources or gets new data for them, or a region is
+   * deleted. Asking again for the sizes of unchanged regions doesn't read them from the database again.
+   * The callback is executed on the main thread.
+   * </p>
+   *
+   * @param callback the callback to be invoked
+   */
+  public void getSize(@NonNull final OfflineRegionSizeCallback callback) {
+    final File database = new File(FileSource.getResourcesCachePath(context), OfflineRegionExporter.DATABASE_FILE);
+    OfflineExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final OfflineRegionSize size = OfflineRegionSizeAccounting.getInstance().getSize(database, id);
+          handler.post(new Runnable() {
+            @Override
+            public void run() {
+              callback.onSize(size);
+            }
+          });
+        } catch (final SQLException exception) {
+          handler.post(new Runnable() {
+            @Override
+            public void run() {
+              callback.onError(exception.getMessage());
+            }
+          });
+        }
+      }
+    });
+  }
+
   /**
    * Update an offline region metadata from the database.
    * <p>
@@ -516,6 +850,9 @@ public class OfflineRegion {
   @Keep
   private native void setOfflineRegionObserver(OfflineRegionObserver callback);
 
+  @Keep
+  private native void setOfflineRegionProgressObserver(OfflineRegionProgressTracker tracker);
+
   @Keep
   private native void setOfflineRegionDownloadState(@DownloadState int offlineRegionDownloadState);
 
@@ -531,4 +868,10 @@ public class OfflineRegion {
   @Keep
   private native void invalidateOfflineRegion(OfflineRegionInvalidateCallback callback);
 
+  @Keep
+  private native OfflineRegionDefinition getOfflineRegionDefinition();
+
+  @Keep
+  private native byte[] getOfflineRegionMetadata();
+
 }
\ No newline at end of file
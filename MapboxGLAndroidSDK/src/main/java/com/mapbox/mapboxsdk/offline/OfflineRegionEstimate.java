@@ -0,0 +1,111 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The number of tiles an offline region definition requires, per zoom level, computed by
+ * {@link OfflineRegionEstimator}.
+ * <p>
+ * The counts are those of one tile source. A style with several tile sources downloads them for every
+ * source covering the zoom level. Styles, sprites and glyphs aren't counted.
+ * </p>
+ */
+public final class OfflineRegionEstimate {
+
+  private final int minZoom;
+  private final long[] tileCounts;
+  private final long averageTileSize;
+
+  OfflineRegionEstimate(int minZoom, @NonNull long[] tileCounts, long averageTileSize) {
+    this.minZoom = minZoom;
+    this.tileCounts = tileCounts;
+    this.averageTileSize = averageTileSize;
+  }
+
+  @NonNull
+  OfflineRegionEstimate withAverageTileSize(long averageTileSize) {
+    return new OfflineRegionEstimate(minZoom, tileCounts, averageTileSize);
+  }
+
+  /**
+   * Returns the lowest zoom level of the estimate.
+   *
+   * @return the min zoom
+   */
+  public int getMinZoom() {
+    return minZoom;
+  }
+
+  /**
+   * Returns the highest zoom level of the estimate, lower than the min zoom if no zoom level was covered.
+   *
+   * @return the max zoom
+   */
+  public int getMaxZoom() {
+    return minZoom + tileCounts.length - 1;
+  }
+
+  /**
+   * Returns the number of tiles at a zoom level.
+   *
+   * @param zoom the zoom level
+   * @return the tile count, 0 outside of the zoom range
+   */
+  public long getTileCount(int zoom) {
+    int index = zoom - minZoom;
+    return index >= 0 && index < tileCounts.length ? tileCounts[index] : 0;
+  }
+
+  /**
+   * Returns the number of tiles over all zoom levels.
+   *
+   * @return the tile count
+   */
+  public long getTileCount() {
+    long count = 0;
+    for (long tileCount : tileCounts) {
+      count += tileCount;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the average tile size sampled from downloaded regions.
+   *
+   * @return the average tile size in bytes, or -1 if no region was sampled
+   */
+  public long getAverageTileSize() {
+    return averageTileSize;
+  }
+
+  /**
+   * Returns the estimated size of the tiles, based on the average tile size sampled from downloaded regions.
+   *
+   * @return the size in bytes, or -1 if no region was sampled
+   */
+  public long getEstimatedSize() {
+    return averageTileSize < 0 ? -1 : getTileCount() * averageTileSize;
+  }
+
+  /**
+   * Returns true if downloading the region would exceed a limit on the number of Mapbox tiles,
+   * as set with {@link OfflineManager#setOfflineMapboxTileCountLimit(long)}.
+   *
+   * @param limit       the tile count limit
+   * @param tileSources the number of Mapbox tile sources of the style
+   * @return true if the limit would be exceeded
+   */
+  public boolean exceeds(long limit, int tileSources) {
+    return getTileCount() * tileSources > limit;
+  }
+
+  @Override
+  public String toString() {
+    return "OfflineRegionEstimate{"
+      + "minZoom=" + minZoom
+      + ", maxZoom=" + getMaxZoom()
+      + ", tileCount=" + getTileCount()
+      + ", averageTileSize=" + averageTileSize
+      + '}';
+  }
+}
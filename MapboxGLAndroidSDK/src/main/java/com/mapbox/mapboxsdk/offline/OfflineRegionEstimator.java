@@ -0,0 +1,202 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+
+import com.mapbox.geojson.Geometry;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+/**
+ * Estimates the number of tiles, and optionally the size, an offline region definition requires before
+ * the region is created, to stay within the Mapbox tile count limit.
+ * <p>
+ * Tiles are counted exactly at every zoom level, for a tile source with 512 pixel tiles such as the Mapbox
+ * vector sources, without enumerating them: geometries of millions of tiles are counted in a few
+ * milliseconds per zoom level.
+ * </p>
+ */
+public final class OfflineRegionEstimator {
+
+  /**
+   * Highest zoom level of a tile source, used when the max zoom of a definition is infinite.
+   */
+  public static final int DEFAULT_SOURCE_MAX_ZOOM = 22;
+
+  private OfflineRegionEstimator() {
+  }
+
+  /**
+   * This callback receives the estimate of a region definition.
+   */
+  public interface EstimateCallback {
+    /**
+     * Receives the estimate, on the main thread.
+     *
+     * @param estimate the estimate
+     */
+    void onEstimate(@NonNull OfflineRegionEstimate estimate);
+
+    /**
+     * Receives the error message if the definition can't be estimated.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
+  /**
+   * Counts the tiles of a region definition on the calling thread, for a source covering zoom levels 0 to
+   * {@link #DEFAULT_SOURCE_MAX_ZOOM}.
+   *
+   * @param definition the region definition
+   * @return the estimate, without size
+   */
+  @WorkerThread
+  @NonNull
+  public static OfflineRegionEstimate estimate(@NonNull OfflineRegionDefinition definition) {
+    return estimate(definition, 0, DEFAULT_SOURCE_MAX_ZOOM);
+  }
+
+  /**
+   * Counts the tiles of a region definition on the calling thread.
+   *
+   * @param definition    the region definition
+   * @param sourceMinZoom the lowest zoom level of the tile source
+   * @param sourceMaxZoom the highest zoom level of the tile source
+   * @return the estimate, without size
+   */
+  @WorkerThread
+  @NonNull
+  public static OfflineRegionEstimate estimate(@NonNull OfflineRegionDefinition definition,
+                                               int sourceMinZoom, int sourceMaxZoom) {
+    if (sourceMinZoom < 0 || sourceMaxZoom > 30 || sourceMinZoom > sourceMaxZoom) {
+      throw new IllegalArgumentException("Invalid source zoom range: " + sourceMinZoom + "-" + sourceMaxZoom);
+    }
+    OfflineRegionTileCover cover;
+    if (definition instanceof OfflineGeometryRegionDefinition) {
+      Geometry geometry = ((OfflineGeometryRegionDefinition) definition).getGeometry();
+      if (geometry == null) {
+        throw new IllegalArgumentException("The region definition has no geometry");
+      }
+      cover = new OfflineRegionTileCover(geometry);
+    } else {
+      LatLngBounds bounds = definition.getBounds();
+      if (bounds == null) {
+        throw new IllegalArgumentException("The region definition has no bounds");
+      }
+      cover = new OfflineRegionTileCover(bounds);
+    }
+
+    // vector tiles of 512 pixels cover the integer part of the zoom level
+    int minZoom = Math.max(sourceMinZoom, (int) Math.floor(definition.getMinZoom()));
+    double maxZoom = definition.getMaxZoom();
+    int lastZoom = Double.isInfinite(maxZoom) ? sourceMaxZoom
+      : Math.min(sourceMaxZoom, (int) Math.floor(maxZoom));
+    long[] tileCounts = new long[Math.max(0, lastZoom - minZoom + 1)];
+    for (int i = 0; i < tileCounts.length; i++) {
+      tileCounts[i] = cover.count(minZoom + i);
+    }
+    return new OfflineRegionEstimate(minZoom, tileCounts, -1);
+  }
+
+  /**
+   * Counts the tiles of a region definition on a background thread, and estimates their size from the
+   * average tile size of already downloaded regions.
+   *
+   * @param definition    the region definition
+   * @param sourceMinZoom the lowest zoom level of the tile source
+   * @param sourceMaxZoom the highest zoom level of the tile source
+   * @param samples       downloaded regions of the same style to sample the tile size from, may be null
+   * @param callback      the callback to be invoked on the main thread
+   */
+  @UiThread
+  public static void estimate(@NonNull final OfflineRegionDefinition definition,
+                              final int sourceMinZoom, final int sourceMaxZoom,
+                              @Nullable OfflineRegion[] samples, @NonNull final EstimateCallback callback) {
+    final Handler handler = new Handler(Looper.getMainLooper());
+    final Sampler sampler = new Sampler(samples == null ? 0 : samples.length, callback);
+    OfflineExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final OfflineRegionEstimate estimate = estimate(definition, sourceMinZoom, sourceMaxZoom);
+          handler.post(new Runnable() {
+            @Override
+            public void run() {
+              sampler.onTiles(estimate);
+            }
+          });
+        } catch (final IllegalArgumentException exception) {
+          handler.post(new Runnable() {
+            @Override
+            public void run() {
+              sampler.onCountError(exception.getMessage());
+            }
+          });
+        }
+      }
+    });
+
+    if (samples != null) {
+      for (OfflineRegion sample : samples) {
+        sample.getStatus(sampler);
+      }
+    }
+  }
+
+  /**
+   * Averages the tile size of the sample regions and delivers the estimate once the tiles were counted.
+   * Only accessed on the main thread.
+   */
+  private static final class Sampler implements OfflineRegion.OfflineRegionStatusCallback {
+
+    private final EstimateCallback callback;
+    private int pendingSamples;
+    private long tileCount;
+    private long tileSize;
+    @Nullable
+    private OfflineRegionEstimate estimate;
+    private boolean failed;
+
+    Sampler(int samples, @NonNull EstimateCallback callback) {
+      this.pendingSamples = samples;
+      this.callback = callback;
+    }
+
+    void onTiles(@NonNull OfflineRegionEstimate estimate) {
+      this.estimate = estimate;
+      deliver();
+    }
+
+    @Override
+    public void onStatus(OfflineRegionStatus status) {
+      tileCount += status.getCompletedTileCount();
+      tileSize += status.getCompletedTileSize();
+      pendingSamples--;
+      deliver();
+    }
+
+    @Override
+    public void onError(String error) {
+      // a region that can't be sampled is skipped
+      pendingSamples--;
+      deliver();
+    }
+
+    void onCountError(String error) {
+      failed = true;
+      callback.onError(error);
+    }
+
+    private void deliver() {
+      if (failed || estimate == null || pendingSamples > 0) {
+        return;
+      }
+      callback.onEstimate(estimate.withAverageTileSize(tileCount > 0 ? tileSize / tileCount : -1));
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+
+/**
+ * Copies the tiles and resources of an offline region into a new database file, in the schema of the offline
+ * database so that the file can be imported with {@link OfflineManager#mergeOfflineRegions}. Started with
+ * {@link OfflineRegion#exportTo(String, OfflineRegion.OfflineRegionExportCallback)}.
+ * <p>
+ * The offline database is attached to the new database and rows are copied with INSERT ... SELECT
+ * statements in batches, so tiles and resources are streamed by SQLite without passing through Java. The new
+ * database is opened with the SQLite library of the core, see {@link NativeOfflineDatabaseConnection}. Every
+ * batch copies the references of the region to a range of tiles or resources together with these rows, a
+ * region downloading meanwhile is exported with the rows it held when their batch was copied. The export is
+ * written to a temporary file which is renamed once complete, and may be canceled between batches.
+ * </p>
+ */
+public final class OfflineRegionExporter {
+
+  // name of the offline database in the resources cache path, see file_source.hpp
+  static final String DATABASE_FILE = "mbgl-offline.db";
+
+  // version of the offline database schema the statements below are written for
+  private static final int SCHEMA_VERSION = 6;
+  private static final int BATCH_SIZE = 256;
+
+  static final String[] SCHEMA = {
+    "CREATE TABLE regions (id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, definition TEXT NOT NULL, "
+      + "description BLOB)",
+    "CREATE TABLE resources (id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, url TEXT NOT NULL, "
+      + "kind INTEGER NOT NULL, expires INTEGER, modified INTEGER, etag TEXT, data BLOB, "
+      + "compressed INTEGER NOT NULL DEFAULT 0, accessed INTEGER NOT NULL, "
+      + "must_revalidate INTEGER NOT NULL DEFAULT 0, UNIQUE (url))",
+    "CREATE TABLE tiles (id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, url_template TEXT NOT NULL, "
+      + "pixel_ratio INTEGER NOT NULL, z INTEGER NOT NULL, x INTEGER NOT NULL, y INTEGER NOT NULL, "
+      + "expires INTEGER, modified INTEGER, etag TEXT, data BLOB, compressed INTEGER NOT NULL DEFAULT 0, "
+      + "accessed INTEGER NOT NULL, must_revalidate INTEGER NOT NULL DEFAULT 0, "
+      + "UNIQUE (url_template, pixel_ratio, z, x, y))",
+    "CREATE TABLE region_tiles (region_id INTEGER NOT NULL REFERENCES regions(id) ON DELETE CASCADE, "
+      + "tile_id INTEGER NOT NULL REFERENCES tiles(id), UNIQUE (region_id, tile_id))",
+    "CREATE TABLE region_resources (region_id INTEGER NOT NULL REFERENCES regions(id) ON DELETE CASCADE, "
+      + "resource_id INTEGER NOT NULL REFERENCES resources(id), UNIQUE (region_id, resource_id))",
+    "CREATE INDEX resources_accessed ON resources (accessed)",
+    "CREATE INDEX tiles_accessed ON tiles (accessed)",
+    "CREATE INDEX region_resources_resource_id ON region_resources (resource_id)",
+    "CREATE INDEX region_tiles_tile_id ON region_tiles (tile_id)"
+  };
+
+  private static final String COPY_REGION =
+    "INSERT INTO regions (id, definition, description) "
+      + "SELECT id, definition, description FROM source.regions WHERE id = ?";
+  // the references of a batch are copied first, then the tiles and resources they reference, so that the
+  // export holds the rows of the same range of ids of both tables
+  private static final String COPY_REGION_TILES =
+    "INSERT INTO region_tiles (region_id, tile_id) SELECT region_id, tile_id FROM source.region_tiles "
+      + "WHERE region_id = ? AND tile_id > ? ORDER BY tile_id LIMIT " + BATCH_SIZE;
+  private static final String COPY_TILES =
+    "INSERT INTO tiles (id, url_template, pixel_ratio, z, x, y, expires, modified, etag, data, compressed, "
+      + "accessed, must_revalidate) "
+      + "SELECT t.id, t.url_template, t.pixel_ratio, t.z, t.x, t.y, t.expires, t.modified, t.etag, t.data, "
+      + "t.compressed, t.accessed, t.must_revalidate "
+      + "FROM region_tiles rt JOIN source.tiles t ON t.id = rt.tile_id WHERE rt.tile_id > ?";
+  private static final String LAST_TILE = "SELECT IFNULL(MAX(tile_id), 0) FROM region_tiles";
+  private static final String COPY_REGION_RESOURCES =
+    "INSERT INTO region_resources (region_id, resource_id) SELECT region_id, resource_id "
+      + "FROM source.region_resources WHERE region_id = ? AND resource_id > ? ORDER BY resource_id LIMIT "
+      + BATCH_SIZE;
+  private static final String COPY_RESOURCES =
+    "INSERT INTO resources (id, url, kind, expires, modified, etag, data, compressed, accessed, must_revalidate) "
+      + "SELECT r.id, r.url, r.kind, r.expires, r.modified, r.etag, r.data, r.compressed, r.accessed, "
+      + "r.must_revalidate "
+      + "FROM region_resources rr JOIN source.resources r ON r.id = rr.resource_id WHERE rr.resource_id > ?";
+  private static final String LAST_RESOURCE = "SELECT IFNULL(MAX(resource_id), 0) FROM region_resources";
+
+  private final File source;
+  private final OfflineDatabaseConnection.Opener opener;
+  private final File target;
+  private final long regionId;
+  private final OfflineRegion.OfflineRegionExportCallback callback;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private volatile boolean canceled;
+  private volatile boolean done;
+
+  OfflineRegionExporter(@NonNull File source, @NonNull OfflineDatabaseConnection.Opener opener,
+                        @NonNull File target, long regionId,
+                        @NonNull OfflineRegion.OfflineRegionExportCallback callback) {
+    this.source = source;
+    this.opener = opener;
+    this.target = target;
+    this.regionId = regionId;
+    this.callback = callback;
+  }
+
+  void start() {
+    OfflineExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        export();
+        done = true;
+      }
+    });
+  }
+
+  /**
+   * Stops the export after the batch in progress, if any, and deletes the partial file. The callback isn't
+   * invoked. An export which already wrote the file completes.
+   */
+  public void cancel() {
+    canceled = true;
+  }
+
+  /**
+   * Returns true once the export completed, was canceled or failed.
+   *
+   * @return true if done
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  @WorkerThread
+  void export() {
+    if (canceled) {
+      return;
+    }
+    File temporary = new File(target.getPath() + ".tmp");
+    if (temporary.exists() && !temporary.delete()) {
+      postError("Can't overwrite " + temporary.getPath());
+      return;
+    }
+
+    OfflineDatabaseConnection database = null;
+    try {
+      database = opener.open(temporary.getPath(), false);
+      database.execute("ATTACH DATABASE ? AS source", source.getPath());
+      long version = queryLong(database, "PRAGMA source.user_version");
+      if (version != SCHEMA_VERSION) {
+        throw new SQLException("Unsupported offline database schema version " + version);
+      }
+
+      createSchema(database);
+      String region = String.valueOf(regionId);
+      database.execute(COPY_REGION, region);
+      if (queryLong(database, "SELECT COUNT(*) FROM regions") == 0) {
+        throw new SQLException("The region " + regionId + " doesn't exist");
+      }
+
+      long total = queryLong(database, "SELECT COUNT(*) FROM source.region_tiles WHERE region_id = ?", region)
+        + queryLong(database, "SELECT COUNT(*) FROM source.region_resources WHERE region_id = ?", region);
+      long exported = copy(database, COPY_REGION_TILES, COPY_TILES, LAST_TILE, 0, total);
+      copy(database, COPY_REGION_RESOURCES, COPY_RESOURCES, LAST_RESOURCE, exported, total);
+      if (canceled) {
+        database.close();
+        database = null;
+        SQLiteDatabase.deleteDatabase(temporary);
+        return;
+      }
+      database.execute("DETACH DATABASE source");
+      database.close();
+      database = null;
+
+      if ((target.exists() && !target.delete()) || !temporary.renameTo(target)) {
+        throw new SQLException("Can't write " + target.getPath());
+      }
+      handler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onExport(target.getPath());
+        }
+      });
+    } catch (SQLException exception) {
+      if (database != null) {
+        database.close();
+      }
+      SQLiteDatabase.deleteDatabase(temporary);
+      postError(exception.getMessage());
+    }
+  }
+
+  private static void createSchema(@NonNull OfflineDatabaseConnection database) {
+    // like the offline database, must be set before the tables are created
+    database.execute("PRAGMA auto_vacuum = INCREMENTAL");
+    database.execute("BEGIN");
+    for (String statement : SCHEMA) {
+      database.execute(statement);
+    }
+    database.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+    database.execute("COMMIT");
+  }
+
+  /**
+   * Copies the references of the region to a table in batches ordered by id, and the rows they reference,
+   * reporting progress after each batch. Every batch is a transaction, the core can't change the references
+   * of the batch while the rows are copied.
+   */
+  private long copy(@NonNull OfflineDatabaseConnection database, @NonNull String copyReferences,
+                    @NonNull String copyRows, @NonNull String lastReference, long exported, final long total) {
+    String region = String.valueOf(regionId);
+    long lastId = 0;
+    while (!canceled) {
+      database.execute("BEGIN");
+      long copied = database.execute(copyReferences, region, String.valueOf(lastId));
+      database.execute(copyRows, String.valueOf(lastId));
+      database.execute("COMMIT");
+      if (copied == 0) {
+        return exported;
+      }
+      lastId = queryLong(database, lastReference);
+      exported += copied;
+
+      final long progress = exported;
+      handler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onProgress(progress, total);
+        }
+      });
+    }
+    return exported;
+  }
+
+  private static long queryLong(@NonNull OfflineDatabaseConnection database, @NonNull String query,
+                                @NonNull String... arguments) {
+    long[] values = database.query(query, 1, arguments);
+    return values.length > 0 ? values[0] : 0;
+  }
+
+  private void postError(final String error) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onError(error);
+      }
+    });
+  }
+}
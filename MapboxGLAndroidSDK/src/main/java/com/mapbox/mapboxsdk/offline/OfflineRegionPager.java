@@ -0,0 +1,130 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.SQLException;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lists a page of offline regions. The ids of the regions following the position of the query are read from
+ * the offline database in batches of one page, through the SQLite library of the core, and only the regions of
+ * a batch are loaded from the core and filtered, until the page is filled or the regions run out.
+ * <p>
+ * Without filters a page costs a single batch, whatever the number of regions in the database. With filters the
+ * batches continue past the regions that don't match, so sparse matches cost as many batches as the regions
+ * skipped.
+ * </p>
+ */
+final class OfflineRegionPager implements Runnable {
+
+  static final String REGION_IDS = "SELECT id FROM regions WHERE id > ? ORDER BY id LIMIT ?";
+
+  /**
+   * Loads the regions of a batch from the core.
+   */
+  interface Loader {
+    /**
+     * Loads the regions with the given ids which pass the filters of the query.
+     *
+     * @param ids      the ids of the regions, in ascending order
+     * @param callback the callback receiving the regions, in the order of the ids
+     */
+    void load(@NonNull long[] ids, @NonNull OfflineManager.ListOfflineRegionsCallback callback);
+  }
+
+  private final File database;
+  private final OfflineDatabaseConnection.Opener opener;
+  private final Loader loader;
+  private final int pageSize;
+  private final OfflineManager.ListOfflineRegionsPageCallback callback;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final List<OfflineRegion> regions = new ArrayList<>();
+  private long startAfter;
+
+  OfflineRegionPager(@NonNull File database, @NonNull OfflineDatabaseConnection.Opener opener,
+                     @NonNull Loader loader, @NonNull OfflineRegionQuery query,
+                     @NonNull OfflineManager.ListOfflineRegionsPageCallback callback) {
+    this.database = database;
+    this.opener = opener;
+    this.loader = loader;
+    this.pageSize = query.getPageSize();
+    this.startAfter = query.getStartAfter();
+    this.callback = callback;
+  }
+
+  /**
+   * Reads the next batch of ids, one more than the page to tell if there are more regions.
+   */
+  @Override
+  public void run() {
+    final int batch = pageSize + 1;
+    long[] ids = new long[0];
+    if (database.exists()) {
+      OfflineDatabaseConnection connection = null;
+      try {
+        connection = opener.open(database.getPath(), true);
+        ids = connection.query(REGION_IDS, 1, String.valueOf(startAfter), String.valueOf(batch));
+      } catch (SQLException exception) {
+        onError(exception.getMessage());
+        return;
+      } finally {
+        if (connection != null) {
+          connection.close();
+        }
+      }
+    }
+
+    if (ids.length == 0) {
+      onPage(false);
+      return;
+    }
+
+    final long last = ids[ids.length - 1];
+    final boolean exhausted = ids.length < batch;
+    loader.load(ids, new OfflineManager.ListOfflineRegionsCallback() {
+      @Override
+      public void onList(OfflineRegion[] offlineRegions) {
+        regions.addAll(Arrays.asList(offlineRegions));
+        if (regions.size() > pageSize) {
+          onPage(true);
+        } else if (exhausted) {
+          onPage(false);
+        } else {
+          // the filters dropped regions of the batch, continue after it
+          startAfter = last;
+          OfflineExecutor.execute(OfflineRegionPager.this);
+        }
+      }
+
+      @Override
+      public void onError(String error) {
+        OfflineRegionPager.this.onError(error);
+      }
+    });
+  }
+
+  private void onPage(final boolean hasMore) {
+    final OfflineRegion[] page = regions.subList(0, Math.min(pageSize, regions.size()))
+      .toArray(new OfflineRegion[0]);
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onPage(page, hasMore);
+      }
+    });
+  }
+
+  private void onError(final String error) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onError(error);
+      }
+    });
+  }
+}
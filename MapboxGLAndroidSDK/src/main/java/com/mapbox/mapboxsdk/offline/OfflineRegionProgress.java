@@ -0,0 +1,294 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The progress of an offline region download, delivered at a limited rate to an
+ * {@link OfflineRegion.OfflineRegionProgressObserver}.
+ * <p>
+ * Along with the values of the {@link OfflineRegionStatus}, the progress carries the download throughput,
+ * smoothed with an exponential moving average, the estimated time remaining and the number of errors
+ * reported so far by reason.
+ * </p>
+ * <p>
+ * The same instance is updated for every delivery, it is only valid during
+ * {@link OfflineRegion.OfflineRegionProgressObserver#onProgress(OfflineRegionProgress)}. Copy the values
+ * that need to be kept.
+ * </p>
+ */
+public final class OfflineRegionProgress {
+
+  /**
+   * Weight of the latest sample in the moving averages.
+   */
+  static final double SMOOTHING = 0.3;
+
+  private static final String[] REASONS = {
+    OfflineRegionError.REASON_SUCCESS,
+    OfflineRegionError.REASON_NOT_FOUND,
+    OfflineRegionError.REASON_SERVER,
+    OfflineRegionError.REASON_CONNECTION,
+    OfflineRegionError.REASON_OTHER
+  };
+  private static final int OTHER = REASONS.length - 1;
+
+  @OfflineRegion.DownloadState
+  private int downloadState;
+  private long completedResourceCount;
+  private long completedResourceSize;
+  private long completedTileCount;
+  private long completedTileSize;
+  private long requiredResourceCount;
+  private boolean requiredResourceCountIsPrecise;
+
+  private final long[] errorCounts = new long[REASONS.length];
+  @Nullable
+  private String lastErrorReason;
+  @Nullable
+  private String lastErrorMessage;
+
+  private double resourcesPerSecond;
+  private double tilesPerSecond;
+  private double bytesPerSecond;
+  private long sampleTime = -1;
+
+  OfflineRegionProgress() {
+  }
+
+  /**
+   * Records a status reported by the core.
+   */
+  void setStatus(int downloadState, long completedResourceCount, long completedResourceSize,
+                 long completedTileCount, long completedTileSize, long requiredResourceCount,
+                 boolean requiredResourceCountIsPrecise) {
+    this.downloadState = downloadState;
+    this.completedResourceCount = completedResourceCount;
+    this.completedResourceSize = completedResourceSize;
+    this.completedTileCount = completedTileCount;
+    this.completedTileSize = completedTileSize;
+    this.requiredResourceCount = requiredResourceCount;
+    this.requiredResourceCountIsPrecise = requiredResourceCountIsPrecise;
+  }
+
+  /**
+   * Records an error reported by the core.
+   */
+  void addError(@NonNull String reason, @NonNull String message) {
+    errorCounts[indexOf(reason)]++;
+    lastErrorReason = reason;
+    lastErrorMessage = message;
+  }
+
+  /**
+   * Takes over the values recorded in another instance, and updates the throughput with the progress made
+   * since the previous update.
+   *
+   * @param source the recorded values
+   * @param now    the current time in milliseconds, from a monotonic clock
+   */
+  void update(@NonNull OfflineRegionProgress source, long now) {
+    long elapsed = now - sampleTime;
+    if (sampleTime < 0 || source.completedResourceCount < completedResourceCount) {
+      // first sample, or the region was invalidated meanwhile
+      resourcesPerSecond = 0;
+      tilesPerSecond = 0;
+      bytesPerSecond = 0;
+      sampleTime = now;
+    } else if (elapsed > 0) {
+      resourcesPerSecond = average(resourcesPerSecond,
+        source.completedResourceCount - completedResourceCount, elapsed);
+      tilesPerSecond = average(tilesPerSecond, source.completedTileCount - completedTileCount, elapsed);
+      bytesPerSecond = average(bytesPerSecond, source.completedResourceSize - completedResourceSize, elapsed);
+      sampleTime = now;
+    }
+
+    setStatus(source.downloadState, source.completedResourceCount, source.completedResourceSize,
+      source.completedTileCount, source.completedTileSize, source.requiredResourceCount,
+      source.requiredResourceCountIsPrecise);
+    System.arraycopy(source.errorCounts, 0, errorCounts, 0, errorCounts.length);
+    lastErrorReason = source.lastErrorReason;
+    lastErrorMessage = source.lastErrorMessage;
+  }
+
+  private static double average(double average, long delta, long elapsed) {
+    double rate = delta * 1000.0 / elapsed;
+    return average == 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * average;
+  }
+
+  private static int indexOf(@NonNull String reason) {
+    for (int i = 0; i < OTHER; i++) {
+      if (REASONS[i].equals(reason)) {
+        return i;
+      }
+    }
+    return OTHER;
+  }
+
+  /**
+   * Returns the download state, {@link OfflineRegion#STATE_ACTIVE} or {@link OfflineRegion#STATE_INACTIVE}.
+   *
+   * @return the download state
+   */
+  @OfflineRegion.DownloadState
+  public int getDownloadState() {
+    return downloadState;
+  }
+
+  /**
+   * Returns true if all required resources were downloaded.
+   *
+   * @return true if complete
+   */
+  public boolean isComplete() {
+    return completedResourceCount >= requiredResourceCount;
+  }
+
+  /**
+   * Get the number of resources (inclusive of tiles) that have been fully downloaded.
+   *
+   * @return the number of resources, inclusive of tiles, that finished downloading
+   * @see OfflineRegionStatus#getCompletedResourceCount()
+   */
+  public long getCompletedResourceCount() {
+    return completedResourceCount;
+  }
+
+  /**
+   * Get the cumulative size, in bytes, of all resources that have been fully downloaded.
+   *
+   * @return the size in bytes of the resources that finished downloading
+   * @see OfflineRegionStatus#getCompletedResourceSize()
+   */
+  public long getCompletedResourceSize() {
+    return completedResourceSize;
+  }
+
+  /**
+   * Get the number of tiles that have been fully downloaded.
+   *
+   * @return the number of tiles that finished downloading
+   * @see OfflineRegionStatus#getCompletedTileCount()
+   */
+  public long getCompletedTileCount() {
+    return completedTileCount;
+  }
+
+  /**
+   * Get the cumulative size, in bytes, of all tiles that have been fully downloaded.
+   *
+   * @return the size in bytes of the tiles that finished downloading
+   * @see OfflineRegionStatus#getCompletedTileSize()
+   */
+  public long getCompletedTileSize() {
+    return completedTileSize;
+  }
+
+  /**
+   * Get the number of resources that are known to be required for this region.
+   *
+   * @return the number of resources known to be required
+   * @see OfflineRegionStatus#getRequiredResourceCount()
+   */
+  public long getRequiredResourceCount() {
+    return requiredResourceCount;
+  }
+
+  /**
+   * Returns true when the required resource count is precise.
+   *
+   * @return true if the required resource count is precise, false if it is a lower bound
+   * @see OfflineRegionStatus#isRequiredResourceCountPrecise()
+   */
+  public boolean isRequiredResourceCountPrecise() {
+    return requiredResourceCountIsPrecise;
+  }
+
+  /**
+   * Returns the moving average of the resources downloaded per second.
+   *
+   * @return the resource throughput
+   */
+  public double getResourcesPerSecond() {
+    return resourcesPerSecond;
+  }
+
+  /**
+   * Returns the moving average of the tiles downloaded per second.
+   *
+   * @return the tile throughput
+   */
+  public double getTilesPerSecond() {
+    return tilesPerSecond;
+  }
+
+  /**
+   * Returns the moving average of the bytes downloaded per second.
+   *
+   * @return the byte throughput
+   */
+  public double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * Returns the estimated time until the download completes, based on the moving average of the
+   * resource throughput.
+   *
+   * @return the time remaining in milliseconds, 0 once complete, or -1 if unknown because the
+   * required resource count isn't precise yet or nothing was downloaded recently
+   */
+  public long getEstimatedTimeRemaining() {
+    if (isComplete()) {
+      return 0;
+    }
+    if (!requiredResourceCountIsPrecise || resourcesPerSecond <= 0) {
+      return -1;
+    }
+    return (long) ((requiredResourceCount - completedResourceCount) * 1000 / resourcesPerSecond);
+  }
+
+  /**
+   * Returns the number of errors reported for a reason since the observer was set.
+   * Reasons unknown to this version of the SDK are counted as {@link OfflineRegionError#REASON_OTHER}.
+   *
+   * @param reason the error reason
+   * @return the error count
+   */
+  public long getErrorCount(@NonNull @OfflineRegionError.ErrorReason String reason) {
+    return errorCounts[indexOf(reason)];
+  }
+
+  /**
+   * Returns the number of errors reported since the observer was set.
+   *
+   * @return the error count
+   */
+  public long getErrorCount() {
+    long count = 0;
+    for (long errorCount : errorCounts) {
+      count += errorCount;
+    }
+    return count;
+  }
+
+  /**
+   * Get the reason of the last error reported.
+   *
+   * @return the reason of the last error, or null if no error was reported
+   */
+  @Nullable
+  public String getLastErrorReason() {
+    return lastErrorReason;
+  }
+
+  /**
+   * Get the message of the last error reported.
+   *
+   * @return the message of the last error, or null if no error was reported
+   */
+  @Nullable
+  public String getLastErrorMessage() {
+    return lastErrorMessage;
+  }
+}
@@ -0,0 +1,112 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Receives the status of an offline region download from the core and delivers it to an
+ * {@link OfflineRegion.OfflineRegionProgressObserver} on the main thread, at most once per interval.
+ * <p>
+ * The core reports the status as primitive values, which are recorded into a reused
+ * {@link OfflineRegionProgress}. Updates arriving while a delivery is scheduled are merged into it,
+ * so reporting progress doesn't allocate.
+ * </p>
+ */
+@Keep
+final class OfflineRegionProgressTracker implements Runnable {
+
+  private final OfflineRegion region;
+  @Nullable
+  private final OfflineRegion.OfflineRegionProgressObserver observer;
+  private final long interval;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  // written by the core, guarded by this
+  private final OfflineRegionProgress recorded = new OfflineRegionProgress();
+  private boolean scheduled;
+  private long lastDelivery = Long.MIN_VALUE / 2;
+
+  // only accessed on the main thread
+  private final OfflineRegionProgress delivered = new OfflineRegionProgress();
+
+  OfflineRegionProgressTracker(@NonNull OfflineRegion region,
+                               @Nullable OfflineRegion.OfflineRegionProgressObserver observer, long interval) {
+    this.region = region;
+    this.observer = observer;
+    this.interval = interval;
+  }
+
+  @Keep
+  private void onStatusChanged(int downloadState, long completedResourceCount, long completedResourceSize,
+                               long completedTileCount, long completedTileSize, long requiredResourceCount,
+                               boolean requiredResourceCountIsPrecise) {
+    if (!region.deliverMessages()) {
+      return;
+    }
+    long delay;
+    synchronized (this) {
+      recorded.setStatus(downloadState, completedResourceCount, completedResourceSize, completedTileCount,
+        completedTileSize, requiredResourceCount, requiredResourceCountIsPrecise);
+      delay = schedule();
+    }
+    if (delay >= 0) {
+      handler.postDelayed(this, delay);
+    }
+  }
+
+  @Keep
+  private void onError(String reason, String message) {
+    if (!region.deliverMessages()) {
+      return;
+    }
+    long delay;
+    synchronized (this) {
+      recorded.addError(reason, message);
+      delay = schedule();
+    }
+    if (delay >= 0) {
+      handler.postDelayed(this, delay);
+    }
+  }
+
+  @Keep
+  private void mapboxTileCountLimitExceeded(final long limit) {
+    if (region.deliverMessages()) {
+      handler.post(new Runnable() {
+        @Override
+        public void run() {
+          if (observer != null) {
+            observer.mapboxTileCountLimitExceeded(limit);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns the delay of the next delivery, or -1 if a delivery is scheduled already. Must hold the lock.
+   */
+  private long schedule() {
+    if (scheduled) {
+      return -1;
+    }
+    scheduled = true;
+    return Math.max(0, lastDelivery + interval - SystemClock.uptimeMillis());
+  }
+
+  @Override
+  public void run() {
+    synchronized (this) {
+      scheduled = false;
+      lastDelivery = SystemClock.uptimeMillis();
+      delivered.update(recorded, SystemClock.elapsedRealtime());
+    }
+    if (observer != null) {
+      observer.onProgress(delivered);
+    }
+  }
+}
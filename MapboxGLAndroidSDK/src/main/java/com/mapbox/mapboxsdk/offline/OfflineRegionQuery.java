@@ -0,0 +1,172 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+/**
+ * A page of a listing of offline regions, used with
+ * {@link OfflineManager#listOfflineRegions(OfflineRegionQuery, OfflineManager.ListOfflineRegionsPageCallback)}.
+ * <p>
+ * Regions are listed in ascending order of id. The query of the next page is obtained with
+ * {@link #next(OfflineRegion[])}, so that regions created or deleted meanwhile don't shift the pages.
+ * </p>
+ */
+public final class OfflineRegionQuery {
+
+  /**
+   * Default number of regions of a page.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  private final long startAfter;
+  private final int pageSize;
+  @Nullable
+  private final LatLngBounds bounds;
+  @Nullable
+  private final String metadataKey;
+
+  private OfflineRegionQuery(long startAfter, int pageSize, @Nullable LatLngBounds bounds,
+                             @Nullable String metadataKey) {
+    this.startAfter = startAfter;
+    this.pageSize = pageSize;
+    this.bounds = bounds;
+    this.metadataKey = metadataKey;
+  }
+
+  /**
+   * Returns the id after which regions are listed.
+   *
+   * @return the region id, -1 to list from the first region
+   */
+  public long getStartAfter() {
+    return startAfter;
+  }
+
+  /**
+   * Returns the maximum number of regions of a page.
+   *
+   * @return the page size
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Returns the bounds listed regions intersect.
+   *
+   * @return the bounds, or null if regions aren't filtered by location
+   */
+  @Nullable
+  public LatLngBounds getBounds() {
+    return bounds;
+  }
+
+  /**
+   * Returns the key the metadata of listed regions contains.
+   *
+   * @return the metadata key, or null if regions aren't filtered by metadata
+   */
+  @Nullable
+  public String getMetadataKey() {
+    return metadataKey;
+  }
+
+  /**
+   * Returns the query of the page following a page, with the same filters.
+   *
+   * @param page the regions of the page received for this query
+   * @return the query of the next page
+   */
+  @NonNull
+  public OfflineRegionQuery next(@NonNull OfflineRegion[] page) {
+    long last = page.length == 0 ? startAfter : page[page.length - 1].getID();
+    return new OfflineRegionQuery(last, pageSize, bounds, metadataKey);
+  }
+
+  @Override
+  public String toString() {
+    return "OfflineRegionQuery{"
+      + "startAfter=" + startAfter
+      + ", pageSize=" + pageSize
+      + ", bounds=" + bounds
+      + ", metadataKey=" + metadataKey
+      + '}';
+  }
+
+  /**
+   * Builder for {@link OfflineRegionQuery}.
+   */
+  public static final class Builder {
+
+    private long startAfter = -1;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    @Nullable
+    private LatLngBounds bounds;
+    @Nullable
+    private String metadataKey;
+
+    /**
+     * Lists the regions with an id greater than the given one.
+     *
+     * @param regionId the id of the last region of the previous page
+     * @return this builder
+     */
+    @NonNull
+    public Builder startAfter(long regionId) {
+      this.startAfter = regionId;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of regions of a page, {@link #DEFAULT_PAGE_SIZE} by default.
+     *
+     * @param pageSize the page size
+     * @return this builder
+     */
+    @NonNull
+    public Builder pageSize(int pageSize) {
+      if (pageSize <= 0) {
+        throw new IllegalArgumentException("The page size must be positive: " + pageSize);
+      }
+      this.pageSize = pageSize;
+      return this;
+    }
+
+    /**
+     * Lists only the regions whose bounds intersect the given bounds. Geometry regions are compared by the
+     * bounds of their geometry.
+     *
+     * @param bounds the bounds, or null to list regions anywhere
+     * @return this builder
+     */
+    @NonNull
+    public Builder bounds(@Nullable LatLngBounds bounds) {
+      this.bounds = bounds;
+      return this;
+    }
+
+    /**
+     * Lists only the regions whose metadata is a JSON object with the given key.
+     *
+     * @param metadataKey the key, or null to list regions whatever their metadata
+     * @return this builder
+     */
+    @NonNull
+    public Builder metadataKey(@Nullable String metadataKey) {
+      this.metadataKey = metadataKey;
+      return this;
+    }
+
+    /**
+     * Builds the query.
+     *
+     * @return the query
+     */
+    @NonNull
+    public OfflineRegionQuery build() {
+      return new OfflineRegionQuery(startAfter, pageSize, bounds, metadataKey);
+    }
+  }
+}
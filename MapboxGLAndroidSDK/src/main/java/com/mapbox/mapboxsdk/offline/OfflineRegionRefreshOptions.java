@@ -0,0 +1,148 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Options of a refresh started with
+ * {@link OfflineRegion#refresh(OfflineRegionRefreshOptions, OfflineRegion.OfflineRegionRefreshCallback)}.
+ * <p>
+ * By default a refresh is a delta refresh without bounds: only the resources whose expiration passed are
+ * revalidated, with conditional requests, until all of them were checked.
+ * </p>
+ */
+public final class OfflineRegionRefreshOptions {
+
+  /**
+   * Default minimum time between two progress notifications, in milliseconds.
+   */
+  public static final long DEFAULT_PROGRESS_INTERVAL = 500;
+
+  private final boolean fullRevalidation;
+  private final long maxDuration;
+  private final long maxBytes;
+  private final long progressInterval;
+
+  private OfflineRegionRefreshOptions(@NonNull Builder builder) {
+    this.fullRevalidation = builder.fullRevalidation;
+    this.maxDuration = builder.maxDuration;
+    this.maxBytes = builder.maxBytes;
+    this.progressInterval = builder.progressInterval;
+  }
+
+  /**
+   * Returns true if every resource is revalidated, as after {@link OfflineRegion#invalidate}.
+   *
+   * @return true for a full revalidation, false for a delta refresh
+   */
+  public boolean isFullRevalidation() {
+    return fullRevalidation;
+  }
+
+  /**
+   * Returns the time after which the refresh stops.
+   *
+   * @return the maximum duration in milliseconds, 0 if unbounded
+   */
+  public long getMaxDuration() {
+    return maxDuration;
+  }
+
+  /**
+   * Returns the number of downloaded bytes after which the refresh stops.
+   *
+   * @return the maximum byte count, 0 if unbounded
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the minimum time between two progress notifications.
+   *
+   * @return the interval in milliseconds
+   */
+  public long getProgressInterval() {
+    return progressInterval;
+  }
+
+  /**
+   * Builder for {@link OfflineRegionRefreshOptions}.
+   */
+  public static final class Builder {
+
+    private boolean fullRevalidation;
+    private long maxDuration;
+    private long maxBytes;
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    /**
+     * Revalidates every resource of the region, not only the expired ones. Defaults to false.
+     *
+     * @param fullRevalidation true to invalidate the region before refreshing it
+     * @return this builder
+     */
+    @NonNull
+    public Builder fullRevalidation(boolean fullRevalidation) {
+      this.fullRevalidation = fullRevalidation;
+      return this;
+    }
+
+    /**
+     * Stops the refresh after a duration. Resources not revalidated by then are revalidated by the next
+     * refresh, or when the map requests them. Defaults to 0, unbounded.
+     *
+     * @param maxDuration the maximum duration in milliseconds, 0 for unbounded
+     * @return this builder
+     */
+    @NonNull
+    public Builder maxDuration(long maxDuration) {
+      if (maxDuration < 0) {
+        throw new IllegalArgumentException("Duration can't be negative: " + maxDuration);
+      }
+      this.maxDuration = maxDuration;
+      return this;
+    }
+
+    /**
+     * Stops the refresh once the bodies of changed resources exceeded a size. Requests in flight at that
+     * moment complete, the limit may be exceeded slightly. Defaults to 0, unbounded.
+     *
+     * @param maxBytes the maximum byte count, 0 for unbounded
+     * @return this builder
+     */
+    @NonNull
+    public Builder maxBytes(long maxBytes) {
+      if (maxBytes < 0) {
+        throw new IllegalArgumentException("Byte count can't be negative: " + maxBytes);
+      }
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * Sets the minimum time between two progress notifications, which is also how often the byte limit is
+     * checked. Defaults to {@link #DEFAULT_PROGRESS_INTERVAL}.
+     *
+     * @param progressInterval the interval in milliseconds
+     * @return this builder
+     */
+    @NonNull
+    public Builder progressInterval(long progressInterval) {
+      if (progressInterval < 0) {
+        throw new IllegalArgumentException("Interval can't be negative: " + progressInterval);
+      }
+      this.progressInterval = progressInterval;
+      return this;
+    }
+
+    /**
+     * Builds the options.
+     *
+     * @return the refresh options
+     */
+    @NonNull
+    public OfflineRegionRefreshOptions build() {
+      return new OfflineRegionRefreshOptions(this);
+    }
+  }
+}
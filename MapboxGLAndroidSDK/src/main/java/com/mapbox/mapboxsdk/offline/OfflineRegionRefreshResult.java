@@ -0,0 +1,142 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The outcome of a refresh started with
+ * {@link OfflineRegion#refresh(OfflineRegionRefreshOptions, OfflineRegion.OfflineRegionRefreshCallback)}.
+ * <p>
+ * Changed and unchanged resources are counted from the offline responses received during the refresh.
+ * Offline regions downloading at the same time are counted as well.
+ * </p>
+ */
+public final class OfflineRegionRefreshResult {
+
+  @IntDef( {END_COMPLETE, END_TIME_LIMIT, END_BYTE_LIMIT, END_TILE_COUNT_LIMIT, END_CANCELED})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface EndReason {
+  }
+
+  /**
+   * Every resource of the region was checked.
+   */
+  public static final int END_COMPLETE = 0;
+
+  /**
+   * The refresh stopped at the maximum duration.
+   */
+  public static final int END_TIME_LIMIT = 1;
+
+  /**
+   * The refresh stopped at the maximum byte count.
+   */
+  public static final int END_BYTE_LIMIT = 2;
+
+  /**
+   * The refresh stopped because the limit on the number of Mapbox tiles stored for offline regions was reached.
+   */
+  public static final int END_TILE_COUNT_LIMIT = 3;
+
+  /**
+   * The refresh was canceled, see {@link OfflineRegion#cancelRefresh()}.
+   */
+  public static final int END_CANCELED = 4;
+
+  @EndReason
+  private final int endReason;
+  private final long changedResourceCount;
+  private final long unchangedResourceCount;
+  private final long downloadedBytes;
+  private final long duration;
+  private final long errorCount;
+
+  OfflineRegionRefreshResult(@EndReason int endReason, long changedResourceCount, long unchangedResourceCount,
+                             long downloadedBytes, long duration, long errorCount) {
+    this.endReason = endReason;
+    this.changedResourceCount = changedResourceCount;
+    this.unchangedResourceCount = unchangedResourceCount;
+    this.downloadedBytes = downloadedBytes;
+    this.duration = duration;
+    this.errorCount = errorCount;
+  }
+
+  /**
+   * Returns why the refresh ended.
+   *
+   * @return one of {@link #END_COMPLETE}, {@link #END_TIME_LIMIT}, {@link #END_BYTE_LIMIT},
+   * {@link #END_TILE_COUNT_LIMIT} and {@link #END_CANCELED}
+   */
+  @EndReason
+  public int getEndReason() {
+    return endReason;
+  }
+
+  /**
+   * Returns true if every resource of the region was checked.
+   *
+   * @return true if complete
+   */
+  public boolean isComplete() {
+    return endReason == END_COMPLETE;
+  }
+
+  /**
+   * Returns the number of resources downloaded again because they changed on the server.
+   *
+   * @return the changed resource count
+   */
+  public long getChangedResourceCount() {
+    return changedResourceCount;
+  }
+
+  /**
+   * Returns the number of resources the server confirmed as unchanged.
+   *
+   * @return the unchanged resource count
+   */
+  public long getUnchangedResourceCount() {
+    return unchangedResourceCount;
+  }
+
+  /**
+   * Returns the size of the changed resources, in bytes.
+   *
+   * @return the downloaded byte count
+   */
+  public long getDownloadedBytes() {
+    return downloadedBytes;
+  }
+
+  /**
+   * Returns the duration of the refresh.
+   *
+   * @return the duration in milliseconds
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  /**
+   * Returns the number of errors reported by the download during the refresh.
+   *
+   * @return the error count
+   */
+  public long getErrorCount() {
+    return errorCount;
+  }
+
+  @Override
+  public String toString() {
+    return "OfflineRegionRefreshResult{"
+      + "endReason=" + endReason
+      + ", changedResourceCount=" + changedResourceCount
+      + ", unchangedResourceCount=" + unchangedResourceCount
+      + ", downloadedBytes=" + downloadedBytes
+      + ", duration=" + duration
+      + ", errorCount=" + errorCount
+      + '}';
+  }
+}
@@ -0,0 +1,188 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.http.OfflineResponseStatistics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs a refresh of an offline region: activates the download until every resource was checked or a bound
+ * was reached, then gives the region back its download state and observer and reports the changes.
+ * <p>
+ * The core revalidates the expired resources of an activated region with conditional requests, and skips
+ * those still fresh. A full revalidation invalidates the region first, so that every resource is expired.
+ * </p>
+ * <p>
+ * The changes are counted for all offline requests, a single region is therefore refreshed at a time, and the
+ * other regions downloading are suspended until the refresh ended, including those of the
+ * {@link OfflineDownloadScheduler}. Regions activated meanwhile start once it ended.
+ * </p>
+ */
+@UiThread
+final class OfflineRegionRefresher implements OfflineRegion.OfflineRegionProgressObserver {
+
+  @Nullable
+  private static OfflineRegionRefresher running;
+
+  // regions whose download is active, see OfflineRegion#applyDownloadState(int)
+  private static final Set<OfflineRegion> activeRegions = new HashSet<>();
+
+  private final OfflineRegion region;
+  private final OfflineRegionRefreshOptions options;
+  private final OfflineRegion.OfflineRegionRefreshCallback callback;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Set<OfflineRegion> suspended = new HashSet<>();
+  private final Runnable timeout = new Runnable() {
+    @Override
+    public void run() {
+      end(OfflineRegionRefreshResult.END_TIME_LIMIT);
+    }
+  };
+
+  private long startTime;
+  private long modifiedCount;
+  private long notModifiedCount;
+  private long receivedBytes;
+  private long errorCount;
+  private boolean ended;
+
+  OfflineRegionRefresher(@NonNull OfflineRegion region, @NonNull OfflineRegionRefreshOptions options,
+                         @NonNull OfflineRegion.OfflineRegionRefreshCallback callback) {
+    this.region = region;
+    this.options = options;
+    this.callback = callback;
+  }
+
+  static boolean isRefreshing() {
+    return running != null;
+  }
+
+  /**
+   * Records the download state applied to a region.
+   */
+  static void onDownloadState(@NonNull OfflineRegion region, @OfflineRegion.DownloadState int state) {
+    if (state == OfflineRegion.STATE_ACTIVE) {
+      activeRegions.add(region);
+    } else {
+      activeRegions.remove(region);
+    }
+  }
+
+  /**
+   * Holds back the download state requested for a region while another region is refreshed.
+   *
+   * @param region the region whose download state is requested
+   * @return true if the state is applied once the refresh ended
+   */
+  static boolean suspends(@NonNull OfflineRegion region) {
+    if (running == null || running.region == region) {
+      return false;
+    }
+    running.suspended.add(region);
+    return true;
+  }
+
+  void start() {
+    running = this;
+    for (OfflineRegion other : new ArrayList<>(activeRegions)) {
+      if (other != region) {
+        suspended.add(other);
+        other.applyDownloadState(OfflineRegion.STATE_INACTIVE);
+      }
+    }
+    startTime = SystemClock.elapsedRealtime();
+    modifiedCount = OfflineResponseStatistics.getModifiedCount();
+    notModifiedCount = OfflineResponseStatistics.getNotModifiedCount();
+    receivedBytes = OfflineResponseStatistics.getReceivedBytes();
+    if (options.getMaxDuration() > 0) {
+      handler.postDelayed(timeout, options.getMaxDuration());
+    }
+
+    if (!options.isFullRevalidation()) {
+      activate();
+      return;
+    }
+    region.invalidate(new OfflineRegion.OfflineRegionInvalidateCallback() {
+      @Override
+      public void onInvalidate() {
+        if (!ended) {
+          activate();
+        }
+      }
+
+      @Override
+      public void onError(String error) {
+        if (!ended) {
+          release();
+          callback.onError(error);
+        }
+      }
+    });
+  }
+
+  void cancel() {
+    end(OfflineRegionRefreshResult.END_CANCELED);
+  }
+
+  private void activate() {
+    region.observeRefresh(this, options.getProgressInterval());
+    region.applyDownloadState(OfflineRegion.STATE_ACTIVE);
+  }
+
+  @Override
+  public void onProgress(@NonNull OfflineRegionProgress progress) {
+    if (ended) {
+      return;
+    }
+    errorCount = progress.getErrorCount();
+    callback.onProgress(progress);
+    if (options.getMaxBytes() > 0
+      && OfflineResponseStatistics.getReceivedBytes() - receivedBytes >= options.getMaxBytes()) {
+      end(OfflineRegionRefreshResult.END_BYTE_LIMIT);
+    } else if (progress.isComplete() && progress.isRequiredResourceCountPrecise()) {
+      end(OfflineRegionRefreshResult.END_COMPLETE);
+    }
+  }
+
+  @Override
+  public void mapboxTileCountLimitExceeded(long limit) {
+    end(OfflineRegionRefreshResult.END_TILE_COUNT_LIMIT);
+  }
+
+  private void end(@OfflineRegionRefreshResult.EndReason int endReason) {
+    if (ended) {
+      return;
+    }
+    // counted before the suspended regions resume
+    OfflineRegionRefreshResult result = new OfflineRegionRefreshResult(endReason,
+      OfflineResponseStatistics.getModifiedCount() - modifiedCount,
+      OfflineResponseStatistics.getNotModifiedCount() - notModifiedCount,
+      OfflineResponseStatistics.getReceivedBytes() - receivedBytes,
+      SystemClock.elapsedRealtime() - startTime,
+      errorCount);
+    release();
+    callback.onRefresh(result);
+  }
+
+  /**
+   * Gives the region back its download state and observer, and resumes the regions suspended meanwhile.
+   */
+  private void release() {
+    ended = true;
+    running = null;
+    handler.removeCallbacks(timeout);
+    region.onRefreshEnded(this);
+    for (OfflineRegion other : suspended) {
+      other.resumeDownloadState();
+    }
+    suspended.clear();
+  }
+}
@@ -0,0 +1,105 @@
+package com.mapbox.mapboxsdk.offline;
+
+/**
+ * The space an offline region takes in the database, telling apart the tiles and resources only this region
+ * holds from those it shares with other regions, obtained with
+ * {@link OfflineRegion#getSize(OfflineRegion.OfflineRegionSizeCallback)}.
+ * <p>
+ * Unlike {@link OfflineRegionStatus#getCompletedResourceSize()}, which counts a shared resource in every region
+ * holding it, the unique bytes of all regions add up with the shared bytes counted once. Sizes are those stored
+ * in the database, after compression.
+ * </p>
+ */
+public final class OfflineRegionSize {
+
+  private final long regionId;
+  private final long resourceCount;
+  private final long uniqueResourceCount;
+  private final long totalBytes;
+  private final long uniqueBytes;
+
+  OfflineRegionSize(long regionId, long resourceCount, long uniqueResourceCount, long totalBytes,
+                    long uniqueBytes) {
+    this.regionId = regionId;
+    this.resourceCount = resourceCount;
+    this.uniqueResourceCount = uniqueResourceCount;
+    this.totalBytes = totalBytes;
+    this.uniqueBytes = uniqueBytes;
+  }
+
+  /**
+   * Returns the id of the region.
+   *
+   * @return the region id
+   */
+  public long getRegionId() {
+    return regionId;
+  }
+
+  /**
+   * Returns the number of tiles and resources the region holds.
+   *
+   * @return the resource count
+   */
+  public long getResourceCount() {
+    return resourceCount;
+  }
+
+  /**
+   * Returns the number of tiles and resources no other region holds.
+   *
+   * @return the unique resource count
+   */
+  public long getUniqueResourceCount() {
+    return uniqueResourceCount;
+  }
+
+  /**
+   * Returns the size of all tiles and resources the region holds.
+   *
+   * @return the size in bytes
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Returns the size of the tiles and resources no other region holds.
+   *
+   * @return the size in bytes
+   */
+  public long getUniqueBytes() {
+    return uniqueBytes;
+  }
+
+  /**
+   * Returns the size of the tiles and resources other regions hold as well.
+   *
+   * @return the size in bytes
+   */
+  public long getSharedBytes() {
+    return totalBytes - uniqueBytes;
+  }
+
+  /**
+   * Returns the size deleting the region would reclaim: its unique tiles and resources. Once the region is
+   * deleted they move to the ambient cache, and are evicted as far as the ambient cache exceeds its maximum
+   * size, or cleared with {@link OfflineManager#clearAmbientCache(OfflineManager.FileSourceCallback)}.
+   *
+   * @return the size in bytes
+   */
+  public long getReclaimableBytes() {
+    return uniqueBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "OfflineRegionSize{"
+      + "regionId=" + regionId
+      + ", resourceCount=" + resourceCount
+      + ", uniqueResourceCount=" + uniqueResourceCount
+      + ", totalBytes=" + totalBytes
+      + ", uniqueBytes=" + uniqueBytes
+      + '}';
+  }
+}
@@ -0,0 +1,289 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.SQLException;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.http.NetworkResponseStatistics;
+import com.mapbox.mapboxsdk.http.OfflineResponseStatistics;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the unique and shared sizes of offline regions from the offline database, and keeps them until
+ * the regions change. The database is read through the SQLite library of the core, see
+ * {@link NativeOfflineDatabaseConnection}.
+ * <p>
+ * A region only changes size once the regions gain or lose tiles and resources, which appends rows to, or
+ * deletes regions from, the database, or once the data of one of its tiles and resources is replaced. A
+ * fingerprint of constant cost detects the former: the last rows of the region tables, and the count and last
+ * id of the regions. Only the sizes of the regions holding the appended rows, or sharing them, are computed
+ * again, as are all sizes once a region is deleted. Data is only replaced by a response carrying a body,
+ * counted by {@link OfflineResponseStatistics} and {@link NetworkResponseStatistics}. Once that count moved,
+ * the kept sizes are checked against the size of the data of their region, which is cheaper than computing
+ * them. Maps reading tiles from the database only set their access time, which leaves sizes as they are.
+ * Sizes are computed for the regions asked for only.
+ * </p>
+ */
+class OfflineRegionSizeAccounting {
+
+  private static final String FINGERPRINT =
+    "SELECT (SELECT IFNULL(MAX(rowid), 0) FROM region_tiles), "
+      + "(SELECT IFNULL(MAX(rowid), 0) FROM region_resources), "
+      + "(SELECT COUNT(*) FROM regions), (SELECT IFNULL(MAX(id), 0) FROM regions)";
+  private static final int TILE_ROW = 0;
+  private static final int RESOURCE_ROW = 1;
+  private static final int REGION_COUNT = 2;
+  private static final int REGION_ID = 3;
+  private static final int FINGERPRINT_COLUMNS = 4;
+  // the core writes a response to the database shortly after it was counted
+  private static final long WRITE_DELAY = 1000;
+  private static final String CREATED_REGIONS = "SELECT COUNT(*) FROM regions WHERE id > ?";
+  // the regions holding the rows appended since, or the tiles and resources of these rows
+  private static final String APPENDED_TILES =
+    "SELECT DISTINCT o.region_id FROM region_tiles n JOIN region_tiles o ON o.tile_id = n.tile_id "
+      + "WHERE n.rowid > ?";
+  private static final String APPENDED_RESOURCES =
+    "SELECT DISTINCT o.region_id FROM region_resources n JOIN region_resources o ON o.resource_id = n.resource_id "
+      + "WHERE n.rowid > ?";
+  // the size of the data of a region, the length of a blob is read without reading the blob
+  private static final String REGION_BYTES =
+    "SELECT (SELECT IFNULL(SUM(LENGTH(t.data)), 0) FROM region_tiles rt JOIN tiles t ON t.id = rt.tile_id "
+      + "WHERE rt.region_id = ?1) + (SELECT IFNULL(SUM(LENGTH(r.data)), 0) FROM region_resources rr "
+      + "JOIN resources r ON r.id = rr.resource_id WHERE rr.region_id = ?1)";
+  // a tile is unique to the region if no other region holds it, looked up with the index on tile_id,
+  // grouped so that the lookup runs once per tile
+  private static final String TILE_SIZES =
+    "SELECT EXISTS (SELECT 1 FROM region_tiles o WHERE o.tile_id = rt.tile_id AND o.region_id != rt.region_id) "
+      + "AS shared, COUNT(*), IFNULL(SUM(LENGTH(t.data)), 0) "
+      + "FROM region_tiles rt JOIN tiles t ON t.id = rt.tile_id WHERE rt.region_id = ? GROUP BY shared";
+  private static final String RESOURCE_SIZES =
+    "SELECT EXISTS (SELECT 1 FROM region_resources o WHERE o.resource_id = rr.resource_id "
+      + "AND o.region_id != rr.region_id) AS shared, COUNT(*), IFNULL(SUM(LENGTH(r.data)), 0) "
+      + "FROM region_resources rr JOIN resources r ON r.id = rr.resource_id WHERE rr.region_id = ? GROUP BY shared";
+  private static final int SIZE_COLUMNS = 3;
+
+  private static final String TOTAL_BYTES =
+    "SELECT (SELECT IFNULL(SUM(LENGTH(data)), 0) FROM tiles "
+      + "WHERE id IN (SELECT tile_id FROM region_tiles WHERE region_id IN (%s))) "
+      + "+ (SELECT IFNULL(SUM(LENGTH(data)), 0) FROM resources "
+      + "WHERE id IN (SELECT resource_id FROM region_resources WHERE region_id IN (%s)))";
+
+  private static final OfflineRegionSizeAccounting instance =
+    new OfflineRegionSizeAccounting(NativeOfflineDatabaseConnection.OPENER);
+
+  private final OfflineDatabaseConnection.Opener opener;
+  private final Map<Long, OfflineRegionSize> sizes = new HashMap<>();
+  private String path;
+  private long[] fingerprint;
+  private long replacementCount = -1;
+  private long replacementTime;
+
+  OfflineRegionSizeAccounting(@NonNull OfflineDatabaseConnection.Opener opener) {
+    this.opener = opener;
+  }
+
+  @NonNull
+  static OfflineRegionSizeAccounting getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the size of a region, computed again only if the regions changed since it was last computed.
+   *
+   * @param database the offline database file
+   * @param regionId the id of the region
+   * @return the size of the region, empty if the region doesn't exist
+   * @throws SQLException if the database can't be read
+   */
+  @WorkerThread
+  @NonNull
+  OfflineRegionSize getSize(@NonNull File database, long regionId) {
+    return getSizes(database, new long[] {regionId})[0];
+  }
+
+  /**
+   * Returns the sizes of regions, reading the database once for all of them.
+   *
+   * @param database  the offline database file
+   * @param regionIds the ids of the regions
+   * @return the sizes of the regions, in the order of the ids
+   * @throws SQLException if the database can't be read
+   */
+  @WorkerThread
+  @NonNull
+  synchronized OfflineRegionSize[] getSizes(@NonNull File database, @NonNull long[] regionIds) {
+    OfflineRegionSize[] regionSizes = new OfflineRegionSize[regionIds.length];
+    if (regionIds.length == 0) {
+      return regionSizes;
+    }
+    OfflineDatabaseConnection connection = opener.open(database.getPath(), true);
+    try {
+      for (int i = 0; i < regionIds.length; i++) {
+        regionSizes[i] = getSize(connection, database.getPath(), regionIds[i]);
+      }
+      return regionSizes;
+    } finally {
+      connection.close();
+    }
+  }
+
+  @NonNull
+  synchronized OfflineRegionSize getSize(@NonNull OfflineDatabaseConnection connection, @NonNull String path,
+                                         long regionId) {
+    long[] current = readFingerprint(connection);
+    boolean replaced = pollReplacements();
+    if (!path.equals(this.path) || fingerprint == null) {
+      sizes.clear();
+    } else if (!Arrays.equals(current, fingerprint) || replaced) {
+      invalidate(connection, current, replaced);
+    }
+    this.path = path;
+    this.fingerprint = current;
+
+    OfflineRegionSize size = sizes.get(regionId);
+    if (size == null) {
+      long[] tiles = query(connection, TILE_SIZES, regionId);
+      long[] resources = query(connection, RESOURCE_SIZES, regionId);
+      size = new OfflineRegionSize(regionId, tiles[0] + resources[0], tiles[1] + resources[1],
+        tiles[2] + resources[2], tiles[3] + resources[3]);
+      sizes.put(regionId, size);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the size of the tiles and resources held by any of the regions, each counted once.
+   *
+   * @param database  the offline database file
+   * @param regionIds the ids of the regions
+   * @return the size in bytes
+   * @throws SQLException if the database can't be read
+   */
+  @WorkerThread
+  long getTotalBytes(@NonNull File database, @NonNull long[] regionIds) {
+    if (regionIds.length == 0) {
+      return 0;
+    }
+    StringBuilder ids = new StringBuilder();
+    for (long regionId : regionIds) {
+      ids.append(ids.length() == 0 ? "" : ",").append(regionId);
+    }
+    OfflineDatabaseConnection connection = opener.open(database.getPath(), true);
+    try {
+      long[] values = connection.query(String.format(TOTAL_BYTES, ids, ids), 1);
+      return values.length > 0 ? values[0] : 0;
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * Returns the number of responses carrying a body, each may have replaced the data of a tile or resource.
+   */
+  @VisibleForTesting
+  long getReplacementCount() {
+    long count = OfflineResponseStatistics.getModifiedCount();
+    for (int kind = 0; kind < NetworkResponseStatistics.KIND_COUNT; kind++) {
+      count += NetworkResponseStatistics.getModifiedCount(kind);
+    }
+    return count;
+  }
+
+  /**
+   * Returns true if data may have been replaced since the last call, or is about to be written.
+   */
+  private boolean pollReplacements() {
+    long count = getReplacementCount();
+    long now = SystemClock.elapsedRealtime();
+    if (count != replacementCount) {
+      replacementCount = count;
+      replacementTime = now;
+      return true;
+    }
+    return now - replacementTime < WRITE_DELAY;
+  }
+
+  /**
+   * Drops the sizes of the regions which changed since the last fingerprint, or all sizes if regions were
+   * deleted.
+   */
+  private void invalidate(@NonNull OfflineDatabaseConnection connection, @NonNull long[] current,
+                          boolean replaced) {
+    if (!Arrays.equals(current, fingerprint)) {
+      boolean deleted = current[REGION_COUNT] < fingerprint[REGION_COUNT]
+        + queryLong(connection, CREATED_REGIONS, fingerprint[REGION_ID]);
+      // row ids of deleted rows may be reused
+      if (deleted || current[TILE_ROW] < fingerprint[TILE_ROW] || current[RESOURCE_ROW] < fingerprint[RESOURCE_ROW]) {
+        sizes.clear();
+        return;
+      }
+      Set<Long> changed = new HashSet<>();
+      if (current[TILE_ROW] != fingerprint[TILE_ROW]) {
+        queryRegionIds(connection, APPENDED_TILES, fingerprint[TILE_ROW], changed);
+      }
+      if (current[RESOURCE_ROW] != fingerprint[RESOURCE_ROW]) {
+        queryRegionIds(connection, APPENDED_RESOURCES, fingerprint[RESOURCE_ROW], changed);
+      }
+      sizes.keySet().removeAll(changed);
+    }
+
+    if (replaced) {
+      // the sizes whose data changed size are dropped
+      Iterator<Map.Entry<Long, OfflineRegionSize>> iterator = sizes.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, OfflineRegionSize> entry = iterator.next();
+        if (queryLong(connection, REGION_BYTES, entry.getKey()) != entry.getValue().getTotalBytes()) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  @NonNull
+  private static long[] readFingerprint(@NonNull OfflineDatabaseConnection connection) {
+    long[] values = connection.query(FINGERPRINT, FINGERPRINT_COLUMNS);
+    return values.length == FINGERPRINT_COLUMNS ? values : new long[FINGERPRINT_COLUMNS];
+  }
+
+  private static long queryLong(@NonNull OfflineDatabaseConnection connection, @NonNull String query,
+                                long argument) {
+    long[] values = connection.query(query, 1, String.valueOf(argument));
+    return values.length > 0 ? values[0] : 0;
+  }
+
+  private static void queryRegionIds(@NonNull OfflineDatabaseConnection connection, @NonNull String query,
+                                     long argument, @NonNull Set<Long> regionIds) {
+    for (long regionId : connection.query(query, 1, String.valueOf(argument))) {
+      regionIds.add(regionId);
+    }
+  }
+
+  /**
+   * Returns the count, unique count, size and unique size of the rows of a region.
+   */
+  @NonNull
+  private static long[] query(@NonNull OfflineDatabaseConnection connection, @NonNull String query,
+                              long regionId) {
+    long[] rows = connection.query(query, SIZE_COLUMNS, String.valueOf(regionId));
+    long[] values = new long[4];
+    for (int row = 0; row < rows.length; row += SIZE_COLUMNS) {
+      boolean shared = rows[row] != 0;
+      values[0] += rows[row + 1];
+      values[2] += rows[row + 2];
+      if (!shared) {
+        values[1] += rows[row + 1];
+        values[3] += rows[row + 2];
+      }
+    }
+    return values;
+  }
+}
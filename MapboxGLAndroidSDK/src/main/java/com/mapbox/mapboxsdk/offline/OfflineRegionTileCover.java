@@ -0,0 +1,378 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.GeometryCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiLineString;
+import com.mapbox.geojson.MultiPoint;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts the tiles covering a geometry at a zoom level, without enumerating them.
+ * <p>
+ * The geometry is flattened into edges between projected vertices, kept in primitive arrays. Every tile row
+ * is scanned once: the edges crossing the row add the range of tiles they pass through, and the polygons add
+ * the ranges inside them at the middle of the row, by the even-odd rule. Tiles not touched by an edge are
+ * either inside or outside over the whole row, so the merged ranges are the exact cover.
+ * Points and lines only add the tiles they pass through.
+ * </p>
+ */
+final class OfflineRegionTileCover {
+
+  private static final double MAX_LATITUDE = 85.051128779806604;
+
+  // normalized web mercator coordinates of the vertices, in [0, 1] for valid latitudes
+  private double[] xs = new double[64];
+  private double[] ys = new double[64];
+  private int vertexCount;
+
+  // edges between two vertices, with the polygon they belong to or -1 for points and lines
+  private int[] edgeFrom = new int[64];
+  private int[] edgeTo = new int[64];
+  private int[] edgePolygon = new int[64];
+  private int edgeCount;
+  private int polygonCount;
+
+  // scratch arrays reused for every row
+  private long[] rowKeys = new long[0];
+  private int[] active = new int[16];
+  private long[] intervals = new long[16];
+  private double[] crossingX = new double[16];
+  private int[] crossingPolygon = new int[16];
+  private boolean[] inside = new boolean[0];
+  private double[] insideSince = new double[0];
+
+  /**
+   * Creates the cover of a bounding box.
+   */
+  OfflineRegionTileCover(@NonNull LatLngBounds bounds) {
+    double west = bounds.getLonWest();
+    double east = bounds.getLonEast();
+    double north = bounds.getLatNorth();
+    double south = bounds.getLatSouth();
+    int first = vertexCount;
+    addVertex(west, north);
+    addVertex(east, north);
+    addVertex(east, south);
+    addVertex(west, south);
+    addRing(first, vertexCount, polygonCount++);
+  }
+
+  /**
+   * Creates the cover of a geometry.
+   *
+   * @throws IllegalArgumentException if the geometry type isn't supported
+   */
+  OfflineRegionTileCover(@NonNull Geometry geometry) {
+    addGeometry(geometry);
+  }
+
+  private void addGeometry(@NonNull Geometry geometry) {
+    if (geometry instanceof Point) {
+      addLine(Collections.singletonList((Point) geometry));
+    } else if (geometry instanceof MultiPoint) {
+      for (Point point : ((MultiPoint) geometry).coordinates()) {
+        addLine(Collections.singletonList(point));
+      }
+    } else if (geometry instanceof LineString) {
+      addLine(((LineString) geometry).coordinates());
+    } else if (geometry instanceof MultiLineString) {
+      for (List<Point> line : ((MultiLineString) geometry).coordinates()) {
+        addLine(line);
+      }
+    } else if (geometry instanceof Polygon) {
+      addPolygon(((Polygon) geometry).coordinates());
+    } else if (geometry instanceof MultiPolygon) {
+      for (List<List<Point>> polygon : ((MultiPolygon) geometry).coordinates()) {
+        addPolygon(polygon);
+      }
+    } else if (geometry instanceof GeometryCollection) {
+      for (Geometry child : ((GeometryCollection) geometry).geometries()) {
+        addGeometry(child);
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported geometry type: " + geometry.type());
+    }
+  }
+
+  private void addLine(List<Point> points) {
+    if (points == null || points.isEmpty()) {
+      return;
+    }
+    int first = vertexCount;
+    for (Point point : points) {
+      addVertex(point.longitude(), point.latitude());
+    }
+    if (vertexCount - first == 1) {
+      addEdge(first, first, -1);
+      return;
+    }
+    for (int i = first + 1; i < vertexCount; i++) {
+      addEdge(i - 1, i, -1);
+    }
+  }
+
+  private void addPolygon(List<List<Point>> rings) {
+    int polygon = polygonCount++;
+    for (List<Point> ring : rings) {
+      int first = vertexCount;
+      for (Point point : ring) {
+        addVertex(point.longitude(), point.latitude());
+      }
+      addRing(first, vertexCount, polygon);
+    }
+  }
+
+  private void addRing(int first, int end, int polygon) {
+    if (end - first < 2) {
+      return;
+    }
+    for (int i = first + 1; i < end; i++) {
+      addEdge(i - 1, i, polygon);
+    }
+    // close the ring, GeoJSON rings repeat the first position already
+    if (xs[first] != xs[end - 1] || ys[first] != ys[end - 1]) {
+      addEdge(end - 1, first, polygon);
+    }
+  }
+
+  private void addVertex(double longitude, double latitude) {
+    if (vertexCount == xs.length) {
+      xs = Arrays.copyOf(xs, vertexCount * 2);
+      ys = Arrays.copyOf(ys, vertexCount * 2);
+    }
+    double lat = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    double sin = Math.sin(Math.toRadians(lat));
+    xs[vertexCount] = (longitude + 180) / 360;
+    ys[vertexCount] = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    vertexCount++;
+  }
+
+  private void addEdge(int from, int to, int polygon) {
+    if (edgeCount == edgeFrom.length) {
+      edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+      edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+      edgePolygon = Arrays.copyOf(edgePolygon, edgeCount * 2);
+    }
+    edgeFrom[edgeCount] = from;
+    edgeTo[edgeCount] = to;
+    edgePolygon[edgeCount] = polygon;
+    edgeCount++;
+  }
+
+  /**
+   * Returns the number of tiles covering the geometry at a zoom level.
+   *
+   * @param zoom the zoom level, between 0 and 30
+   * @return the tile count
+   */
+  long count(int zoom) {
+    if (edgeCount == 0) {
+      return 0;
+    }
+    final double scale = 1L << zoom;
+    final long maxIndex = (1L << zoom) - 1;
+    if (inside.length < polygonCount) {
+      inside = new boolean[polygonCount];
+      insideSince = new double[polygonCount];
+    }
+
+    // order the edges by their first row
+    if (rowKeys.length < edgeCount) {
+      rowKeys = new long[edgeCount];
+    }
+    for (int e = 0; e < edgeCount; e++) {
+      double minY = Math.min(ys[edgeFrom[e]], ys[edgeTo[e]]) * scale;
+      rowKeys[e] = (clamp((long) Math.floor(minY), maxIndex) << 32) | e;
+    }
+    Arrays.sort(rowKeys, 0, edgeCount);
+
+    long count = 0;
+    int next = 0;
+    int activeCount = 0;
+    long row = rowKeys[0] >>> 32;
+    while (next < edgeCount || activeCount > 0) {
+      if (activeCount == 0) {
+        // skip the rows between disjoint parts of the geometry
+        row = Math.max(row, rowKeys[next] >>> 32);
+      }
+      while (next < edgeCount && (rowKeys[next] >>> 32) == row) {
+        if (activeCount == active.length) {
+          active = Arrays.copyOf(active, activeCount * 2);
+        }
+        active[activeCount++] = (int) rowKeys[next++];
+      }
+
+      int intervalCount = 0;
+      int crossingCount = 0;
+      int kept = 0;
+      final double top = row;
+      final double bottom = row + 1;
+      final double middle = row + 0.5;
+      for (int i = 0; i < activeCount; i++) {
+        int e = active[i];
+        double x0 = xs[edgeFrom[e]] * scale;
+        double y0 = ys[edgeFrom[e]] * scale;
+        double x1 = xs[edgeTo[e]] * scale;
+        double y1 = ys[edgeTo[e]] * scale;
+        double minY = Math.min(y0, y1);
+        double maxY = Math.max(y0, y1);
+
+        // tiles of the row the edge passes through
+        double left;
+        double right;
+        if (y0 == y1) {
+          left = Math.min(x0, x1);
+          right = Math.max(x0, x1);
+        } else {
+          double slope = (x1 - x0) / (y1 - y0);
+          double xTop = x0 + (Math.max(minY, top) - y0) * slope;
+          double xBottom = x0 + (Math.min(maxY, bottom) - y0) * slope;
+          left = Math.min(xTop, xBottom);
+          right = Math.max(xTop, xBottom);
+        }
+        long start = (long) Math.floor(left);
+        long end = Math.max(start, (long) Math.ceil(right) - 1);
+        intervalCount = addInterval(intervalCount, start, end, maxIndex);
+
+        // polygon boundary crossing the middle of the row
+        if (edgePolygon[e] >= 0 && (y0 <= middle) != (y1 <= middle)) {
+          if (crossingCount == crossingX.length) {
+            crossingX = Arrays.copyOf(crossingX, crossingCount * 2);
+            crossingPolygon = Arrays.copyOf(crossingPolygon, crossingCount * 2);
+          }
+          crossingX[crossingCount] = x0 + (middle - y0) * (x1 - x0) / (y1 - y0);
+          crossingPolygon[crossingCount] = edgePolygon[e];
+          crossingCount++;
+        }
+
+        // keep the edges reaching the next row
+        if (maxY > bottom) {
+          active[kept++] = e;
+        }
+      }
+      activeCount = kept;
+
+      // spans inside the polygons, by the even-odd rule of each polygon
+      sortCrossings(0, crossingCount - 1);
+      for (int i = 0; i < crossingCount; i++) {
+        int polygon = crossingPolygon[i];
+        if (inside[polygon]) {
+          long start = (long) Math.floor(insideSince[polygon]);
+          long end = (long) Math.ceil(crossingX[i]) - 1;
+          if (end >= start) {
+            intervalCount = addInterval(intervalCount, start, end, maxIndex);
+          }
+        } else {
+          insideSince[polygon] = crossingX[i];
+        }
+        inside[polygon] = !inside[polygon];
+      }
+      // an odd count can only come from rounding, don't let it leak into the next row
+      Arrays.fill(inside, 0, polygonCount, false);
+
+      count += countMerged(intervalCount);
+      row++;
+      if (row > maxIndex) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  private int addInterval(int intervalCount, long start, long end, long maxIndex) {
+    start = clamp(start, maxIndex);
+    end = clamp(end, maxIndex);
+    if (intervalCount == intervals.length) {
+      intervals = Arrays.copyOf(intervals, intervalCount * 2);
+    }
+    intervals[intervalCount] = (start << 32) | end;
+    return intervalCount + 1;
+  }
+
+  private long countMerged(int intervalCount) {
+    if (intervalCount == 0) {
+      return 0;
+    }
+    Arrays.sort(intervals, 0, intervalCount);
+    long count = 0;
+    long start = intervals[0] >>> 32;
+    long end = intervals[0] & 0xFFFFFFFFL;
+    for (int i = 1; i < intervalCount; i++) {
+      long nextStart = intervals[i] >>> 32;
+      long nextEnd = intervals[i] & 0xFFFFFFFFL;
+      if (nextStart > end + 1) {
+        count += end - start + 1;
+        start = nextStart;
+        end = nextEnd;
+      } else if (nextEnd > end) {
+        end = nextEnd;
+      }
+    }
+    return count + end - start + 1;
+  }
+
+  private void sortCrossings(int low, int high) {
+    while (low < high) {
+      if (high - low < 16) {
+        for (int i = low + 1; i <= high; i++) {
+          double x = crossingX[i];
+          int polygon = crossingPolygon[i];
+          int j = i - 1;
+          while (j >= low && crossingX[j] > x) {
+            crossingX[j + 1] = crossingX[j];
+            crossingPolygon[j + 1] = crossingPolygon[j];
+            j--;
+          }
+          crossingX[j + 1] = x;
+          crossingPolygon[j + 1] = polygon;
+        }
+        return;
+      }
+      double pivot = crossingX[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (crossingX[i] < pivot) {
+          i++;
+        }
+        while (crossingX[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swapCrossings(i++, j--);
+        }
+      }
+      // recurse into the smaller part to bound the stack
+      if (j - low < high - i) {
+        sortCrossings(low, j);
+        low = i;
+      } else {
+        sortCrossings(i, high);
+        high = j;
+      }
+    }
+  }
+
+  private void swapCrossings(int i, int j) {
+    double x = crossingX[i];
+    crossingX[i] = crossingX[j];
+    crossingX[j] = x;
+    int polygon = crossingPolygon[i];
+    crossingPolygon[i] = crossingPolygon[j];
+    crossingPolygon[j] = polygon;
+  }
+
+  private static long clamp(long index, long maxIndex) {
+    return Math.max(0, Math.min(maxIndex, index));
+  }
+}
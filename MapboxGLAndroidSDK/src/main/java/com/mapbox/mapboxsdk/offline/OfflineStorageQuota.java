@@ -0,0 +1,634 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.SQLException;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.storage.FileSource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the offline database within a number of bytes, shared by the ambient cache and the offline regions,
+ * by evicting offline regions.
+ * <p>
+ * The maximum size is set as the maximum ambient cache size of the database, which already counts the space
+ * taken by offline regions: the ambient cache gets what the regions leave. When the regions alone take more
+ * than the maximum size minus {@link #setAmbientCacheReserve(long)}, regions are deleted in the order of the
+ * eviction policy until they fit. Regions with a download in progress are never evicted, nor are the regions
+ * waiting in the {@link OfflineDownloadScheduler}.
+ * </p>
+ * <p>
+ * A region was last viewed when the map last read one of its tiles, as recorded by the access time of the
+ * tiles in the database, which downloading a tile sets as well. A region is also marked as viewed when created
+ * with {@link OfflineManager#createOfflineRegion}, views the database doesn't record can be marked with
+ * {@link #markViewed(long)}, the later time counts. Marks and priorities are persisted by the quota, set
+ * priorities with {@link #setPriority(long, int)}.
+ * The quota is enforced shortly after regions are created, once for regions created together, and when the
+ * maximum size is set. Call {@link #enforce(Callback)} after downloads complete to evict regions right away.
+ * Obtain the quota with {@link OfflineManager#getStorageQuota()}.
+ * </p>
+ * <p>
+ * Regions take the bytes they hold in the database, the tiles and resources shared by several regions are
+ * counted once, as reported by {@link OfflineRegion#getSize(OfflineRegion.OfflineRegionSizeCallback)}. The
+ * transient regions of {@link AmbientCachePrewarm} are neither counted nor evicted.
+ * </p>
+ */
+@UiThread
+public final class OfflineStorageQuota {
+
+  /**
+   * Evicts the region viewed the longest time ago first: its tiles read by the map, created or marked with
+   * {@link #markViewed(long)}.
+   */
+  public static final Comparator<RegionUsage> LEAST_RECENTLY_VIEWED = new Comparator<RegionUsage>() {
+    @Override
+    public int compare(RegionUsage first, RegionUsage second) {
+      int compare = compareLong(first.getLastViewed(), second.getLastViewed());
+      return compare != 0 ? compare : compareLong(first.getId(), second.getId());
+    }
+  };
+
+  /**
+   * Evicts the region created first.
+   */
+  public static final Comparator<RegionUsage> OLDEST = new Comparator<RegionUsage>() {
+    @Override
+    public int compare(RegionUsage first, RegionUsage second) {
+      // region ids are assigned in increasing order
+      return compareLong(first.getId(), second.getId());
+    }
+  };
+
+  /**
+   * Evicts the region of the lowest priority first, the least recently viewed of them.
+   */
+  public static final Comparator<RegionUsage> LOWEST_PRIORITY = new Comparator<RegionUsage>() {
+    @Override
+    public int compare(RegionUsage first, RegionUsage second) {
+      int compare = compareLong(first.getPriority(), second.getPriority());
+      return compare != 0 ? compare : LEAST_RECENTLY_VIEWED.compare(first, second);
+    }
+  };
+
+  private static final String PREFERENCES = "MapboxOfflineStorageQuota";
+  private static final String KEY_VIEWED = "viewed.";
+  private static final String KEY_PRIORITY = "priority.";
+  // regions created within this delay share an enforcement
+  static final long CREATE_ENFORCEMENT_DELAY = 1000;
+  // the core sets the access time of a tile, in seconds, when the map reads it
+  private static final String LAST_ACCESSED =
+    "SELECT rt.region_id, IFNULL(MAX(t.accessed), 0) FROM region_tiles rt JOIN tiles t ON t.id = rt.tile_id "
+      + "WHERE rt.region_id IN (%s) GROUP BY rt.region_id";
+
+  /**
+   * This callback receives the outcome of an enforcement of the quota.
+   */
+  public interface Callback {
+    /**
+     * Invoked on the main thread once the regions fit in the quota, or no more region can be evicted.
+     *
+     * @param regionBytes      the size of the remaining regions
+     * @param evictedRegionIds the ids of the evicted regions
+     */
+    void onEnforce(long regionBytes, @NonNull long[] evictedRegionIds);
+
+    /**
+     * Invoked on the main thread if the regions couldn't be listed or evicted.
+     *
+     * @param error the error message
+     */
+    void onError(String error);
+  }
+
+  /**
+   * The size and usage of a region, ordered by the eviction policy.
+   */
+  public static final class RegionUsage {
+
+    @Nullable
+    private final OfflineRegion region;
+    private final long id;
+    private final long size;
+    private final long lastViewed;
+    private final int priority;
+
+    RegionUsage(@Nullable OfflineRegion region, long id, long size, long lastViewed, int priority) {
+      this.region = region;
+      this.id = id;
+      this.size = size;
+      this.lastViewed = lastViewed;
+      this.priority = priority;
+    }
+
+    /**
+     * Returns the id of the region.
+     *
+     * @return the region id
+     */
+    public long getId() {
+      return id;
+    }
+
+    /**
+     * Returns the size of the tiles and resources only this region holds, which deleting it reclaims.
+     *
+     * @return the size in bytes
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Returns the time the region was last viewed, the later of the last access to its tiles and of its last
+     * mark.
+     *
+     * @return the time in milliseconds since the epoch, 0 if never viewed
+     */
+    public long getLastViewed() {
+      return lastViewed;
+    }
+
+    /**
+     * Returns the priority of the region.
+     *
+     * @return the priority, 0 by default
+     */
+    public int getPriority() {
+      return priority;
+    }
+  }
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final OfflineManager manager;
+  private final SharedPreferences preferences;
+  private final File database;
+  private final OfflineRegionSizeAccounting accounting;
+  private final OfflineDatabaseConnection.Opener opener;
+  // regions marked while the regions are listed, which the listing may miss
+  private final Set<Long> recentRegionIds = new HashSet<>();
+  private long maxBytes = -1;
+  private long ambientCacheReserve;
+  @NonNull
+  private Comparator<RegionUsage> policy = LEAST_RECENTLY_VIEWED;
+  @Nullable
+  private Enforcement enforcement;
+  private final List<Callback> pendingCallbacks = new ArrayList<>();
+  private boolean pending;
+  private boolean deferred;
+  private final Runnable deferredEnforcement = new Runnable() {
+    @Override
+    public void run() {
+      deferred = false;
+      enforce(null);
+    }
+  };
+
+  OfflineStorageQuota(@NonNull OfflineManager manager, @NonNull Context context) {
+    this(manager, context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE),
+      new File(FileSource.getResourcesCachePath(context), OfflineRegionExporter.DATABASE_FILE),
+      OfflineRegionSizeAccounting.getInstance(), NativeOfflineDatabaseConnection.OPENER);
+  }
+
+  OfflineStorageQuota(@NonNull OfflineManager manager, @NonNull SharedPreferences preferences,
+                      @NonNull File database, @NonNull OfflineRegionSizeAccounting accounting,
+                      @NonNull OfflineDatabaseConnection.Opener opener) {
+    this.manager = manager;
+    this.preferences = preferences;
+    this.database = database;
+    this.accounting = accounting;
+    this.opener = opener;
+  }
+
+  /**
+   * Sets the number of bytes the ambient cache and the offline regions share, and enforces it.
+   *
+   * @param maxBytes the maximum size in bytes, -1 to disable the quota
+   * @param callback the callback to be invoked once the quota is enforced, may be null
+   */
+  public void setMaxBytes(long maxBytes, @Nullable Callback callback) {
+    if (maxBytes < -1) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+    if (maxBytes >= 0) {
+      manager.setMaximumAmbientCacheSize(maxBytes, null);
+      enforce(callback);
+    }
+  }
+
+  /**
+   * Returns the number of bytes the ambient cache and the offline regions share.
+   *
+   * @return the maximum size in bytes, -1 if the quota is disabled
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Sets the space regions leave to the ambient cache: regions are evicted as soon as they take more than the
+   * maximum size minus this reserve. 0 by default, so that regions may starve the ambient cache.
+   *
+   * @param reserve the reserve in bytes
+   */
+  public void setAmbientCacheReserve(long reserve) {
+    if (reserve < 0) {
+      throw new IllegalArgumentException("Invalid ambient cache reserve: " + reserve);
+    }
+    this.ambientCacheReserve = reserve;
+  }
+
+  /**
+   * Sets the order in which regions are evicted, {@link #LEAST_RECENTLY_VIEWED} by default. The first region
+   * of the order is evicted first.
+   *
+   * @param policy the eviction policy, such as {@link #OLDEST} or {@link #LOWEST_PRIORITY}
+   */
+  public void setEvictionPolicy(@NonNull Comparator<RegionUsage> policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Records that a region is viewed now. Only needed for views the database doesn't record, such as a region
+   * shown from tiles the map holds in memory.
+   *
+   * @param regionId the id of the region
+   */
+  public void markViewed(long regionId) {
+    recentRegionIds.add(regionId);
+    preferences.edit().putLong(KEY_VIEWED + regionId, System.currentTimeMillis()).apply();
+  }
+
+  /**
+   * Returns the time a region was last marked as viewed, when created or with {@link #markViewed(long)}.
+   *
+   * @param regionId the id of the region
+   * @return the time in milliseconds since the epoch, 0 if never marked as viewed
+   */
+  public long getLastViewed(long regionId) {
+    return preferences.getLong(KEY_VIEWED + regionId, 0);
+  }
+
+  /**
+   * Sets the priority of a region, for the {@link #LOWEST_PRIORITY} policy.
+   *
+   * @param regionId the id of the region
+   * @param priority the priority, regions of a lower priority are evicted first
+   */
+  public void setPriority(long regionId, int priority) {
+    recentRegionIds.add(regionId);
+    preferences.edit().putInt(KEY_PRIORITY + regionId, priority).apply();
+  }
+
+  /**
+   * Returns the priority of a region.
+   *
+   * @param regionId the id of the region
+   * @return the priority, 0 by default
+   */
+  public int getPriority(long regionId) {
+    return preferences.getInt(KEY_PRIORITY + regionId, 0);
+  }
+
+  /**
+   * Evicts regions until they fit in the quota. Does nothing but invoke the callback if the quota is
+   * disabled. An enforcement requested while one runs starts once it ends.
+   *
+   * @param callback the callback to be invoked once the quota is enforced, may be null
+   */
+  public void enforce(@Nullable Callback callback) {
+    if (deferred) {
+      // this enforcement covers the regions created meanwhile
+      deferred = false;
+      handler.removeCallbacks(deferredEnforcement);
+    }
+    if (maxBytes < 0) {
+      if (callback != null) {
+        callback.onEnforce(-1, new long[0]);
+      }
+      return;
+    }
+    if (enforcement != null) {
+      pending = true;
+      if (callback != null) {
+        pendingCallbacks.add(callback);
+      }
+      return;
+    }
+    List<Callback> callbacks = new ArrayList<>();
+    if (callback != null) {
+      callbacks.add(callback);
+    }
+    startEnforcement(callbacks);
+  }
+
+  void onRegionCreated(@NonNull OfflineRegion region) {
+    if (!AmbientCachePrewarm.isTransient(region)) {
+      markViewed(region.getID());
+    }
+    if (maxBytes >= 0 && !deferred) {
+      // each enforcement lists all regions, regions created in a row are enforced once
+      deferred = true;
+      handler.postDelayed(deferredEnforcement, CREATE_ENFORCEMENT_DELAY);
+    }
+  }
+
+  /**
+   * Orders the regions that may be evicted, first to evict first.
+   */
+  @NonNull
+  static List<RegionUsage> evictionOrder(@NonNull List<RegionUsage> usages, @NonNull Comparator<RegionUsage> policy) {
+    List<RegionUsage> order = new ArrayList<>(usages);
+    Collections.sort(order, policy);
+    return order;
+  }
+
+  private void onEnforcementEnded() {
+    enforcement = null;
+    if (pending) {
+      pending = false;
+      List<Callback> callbacks = new ArrayList<>(pendingCallbacks);
+      pendingCallbacks.clear();
+      startEnforcement(callbacks);
+    }
+  }
+
+  private void startEnforcement(@NonNull List<Callback> callbacks) {
+    recentRegionIds.clear();
+    enforcement = new Enforcement(Math.max(0, maxBytes - ambientCacheReserve), callbacks);
+    manager.listOfflineRegions(enforcement);
+  }
+
+  /**
+   * Drops the usage of the regions which are neither listed nor marked since the listing started.
+   */
+  private void forget(@NonNull Set<Long> regionIds) {
+    regionIds.addAll(recentRegionIds);
+    SharedPreferences.Editor editor = preferences.edit();
+    for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+      String key = entry.getKey();
+      String id = key.startsWith(KEY_VIEWED) ? key.substring(KEY_VIEWED.length())
+        : key.startsWith(KEY_PRIORITY) ? key.substring(KEY_PRIORITY.length()) : null;
+      try {
+        if (id == null || !regionIds.contains(Long.parseLong(id))) {
+          editor.remove(key);
+        }
+      } catch (NumberFormatException exception) {
+        editor.remove(key);
+      }
+    }
+    editor.apply();
+  }
+
+  /**
+   * Returns the last access time of the tiles of regions, in milliseconds since the epoch.
+   */
+  @NonNull
+  private long[] readLastAccessed(@NonNull long[] regionIds) {
+    long[] accessed = new long[regionIds.length];
+    if (regionIds.length == 0) {
+      return accessed;
+    }
+    StringBuilder ids = new StringBuilder();
+    Map<Long, Integer> indices = new HashMap<>();
+    for (int i = 0; i < regionIds.length; i++) {
+      ids.append(i == 0 ? "" : ",").append(regionIds[i]);
+      indices.put(regionIds[i], i);
+    }
+    OfflineDatabaseConnection connection = opener.open(database.getPath(), true);
+    try {
+      long[] rows = connection.query(String.format(LAST_ACCESSED, ids), 2);
+      for (int row = 0; row < rows.length; row += 2) {
+        Integer index = indices.get(rows[row]);
+        if (index != null) {
+          accessed[index] = TimeUnit.SECONDS.toMillis(rows[row + 1]);
+        }
+      }
+    } finally {
+      connection.close();
+    }
+    return accessed;
+  }
+
+  private static int compareLong(long first, long second) {
+    return first < second ? -1 : (first == second ? 0 : 1);
+  }
+
+  /**
+   * Lists the regions, collects their status and sizes, and deletes regions in the order of the policy, one at
+   * a time, until the regions left fit.
+   */
+  private final class Enforcement implements OfflineManager.ListOfflineRegionsCallback {
+
+    private final long regionBudget;
+    private final List<Callback> callbacks;
+    private final List<OfflineRegion> regions = new ArrayList<>();
+    private final List<OfflineRegion> candidates = new ArrayList<>();
+    private final List<Long> evicted = new ArrayList<>();
+    private int pendingStatuses;
+    private long regionBytes;
+    private List<RegionUsage> order;
+    private int next;
+
+    Enforcement(long regionBudget, @NonNull List<Callback> callbacks) {
+      this.regionBudget = regionBudget;
+      this.callbacks = callbacks;
+    }
+
+    @Override
+    public void onList(OfflineRegion[] offlineRegions) {
+      Set<Long> ids = new HashSet<>();
+      for (OfflineRegion region : offlineRegions) {
+        ids.add(region.getID());
+        if (!AmbientCachePrewarm.isTransient(region)) {
+          regions.add(region);
+        }
+      }
+      // drop the usage of regions deleted meanwhile
+      forget(ids);
+
+      pendingStatuses = regions.size();
+      if (pendingStatuses == 0) {
+        complete();
+        return;
+      }
+      for (final OfflineRegion region : regions) {
+        region.getStatus(new OfflineRegion.OfflineRegionStatusCallback() {
+          @Override
+          public void onStatus(OfflineRegionStatus status) {
+            // regions waiting in the scheduler are about to download
+            if (status.getDownloadState() != OfflineRegion.STATE_ACTIVE
+              && !manager.isDownloadScheduled(region.getID())) {
+              candidates.add(region);
+            }
+            onStatusReceived();
+          }
+
+          @Override
+          public void onError(String error) {
+            // a region without status may be downloading, it is kept
+            onStatusReceived();
+          }
+        });
+      }
+    }
+
+    @Override
+    public void onError(String error) {
+      fail(error);
+    }
+
+    private void onStatusReceived() {
+      if (--pendingStatuses == 0) {
+        measure();
+      }
+    }
+
+    /**
+     * Reads the size of the regions, and the size and last access of the candidates for eviction, from the
+     * database.
+     */
+    private void measure() {
+      final long[] ids = getRegionIds();
+      final long[] candidateIds = new long[candidates.size()];
+      for (int i = 0; i < candidateIds.length; i++) {
+        candidateIds[i] = candidates.get(i).getID();
+      }
+      OfflineExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            final long bytes = accounting.getTotalBytes(database, ids);
+            OfflineRegionSize[] candidateSizes = accounting.getSizes(database, candidateIds);
+            final long[] sizes = new long[candidateIds.length];
+            for (int i = 0; i < sizes.length; i++) {
+              sizes[i] = candidateSizes[i].getReclaimableBytes();
+            }
+            final long[] accessed = readLastAccessed(candidateIds);
+            handler.post(new Runnable() {
+              @Override
+              public void run() {
+                onMeasured(bytes, sizes, accessed);
+              }
+            });
+          } catch (final SQLException exception) {
+            handler.post(new Runnable() {
+              @Override
+              public void run() {
+                fail(exception.getMessage());
+              }
+            });
+          }
+        }
+      });
+    }
+
+    private void onMeasured(long bytes, @NonNull long[] sizes, @NonNull long[] accessed) {
+      regionBytes = bytes;
+      List<RegionUsage> usages = new ArrayList<>(sizes.length);
+      for (int i = 0; i < sizes.length; i++) {
+        OfflineRegion region = candidates.get(i);
+        long id = region.getID();
+        long lastViewed = Math.max(accessed[i], getLastViewed(id));
+        usages.add(new RegionUsage(region, id, sizes[i], lastViewed, getPriority(id)));
+      }
+      order = evictionOrder(usages, policy);
+      evict();
+    }
+
+    private void evict() {
+      if (regionBytes <= regionBudget || next == order.size()) {
+        complete();
+        return;
+      }
+      final RegionUsage usage = order.get(next++);
+      if (usage.region == null) {
+        evict();
+        return;
+      }
+      usage.region.delete(new OfflineRegion.OfflineRegionDeleteCallback() {
+        @Override
+        public void onDelete() {
+          regions.remove(usage.region);
+          evicted.add(usage.getId());
+          preferences.edit().remove(KEY_VIEWED + usage.getId()).remove(KEY_PRIORITY + usage.getId()).apply();
+          // resources the region shared are now held by fewer regions, the remaining size is read again
+          remeasure();
+        }
+
+        @Override
+        public void onError(String error) {
+          fail(error);
+        }
+      });
+    }
+
+    private void remeasure() {
+      final long[] ids = getRegionIds();
+      OfflineExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            final long bytes = accounting.getTotalBytes(database, ids);
+            handler.post(new Runnable() {
+              @Override
+              public void run() {
+                regionBytes = bytes;
+                evict();
+              }
+            });
+          } catch (final SQLException exception) {
+            handler.post(new Runnable() {
+              @Override
+              public void run() {
+                fail(exception.getMessage());
+              }
+            });
+          }
+        }
+      });
+    }
+
+    @NonNull
+    private long[] getRegionIds() {
+      long[] ids = new long[regions.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = regions.get(i).getID();
+      }
+      return ids;
+    }
+
+    private void complete() {
+      long[] ids = new long[evicted.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = evicted.get(i);
+      }
+      onEnforcementEnded();
+      for (Callback callback : callbacks) {
+        callback.onEnforce(regionBytes, ids);
+      }
+    }
+
+    private void fail(String error) {
+      onEnforcementEnded();
+      for (Callback callback : callbacks) {
+        callback.onError(error);
+      }
+    }
+  }
+}
@@ -9,6 +9,7 @@ import android.os.Environment;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
 import androidx.annotation.UiThread;
 import com.mapbox.mapboxsdk.MapStrictMode;
 import com.mapbox.mapboxsdk.Mapbox;
@@ -399,6 +400,48 @@ public class FileSource {
   @Keep
   public native void setResourceTransform(final ResourceTransformCallback callback);
 
+  /**
+   * Sets rules for transforming URLs requested from the internet, replacing any transform set before.
+   * <p>
+   * Rules are compiled once and applied by the core for every requested URL, without calling into Java.
+   * Only URLs that no replacement rule matched are handed to the fallback callback of the rules, if any,
+   * which is executed on the main thread once for every URL that isn't cached yet.
+   * </p>
+   *
+   * @param rules the rules or null to reset
+   * @throws IllegalArgumentException if a regular expression of the rules is invalid
+   */
+  public void setResourceTransformRules(@Nullable ResourceTransformRules rules) {
+    if (rules == null) {
+      setResourceTransform(null);
+      return;
+    }
+    nativeSetResourceTransformRules(rules.kindMasks, rules.types, rules.patterns, rules.replacements,
+      rules.queries, rules.fallback, rules.fallbackCacheSize);
+  }
+
+  @Keep
+  private native void nativeSetResourceTransformRules(int[] kindMasks, int[] types, String[] patterns,
+                                                      String[] replacements, String[] queries,
+                                                      @Nullable ResourceTransformCallback fallback,
+                                                      int fallbackCacheSize);
+
+  /**
+   * Internal use, read the statistics with {@code OfflineManager#getAmbientCacheStatistics}.
+   * <p>
+   * Returns the number of resources requested by maps which aren't local, per {@link Resource.Kind}, followed by
+   * the number of those requests answered, per kind, and by the number of bytes delivered to them, per kind,
+   * whether served from the ambient cache or the network. Requests canceled before their first response aren't
+   * answered, and only the latest copy delivered to a request is counted.
+   * </p>
+   *
+   * @return the request counts, answered request counts and delivered byte counts, indexed by kind
+   */
+  @NonNull
+  @Keep
+  @RestrictTo(RestrictTo.Scope.LIBRARY)
+  public native long[] getResourceStatistics();
+
   @Keep
   private native void setResourceCachePath(String path, ResourcesCachePathChangeCallback callback);
 
@@ -0,0 +1,246 @@
+package com.mapbox.mapboxsdk.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declarative rules for transforming URLs requested from the internet, set with
+ * {@link FileSource#setResourceTransformRules(ResourceTransformRules)}.
+ * <p>
+ * Unlike a {@link FileSource.ResourceTransformCallback}, rules are compiled once by the core and applied without
+ * calling into Java for every requested URL. The first matching replacement rule rewrites the URL, query parameters
+ * of the kind of the resource are appended afterwards. URLs that no replacement rule matches can be handed to a
+ * fallback callback, whose results are cached.
+ * </p>
+ */
+public final class ResourceTransformRules {
+
+  static final int TYPE_PREFIX = 0;
+  static final int TYPE_REGEX = 1;
+
+  private static final int KIND_COUNT = Resource.SPRITE_JSON + 1;
+  private static final int ALL_KINDS = (1 << KIND_COUNT) - 1;
+
+  final int[] kindMasks;
+  final int[] types;
+  final String[] patterns;
+  final String[] replacements;
+  final String[] queries;
+  @Nullable
+  final FileSource.ResourceTransformCallback fallback;
+  final int fallbackCacheSize;
+
+  private ResourceTransformRules(@NonNull Builder builder) {
+    int size = builder.rules.size();
+    kindMasks = new int[size];
+    types = new int[size];
+    patterns = new String[size];
+    replacements = new String[size];
+    for (int i = 0; i < size; i++) {
+      Rule rule = builder.rules.get(i);
+      kindMasks[i] = rule.kindMask;
+      types[i] = rule.type;
+      patterns[i] = rule.pattern;
+      replacements[i] = rule.replacement;
+    }
+
+    queries = new String[KIND_COUNT];
+    for (int kind = 0; kind < KIND_COUNT; kind++) {
+      StringBuilder query = builder.queries[kind];
+      queries[kind] = query != null ? query.toString() : null;
+    }
+    fallback = builder.fallback;
+    fallbackCacheSize = builder.fallbackCacheSize;
+  }
+
+  private static final class Rule {
+
+    final int kindMask;
+    final int type;
+    final String pattern;
+    final String replacement;
+
+    Rule(int kindMask, int type, String pattern, String replacement) {
+      this.kindMask = kindMask;
+      this.type = type;
+      this.pattern = pattern;
+      this.replacement = replacement;
+    }
+  }
+
+  /**
+   * Builder for {@link ResourceTransformRules}.
+   */
+  public static final class Builder {
+
+    /**
+     * Default number of fallback results kept in the cache.
+     */
+    public static final int DEFAULT_FALLBACK_CACHE_SIZE = 256;
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final StringBuilder[] queries = new StringBuilder[KIND_COUNT];
+    @Nullable
+    private FileSource.ResourceTransformCallback fallback;
+    private int fallbackCacheSize = DEFAULT_FALLBACK_CACHE_SIZE;
+
+    /**
+     * Replaces a prefix of the URLs of all resource kinds.
+     *
+     * @param prefix      the prefix to match, eg. "https://api.example.com/"
+     * @param replacement the replacement of the prefix
+     * @return this builder
+     */
+    @NonNull
+    public Builder replacePrefix(@NonNull String prefix, @NonNull String replacement) {
+      rules.add(new Rule(ALL_KINDS, TYPE_PREFIX, prefix, replacement));
+      return this;
+    }
+
+    /**
+     * Replaces a prefix of the URLs of a resource kind.
+     *
+     * @param kind        the kind of resources to transform
+     * @param prefix      the prefix to match, eg. "https://api.example.com/"
+     * @param replacement the replacement of the prefix
+     * @return this builder
+     */
+    @NonNull
+    public Builder replacePrefix(@Resource.Kind int kind, @NonNull String prefix, @NonNull String replacement) {
+      rules.add(new Rule(maskOf(kind), TYPE_PREFIX, prefix, replacement));
+      return this;
+    }
+
+    /**
+     * Replaces the matches of a regular expression in the URLs of all resource kinds.
+     * <p>
+     * The expression is compiled by the core with the ECMAScript grammar, groups are referenced in the
+     * replacement as $1, $2 and so on.
+     * </p>
+     *
+     * @param pattern     the regular expression to match
+     * @param replacement the replacement of the matches
+     * @return this builder
+     */
+    @NonNull
+    public Builder replaceRegex(@NonNull String pattern, @NonNull String replacement) {
+      rules.add(new Rule(ALL_KINDS, TYPE_REGEX, pattern, replacement));
+      return this;
+    }
+
+    /**
+     * Replaces the matches of a regular expression in the URLs of a resource kind.
+     * <p>
+     * The expression is compiled by the core with the ECMAScript grammar, groups are referenced in the
+     * replacement as $1, $2 and so on.
+     * </p>
+     *
+     * @param kind        the kind of resources to transform
+     * @param pattern     the regular expression to match
+     * @param replacement the replacement of the matches
+     * @return this builder
+     */
+    @NonNull
+    public Builder replaceRegex(@Resource.Kind int kind, @NonNull String pattern, @NonNull String replacement) {
+      rules.add(new Rule(maskOf(kind), TYPE_REGEX, pattern, replacement));
+      return this;
+    }
+
+    /**
+     * Appends a query parameter to the URLs of all resource kinds.
+     *
+     * @param name  the name of the parameter
+     * @param value the value of the parameter, encoded by this method
+     * @return this builder
+     */
+    @NonNull
+    public Builder addQueryParameter(@NonNull String name, @NonNull String value) {
+      for (int kind = 0; kind < KIND_COUNT; kind++) {
+        addQueryParameter(kind, name, value);
+      }
+      return this;
+    }
+
+    /**
+     * Appends a query parameter to the URLs of a resource kind.
+     *
+     * @param kind  the kind of resources to transform
+     * @param name  the name of the parameter
+     * @param value the value of the parameter, encoded by this method
+     * @return this builder
+     */
+    @NonNull
+    public Builder addQueryParameter(@Resource.Kind int kind, @NonNull String name, @NonNull String value) {
+      maskOf(kind);
+      StringBuilder query = queries[kind];
+      if (query == null) {
+        query = queries[kind] = new StringBuilder();
+      } else {
+        query.append('&');
+      }
+      query.append(encode(name)).append('=').append(encode(value));
+      return this;
+    }
+
+    /**
+     * Sets a callback for URLs that no replacement rule matched.
+     * <p>
+     * The results of the callback are cached, the callback must return the same URL for the same input.
+     * </p>
+     *
+     * @param callback the callback, or null to leave unmatched URLs unchanged
+     * @return this builder
+     */
+    @NonNull
+    public Builder setFallback(@Nullable FileSource.ResourceTransformCallback callback) {
+      this.fallback = callback;
+      return this;
+    }
+
+    /**
+     * Sets the number of fallback results kept in the cache. Defaults to {@link #DEFAULT_FALLBACK_CACHE_SIZE}.
+     *
+     * @param size the number of results, 0 disables the cache
+     * @return this builder
+     */
+    @NonNull
+    public Builder setFallbackCacheSize(int size) {
+      if (size < 0) {
+        throw new IllegalArgumentException("Cache size can't be negative: " + size);
+      }
+      this.fallbackCacheSize = size;
+      return this;
+    }
+
+    /**
+     * Builds the rules.
+     *
+     * @return the rules
+     */
+    @NonNull
+    public ResourceTransformRules build() {
+      return new ResourceTransformRules(this);
+    }
+
+    private static int maskOf(int kind) {
+      if (kind < 0 || kind >= KIND_COUNT) {
+        throw new IllegalArgumentException("Unknown resource kind: " + kind);
+      }
+      return 1 << kind;
+    }
+
+    @NonNull
+    private static String encode(@NonNull String value) {
+      try {
+        return URLEncoder.encode(value, "UTF-8");
+      } catch (UnsupportedEncodingException exception) {
+        throw new IllegalStateException(exception);
+      }
+    }
+  }
+}
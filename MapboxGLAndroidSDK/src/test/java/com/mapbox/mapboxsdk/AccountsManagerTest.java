@@ -5,6 +5,7 @@ import android.text.format.DateUtils;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricTestRunner;
 
 import static com.mapbox.mapboxsdk.constants.MapboxConstants.KEY_PREFERENCE_SKU_TOKEN;
@@ -13,6 +14,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
@@ -45,6 +48,25 @@ public class AccountsManagerTest {
     assertEquals("external-sku-token", skuToken);
   }
 
+  @Test
+  public void externallyManagedSkuTokenIsCached() {
+    SharedPreferences mockedSharedPreferences = mock(SharedPreferences.class);
+    when(mockedSharedPreferences.getString(KEY_PREFERENCE_SKU_TOKEN, "")).thenReturn("external-sku-token");
+    AccountsManager theAccountsManager = new AccountsManager(mockedSharedPreferences, false);
+
+    theAccountsManager.getSkuToken();
+    theAccountsManager.getSkuToken();
+    verify(mockedSharedPreferences, times(1)).getString(KEY_PREFERENCE_SKU_TOKEN, "");
+
+    ArgumentCaptor<SharedPreferences.OnSharedPreferenceChangeListener> listener =
+      ArgumentCaptor.forClass(SharedPreferences.OnSharedPreferenceChangeListener.class);
+    verify(mockedSharedPreferences).registerOnSharedPreferenceChangeListener(listener.capture());
+    when(mockedSharedPreferences.getString(KEY_PREFERENCE_SKU_TOKEN, "")).thenReturn("rotated-sku-token");
+    listener.getValue().onSharedPreferenceChanged(mockedSharedPreferences, KEY_PREFERENCE_SKU_TOKEN);
+
+    assertEquals("rotated-sku-token", theAccountsManager.getSkuToken());
+  }
+
   @Test
   public void checksSkuTokenInternalManagement() {
     SharedPreferences mockedSharedPreferences = mock(SharedPreferences.class, RETURNS_DEEP_STUBS);
@@ -1,6 +1,7 @@
 package com.mapbox.mapboxsdk;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -36,6 +37,22 @@ public class MapboxInjector {
     }
   }
 
+  public static void injectUnmanaged(@NonNull Context context, @NonNull String accessToken,
+                                     @NonNull SharedPreferences sharedPreferences) {
+    Mapbox mapbox = new Mapbox(context, accessToken);
+    try {
+      Field instance = Mapbox.class.getDeclaredField(FIELD_INSTANCE);
+      instance.setAccessible(true);
+      instance.set(mapbox, mapbox);
+
+      Field accounts = Mapbox.class.getDeclaredField(FIELD_ACCOUNTS);
+      accounts.setAccessible(true);
+      accounts.set(mapbox, new AccountsManager(sharedPreferences, false));
+    } catch (Exception exception) {
+      throw new AssertionError();
+    }
+  }
+
   public static void clear() {
     try {
       Field field = Mapbox.class.getDeclaredField(FIELD_INSTANCE);
@@ -0,0 +1,102 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.util.Log;
+
+import com.mapbox.mapboxsdk.log.Logger;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpLoggerTest {
+
+  private static final int ITERATIONS = 100_000;
+  // bytes per request, far below the smallest object allocated even once every hundred requests, but leaving
+  // room for the few allocations the runtime makes on the measuring thread
+  private static final double TOLERANCE = 0.1;
+
+  private com.sun.management.ThreadMXBean threadBean;
+
+  @Before
+  public void setUp() {
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Logger.setVerbosity(Logger.NONE);
+  }
+
+  @After
+  public void tearDown() {
+    HttpLogger.logEnabled = true;
+    HttpLogger.setBufferSize(0);
+    Logger.setVerbosity(Logger.VERBOSE);
+  }
+
+  @Test
+  public void disabledLoggingDoesNotAllocate() {
+    HttpLogger.logEnabled = false;
+    assertEquals(0.0, allocatedBytesPerRequest(), TOLERANCE);
+  }
+
+  @Test
+  public void filteredLoggingDoesNotAllocate() {
+    assertEquals(0.0, allocatedBytesPerRequest(), TOLERANCE);
+  }
+
+  @Test
+  public void bufferedLoggingAllocates() {
+    HttpLogger.setBufferSize(16);
+    // sanity check of the measurement
+    assertTrue(allocatedBytesPerRequest() > 0);
+  }
+
+  @Test
+  public void bufferKeepsMostRecentMessages() {
+    HttpLogger.setBufferSize(2);
+    HttpLogger.log(Log.VERBOSE, "first");
+    HttpLogger.log(Log.DEBUG, "second %s", "message");
+    HttpLogger.log(Log.WARN, "code %s", 404);
+
+    List<String> messages = HttpLogger.dumpBuffer();
+    assertEquals(2, messages.size());
+    assertTrue(messages.get(0).endsWith(" D second message"));
+    assertTrue(messages.get(1).endsWith(" W code 404"));
+  }
+
+  @Test
+  public void disabledBufferIsEmpty() {
+    HttpLogger.log(Log.WARN, "message");
+    assertTrue(HttpLogger.dumpBuffer().isEmpty());
+  }
+
+  private double allocatedBytesPerRequest() {
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    // warm up, so that class loading isn't measured
+    logRequest(200);
+
+    long threadId = Thread.currentThread().getId();
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      logRequest(200 + (i & 1) * 104);
+    }
+    long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+    return (double) allocated / ITERATIONS;
+  }
+
+  /**
+   * Log statements issued by HttpRequestImpl for a single request, and by CallCoalescer for a drain of
+   * cancelled requests.
+   */
+  private static void logRequest(int code) {
+    HttpLogger.log(Log.VERBOSE, "[HTTP] Request was successful (code = %s).", code);
+    HttpLogger.log(Log.DEBUG, "[HTTP] Request with response = %s: %s", code, "Not Modified");
+    HttpLogger.log(Log.DEBUG, "[HTTP] %d requests were cancelled. This is expected for tiles that were being"
+      + " prefetched but are no longer needed for the map to render.", code);
+  }
+}
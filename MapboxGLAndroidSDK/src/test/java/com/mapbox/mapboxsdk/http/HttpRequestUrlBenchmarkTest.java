@@ -0,0 +1,96 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.mapbox.mapboxsdk.MapboxInjector;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static com.mapbox.mapboxsdk.constants.MapboxConstants.KEY_PREFERENCE_SKU_TOKEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpRequestUrlBenchmarkTest {
+
+  private static final int ITERATIONS = 100_000;
+  private static final String HOST = "api.mapbox.com";
+  private static final String SKU_TOKEN = "10012345678901234567890";
+
+  private SharedPreferences sharedPreferences;
+  private String[] urls;
+
+  @Before
+  public void setUp() {
+    sharedPreferences = mock(SharedPreferences.class);
+    when(sharedPreferences.getString(KEY_PREFERENCE_SKU_TOKEN, "")).thenReturn(SKU_TOKEN);
+    MapboxInjector.injectUnmanaged(mock(Context.class), "pk.foobar", sharedPreferences);
+
+    urls = new String[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      urls[i] = "https://api.mapbox.com/v4/mapbox.mapbox-streets-v8/14/" + (i % 1024) + "/" + (i / 1024)
+        + ".vector.pbf?access_token=pk.foobar";
+    }
+  }
+
+  @After
+  public void tearDown() {
+    MapboxInjector.clear();
+  }
+
+  @Test
+  public void skuTokenIsAppended() {
+    assertEquals(urls[0] + "&sku=" + SKU_TOKEN, HttpRequestUrl.buildResourceUrl(HOST, urls[0], 1, false));
+    assertEquals("https://api.mapbox.com/fonts?sku=" + SKU_TOKEN,
+      HttpRequestUrl.buildResourceUrl(HOST, "https://api.mapbox.com/fonts", 0, false));
+  }
+
+  @Test
+  public void skuTokenIsReadOnce() {
+    for (int i = 0; i < ITERATIONS; i++) {
+      HttpRequestUrl.buildResourceUrl(HOST, urls[i], 1, false);
+    }
+    verify(sharedPreferences, times(1)).getString(KEY_PREFERENCE_SKU_TOKEN, "");
+  }
+
+  @Test
+  public void buildingUrlAllocatesOnlyTheResult() {
+    com.sun.management.ThreadMXBean threadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    long threadId = Thread.currentThread().getId();
+    String suffix = "&sku=" + SKU_TOKEN;
+
+    // warm up both paths
+    for (int i = 0; i < 1000; i++) {
+      urls[i].concat(suffix);
+      HttpRequestUrl.buildResourceUrl(HOST, urls[i], 1, false);
+    }
+
+    // the cost of allocating the resulting url alone
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      urls[i].concat(suffix);
+    }
+    long baseline = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+    before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      HttpRequestUrl.buildResourceUrl(HOST, urls[i], 1, false);
+    }
+    long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+    assertTrue("Allocated " + allocated + " bytes, expected at most " + baseline,
+      allocated <= baseline + baseline / 100);
+  }
+}
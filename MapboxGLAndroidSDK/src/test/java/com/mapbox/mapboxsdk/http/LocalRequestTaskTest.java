@@ -0,0 +1,47 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class LocalRequestTaskTest {
+
+  @Test
+  public void localUrls() {
+    assertTrue(LocalRequestTask.isLocalUrl("local://styles/style.json"));
+    assertFalse(LocalRequestTask.isLocalUrl("asset://styles/style.json"));
+    assertFalse(LocalRequestTask.isLocalUrl("file:///sdcard/style.json"));
+    assertFalse(LocalRequestTask.isLocalUrl("https://api.mapbox.com/styles/v1/mapbox/streets-v11"));
+  }
+
+  @Test
+  public void paths() {
+    assertEquals("integration/styles/my style.json", LocalRequestTask.getPath("local://styles/my%20style.json"));
+    assertEquals("integration/tiles/0,0,0.pbf", LocalRequestTask.getPath("local://tiles/0%2c0%2C0.pbf"));
+  }
+
+  @Test
+  public void percentDecode() {
+    assertEquals("plain", LocalRequestTask.percentDecode("plain", 0));
+    assertEquals("a b", LocalRequestTask.percentDecode("xa%20b", 1));
+    assertEquals("café straße", LocalRequestTask.percentDecode("caf%C3%A9%20stra%C3%9Fe", 0));
+    assertEquals("100%", LocalRequestTask.percentDecode("100%", 0));
+    assertEquals("%zz", LocalRequestTask.percentDecode("%zz", 0));
+  }
+
+  @Test
+  public void runtimeExceptionIsFailure() {
+    // without an initialized Mapbox instance, the assets can't be resolved
+    HttpResponder responder = mock(HttpResponder.class);
+    LocalRequestTask.execute("local://style.json", responder);
+
+    verify(responder, timeout(5000)).handleFailure(eq(HttpRequest.PERMANENT_ERROR), anyString());
+  }
+}
@@ -0,0 +1,84 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OfflineRequestGateTest {
+
+  private final List<String> started = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    OfflineRequestGate.setEnabled(false);
+    while (OfflineRequestGate.getInteractiveRequestCount() > 0) {
+      OfflineRequestGate.interactiveFinished();
+    }
+  }
+
+  @Test
+  public void disabledGateNeverHolds() {
+    OfflineRequestGate.interactiveStarted();
+    assertFalse(OfflineRequestGate.hold(new Object(), start("offline")));
+  }
+
+  @Test
+  public void idleGateDoesNotHold() {
+    OfflineRequestGate.setEnabled(true);
+    assertFalse(OfflineRequestGate.hold(new Object(), start("offline")));
+  }
+
+  @Test
+  public void heldRequestsStartOnceMapIsIdle() {
+    OfflineRequestGate.setEnabled(true);
+    OfflineRequestGate.interactiveStarted();
+    OfflineRequestGate.interactiveStarted();
+    assertTrue(OfflineRequestGate.hold(new Object(), start("first")));
+    assertTrue(OfflineRequestGate.hold(new Object(), start("second")));
+    assertEquals(2, OfflineRequestGate.getHeldRequestCount());
+
+    OfflineRequestGate.interactiveFinished();
+    assertTrue(started.isEmpty());
+    OfflineRequestGate.interactiveFinished();
+    assertEquals("[first, second]", started.toString());
+    assertEquals(0, OfflineRequestGate.getHeldRequestCount());
+  }
+
+  @Test
+  public void cancelledRequestIsNotStarted() {
+    Object request = new Object();
+    OfflineRequestGate.setEnabled(true);
+    OfflineRequestGate.interactiveStarted();
+    OfflineRequestGate.hold(request, start("cancelled"));
+
+    assertTrue(OfflineRequestGate.remove(request));
+    assertFalse(OfflineRequestGate.remove(request));
+    OfflineRequestGate.interactiveFinished();
+    assertTrue(started.isEmpty());
+  }
+
+  @Test
+  public void disablingStartsHeldRequests() {
+    OfflineRequestGate.setEnabled(true);
+    OfflineRequestGate.interactiveStarted();
+    OfflineRequestGate.hold(new Object(), start("offline"));
+
+    OfflineRequestGate.setEnabled(false);
+    assertEquals("[offline]", started.toString());
+  }
+
+  private Runnable start(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        started.add(name);
+      }
+    };
+  }
+}
@@ -0,0 +1,137 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestCompletionTest {
+
+  private static final int RACES = 5000;
+
+  @Test
+  public void deliversOnce() {
+    RequestCompletion completion = new RequestCompletion();
+    assertTrue(completion.isPending());
+    assertTrue(completion.beginDelivery());
+    assertFalse(completion.beginDelivery());
+    completion.endDelivery();
+    assertEquals(RequestCompletion.DONE, completion.getState());
+    assertFalse(completion.beginDelivery());
+  }
+
+  @Test
+  public void cancelPreventsDelivery() {
+    RequestCompletion completion = new RequestCompletion();
+    completion.cancel();
+    assertEquals(RequestCompletion.CANCELLED, completion.getState());
+    assertFalse(completion.isPending());
+    assertFalse(completion.beginDelivery());
+  }
+
+  @Test
+  public void cancelAfterDeliveryKeepsDone() {
+    RequestCompletion completion = new RequestCompletion();
+    assertTrue(completion.beginDelivery());
+    completion.endDelivery();
+    completion.cancel();
+    assertEquals(RequestCompletion.DONE, completion.getState());
+  }
+
+  @Test
+  public void cancelDoesNotWaitForDeliveryInProgress() throws Exception {
+    final RequestCompletion completion = new RequestCompletion();
+    assertTrue(completion.beginDelivery());
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    Thread canceller = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        // the delivery in progress releases the delivery
+        assertFalse(completion.cancel());
+        cancelled.countDown();
+      }
+    });
+    canceller.start();
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    assertEquals(RequestCompletion.CANCELLED, completion.getState());
+
+    completion.endDelivery();
+    assertEquals(RequestCompletion.CANCELLED, completion.getState());
+  }
+
+  @Test
+  public void concurrentCancelAndDelivery() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    final AtomicInteger delivered = new AtomicInteger();
+    final AtomicInteger violations = new AtomicInteger();
+    try {
+      for (int i = 0; i < RACES; i++) {
+        final RequestCompletion completion = new RequestCompletion();
+        // stands in for the native delivery, released by the canceller or the deliverer
+        final AtomicInteger released = new AtomicInteger();
+        final AtomicInteger deliveries = new AtomicInteger();
+        final CyclicBarrier start = new CyclicBarrier(3);
+        final CountDownLatch done = new CountDownLatch(3);
+        Runnable deliverer = new Runnable() {
+          @Override
+          public void run() {
+            await(start);
+            if (completion.beginDelivery()) {
+              try {
+                if (released.get() > 0) {
+                  violations.incrementAndGet();
+                }
+                deliveries.incrementAndGet();
+                Thread.yield();
+              } finally {
+                completion.endDelivery();
+                released.incrementAndGet();
+              }
+            }
+            done.countDown();
+          }
+        };
+        executor.execute(deliverer);
+        // a second response, such as a failure after a response, must never be delivered
+        executor.execute(deliverer);
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            await(start);
+            if (completion.cancel()) {
+              released.incrementAndGet();
+            }
+            done.countDown();
+          }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(deliveries.get() <= 1);
+        assertEquals(1, released.get());
+        delivered.addAndGet(deliveries.get());
+        if (deliveries.get() == 0) {
+          assertEquals(RequestCompletion.CANCELLED, completion.getState());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(0, violations.get());
+    assertTrue(delivered.get() <= RACES);
+  }
+
+  private static void await(CyclicBarrier barrier) {
+    try {
+      barrier.await(5, TimeUnit.SECONDS);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
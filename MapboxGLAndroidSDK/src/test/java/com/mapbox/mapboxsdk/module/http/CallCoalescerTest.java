@@ -0,0 +1,347 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.mapbox.mapboxsdk.http.HttpBufferResponder;
+import com.mapbox.mapboxsdk.http.HttpRequest;
+import com.mapbox.mapboxsdk.http.HttpResponder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CallCoalescerTest {
+
+  private static final String URL = "https://api.mapbox.com/v4/mapbox.satellite/1/0/0.png";
+  private static final String OTHER_URL = "https://api.mapbox.com/v4/mapbox.satellite/1/1/0.png";
+
+  private HttpRequestScheduler scheduler;
+  private ManualBackoff backoff;
+  private ManualExecutor cancelExecutor;
+  private CallCoalescer coalescer;
+  private OkHttpClient client;
+  private Call call;
+  private Callback callback;
+
+  @Before
+  public void setUp() {
+    scheduler = new HttpRequestScheduler(64, 20);
+    backoff = new ManualBackoff();
+    cancelExecutor = new ManualExecutor();
+    coalescer = new CallCoalescer(scheduler, backoff, cancelExecutor);
+    client = mock(OkHttpClient.class);
+    call = mock(Call.class);
+    callback = mock(Callback.class);
+    when(client.newCall(any(Request.class))).thenReturn(call);
+  }
+
+  @Test
+  public void identicalRequestsShareOneCall() {
+    HttpResponder first = mock(HttpResponder.class);
+    HttpResponder second = mock(HttpResponder.class);
+
+    CallCoalescer.CoalescedCall firstCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    firstCall.start(client, callback);
+    CallCoalescer.CoalescedCall secondCall = coalescer.join(request(URL, null), second, HttpRequestPriority.TILE);
+    secondCall.start(client, callback);
+
+    assertSame(firstCall, secondCall);
+    verify(client, times(1)).newCall(any(Request.class));
+    verify(call, times(1)).enqueue(any(Callback.class));
+  }
+
+  @Test
+  public void conditionalHeadersAreKeyed() {
+    CallCoalescer.CoalescedCall unconditional = coalescer.join(request(URL, null), mock(HttpResponder.class),
+      HttpRequestPriority.TILE);
+    CallCoalescer.CoalescedCall conditional = coalescer.join(request(URL, "etag"), mock(HttpResponder.class),
+      HttpRequestPriority.TILE);
+    assertNotSame(unconditional, conditional);
+    assertEquals(2, coalescer.size());
+  }
+
+  @Test
+  public void responseIsFannedOut() {
+    HttpBufferResponder first = mock(HttpBufferResponder.class);
+    HttpBufferResponder second = mock(HttpBufferResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescer.join(request(URL, null), second, HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+
+    ByteBuffer body = ByteBuffer.allocateDirect(4);
+    coalescedCall.onResponseBuffer(200, "etag", null, null, null, null, null, body);
+
+    verify(first).onResponseBuffer(200, "etag", null, null, null, null, null, body);
+    verify(second).onResponseBuffer(200, "etag", null, null, null, null, null, body);
+    assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  public void failureIsFannedOut() {
+    HttpResponder first = mock(HttpResponder.class);
+    HttpResponder second = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescer.join(request(URL, null), second, HttpRequestPriority.TILE);
+
+    coalescedCall.handleFailure(HttpRequest.CONNECTION_ERROR, "error");
+
+    verify(first).handleFailure(HttpRequest.CONNECTION_ERROR, "error");
+    verify(second).handleFailure(HttpRequest.CONNECTION_ERROR, "error");
+  }
+
+  @Test
+  public void cancellationIsReferenceCounted() {
+    HttpBufferResponder first = mock(HttpBufferResponder.class);
+    HttpBufferResponder second = mock(HttpBufferResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescer.join(request(URL, null), second, HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+
+    assertFalse(coalescedCall.detach(first));
+    verify(call, never()).cancel();
+
+    assertTrue(coalescedCall.detach(second));
+    verify(call).cancel();
+    assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  public void detachedResponderIsNotNotified() {
+    HttpResponder first = mock(HttpResponder.class);
+    HttpResponder second = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescer.join(request(URL, null), second, HttpRequestPriority.TILE);
+    coalescedCall.detach(first);
+
+    coalescedCall.onResponse(304, null, null, null, null, null, null, null);
+
+    verify(first, never()).onResponse(304, null, null, null, null, null, null, null);
+    verify(second).onResponse(304, null, null, null, null, null, null, null);
+  }
+
+  @Test
+  public void completedCallIsNotShared() {
+    HttpResponder first = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescedCall.handleFailure(HttpRequest.PERMANENT_ERROR, "error");
+
+    assertNotSame(coalescedCall, coalescer.join(request(URL, null), mock(HttpResponder.class),
+      HttpRequestPriority.TILE));
+  }
+
+  @Test
+  public void pendingCallIsRemovedFromSchedulerOnCancel() {
+    scheduler.setMaxRequests(0);
+    HttpResponder responder = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), responder,
+      HttpRequestPriority.PREFETCH);
+    coalescedCall.start(client, callback);
+    assertEquals(1, scheduler.getPendingCount(HttpRequestPriority.PREFETCH));
+
+    coalescedCall.detach(responder);
+    assertEquals(0, scheduler.getPendingCount(HttpRequestPriority.PREFETCH));
+    verify(client, never()).newCall(any(Request.class));
+  }
+
+  @Test
+  public void urgentRequestRaisesPriorityOfPendingCall() {
+    scheduler.setMaxRequests(0);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), mock(HttpResponder.class),
+      HttpRequestPriority.PREFETCH);
+    coalescedCall.start(client, callback);
+    coalescer.join(request(URL, null), mock(HttpResponder.class), HttpRequestPriority.TILE);
+
+    assertEquals(0, scheduler.getPendingCount(HttpRequestPriority.PREFETCH));
+    assertEquals(1, scheduler.getPendingCount(HttpRequestPriority.TILE));
+  }
+
+  @Test
+  public void cancellationsAreBatched() {
+    HttpResponder first = mock(HttpResponder.class);
+    HttpResponder second = mock(HttpResponder.class);
+    HttpResponder third = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall running = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    running.start(client, callback);
+    scheduler.setMaxRequests(1);
+    CallCoalescer.CoalescedCall pending = coalescer.join(request(OTHER_URL, null), second,
+      HttpRequestPriority.TILE);
+    pending.start(client, callback);
+    coalescer.join(request(OTHER_URL, null), third, HttpRequestPriority.TILE);
+    assertEquals(1, scheduler.getPendingCount(HttpRequestPriority.TILE));
+
+    coalescer.cancel(running, first);
+    coalescer.cancel(pending, second);
+    coalescer.cancel(pending, third);
+    assertEquals(1, cancelExecutor.tasks.size());
+    verify(call, never()).cancel();
+
+    assertEquals(3, coalescer.drainCancellations());
+    verify(call).cancel();
+    assertEquals(0, scheduler.getPendingCount(HttpRequestPriority.TILE));
+    assertEquals(0, coalescer.size());
+    verify(client, times(1)).newCall(any(Request.class));
+
+    // the next cancellation schedules another drain
+    CallCoalescer.CoalescedCall next = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescer.cancel(next, first);
+    assertEquals(2, cancelExecutor.tasks.size());
+  }
+
+  @Test
+  public void cancellationKeepsSharedCall() {
+    HttpBufferResponder first = mock(HttpBufferResponder.class);
+    HttpBufferResponder second = mock(HttpBufferResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), first, HttpRequestPriority.TILE);
+    coalescer.join(request(URL, null), second, HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+
+    coalescer.cancel(coalescedCall, first);
+    assertEquals(1, coalescer.drainCancellations());
+    verify(call, never()).cancel();
+
+    coalescedCall.onResponse(200, null, null, null, null, null, null, null);
+    verify(first, never()).onResponse(200, null, null, null, null, null, null, null);
+    verify(second).onResponse(200, null, null, null, null, null, null, null);
+  }
+
+  @Test
+  public void pausedHostIsDispatchedAfterPause() {
+    backoff.onRateLimited("api.mapbox.com", "30", null);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), mock(HttpResponder.class),
+      HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+
+    verify(client, never()).newCall(any(Request.class));
+    assertEquals(1, backoff.scheduled.size());
+    assertEquals(30000, (long) backoff.delays.get(0));
+
+    backoff.now += 30000;
+    backoff.runScheduled();
+    verify(call).enqueue(any(Callback.class));
+  }
+
+  @Test
+  public void timeoutIsRetried() throws Exception {
+    HttpResponder responder = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), responder,
+      HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+
+    ArgumentCaptor<Callback> enqueued = ArgumentCaptor.forClass(Callback.class);
+    verify(call).enqueue(enqueued.capture());
+    enqueued.getValue().onFailure(call, new SocketTimeoutException());
+    verify(callback, never()).onFailure(any(Call.class), any(IOException.class));
+    assertEquals(1, backoff.getRetryCount());
+
+    backoff.runScheduled();
+    verify(call, times(2)).enqueue(enqueued.capture());
+    enqueued.getValue().onFailure(call, new SocketTimeoutException());
+    backoff.runScheduled();
+    verify(call, times(3)).enqueue(enqueued.capture());
+
+    // out of retries
+    IOException exception = new SocketTimeoutException();
+    enqueued.getValue().onFailure(call, exception);
+    verify(callback).onFailure(call, exception);
+    assertEquals(0, scheduler.getRunningCount(HttpRequestPriority.TILE));
+  }
+
+  @Test
+  public void connectionErrorIsNotRetried() throws Exception {
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), mock(HttpResponder.class),
+      HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+
+    ArgumentCaptor<Callback> enqueued = ArgumentCaptor.forClass(Callback.class);
+    verify(call).enqueue(enqueued.capture());
+    IOException exception = new UnknownHostException();
+    enqueued.getValue().onFailure(call, exception);
+    verify(callback).onFailure(call, exception);
+    assertTrue(backoff.scheduled.isEmpty());
+  }
+
+  @Test
+  public void detachedCallIsNotRetried() throws Exception {
+    HttpResponder responder = mock(HttpResponder.class);
+    CallCoalescer.CoalescedCall coalescedCall = coalescer.join(request(URL, null), responder,
+      HttpRequestPriority.TILE);
+    coalescedCall.start(client, callback);
+    ArgumentCaptor<Callback> enqueued = ArgumentCaptor.forClass(Callback.class);
+    verify(call).enqueue(enqueued.capture());
+    enqueued.getValue().onFailure(call, new SocketTimeoutException());
+
+    coalescedCall.detach(responder);
+    backoff.runScheduled();
+    verify(call, times(1)).enqueue(any(Callback.class));
+  }
+
+  private static Request request(String url, String etag) {
+    Request.Builder builder = new Request.Builder().url(url);
+    if (etag != null) {
+      builder.addHeader("If-None-Match", etag);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Keeps scheduled tasks until the test runs them.
+   */
+  private static class ManualBackoff extends HostBackoff {
+
+    final List<Runnable> scheduled = new ArrayList<>();
+    final List<Long> delays = new ArrayList<>();
+    long now = System.currentTimeMillis();
+
+    @Override
+    void schedule(Runnable task, long delay) {
+      scheduled.add(task);
+      delays.add(delay);
+    }
+
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+
+    void runScheduled() {
+      List<Runnable> tasks = new ArrayList<>(scheduled);
+      scheduled.clear();
+      for (Runnable task : tasks) {
+        task.run();
+      }
+    }
+  }
+
+  private static class ManualExecutor implements Executor {
+
+    final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+  }
+}
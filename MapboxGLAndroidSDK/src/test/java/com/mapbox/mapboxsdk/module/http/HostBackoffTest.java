@@ -0,0 +1,100 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HostBackoffTest {
+
+  private static final String HOST = "api.mapbox.com";
+  private static final long NOW = 1500000000000L;
+
+  private TestBackoff backoff;
+
+  @Before
+  public void setUp() {
+    backoff = new TestBackoff();
+  }
+
+  @Test
+  public void retryAfterSecondsPausesHost() {
+    assertEquals(0, backoff.getDelay(HOST));
+    assertEquals(30000, backoff.onRateLimited(HOST, "30", null));
+    assertEquals(30000, backoff.getDelay(HOST));
+    assertEquals(0, backoff.getDelay("tiles.example.com"));
+    assertEquals(1, backoff.getPausedHostCount());
+
+    backoff.now += 30000;
+    assertEquals(0, backoff.getDelay(HOST));
+    assertEquals(0, backoff.getPausedHostCount());
+  }
+
+  @Test
+  public void retryAfterDatePausesHost() {
+    // NOW + 60 seconds
+    assertEquals(60000, backoff.onRateLimited(HOST, "Fri, 14 Jul 2017 02:41:00 GMT", null));
+  }
+
+  @Test
+  public void rateLimitResetPausesHost() {
+    assertEquals(45000, backoff.onRateLimited(HOST, null, String.valueOf(NOW / 1000 + 45)));
+    assertEquals(1, backoff.getRateLimitCount());
+  }
+
+  @Test
+  public void pauseIsCapped() {
+    assertEquals(HostBackoff.MAX_PAUSE, backoff.onRateLimited(HOST, "86400", null));
+  }
+
+  @Test
+  public void pauseWithoutHeadersGrows() {
+    long first = backoff.onRateLimited(HOST, null, null);
+    assertTrue(first >= HostBackoff.BASE_DELAY / 2 && first <= HostBackoff.BASE_DELAY);
+    backoff.now += first;
+    long second = backoff.onRateLimited(HOST, "garbage", null);
+    assertTrue(second >= HostBackoff.BASE_DELAY && second <= 2 * HostBackoff.BASE_DELAY);
+  }
+
+  @Test
+  public void successKeepsRunningPause() {
+    backoff.onRateLimited(HOST, "10", null);
+    backoff.onSuccess(HOST);
+    assertEquals(10000, backoff.getDelay(HOST));
+  }
+
+  @Test
+  public void temporaryFailuresBackOffExponentially() {
+    long first = backoff.onTemporaryFailure(HOST, 0);
+    long second = backoff.onTemporaryFailure(HOST, 1);
+    assertTrue(first >= HostBackoff.BASE_DELAY / 2 && first <= HostBackoff.BASE_DELAY);
+    assertTrue(second >= HostBackoff.BASE_DELAY && second <= 2 * HostBackoff.BASE_DELAY);
+    assertEquals(-1, backoff.onTemporaryFailure(HOST, HostBackoff.MAX_RETRIES));
+    assertEquals(2, backoff.getRetryCount());
+
+    // a success resets the exponent
+    backoff.onSuccess(HOST);
+    long third = backoff.onTemporaryFailure(HOST, 0);
+    assertTrue(third <= HostBackoff.BASE_DELAY);
+  }
+
+  @Test
+  public void jitterIsBounded() {
+    for (int failures = 0; failures < 40; failures++) {
+      long delay = backoff.jitter(failures);
+      long max = Math.min(HostBackoff.MAX_DELAY, HostBackoff.BASE_DELAY << Math.min(failures, 16));
+      assertTrue(delay >= max / 2 && delay <= max);
+    }
+  }
+
+  private static class TestBackoff extends HostBackoff {
+
+    long now = NOW;
+
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+  }
+}
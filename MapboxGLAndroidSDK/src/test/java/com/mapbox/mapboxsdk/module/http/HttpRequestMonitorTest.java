@@ -0,0 +1,113 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.mapbox.mapboxsdk.http.HttpRequest;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpRequestMonitorTest {
+
+  private static final String URL = "https://api.mapbox.com/v4/mapbox.satellite/1/0/0.png";
+
+  private HttpRequestMonitor monitor;
+  private HttpRequestListener listener;
+  private PersistentDns dns;
+
+  @Before
+  public void setUp() {
+    dns = mock(PersistentDns.class);
+    monitor = new HttpRequestMonitor(dns);
+    listener = mock(HttpRequestListener.class);
+    monitor.addListener(listener);
+  }
+
+  @Test
+  public void successfulRequestsAreRecordedPerKind() {
+    monitor.report(metrics(Resource.TILE, 120, HttpRequestMetrics.NO_FAILURE));
+    monitor.report(metrics(Resource.STYLE, 40, HttpRequestMetrics.NO_FAILURE));
+
+    assertEquals(120, monitor.getDurationPercentile(Resource.TILE, 0.5));
+    assertEquals(40, monitor.getDurationPercentile(Resource.STYLE, 0.5));
+    assertEquals(-1, monitor.getDurationPercentile(Resource.GLYPHS, 0.5));
+  }
+
+  @Test
+  public void failedRequestsAreReportedButNotRecorded() {
+    HttpRequestMetrics metrics = metrics(Resource.TILE, 5000, HttpRequest.CONNECTION_ERROR);
+    monitor.report(metrics);
+
+    verify(listener).onRequestFinished(metrics);
+    assertEquals(-1, monitor.getDurationPercentile(Resource.TILE, 0.5));
+  }
+
+  @Test
+  public void memoryHitsAreReported() {
+    monitor.reportMemoryHit(Resource.STYLE, URL);
+    verify(listener).onRequestFinished(any(HttpRequestMetrics.class));
+    assertEquals(-1, monitor.getDurationPercentile(Resource.STYLE, 0.5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownKindIsRejected() {
+    monitor.getDurationPercentile(42, 0.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void percentileOutOfRangeIsRejected() {
+    monitor.getDurationPercentile(Resource.TILE, 1.5);
+  }
+
+  @Test
+  public void removedListenerIsNotNotified() {
+    monitor.removeListener(listener);
+    monitor.report(metrics(Resource.TILE, 120, HttpRequestMetrics.NO_FAILURE));
+    verify(listener, never()).onRequestFinished(any(HttpRequestMetrics.class));
+  }
+
+  @Test
+  public void onlyTaggedCallsAreMonitored() {
+    Call untagged = mock(Call.class);
+    when(untagged.request()).thenReturn(new Request.Builder().url(URL).build());
+    // untagged calls share a listener which only watches connection failures
+    EventListener shared = monitor.create(untagged);
+    assertSame(shared, monitor.create(untagged));
+
+    Call tagged = mock(Call.class);
+    when(tagged.request()).thenReturn(new Request.Builder().url(URL)
+      .tag(HttpRequestMonitor.ResourceTag.class, HttpRequestMonitor.ResourceTag.of(Resource.TILE))
+      .build());
+    assertNotSame(shared, monitor.create(tagged));
+  }
+
+  @Test
+  public void failedConnectionEvictsHost() {
+    Call call = mock(Call.class);
+    when(call.request()).thenReturn(new Request.Builder().url(URL).build());
+    monitor.create(call).connectFailed(call, new InetSocketAddress("10.0.0.1", 443), Proxy.NO_PROXY, null,
+      new IOException("Connection refused"));
+    verify(dns).evict("api.mapbox.com");
+  }
+
+  private static HttpRequestMetrics metrics(int kind, long duration, int failureType) {
+    return new HttpRequestMetrics(kind, URL, 200, -1, -1, -1, 10, 10, duration, 1024,
+      HttpRequestMetrics.CACHE_MISS, failureType);
+  }
+}
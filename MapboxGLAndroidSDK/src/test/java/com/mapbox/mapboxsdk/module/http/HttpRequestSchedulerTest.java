@@ -0,0 +1,167 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpRequestSchedulerTest {
+
+  private final List<String> dispatched = new ArrayList<>();
+
+  @Test
+  public void dispatchesImmediatelyWithCapacity() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(2, 2);
+    scheduler.submit(new NamedTask("tile"), HttpRequestPriority.TILE);
+    assertEquals(1, dispatched.size());
+    assertEquals(1, scheduler.getRunningCount(HttpRequestPriority.TILE));
+  }
+
+  @Test
+  public void dispatchesInPriorityOrder() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(1, 1);
+    NamedTask first = new NamedTask("first");
+    NamedTask style = new NamedTask("style");
+    NamedTask glyphs = new NamedTask("glyphs");
+    NamedTask tile = new NamedTask("tile");
+    NamedTask prefetch = new NamedTask("prefetch");
+    scheduler.submit(first, HttpRequestPriority.OFFLINE);
+    scheduler.submit(new NamedTask("offline"), HttpRequestPriority.OFFLINE);
+    scheduler.submit(prefetch, HttpRequestPriority.PREFETCH);
+    scheduler.submit(tile, HttpRequestPriority.TILE);
+    scheduler.submit(glyphs, HttpRequestPriority.GLYPHS);
+    scheduler.submit(style, HttpRequestPriority.STYLE);
+
+    scheduler.finished(first, HttpRequestPriority.OFFLINE);
+    scheduler.finished(style, HttpRequestPriority.STYLE);
+    scheduler.finished(glyphs, HttpRequestPriority.GLYPHS);
+    scheduler.finished(tile, HttpRequestPriority.TILE);
+    scheduler.finished(prefetch, HttpRequestPriority.PREFETCH);
+
+    assertEquals("[first, style, glyphs, tile, prefetch, offline]", dispatched.toString());
+  }
+
+  @Test
+  public void respectsClassBudget() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(4, 4);
+    scheduler.setBudget(HttpRequestPriority.OFFLINE, 1);
+    NamedTask offline = new NamedTask("offline1");
+    scheduler.submit(offline, HttpRequestPriority.OFFLINE);
+    scheduler.submit(new NamedTask("offline2"), HttpRequestPriority.OFFLINE);
+    scheduler.submit(new NamedTask("tile"), HttpRequestPriority.TILE);
+
+    assertEquals("[offline1, tile]", dispatched.toString());
+    assertEquals(1, scheduler.getPendingCount(HttpRequestPriority.OFFLINE));
+
+    scheduler.finished(offline, HttpRequestPriority.OFFLINE);
+    assertEquals("[offline1, tile, offline2]", dispatched.toString());
+  }
+
+  @Test
+  public void respectsHostLimitIndependentlyOfGlobalLimit() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(3, 2);
+    NamedTask first = new NamedTask("a1", "a.example.com");
+    scheduler.submit(first, HttpRequestPriority.TILE);
+    scheduler.submit(new NamedTask("a2", "a.example.com"), HttpRequestPriority.TILE);
+    scheduler.submit(new NamedTask("a3", "a.example.com"), HttpRequestPriority.TILE);
+    scheduler.submit(new NamedTask("b1", "b.example.com"), HttpRequestPriority.TILE);
+    scheduler.submit(new NamedTask("b2", "b.example.com"), HttpRequestPriority.TILE);
+
+    assertEquals("[a1, a2, b1]", dispatched.toString());
+    assertEquals(2, scheduler.getRunningCount("a.example.com"));
+
+    scheduler.finished(first, HttpRequestPriority.TILE);
+    assertEquals("[a1, a2, b1, a3]", dispatched.toString());
+  }
+
+  @Test
+  public void tasksFinishedWhileDispatchingDontRecurse() {
+    final HttpRequestScheduler scheduler = new HttpRequestScheduler(0, 1);
+    final int count = 100000;
+    for (int i = 0; i < count; i++) {
+      // like a call to a rate limited host, giving its slot back right away
+      scheduler.submit(new NamedTask("paused") {
+        @Override
+        public void dispatch(int priority) {
+          super.dispatch(priority);
+          scheduler.finished(this, priority);
+        }
+      }, HttpRequestPriority.TILE);
+    }
+
+    scheduler.setMaxRequests(1);
+    assertEquals(count, dispatched.size());
+    assertEquals(0, scheduler.getRunningCount(HttpRequestPriority.TILE));
+  }
+
+  @Test
+  public void defaultBudgetLeavesRoomForVisibleTiles() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(4, 4);
+    for (int i = 0; i < 4; i++) {
+      scheduler.submit(new NamedTask("offline"), HttpRequestPriority.OFFLINE);
+    }
+    assertEquals(2, scheduler.getRunningCount(HttpRequestPriority.OFFLINE));
+
+    scheduler.submit(new NamedTask("tile"), HttpRequestPriority.TILE);
+    assertEquals(1, scheduler.getRunningCount(HttpRequestPriority.TILE));
+  }
+
+  @Test
+  public void removedTaskIsNotDispatched() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(0, 4);
+    NamedTask task = new NamedTask("tile");
+    scheduler.submit(task, HttpRequestPriority.TILE);
+    assertEquals(1, scheduler.getPendingCount(HttpRequestPriority.TILE));
+
+    scheduler.remove(task, HttpRequestPriority.TILE);
+    scheduler.setMaxRequests(1);
+    assertEquals(0, dispatched.size());
+  }
+
+  @Test
+  public void removedBatchIsNotDispatched() {
+    HttpRequestScheduler scheduler = new HttpRequestScheduler(4, 4);
+    scheduler.setMaxRequests(0);
+    NamedTask tile = new NamedTask("tile");
+    NamedTask prefetch = new NamedTask("prefetch");
+    scheduler.submit(tile, HttpRequestPriority.TILE);
+    scheduler.submit(new NamedTask("kept"), HttpRequestPriority.TILE);
+    scheduler.submit(prefetch, HttpRequestPriority.PREFETCH);
+
+    scheduler.removeAll(new HashSet<HttpRequestScheduler.Task>(Arrays.asList(tile, prefetch)));
+    assertEquals(1, scheduler.getPendingCount(HttpRequestPriority.TILE));
+    assertEquals(0, scheduler.getPendingCount(HttpRequestPriority.PREFETCH));
+
+    scheduler.setMaxRequests(4);
+    assertEquals("[kept]", dispatched.toString());
+  }
+
+  private class NamedTask implements HttpRequestScheduler.Task {
+
+    private final String name;
+    private final String host;
+
+    NamedTask(String name) {
+      this(name, "api.mapbox.com");
+    }
+
+    NamedTask(String name, String host) {
+      this.name = name;
+      this.host = host;
+    }
+
+    @Override
+    public void dispatch(int priority) {
+      dispatched.add(name);
+    }
+
+    @Override
+    public String getHost() {
+      return host;
+    }
+  }
+}
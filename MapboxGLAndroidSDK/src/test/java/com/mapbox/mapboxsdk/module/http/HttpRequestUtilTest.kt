@@ -3,6 +3,7 @@ package com.mapbox.mapboxsdk.module.http
 import com.mapbox.mapboxsdk.MapboxInjector
 import io.mockk.mockk
 import junit.framework.Assert.assertEquals
+import junit.framework.Assert.assertTrue
 import okhttp3.OkHttpClient
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -32,4 +33,31 @@ class HttpRequestUtilTest {
 
     MapboxInjector.clear()
   }
-}
\ No newline at end of file
+
+  @Test
+  fun raiseConcurrencyLimitsPastDispatcherDefaults() {
+    HttpRequestUtil.setMaxConcurrentRequests(100)
+    HttpRequestUtil.setMaxConcurrentRequestsPerHost(50)
+    try {
+      val dispatcher = HttpRequestImpl.DEFAULT_CLIENT.dispatcher()
+      assertTrue(dispatcher.maxRequests >= 100)
+      assertTrue(dispatcher.maxRequestsPerHost >= 50)
+
+      val tasks = List(50) { HostTask("api.mapbox.com") }
+      tasks.forEach { HttpRequestImpl.scheduler.submit(it, HttpRequestPriority.TILE) }
+      assertEquals(50, HttpRequestImpl.scheduler.getRunningCount("api.mapbox.com"))
+      tasks.forEach { HttpRequestImpl.scheduler.finished(it, HttpRequestPriority.TILE) }
+    } finally {
+      HttpRequestUtil.setMaxConcurrentRequests(HttpRequestImpl.DEFAULT_MAX_REQUESTS)
+      HttpRequestUtil.setMaxConcurrentRequestsPerHost(HttpRequestImpl.DEFAULT_MAX_REQUESTS_PER_HOST)
+    }
+  }
+
+  private class HostTask(private val name: String) : HttpRequestScheduler.Task {
+
+    override fun dispatch(priority: Int) {
+    }
+
+    override fun getHost() = name
+  }
+}
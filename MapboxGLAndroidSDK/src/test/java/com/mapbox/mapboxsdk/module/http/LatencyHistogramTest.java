@@ -0,0 +1,39 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void emptyHistogramHasNoPercentile() {
+    assertEquals(-1, new LatencyHistogram(8).percentile(0.5));
+  }
+
+  @Test
+  public void percentilesUseNearestRank() {
+    LatencyHistogram histogram = new LatencyHistogram(100);
+    for (int i = 100; i > 0; i--) {
+      histogram.add(i);
+    }
+    assertEquals(50, histogram.percentile(0.5));
+    assertEquals(95, histogram.percentile(0.95));
+    assertEquals(99, histogram.percentile(0.99));
+    assertEquals(100, histogram.percentile(1));
+    assertEquals(1, histogram.percentile(0));
+  }
+
+  @Test
+  public void oldestSamplesRollOut() {
+    LatencyHistogram histogram = new LatencyHistogram(4);
+    for (int i = 0; i < 4; i++) {
+      histogram.add(1000);
+    }
+    for (int i = 0; i < 4; i++) {
+      histogram.add(10);
+    }
+    assertEquals(4, histogram.getCount());
+    assertEquals(10, histogram.percentile(0.99));
+  }
+}
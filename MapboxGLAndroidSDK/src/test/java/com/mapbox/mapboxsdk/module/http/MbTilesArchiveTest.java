@@ -0,0 +1,118 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class MbTilesArchiveTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = new File(folder.getRoot(), "test.mbtiles");
+    write(file);
+  }
+
+  @Test
+  public void gzipTilesAreInflated() throws IOException {
+    MbTilesArchive archive = new MbTilesArchive(file, 1);
+    try {
+      assertTile("z0", archive.getTile(0, 0, 0));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test
+  public void plainTilesAreReturnedAsStored() throws IOException {
+    MbTilesArchive archive = new MbTilesArchive(file, 1);
+    try {
+      // rows are counted from the south, the tile stored at row 1 is the north west tile
+      assertTile("z1", archive.getTile(1, 0, 0));
+      assertNull(archive.getTile(1, 0, 1));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test
+  public void tileJson() throws IOException {
+    MbTilesArchive archive = new MbTilesArchive(file, 1);
+    try {
+      String tileJson = archive.getTileJson("mbtiles:///test.mbtiles/{z}/{x}/{y}");
+      assertTrue(tileJson.contains("\"tiles\":[\"mbtiles:///test.mbtiles/{z}/{x}/{y}\"]"));
+      assertTrue(tileJson.contains("\"name\":\"test\""));
+      assertTrue(tileJson.contains("\"vector_layers\":[]"));
+      assertTrue(tileJson.contains("\"minzoom\":0"));
+      assertTrue(tileJson.contains("\"maxzoom\":1"));
+      assertTrue(tileJson.contains("\"bounds\":[-180.0,-85.0,180.0,85.0]"));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void missingFileIsNotFound() throws IOException {
+    new MbTilesArchive(new File(folder.getRoot(), "missing.mbtiles"), 1);
+  }
+
+  /**
+   * Writes an archive with a gzip compressed tile at z0 and a plain tile at z1, row 1.
+   */
+  static void write(@NonNull File file) throws IOException {
+    SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(file, null);
+    try {
+      database.execSQL("CREATE TABLE metadata (name TEXT, value TEXT)");
+      database.execSQL("CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, "
+        + "tile_data BLOB)");
+      database.execSQL("INSERT INTO metadata VALUES ('name', 'test'), ('bounds', '-180,-85,180,85'), "
+        + "('json', '{\"vector_layers\":[]}')");
+      database.execSQL("INSERT INTO tiles VALUES (0, 0, 0, ?)", new Object[] {gzip("z0".getBytes(UTF_8))});
+      database.execSQL("INSERT INTO tiles VALUES (1, 0, 1, ?)", new Object[] {"z1".getBytes(UTF_8)});
+    } finally {
+      database.close();
+    }
+  }
+
+  private static void assertTile(String expected, ByteBuffer tile) {
+    assertNotNull(tile);
+    byte[] bytes = new byte[tile.remaining()];
+    tile.get(bytes);
+    assertEquals(expected, new String(bytes, UTF_8));
+  }
+
+  @NonNull
+  private static byte[] gzip(@NonNull byte[] bytes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(output);
+    gzip.write(bytes);
+    gzip.close();
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,163 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PersistentDnsTest {
+
+  private static final String HOST = "api.mapbox.com";
+  private static final long TTL = 1000;
+  private static final long PERSISTED_TTL = 10000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Dns delegate;
+  private InetAddress address;
+  private long now;
+
+  @Before
+  public void setUp() throws UnknownHostException {
+    delegate = mock(Dns.class);
+    address = InetAddress.getByAddress(HOST, new byte[] {10, 0, 0, 1});
+    when(delegate.lookup(HOST)).thenReturn(Collections.singletonList(address));
+  }
+
+  @Test
+  public void lookupIsCached() throws UnknownHostException {
+    PersistentDns dns = new TestDns();
+    assertEquals(address, dns.lookup(HOST).get(0));
+    assertEquals(address, dns.lookup(HOST).get(0));
+    verify(delegate, times(1)).lookup(HOST);
+  }
+
+  @Test
+  public void expiredLookupIsRefreshed() throws UnknownHostException {
+    PersistentDns dns = new TestDns();
+    dns.lookup(HOST);
+    now += TTL;
+    dns.lookup(HOST);
+    verify(delegate, times(2)).lookup(HOST);
+  }
+
+  @Test
+  public void lookupsArePersisted() throws Exception {
+    File file = new File(folder.getRoot(), "dns");
+    PersistentDns dns = new TestDns();
+    dns.load(file);
+    dns.lookup(HOST);
+    dns.flush();
+
+    PersistentDns restored = new TestDns();
+    restored.load(file);
+    List<InetAddress> addresses = restored.lookup(HOST);
+    assertEquals(1, addresses.size());
+    assertEquals(HOST, addresses.get(0).getHostName());
+    assertEquals("10.0.0.1", addresses.get(0).getHostAddress());
+    verify(delegate, times(1)).lookup(HOST);
+  }
+
+  @Test
+  public void expiredEntriesAreNotLoaded() throws Exception {
+    File file = new File(folder.getRoot(), "dns");
+    PersistentDns dns = new TestDns();
+    dns.load(file);
+    dns.lookup(HOST);
+    dns.flush();
+
+    now += PERSISTED_TTL;
+    PersistentDns restored = new TestDns();
+    restored.load(file);
+    assertEquals(0, restored.size());
+  }
+
+  @Test
+  public void persistedEntriesOutliveTheTtl() throws Exception {
+    File file = new File(folder.getRoot(), "dns");
+    PersistentDns dns = new TestDns();
+    dns.load(file);
+    dns.lookup(HOST);
+    dns.flush();
+
+    // a process started after the in-memory time to live still skips name resolution
+    now += TTL;
+    PersistentDns restored = new TestDns();
+    restored.load(file);
+    restored.lookup(HOST);
+    verify(delegate, times(1)).lookup(HOST);
+
+    // and resolves the host again after the in-memory time to live
+    now += TTL;
+    restored.lookup(HOST);
+    verify(delegate, times(2)).lookup(HOST);
+  }
+
+  @Test
+  public void lookupsAreWrittenTogether() throws Exception {
+    File file = new File(folder.getRoot(), "dns");
+    PersistentDns dns = new TestDns();
+    dns.load(file);
+    dns.lookup(HOST);
+    // the write is delayed, so that the lookups of a burst of requests are written once
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void evictedHostIsResolvedAgain() throws Exception {
+    File file = new File(folder.getRoot(), "dns");
+    PersistentDns dns = new TestDns();
+    dns.load(file);
+    dns.lookup(HOST);
+    dns.flush();
+    dns.evict(HOST);
+    dns.flush();
+
+    PersistentDns restored = new TestDns();
+    restored.load(file);
+    assertEquals(0, restored.size());
+    dns.lookup(HOST);
+    verify(delegate, times(2)).lookup(HOST);
+  }
+
+  @Test
+  public void clearRemovesPersistedEntries() throws Exception {
+    File file = new File(folder.getRoot(), "dns");
+    PersistentDns dns = new TestDns();
+    dns.load(file);
+    dns.lookup(HOST);
+    dns.clear();
+
+    PersistentDns restored = new TestDns();
+    restored.load(file);
+    assertEquals(0, restored.size());
+  }
+
+  private class TestDns extends PersistentDns {
+
+    TestDns() {
+      super(delegate, TTL, PERSISTED_TTL);
+    }
+
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import static com.mapbox.mapboxsdk.module.http.PmTilesArchive.COMPRESSION_BROTLI;
+import static com.mapbox.mapboxsdk.module.http.PmTilesArchive.COMPRESSION_GZIP;
+import static com.mapbox.mapboxsdk.module.http.PmTilesArchive.COMPRESSION_NONE;
+import static com.mapbox.mapboxsdk.module.http.PmTilesArchive.COMPRESSION_UNKNOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PmTilesArchiveTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String METADATA = "{\"name\":\"test\",\"attribution\":\"&copy; test\"}";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void tileIds() {
+    assertEquals(0, PmTilesArchive.tileId(0, 0, 0));
+    assertEquals(1, PmTilesArchive.tileId(1, 0, 0));
+    assertEquals(2, PmTilesArchive.tileId(1, 0, 1));
+    assertEquals(3, PmTilesArchive.tileId(1, 1, 1));
+    assertEquals(4, PmTilesArchive.tileId(1, 1, 0));
+    assertEquals(5, PmTilesArchive.tileId(2, 0, 0));
+    assertEquals(20, PmTilesArchive.tileId(2, 3, 0));
+    assertEquals(21, PmTilesArchive.tileId(3, 0, 0));
+  }
+
+  @Test
+  public void tilesFromRootDirectory() throws IOException {
+    PmTilesArchive archive = new PmTilesArchive(write(COMPRESSION_NONE, COMPRESSION_NONE));
+    try {
+      assertTile("z0", archive.getTile(0, 0, 0));
+      assertTile("z1", archive.getTile(1, 0, 1));
+      // run length of two
+      assertTile("z1", archive.getTile(1, 1, 1));
+      assertNull(archive.getTile(1, 1, 0));
+      assertNull(archive.getTile(3, 0, 0));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test
+  public void tilesFromLeafDirectory() throws IOException {
+    PmTilesArchive archive = new PmTilesArchive(write(COMPRESSION_GZIP, COMPRESSION_NONE));
+    try {
+      assertTile("z2", archive.getTile(2, 0, 0));
+      assertTile("z2", archive.getTile(2, 0, 0));
+      assertNull(archive.getTile(2, 3, 0));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test
+  public void gzipTilesAreInflated() throws IOException {
+    PmTilesArchive archive = new PmTilesArchive(write(COMPRESSION_GZIP, COMPRESSION_GZIP));
+    try {
+      assertTile("z0", archive.getTile(0, 0, 0));
+      assertTile("z2", archive.getTile(2, 0, 0));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test
+  public void tilesOfUnknownCompressionAreInflatedIfGzip() throws IOException {
+    PmTilesArchive archive = new PmTilesArchive(write(COMPRESSION_NONE, COMPRESSION_GZIP, COMPRESSION_UNKNOWN));
+    try {
+      assertTile("z1", archive.getTile(1, 0, 1));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsBrotliTiles() throws IOException {
+    new PmTilesArchive(write(COMPRESSION_GZIP, COMPRESSION_BROTLI));
+  }
+
+  @Test
+  public void tilesAreMapped() throws IOException {
+    PmTilesArchive archive = new PmTilesArchive(write(COMPRESSION_NONE, COMPRESSION_NONE));
+    try {
+      ByteBuffer tile = archive.getTile(0, 0, 0);
+      assertNotNull(tile);
+      assertTrue(tile.isDirect());
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test
+  public void tileJson() throws IOException {
+    PmTilesArchive archive = new PmTilesArchive(write(COMPRESSION_GZIP, COMPRESSION_NONE));
+    try {
+      String tileJson = archive.getTileJson("pmtiles:///test.pmtiles/{z}/{x}/{y}");
+      assertTrue(tileJson.contains("\"tiles\":[\"pmtiles:///test.pmtiles/{z}/{x}/{y}\"]"));
+      assertTrue(tileJson.contains("\"attribution\":\"&copy; test\""));
+      assertTrue(tileJson.contains("\"minzoom\":0"));
+      assertTrue(tileJson.contains("\"maxzoom\":2"));
+      assertTrue(tileJson.contains("\"bounds\":[-180.0,-85.0,180.0,85.0]"));
+    } finally {
+      archive.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    File file = folder.newFile("other.pmtiles");
+    FileOutputStream output = new FileOutputStream(file);
+    output.write(new byte[PmTilesArchive.HEADER_LENGTH]);
+    output.close();
+    new PmTilesArchive(file);
+  }
+
+  @Test
+  public void parseArchiveUrls() {
+    TileArchiveHttpRequest.ArchiveUrl url = TileArchiveHttpRequest.ArchiveUrl.parse("pmtiles:///data/city.pmtiles");
+    assertNotNull(url);
+    assertEquals("pmtiles", url.scheme);
+    assertEquals("/data/city.pmtiles", url.path);
+    assertFalse(url.isTile());
+
+    url = TileArchiveHttpRequest.ArchiveUrl.parse("mbtiles:///data/city.mbtiles/3/4/2.pbf");
+    assertNotNull(url);
+    assertEquals("mbtiles", url.scheme);
+    assertEquals("/data/city.mbtiles", url.path);
+    assertTrue(url.isTile());
+    assertEquals(3, url.z);
+    assertEquals(4, url.x);
+    assertEquals(2, url.y);
+
+    assertNull(TileArchiveHttpRequest.ArchiveUrl.parse("mbtiles:///data/city.mbtiles/3/8/2"));
+    assertNull(TileArchiveHttpRequest.ArchiveUrl.parse("mbtiles:///data/city.mbtiles/3/4"));
+    assertNull(TileArchiveHttpRequest.ArchiveUrl.parse("pmtiles:///data/city.mbtiles"));
+  }
+
+  @Test
+  public void archiveUrls() {
+    assertTrue(TileArchiveHttpRequest.isArchiveUrl("pmtiles:///data/city.pmtiles"));
+    assertTrue(TileArchiveHttpRequest.isArchiveUrl("mbtiles:///data/city.mbtiles/0/0/0"));
+    assertFalse(TileArchiveHttpRequest.isArchiveUrl("https://api.mapbox.com/v4/mapbox.mapbox-streets-v8.json"));
+  }
+
+  private static void assertTile(String expected, ByteBuffer tile) {
+    assertNotNull(tile);
+    byte[] bytes = new byte[tile.remaining()];
+    tile.get(bytes);
+    assertEquals(expected, new String(bytes, UTF_8));
+  }
+
+  /**
+   * Writes an archive with tiles z0, z1 for tile ids 2 and 3, and z2 for tile id 5 in a leaf directory.
+   */
+  private File write(int compression, int tileCompression) throws IOException {
+    return write(compression, tileCompression, tileCompression);
+  }
+
+  /**
+   * Writes the archive, with the tiles compressed with a compression that may differ from the one declared.
+   */
+  private File write(int compression, int tileCompression, int declaredTileCompression) throws IOException {
+    byte[][] tiles = new byte[3][];
+    ByteArrayOutputStream tileData = new ByteArrayOutputStream();
+    for (int z = 0; z < tiles.length; z++) {
+      tiles[z] = compress(("z" + z).getBytes(UTF_8), tileCompression);
+      tileData.write(tiles[z]);
+    }
+    byte[] leaf = compress(encodeDirectory(new long[] {5}, new long[] {1}, new int[] {tiles[2].length},
+      new long[] {tiles[0].length + tiles[1].length}), compression);
+    byte[] root = compress(encodeDirectory(new long[] {0, 2, 5}, new long[] {1, 2, 0},
+      new int[] {tiles[0].length, tiles[1].length, leaf.length}, new long[] {0, tiles[0].length, 0}), compression);
+    byte[] metadata = compress(METADATA.getBytes(UTF_8), compression);
+
+    long rootOffset = PmTilesArchive.HEADER_LENGTH;
+    long metadataOffset = rootOffset + root.length;
+    long leafOffset = metadataOffset + metadata.length;
+    long tileDataOffset = leafOffset + leaf.length;
+
+    ByteBuffer header = ByteBuffer.allocate(PmTilesArchive.HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    header.put("PMTiles".getBytes(UTF_8)).put((byte) 3);
+    header.putLong(rootOffset).putLong(root.length);
+    header.putLong(metadataOffset).putLong(metadata.length);
+    header.putLong(leafOffset).putLong(leaf.length);
+    header.putLong(tileDataOffset).putLong(tileData.size());
+    header.putLong(5).putLong(3).putLong(3);
+    header.put((byte) 1).put((byte) compression).put((byte) declaredTileCompression).put((byte) 1);
+    header.put((byte) 0).put((byte) 2);
+    header.putInt(-1800000000).putInt(-850000000).putInt(1800000000).putInt(850000000);
+    header.put((byte) 0).putInt(0).putInt(0);
+
+    File file = folder.newFile("test.pmtiles");
+    FileOutputStream output = new FileOutputStream(file);
+    try {
+      output.write(header.array());
+      output.write(root);
+      output.write(metadata);
+      output.write(leaf);
+      tileData.writeTo(output);
+    } finally {
+      output.close();
+    }
+    return file;
+  }
+
+  private static byte[] encodeDirectory(long[] tileIds, long[] runLengths, int[] lengths, long[] offsets) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    writeVarint(output, tileIds.length);
+    long lastId = 0;
+    for (long tileId : tileIds) {
+      writeVarint(output, tileId - lastId);
+      lastId = tileId;
+    }
+    for (long runLength : runLengths) {
+      writeVarint(output, runLength);
+    }
+    for (int length : lengths) {
+      writeVarint(output, length);
+    }
+    for (long offset : offsets) {
+      writeVarint(output, offset + 1);
+    }
+    return output.toByteArray();
+  }
+
+  private static void writeVarint(ByteArrayOutputStream output, long value) {
+    while (value >= 0x80) {
+      output.write((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write((int) value);
+  }
+
+  private static byte[] compress(byte[] bytes, int compression) throws IOException {
+    if (compression != COMPRESSION_GZIP) {
+      return bytes;
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(output);
+    gzip.write(bytes);
+    gzip.close();
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,142 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.mapbox.mapboxsdk.http.HttpBufferResponder;
+import com.mapbox.mapboxsdk.http.HttpResponder;
+import com.mapbox.mapboxsdk.http.LocalAnswerResponder;
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import okhttp3.Headers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ResourceMemoryCacheTest {
+
+  private static final String URL = "https://api.mapbox.com/styles/v1/mapbox/streets-v11";
+  private static final Headers HEADERS = Headers.of("Cache-Control", "max-age=60", "ETag", "etag");
+
+  private ResourceMemoryCache cache;
+  private HttpBufferResponder responder;
+  private long now;
+
+  @Before
+  public void setUp() {
+    cache = new ResourceMemoryCache(1024) {
+      @Override
+      long currentTimeMillis() {
+        return now;
+      }
+    };
+    responder = mock(HttpBufferResponder.class);
+  }
+
+  @Test
+  public void onlySmallResourceKindsAreCacheable() {
+    assertTrue(ResourceMemoryCache.isCacheable(Resource.STYLE));
+    assertTrue(ResourceMemoryCache.isCacheable(Resource.GLYPHS));
+    assertFalse(ResourceMemoryCache.isCacheable(Resource.TILE));
+  }
+
+  @Test
+  public void freshEntryIsServed() {
+    cache.put(URL, HEADERS, body(16));
+    now += 30 * 1000;
+
+    assertTrue(cache.respond(URL, "", "", responder));
+    verify(responder).onResponseBuffer(eq(200), eq("etag"), (String) isNull(), eq("max-age=30"),
+      (String) isNull(), (String) isNull(), (String) isNull(), any(ByteBuffer.class));
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void plainResponderReceivesTheBodyAsBytes() {
+    HttpResponder plainResponder = mock(HttpResponder.class);
+    cache.put(URL, HEADERS, body(16));
+
+    assertTrue(cache.respond(URL, "", "", plainResponder));
+    verify(plainResponder).onResponse(eq(200), eq("etag"), (String) isNull(), eq("max-age=60"),
+      (String) isNull(), (String) isNull(), (String) isNull(), eq(new byte[16]));
+  }
+
+  @Test
+  public void hitIsAnsweredLocally() {
+    LocalAnswerResponder localResponder = mock(LocalAnswerResponder.class);
+    cache.put(URL, HEADERS, body(16));
+
+    assertTrue(cache.respond(URL, "etag", "", localResponder));
+    verify(localResponder).onLocalAnswer();
+  }
+
+  @Test
+  public void matchingEtagIsNotModified() {
+    cache.put(URL, HEADERS, body(16));
+
+    assertTrue(cache.respond(URL, "etag", "", responder));
+    verify(responder).onResponse(304, "etag", null, "max-age=60", null, null, null, null);
+  }
+
+  @Test
+  public void expiredEntryIsMissed() {
+    cache.put(URL, HEADERS, body(16));
+    now += 60 * 1000;
+
+    assertFalse(cache.respond(URL, "", "", responder));
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void notModifiedResponseRefreshesEntry() {
+    cache.put(URL, HEADERS, body(16));
+    now += 60 * 1000;
+    cache.refresh(URL, "etag", HEADERS);
+
+    assertTrue(cache.respond(URL, "", "", responder));
+  }
+
+  @Test
+  public void uncacheableResponseIsNotStored() {
+    cache.put(URL, Headers.of("Cache-Control", "no-store"), body(16));
+    cache.put(URL + "?fresh=false", Headers.of("ETag", "etag"), body(16));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    cache.put(URL + "/1", HEADERS, body(256));
+    cache.put(URL + "/2", HEADERS, body(256));
+    cache.put(URL + "/3", HEADERS, body(256));
+    cache.respond(URL + "/1", "", "", responder);
+    cache.put(URL + "/4", HEADERS, body(256));
+    cache.put(URL + "/5", HEADERS, body(256));
+
+    assertEquals(1024, cache.getSize());
+    assertEquals(1, cache.getEvictionCount());
+    assertTrue(cache.respond(URL + "/1", "", "", responder));
+    assertFalse(cache.respond(URL + "/2", "", "", responder));
+  }
+
+  @Test
+  public void disabledCacheDoesNotCount() {
+    cache.setMaxSize(0);
+    assertFalse(cache.respond(URL, "", "", responder));
+    assertEquals(0, cache.getMissCount());
+  }
+
+  private static ByteBuffer body(int length) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+    buffer.position(length);
+    buffer.flip();
+    return buffer;
+  }
+}
@@ -0,0 +1,73 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseBufferPoolTest {
+
+  @Test
+  public void acquireRoundsUpToSizeClass() {
+    ResponseBufferPool pool = new ResponseBufferPool(ResponseBufferPool.DEFAULT_MAX_POOL_SIZE);
+    ByteBuffer buffer = pool.acquire(ResponseBufferPool.MIN_BUFFER_SIZE + 1);
+    assertTrue(buffer.isDirect());
+    assertEquals(2 * ResponseBufferPool.MIN_BUFFER_SIZE, buffer.capacity());
+  }
+
+  @Test
+  public void releasedBufferIsReused() {
+    ResponseBufferPool pool = new ResponseBufferPool(ResponseBufferPool.DEFAULT_MAX_POOL_SIZE);
+    ByteBuffer buffer = pool.acquire(100);
+    buffer.put((byte) 1);
+    pool.release(buffer);
+    assertEquals(ResponseBufferPool.MIN_BUFFER_SIZE, pool.getPooledSize());
+
+    ByteBuffer reused = pool.acquire(200);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(0, pool.getPooledSize());
+  }
+
+  @Test
+  public void oversizedBuffersAreNotPooled() {
+    ResponseBufferPool pool = new ResponseBufferPool(ResponseBufferPool.DEFAULT_MAX_POOL_SIZE);
+    ByteBuffer buffer = pool.acquire(ResponseBufferPool.MAX_BUFFER_SIZE + 1);
+    assertEquals(ResponseBufferPool.MAX_BUFFER_SIZE + 1, buffer.capacity());
+    pool.release(buffer);
+    assertEquals(0, pool.getPooledSize());
+  }
+
+  @Test
+  public void poolSizeIsCapped() {
+    ResponseBufferPool pool = new ResponseBufferPool(ResponseBufferPool.MIN_BUFFER_SIZE);
+    ByteBuffer first = pool.acquire(1);
+    ByteBuffer second = pool.acquire(1);
+    pool.release(first);
+    pool.release(second);
+    assertEquals(ResponseBufferPool.MIN_BUFFER_SIZE, pool.getPooledSize());
+
+    pool.setMaxPoolSize(0);
+    assertEquals(0, pool.getPooledSize());
+    assertNotSame(first, pool.acquire(1));
+  }
+
+  @Test
+  public void growKeepsContent() {
+    ResponseBufferPool pool = new ResponseBufferPool(ResponseBufferPool.DEFAULT_MAX_POOL_SIZE);
+    ByteBuffer buffer = pool.acquire(1);
+    while (buffer.hasRemaining()) {
+      buffer.put((byte) 7);
+    }
+
+    ByteBuffer larger = pool.grow(buffer);
+    assertEquals(2 * ResponseBufferPool.MIN_BUFFER_SIZE, larger.capacity());
+    assertEquals(ResponseBufferPool.MIN_BUFFER_SIZE, larger.position());
+    assertEquals(7, larger.get(ResponseBufferPool.MIN_BUFFER_SIZE - 1));
+    assertEquals(ResponseBufferPool.MIN_BUFFER_SIZE, pool.getPooledSize());
+  }
+}
@@ -0,0 +1,116 @@
+package com.mapbox.mapboxsdk.module.http;
+
+import com.mapbox.mapboxsdk.http.HttpRequest;
+import com.mapbox.mapboxsdk.http.HttpResponder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+public class TileArchiveHttpRequestTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final HttpRequest delegate = mock(HttpRequest.class);
+  private final HttpResponder responder = mock(HttpResponder.class);
+  private String archiveUrl;
+
+  @Before
+  public void setUp() throws IOException {
+    File file = new File(folder.getRoot(), "test.mbtiles");
+    MbTilesArchiveTest.write(file);
+    archiveUrl = "mbtiles://" + file.getAbsolutePath();
+  }
+
+  @After
+  public void tearDown() {
+    TileArchiveHttpRequest.closeArchives();
+  }
+
+  @Test
+  public void tilesAreServedInflated() {
+    execute(archiveUrl + "/0/0/0.pbf");
+
+    assertEquals("z0", new String(verifyResponse(200), UTF_8));
+  }
+
+  @Test
+  public void missingTileIsNoContent() {
+    execute(archiveUrl + "/1/1/1.pbf");
+
+    verify(responder, timeout(5000)).onResponse(eq(204), (String) isNull(), (String) isNull(),
+      (String) isNull(), (String) isNull(), (String) isNull(), (String) isNull(), (byte[]) isNull());
+  }
+
+  @Test
+  public void archiveIsDescribedWithTileJson() {
+    execute(archiveUrl);
+
+    String tileJson = new String(verifyResponse(200), UTF_8);
+    assertTrue(tileJson.contains("\"tiles\":[\"" + archiveUrl + "/{z}/{x}/{y}\"]"));
+  }
+
+  @Test
+  public void missingArchiveIsNotFound() {
+    execute("mbtiles://" + new File(folder.getRoot(), "missing.mbtiles").getAbsolutePath() + "/0/0/0");
+
+    verify(responder, timeout(5000)).onResponse(eq(404), (String) isNull(), (String) isNull(),
+      (String) isNull(), (String) isNull(), (String) isNull(), (String) isNull(), (byte[]) isNull());
+  }
+
+  @Test
+  public void unreadableArchiveIsFailure() throws IOException {
+    File file = folder.newFile("other.pmtiles");
+    FileOutputStream output = new FileOutputStream(file);
+    output.write(new byte[PmTilesArchive.HEADER_LENGTH]);
+    output.close();
+    execute("pmtiles://" + file.getAbsolutePath() + "/0/0/0");
+
+    verify(responder, timeout(5000)).handleFailure(eq(HttpRequest.PERMANENT_ERROR), anyString());
+  }
+
+  @Test
+  public void otherUrlsAreDelegated() {
+    String url = "https://api.mapbox.com/v4/mapbox.mapbox-streets-v8.json";
+    execute(url);
+
+    verify(delegate).executeRequest(any(HttpResponder.class), anyLong(), eq(url), anyString(), anyString(),
+      eq(false));
+  }
+
+  private void execute(String url) {
+    new TileArchiveHttpRequest(delegate).executeRequest(responder, 0, url, "", "", false);
+  }
+
+  private byte[] verifyResponse(int code) {
+    ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+    verify(responder, timeout(5000)).onResponse(eq(code), (String) isNull(), (String) isNull(),
+      (String) isNull(), (String) isNull(), (String) isNull(), (String) isNull(), body.capture());
+    return body.getValue();
+  }
+}
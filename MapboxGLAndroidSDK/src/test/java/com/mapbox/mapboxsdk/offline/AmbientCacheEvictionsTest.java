@@ -0,0 +1,89 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class AmbientCacheEvictionsTest {
+
+  private final AmbientCacheEvictions evictions = new AmbientCacheEvictions();
+  private SQLiteDatabase database;
+  private OfflineDatabaseConnection connection;
+
+  @Before
+  public void setUp() {
+    database = SQLiteDatabase.create(null);
+    connection = new SQLiteOfflineDatabaseConnection(database);
+    for (String statement : OfflineRegionExporter.SCHEMA) {
+      database.execSQL(statement);
+    }
+    for (int tile = 1; tile <= 4; tile++) {
+      insertTile(tile);
+    }
+    insertResource(Resource.STYLE);
+    insertResource(Resource.GLYPHS);
+  }
+
+  @After
+  public void tearDown() {
+    database.close();
+  }
+
+  @Test
+  public void firstUpdateCountsNothing() {
+    assertEquals(0, evictions.update(connection)[Resource.TILE]);
+  }
+
+  @Test
+  public void deletedRowsAreCountedPerKind() {
+    evictions.update(connection);
+    database.execSQL("DELETE FROM tiles WHERE id <= 2");
+    database.execSQL("DELETE FROM resources WHERE kind = ?", new Object[] {Resource.GLYPHS});
+
+    long[] counts = evictions.update(connection);
+    assertEquals(2, counts[Resource.TILE]);
+    assertEquals(1, counts[Resource.GLYPHS]);
+    assertEquals(0, counts[Resource.STYLE]);
+  }
+
+  @Test
+  public void addedRowsAreNotEvictions() {
+    evictions.update(connection);
+    // a tile evicted to make room for two new ones
+    database.execSQL("DELETE FROM tiles WHERE id = 1");
+    insertTile(5);
+    insertTile(6);
+
+    assertEquals(1, evictions.update(connection)[Resource.TILE]);
+    database.execSQL("DELETE FROM tiles WHERE id = 6");
+    assertEquals(2, evictions.update(connection)[Resource.TILE]);
+  }
+
+  @Test
+  public void rowsDeletedAfterResetAreNotCounted() {
+    evictions.update(connection);
+    evictions.reset();
+    database.execSQL("DELETE FROM tiles");
+
+    assertEquals(0, evictions.update(connection)[Resource.TILE]);
+  }
+
+  private void insertTile(int id) {
+    database.execSQL("INSERT INTO tiles (id, url_template, pixel_ratio, z, x, y, data, accessed) "
+      + "VALUES (?, 'template', 1, 0, ?, 0, ?, 0)", new Object[] {id, id, new byte[10]});
+  }
+
+  private void insertResource(int kind) {
+    database.execSQL("INSERT INTO resources (url, kind, data, accessed) VALUES (?, ?, ?, 0)",
+      new Object[] {"url" + kind, kind, new byte[10]});
+  }
+}
@@ -0,0 +1,215 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.content.SharedPreferences;
+
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.turf.TurfConstants;
+import com.mapbox.turf.TurfJoins;
+import com.mapbox.turf.TurfMeasurement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class AmbientCachePrewarmTest {
+
+  private static final LineString ROUTE = LineString.fromLngLats(Arrays.asList(
+    Point.fromLngLat(13.30, 52.50), Point.fromLngLat(13.40, 52.52), Point.fromLngLat(13.40, 52.60)));
+
+  private SharedPreferences preferences;
+
+  @Before
+  public void setUp() {
+    preferences = AmbientCachePrewarm.getPreferences(RuntimeEnvironment.application);
+    preferences.edit().clear().commit();
+  }
+
+  @Test
+  public void corridorHasPolygonPerVertexAndSegment() {
+    MultiPolygon corridor = AmbientCachePrewarm.corridor(ROUTE, 500);
+    assertEquals(5, corridor.coordinates().size());
+  }
+
+  @Test
+  public void corridorCoversBuffer() {
+    MultiPolygon corridor = AmbientCachePrewarm.corridor(ROUTE, 500);
+    for (Point point : ROUTE.coordinates()) {
+      for (int bearing = 0; bearing < 360; bearing += 30) {
+        Point offset = TurfMeasurement.destination(point, 490, bearing, TurfConstants.UNIT_METERS);
+        assertTrue(TurfJoins.inside(offset, corridor));
+      }
+    }
+    // the middle of a segment, off to the side
+    Point middle = TurfMeasurement.destination(Point.fromLngLat(13.40, 52.56), 490, 90, TurfConstants.UNIT_METERS);
+    assertTrue(TurfJoins.inside(middle, corridor));
+  }
+
+  @Test
+  public void corridorCoversRouteTiles() {
+    long route = new OfflineRegionTileCover(ROUTE).count(16);
+    long corridor = new OfflineRegionTileCover(AmbientCachePrewarm.corridor(ROUTE, 500)).count(16);
+    assertTrue(corridor > route);
+  }
+
+  @Test
+  public void startActivatesTheRegion() {
+    AmbientCachePrewarm.Callback callback = mock(AmbientCachePrewarm.Callback.class);
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(preferences, callback);
+    OfflineRegion region = mock(OfflineRegion.class);
+
+    prewarm.createCallback().onCreate(region);
+
+    verify(region).setObserver(any(OfflineRegion.OfflineRegionObserver.class));
+    verify(region).setDownloadState(OfflineRegion.STATE_ACTIVE);
+    verify(region, never()).delete(any(OfflineRegion.OfflineRegionDeleteCallback.class));
+    assertFalse(prewarm.isDone());
+  }
+
+  @Test
+  public void completionDeletesTheRegionBeforeTheCallback() {
+    AmbientCachePrewarm.Callback callback = mock(AmbientCachePrewarm.Callback.class);
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(preferences, callback);
+    OfflineRegion region = mock(OfflineRegion.class);
+    prewarm.createCallback().onCreate(region);
+    ArgumentCaptor<OfflineRegion.OfflineRegionObserver> observer =
+      ArgumentCaptor.forClass(OfflineRegion.OfflineRegionObserver.class);
+    verify(region).setObserver(observer.capture());
+
+    OfflineRegionStatus status = mock(OfflineRegionStatus.class);
+    when(status.isComplete()).thenReturn(true);
+    when(status.isRequiredResourceCountPrecise()).thenReturn(true);
+    observer.getValue().onStatusChanged(status);
+
+    assertTrue(prewarm.isDone());
+    verify(region).setDownloadState(OfflineRegion.STATE_INACTIVE);
+    ArgumentCaptor<OfflineRegion.OfflineRegionDeleteCallback> delete =
+      ArgumentCaptor.forClass(OfflineRegion.OfflineRegionDeleteCallback.class);
+    verify(region).delete(delete.capture());
+    verifyZeroInteractions(callback);
+    delete.getValue().onDelete();
+    verify(callback).onComplete(status);
+  }
+
+  @Test
+  public void cancelDeletesTheRegionWithoutCallback() {
+    AmbientCachePrewarm.Callback callback = mock(AmbientCachePrewarm.Callback.class);
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(preferences, callback);
+    OfflineRegion region = mock(OfflineRegion.class);
+    prewarm.createCallback().onCreate(region);
+
+    prewarm.cancel();
+
+    assertTrue(prewarm.isDone());
+    verify(region).setDownloadState(OfflineRegion.STATE_INACTIVE);
+    verify(region).setObserver(isNull(OfflineRegion.OfflineRegionObserver.class));
+    ArgumentCaptor<OfflineRegion.OfflineRegionDeleteCallback> delete =
+      ArgumentCaptor.forClass(OfflineRegion.OfflineRegionDeleteCallback.class);
+    verify(region).delete(delete.capture());
+    delete.getValue().onDelete();
+    verifyZeroInteractions(callback);
+  }
+
+  @Test
+  public void cancelBeforeCreationDeletesTheRegionUnused() {
+    AmbientCachePrewarm.Callback callback = mock(AmbientCachePrewarm.Callback.class);
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(preferences, callback);
+    OfflineRegion region = mock(OfflineRegion.class);
+
+    prewarm.cancel();
+    prewarm.createCallback().onCreate(region);
+
+    verify(region, never()).setDownloadState(OfflineRegion.STATE_ACTIVE);
+    verify(region).delete(any(OfflineRegion.OfflineRegionDeleteCallback.class));
+    verifyZeroInteractions(callback);
+  }
+
+  @Test
+  public void leftoverTransientRegionsAreDeleted() {
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(preferences, null);
+    prewarm.createCallback().onCreate(region(5, "mapbox-ambient-prewarm"));
+
+    // the process ended while prewarming
+    OfflineManager offlineManager = mock(OfflineManager.class);
+    AmbientCachePrewarm.deleteLeftoverRegions(offlineManager, preferences);
+    ArgumentCaptor<OfflineRegionQuery> query = ArgumentCaptor.forClass(OfflineRegionQuery.class);
+    ArgumentCaptor<OfflineManager.ListOfflineRegionsPageCallback> page =
+      ArgumentCaptor.forClass(OfflineManager.ListOfflineRegionsPageCallback.class);
+    verify(offlineManager).listOfflineRegions(query.capture(), page.capture());
+    verifyNoMoreInteractions(offlineManager);
+    assertEquals(4, query.getValue().getStartAfter());
+    assertEquals(1, query.getValue().getPageSize());
+
+    OfflineRegion leftover = region(5, "mapbox-ambient-prewarm");
+    page.getValue().onPage(new OfflineRegion[] {leftover}, true);
+    ArgumentCaptor<OfflineRegion.OfflineRegionDeleteCallback> delete =
+      ArgumentCaptor.forClass(OfflineRegion.OfflineRegionDeleteCallback.class);
+    verify(leftover).delete(delete.capture());
+    delete.getValue().onDelete();
+    assertNothingIsQueried();
+  }
+
+  @Test
+  public void otherRegionsWithTheLeftoverIdAreKept() {
+    new AmbientCachePrewarm(preferences, null).createCallback().onCreate(region(5, "mapbox-ambient-prewarm"));
+
+    OfflineManager offlineManager = mock(OfflineManager.class);
+    AmbientCachePrewarm.deleteLeftoverRegions(offlineManager, preferences);
+    ArgumentCaptor<OfflineManager.ListOfflineRegionsPageCallback> page =
+      ArgumentCaptor.forClass(OfflineManager.ListOfflineRegionsPageCallback.class);
+    verify(offlineManager).listOfflineRegions(any(OfflineRegionQuery.class), page.capture());
+
+    // the transient region is gone, the next region of the page belongs to the application
+    OfflineRegion application = region(6, "my region");
+    page.getValue().onPage(new OfflineRegion[] {application}, false);
+    verify(application, never()).delete(any(OfflineRegion.OfflineRegionDeleteCallback.class));
+    assertNothingIsQueried();
+  }
+
+  @Test
+  public void finishedPrewarmsLeaveNothingToDelete() {
+    AmbientCachePrewarm prewarm = new AmbientCachePrewarm(preferences, null);
+    OfflineRegion region = region(5, "mapbox-ambient-prewarm");
+    prewarm.createCallback().onCreate(region);
+
+    prewarm.cancel();
+    ArgumentCaptor<OfflineRegion.OfflineRegionDeleteCallback> delete =
+      ArgumentCaptor.forClass(OfflineRegion.OfflineRegionDeleteCallback.class);
+    verify(region).delete(delete.capture());
+    delete.getValue().onDelete();
+
+    assertNothingIsQueried();
+  }
+
+  private void assertNothingIsQueried() {
+    OfflineManager offlineManager = mock(OfflineManager.class);
+    AmbientCachePrewarm.deleteLeftoverRegions(offlineManager, preferences);
+    verifyZeroInteractions(offlineManager);
+  }
+
+  private static OfflineRegion region(long id, String metadata) {
+    OfflineRegion region = mock(OfflineRegion.class);
+    when(region.getID()).thenReturn(id);
+    when(region.getMetadata()).thenReturn(metadata.getBytes());
+    return region;
+  }
+}
@@ -0,0 +1,133 @@
+package com.mapbox.mapboxsdk.offline;
+
+import com.mapbox.mapboxsdk.storage.Resource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AmbientCacheStatisticsTest {
+
+  private static final double DELTA = 0.001;
+
+  private static final int KINDS = 7;
+
+  private final long[] loader = new long[KINDS * 3];
+  private final long[] network = new long[KINDS * 3];
+  private final long[] counts = new long[KINDS];
+  private final long[] sizes = new long[KINDS];
+  private final long[] evictions = new long[KINDS];
+
+  @Test
+  public void requestsWithoutNetworkAreHits() {
+    loader(Resource.TILE, 40, 40, 4000);
+    counts[Resource.TILE] = 12;
+    sizes[Resource.TILE] = 1200;
+    evictions[Resource.TILE] = 3;
+
+    AmbientCacheStatistics statistics = AmbientCacheStatistics.create(loader, network, counts, sizes, evictions);
+    AmbientCacheStatistics.Counts tiles = statistics.get(Resource.TILE);
+    assertEquals(40, tiles.getHitCount());
+    assertEquals(0, tiles.getMissCount());
+    assertEquals(4000, tiles.getBytesFromCache());
+    assertEquals(1, tiles.getHitRatio(), DELTA);
+    assertEquals(12, statistics.getTotal().getCachedResourceCount());
+    assertEquals(1200, statistics.getTotal().getCachedSize());
+    assertEquals(3, tiles.getEvictionCount());
+  }
+
+  @Test
+  public void mapboxStyleServedFromCacheIsAHit() {
+    // mapbox://styles/mapbox/streets-v11, counted by the loader before the url is resolved: its sprite was
+    // revalidated, the style served as is
+    loader(Resource.STYLE, 1, 1, 500);
+    loader(Resource.SPRITE_JSON, 1, 1, 200);
+    network(Resource.SPRITE_JSON, 1, 1, 0);
+
+    AmbientCacheStatistics statistics = AmbientCacheStatistics.create(loader, network, counts, sizes, evictions);
+    assertEquals(1, statistics.get(Resource.STYLE).getHitCount());
+    assertEquals(500, statistics.get(Resource.STYLE).getBytesFromCache());
+    assertEquals(0, statistics.get(Resource.SPRITE_JSON).getHitCount());
+    assertEquals(1, statistics.get(Resource.SPRITE_JSON).getRevalidationCount());
+    assertEquals(200, statistics.get(Resource.SPRITE_JSON).getBytesFromCache());
+    assertEquals(0.5, statistics.getTotal().getHitRatio(), DELTA);
+  }
+
+  @Test
+  public void canceledRequestsAreNotHits() {
+    // 4 of 10 tile requests canceled before they were answered, 2 answered from the network
+    loader(Resource.TILE, 10, 6, 600);
+    network(Resource.TILE, 2, 1, 100);
+
+    AmbientCacheStatistics.Counts tiles = AmbientCacheStatistics.create(loader, network, counts, sizes, evictions)
+      .get(Resource.TILE);
+    assertEquals(10, tiles.getRequestCount());
+    assertEquals(4, tiles.getHitCount());
+    assertEquals(1, tiles.getMissCount());
+    assertEquals(1, tiles.getRevalidationCount());
+    assertEquals(500, tiles.getBytesFromCache());
+    assertEquals(0.667, tiles.getHitRatio(), DELTA);
+  }
+
+  @Test
+  public void expiredCopyReplacedFromTheNetworkIsAMiss() {
+    // the loader counts the bytes of the new copy only
+    loader(Resource.TILE, 1, 1, 300);
+    network(Resource.TILE, 1, 0, 300);
+
+    AmbientCacheStatistics.Counts tiles = AmbientCacheStatistics.create(loader, network, counts, sizes, evictions)
+      .get(Resource.TILE);
+    assertEquals(0, tiles.getHitCount());
+    assertEquals(1, tiles.getMissCount());
+    assertEquals(0, tiles.getBytesFromCache());
+    assertEquals(300, tiles.getBytesFromNetwork());
+  }
+
+  @Test
+  public void totalSumsKinds() {
+    AmbientCacheStatistics statistics = new AmbientCacheStatistics(new AmbientCacheStatistics.Counts[] {
+      new AmbientCacheStatistics.Counts(10, 6, 3, 1, 600, 300, 5, 500, 2),
+      new AmbientCacheStatistics.Counts(30, 24, 4, 2, 2400, 400, 15, 1500, 3)
+    });
+    AmbientCacheStatistics.Counts total = statistics.getTotal();
+    assertEquals(40, total.getRequestCount());
+    assertEquals(30, total.getHitCount());
+    assertEquals(7, total.getMissCount());
+    assertEquals(3, total.getRevalidationCount());
+    assertEquals(0.75, total.getHitRatio(), DELTA);
+    assertEquals(2000, total.getCachedSize());
+    assertEquals(5, total.getEvictionCount());
+  }
+
+  @Test
+  public void sinceSubtractsCountersAndKeepsSize() {
+    AmbientCacheStatistics earlier = new AmbientCacheStatistics(new AmbientCacheStatistics.Counts[] {
+      new AmbientCacheStatistics.Counts(10, 6, 3, 1, 600, 300, 5, 500, 2)
+    });
+    AmbientCacheStatistics later = new AmbientCacheStatistics(new AmbientCacheStatistics.Counts[] {
+      new AmbientCacheStatistics.Counts(25, 16, 7, 2, 1600, 700, 8, 800, 6)
+    });
+    AmbientCacheStatistics.Counts period = later.since(earlier).getTotal();
+    assertEquals(15, period.getRequestCount());
+    assertEquals(10, period.getHitCount());
+    assertEquals(4, period.getMissCount());
+    assertEquals(1, period.getRevalidationCount());
+    assertEquals(1000, period.getBytesFromCache());
+    assertEquals(400, period.getBytesFromNetwork());
+    assertEquals(8, period.getCachedResourceCount());
+    assertEquals(800, period.getCachedSize());
+    assertEquals(4, period.getEvictionCount());
+  }
+
+  private void loader(int kind, long requests, long answered, long deliveredBytes) {
+    loader[kind] = requests;
+    loader[KINDS + kind] = answered;
+    loader[KINDS * 2 + kind] = deliveredBytes;
+  }
+
+  private void network(int kind, long answered, long notModified, long receivedBytes) {
+    network[kind] = answered;
+    network[KINDS + kind] = notModified;
+    network[KINDS * 2 + kind] = receivedBytes;
+  }
+}
@@ -0,0 +1,201 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.storage.FileSource;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+public class OfflineDatabasePackerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // the statistics of the resource loader are native, the tests don't pause while maps are active
+  private final FileSource fileSource = mock(FileSource.class);
+  private final RecordingCallback callback = new RecordingCallback();
+  private File file;
+  private long pageSize;
+  private long freePages;
+
+  @Before
+  public void setUp() {
+    file = new File(folder.getRoot(), OfflineRegionExporter.DATABASE_FILE);
+    SQLiteDatabase database = open();
+    try {
+      database.execSQL("PRAGMA auto_vacuum = 2");
+      database.execSQL("CREATE TABLE tiles (id INTEGER PRIMARY KEY, data BLOB)");
+      for (int tile = 0; tile < 20; tile++) {
+        database.execSQL("INSERT INTO tiles (data) VALUES (?)", new Object[] {new byte[8192]});
+      }
+      database.execSQL("DELETE FROM tiles");
+      pageSize = queryLong(database, "PRAGMA page_size");
+      freePages = queryLong(database, "PRAGMA freelist_count");
+    } finally {
+      database.close();
+    }
+    assertTrue(freePages > 10);
+  }
+
+  @Test
+  public void slicesReclaimAtMostTheirPageCount() {
+    OfflineDatabasePacker packer = pack(new OfflineDatabasePackOptions.Builder()
+      .pagesPerSlice(3)
+      .sliceInterval(0)
+      .pauseWhileMapActive(false)
+      .build());
+    awaitDone(packer);
+
+    assertNull(callback.error);
+    assertTrue(callback.complete);
+    assertEquals(freePages * pageSize, callback.reclaimedBytes);
+    // the first progress is posted before the first slice
+    assertEquals(0, (long) callback.progress.get(0));
+    assertEquals(1 + (freePages + 2) / 3, callback.progress.size());
+    for (int i = 1; i < callback.progress.size(); i++) {
+      assertTrue(callback.progress.get(i) - callback.progress.get(i - 1) <= 3 * pageSize);
+    }
+    assertEquals(0, freelistCount());
+  }
+
+  @Test
+  public void cancelStopsWithoutWaitingForTheNextSlice() {
+    OfflineDatabasePacker packer = pack(new OfflineDatabasePackOptions.Builder()
+      .pagesPerSlice(1)
+      .sliceInterval(60000)
+      .pauseWhileMapActive(false)
+      .build());
+    long timeout = System.currentTimeMillis() + 5000;
+    while (callback.progress.size() < 2 && System.currentTimeMillis() < timeout) {
+      idle();
+    }
+    packer.cancel();
+    awaitDone(packer);
+
+    assertNull(callback.error);
+    assertFalse(callback.complete);
+    assertEquals(pageSize, callback.reclaimedBytes);
+    assertEquals(freePages - 1, freelistCount());
+  }
+
+  @Test
+  public void canceledBeforeTheFirstSliceReclaimsNothing() {
+    OfflineDatabasePacker packer = new OfflineDatabasePacker(file, SQLiteOfflineDatabaseConnection.OPENER, fileSource,
+      new OfflineDatabasePackOptions.Builder().build(), callback);
+    packer.cancel();
+    packer.start();
+    awaitDone(packer);
+
+    assertFalse(callback.complete);
+    assertEquals(0, callback.reclaimedBytes);
+    assertEquals(freePages, freelistCount());
+  }
+
+  @Test
+  public void packerDoesNotChangeTheSchema() {
+    awaitDone(pack(new OfflineDatabasePackOptions.Builder()
+      .sliceInterval(0)
+      .pauseWhileMapActive(false)
+      .build()));
+
+    SQLiteDatabase database = open();
+    try {
+      assertEquals(1, queryLong(database, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table'"));
+    } finally {
+      database.close();
+    }
+  }
+
+  @NonNull
+  private OfflineDatabasePacker pack(@NonNull OfflineDatabasePackOptions options) {
+    OfflineDatabasePacker packer = new OfflineDatabasePacker(file, SQLiteOfflineDatabaseConnection.OPENER, fileSource,
+      options, callback);
+    packer.start();
+    return packer;
+  }
+
+  private void awaitDone(@NonNull OfflineDatabasePacker packer) {
+    long timeout = System.currentTimeMillis() + 5000;
+    while (callback.complete == null && callback.error == null && System.currentTimeMillis() < timeout) {
+      idle();
+    }
+    assertTrue(packer.isDone());
+  }
+
+  private static void idle() {
+    ShadowLooper.idleMainLooper();
+    try {
+      Thread.sleep(10);
+    } catch (InterruptedException exception) {
+      throw new AssertionError(exception);
+    }
+  }
+
+  private long freelistCount() {
+    SQLiteDatabase database = open();
+    try {
+      return queryLong(database, "PRAGMA freelist_count");
+    } finally {
+      database.close();
+    }
+  }
+
+  private SQLiteDatabase open() {
+    // without the flag, opening the database adds a table
+    return SQLiteDatabase.openDatabase(file.getPath(), null,
+      SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+  }
+
+  private static long queryLong(@NonNull SQLiteDatabase database, @NonNull String query) {
+    Cursor cursor = database.rawQuery(query, null);
+    try {
+      assertTrue(cursor.moveToFirst());
+      return cursor.getLong(0);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static class RecordingCallback implements OfflineDatabasePacker.Callback {
+
+    private final List<Long> progress = new ArrayList<>();
+    private long reclaimedBytes;
+    private Boolean complete;
+    private String error;
+
+    @Override
+    public void onProgress(long reclaimedBytes, long totalBytes) {
+      progress.add(reclaimedBytes);
+    }
+
+    @Override
+    public void onPack(long reclaimedBytes, boolean complete) {
+      this.reclaimedBytes = reclaimedBytes;
+      this.complete = complete;
+    }
+
+    @Override
+    public void onError(String error) {
+      this.error = error;
+    }
+  }
+}
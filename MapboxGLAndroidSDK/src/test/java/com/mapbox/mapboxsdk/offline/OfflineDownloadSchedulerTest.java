@@ -0,0 +1,255 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class OfflineDownloadSchedulerTest {
+
+  private final OfflineDownloadScheduler scheduler = new OfflineDownloadScheduler();
+  private final Map<OfflineRegion, Integer> states = new HashMap<>();
+
+  @Test
+  public void regionsDownloadWithinTheBudget() {
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    OfflineRegion third = region();
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+    scheduler.add(third, null);
+
+    assertTrue(isActive(first));
+    assertTrue(isActive(second));
+    assertFalse(isActive(third));
+    assertEquals(3, scheduler.getRegionCount());
+    assertEquals(2, scheduler.getActiveRegionCount());
+  }
+
+  @Test
+  public void completeRegionMakesRoomForTheNext() {
+    scheduler.setMaxActiveRegions(1);
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+
+    // complete with a required count that isn't precise yet, more resources may be discovered
+    deliver(first, 10, 10, false);
+    assertTrue(isActive(first));
+    assertFalse(isActive(second));
+
+    deliver(first, 20, 20, true);
+    assertFalse(isActive(first));
+    assertTrue(isActive(second));
+    assertEquals(1, scheduler.getRegionCount());
+  }
+
+  @Test
+  public void progressIsForwardedThroughTheThrottledObserver() {
+    scheduler.setProgressInterval(1000);
+    OfflineRegion region = region();
+    RecordingObserver observer = new RecordingObserver();
+    scheduler.add(region, observer);
+
+    verify(region).setProgressObserver(any(OfflineRegion.OfflineRegionProgressObserver.class), eq(1000L));
+    OfflineRegionProgress progress = deliver(region, 5, 10, true);
+    assertSame(progress, observer.progress);
+  }
+
+  @Test
+  public void higherPriorityPreemptsLowerPriority() {
+    scheduler.setMaxActiveRegions(1);
+    OfflineRegion low = region();
+    OfflineRegion high = region();
+    scheduler.add(low, 0, 1, null);
+    assertTrue(isActive(low));
+
+    scheduler.add(high, 5, 1, null);
+    assertFalse(isActive(low));
+    assertTrue(isActive(high));
+
+    // a waiting region of the same or a lower priority doesn't preempt
+    OfflineRegion other = region();
+    scheduler.add(other, 5, 1, null);
+    assertTrue(isActive(high));
+    assertFalse(isActive(other));
+  }
+
+  @Test
+  public void regionsTakeTurnsAfterTheirTimeSlice() {
+    scheduler.setMaxActiveRegions(1);
+    scheduler.setTimeSlice(1000);
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+    assertTrue(isActive(first));
+
+    advance(999);
+    assertTrue(isActive(first));
+    advance(1);
+    assertFalse(isActive(first));
+    assertTrue(isActive(second));
+
+    advance(1000);
+    assertTrue(isActive(first));
+    assertFalse(isActive(second));
+  }
+
+  @Test
+  public void weightsScaleTheTimeSlices() {
+    scheduler.setMaxActiveRegions(1);
+    scheduler.setTimeSlice(1000);
+    OfflineRegion heavy = region();
+    OfflineRegion light = region();
+    scheduler.add(heavy, 0, 2, null);
+    scheduler.add(light, 0, 1, null);
+
+    advance(1000);
+    assertTrue(isActive(heavy));
+    advance(1000);
+    assertTrue(isActive(light));
+    advance(1000);
+    // both ran for one time slice per weight, the region added first runs next
+    assertTrue(isActive(heavy));
+  }
+
+  @Test
+  public void regionThatRanTheShortestRunsNext() {
+    scheduler.setMaxActiveRegions(1);
+    scheduler.setTimeSlice(1000);
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+    advance(1000);
+    assertTrue(isActive(second));
+
+    // the third region never ran, it runs before the first one
+    OfflineRegion third = region();
+    scheduler.add(third, null);
+    advance(1000);
+    assertTrue(isActive(third));
+    advance(1000);
+    assertTrue(isActive(first));
+  }
+
+  @Test
+  public void pauseDeactivatesAllRegions() {
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+
+    scheduler.pause();
+    assertFalse(isActive(first));
+    assertFalse(isActive(second));
+
+    scheduler.resume();
+    assertTrue(isActive(first));
+    assertTrue(isActive(second));
+  }
+
+  @Test
+  public void removedRegionIsDeactivated() {
+    scheduler.setMaxActiveRegions(1);
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+
+    scheduler.remove(first);
+    assertFalse(isActive(first));
+    assertTrue(isActive(second));
+  }
+
+  @Test
+  public void waitingAndActiveRegionsAreScheduled() {
+    scheduler.setMaxActiveRegions(1);
+    OfflineRegion first = region();
+    OfflineRegion second = region();
+    when(first.getID()).thenReturn(1L);
+    when(second.getID()).thenReturn(2L);
+    scheduler.add(first, null);
+    scheduler.add(second, null);
+    assertTrue(scheduler.contains(1));
+    assertTrue(scheduler.contains(2));
+
+    deliver(first, 10, 10, true);
+    assertFalse(scheduler.contains(1));
+    assertTrue(scheduler.contains(2));
+  }
+
+  @NonNull
+  private OfflineRegion region() {
+    final OfflineRegion region = mock(OfflineRegion.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        states.put(region, (Integer) invocation.getArgument(0));
+        return null;
+      }
+    }).when(region).setDownloadState(anyInt());
+    return region;
+  }
+
+  private boolean isActive(@NonNull OfflineRegion region) {
+    Integer state = states.get(region);
+    return state != null && state == OfflineRegion.STATE_ACTIVE;
+  }
+
+  @NonNull
+  private OfflineRegionProgress deliver(@NonNull OfflineRegion region, long completed, long required,
+                                        boolean precise) {
+    ArgumentCaptor<OfflineRegion.OfflineRegionProgressObserver> observer =
+      ArgumentCaptor.forClass(OfflineRegion.OfflineRegionProgressObserver.class);
+    verify(region).setProgressObserver(observer.capture(), anyLong());
+    OfflineRegionProgress progress = new OfflineRegionProgress();
+    progress.setStatus(OfflineRegion.STATE_ACTIVE, completed, completed * 100, completed, completed * 100,
+      required, precise);
+    observer.getValue().onProgress(progress);
+    return progress;
+  }
+
+  private static void advance(long millis) {
+    ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+  }
+
+  private static class RecordingObserver implements OfflineRegion.OfflineRegionProgressObserver {
+
+    private OfflineRegionProgress progress;
+
+    @Override
+    public void onProgress(@NonNull OfflineRegionProgress progress) {
+      this.progress = progress;
+    }
+
+    @Override
+    public void mapboxTileCountLimitExceeded(long limit) {
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class OfflineRegionExporterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final RecordingCallback callback = new RecordingCallback();
+  private File source;
+  private File target;
+
+  @Before
+  public void setUp() throws IOException {
+    source = new File(folder.getRoot(), OfflineRegionExporter.DATABASE_FILE);
+    target = new File(folder.getRoot(), "export.db");
+    SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(source, null);
+    try {
+      for (String statement : OfflineRegionExporter.SCHEMA) {
+        database.execSQL(statement);
+      }
+      database.setVersion(6);
+      database.execSQL("INSERT INTO regions (id, definition, description) VALUES (1, '{\"first\"}', ?)",
+        new Object[] {new byte[] {1}});
+      database.execSQL("INSERT INTO regions (id, definition) VALUES (2, '{\"second\"}')");
+      for (int tile = 1; tile <= 3; tile++) {
+        database.execSQL("INSERT INTO tiles (id, url_template, pixel_ratio, z, x, y, data, accessed) "
+          + "VALUES (?, 'template', 1, 0, ?, 0, ?, 0)", new Object[] {tile, tile, new byte[] {(byte) tile}});
+      }
+      database.execSQL("INSERT INTO resources (id, url, kind, data, accessed) VALUES (1, 'style', 1, ?, 0)",
+        new Object[] {new byte[] {9}});
+      database.execSQL("INSERT INTO resources (id, url, kind, data, accessed) VALUES (2, 'sprite', 2, ?, 0)",
+        new Object[] {new byte[] {8}});
+      database.execSQL("INSERT INTO region_tiles VALUES (1, 1)");
+      database.execSQL("INSERT INTO region_tiles VALUES (1, 2)");
+      database.execSQL("INSERT INTO region_tiles VALUES (2, 2)");
+      database.execSQL("INSERT INTO region_tiles VALUES (2, 3)");
+      database.execSQL("INSERT INTO region_resources VALUES (1, 1)");
+      database.execSQL("INSERT INTO region_resources VALUES (2, 2)");
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void exportHasTheSchemaOfTheOfflineDatabase() {
+    export(1);
+    assertEquals(target.getPath(), callback.path);
+    assertFalse(new File(target.getPath() + ".tmp").exists());
+
+    SQLiteDatabase database = open(target);
+    try {
+      assertEquals(6, database.getVersion());
+      assertEquals(2, queryLong(database, "PRAGMA auto_vacuum"));
+      assertEquals(Arrays.asList("region_resources", "region_tiles", "regions", "resources", "tiles"),
+        queryStrings(database, "SELECT name FROM sqlite_master WHERE type = 'table' "
+          + "AND name NOT LIKE 'sqlite_%' ORDER BY name"));
+      assertEquals(Arrays.asList("region_resources_resource_id", "region_tiles_tile_id", "resources_accessed",
+        "tiles_accessed"), queryStrings(database, "SELECT name FROM sqlite_master WHERE type = 'index' "
+          + "AND name NOT LIKE 'sqlite_%' ORDER BY name"));
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void exportHoldsOnlyTheRegion() {
+    export(1);
+
+    SQLiteDatabase database = open(target);
+    try {
+      assertEquals(Arrays.asList("1"), queryStrings(database, "SELECT id FROM regions"));
+      assertEquals(Arrays.asList("{\"first\"}"), queryStrings(database, "SELECT definition FROM regions"));
+      assertArrayEquals(new byte[] {1}, queryBlob(database, "SELECT description FROM regions"));
+      assertEquals(Arrays.asList("1", "2"), queryStrings(database, "SELECT id FROM tiles ORDER BY id"));
+      assertArrayEquals(new byte[] {2}, queryBlob(database, "SELECT data FROM tiles WHERE id = 2"));
+      assertEquals(Arrays.asList("style"), queryStrings(database, "SELECT url FROM resources"));
+      assertArrayEquals(new byte[] {9}, queryBlob(database, "SELECT data FROM resources"));
+      assertEquals(Arrays.asList("1|1", "1|2"),
+        queryStrings(database, "SELECT region_id || '|' || tile_id FROM region_tiles ORDER BY tile_id"));
+      assertEquals(Arrays.asList("1|1"),
+        queryStrings(database, "SELECT region_id || '|' || resource_id FROM region_resources"));
+    } finally {
+      database.close();
+    }
+    assertEquals(3, callback.total);
+    assertEquals(3, callback.exported);
+  }
+
+  @Test
+  public void batchesHoldTheRowsTheyReference() {
+    SQLiteDatabase database = open(source);
+    try {
+      // more tiles than a batch copies
+      for (int tile = 4; tile <= 600; tile++) {
+        database.execSQL("INSERT INTO tiles (id, url_template, pixel_ratio, z, x, y, data, accessed) "
+          + "VALUES (?, 'template', 1, 0, ?, 0, ?, 0)", new Object[] {tile, tile, new byte[] {1}});
+        database.execSQL("INSERT INTO region_tiles VALUES (1, ?)", new Object[] {tile});
+      }
+    } finally {
+      database.close();
+    }
+
+    export(1);
+    database = open(target);
+    try {
+      assertEquals(599, queryLong(database, "SELECT COUNT(*) FROM region_tiles"));
+      assertEquals(599, queryLong(database, "SELECT COUNT(*) FROM tiles"));
+      assertEquals(0, queryLong(database, "SELECT COUNT(*) FROM region_tiles "
+        + "WHERE tile_id NOT IN (SELECT id FROM tiles)"));
+    } finally {
+      database.close();
+    }
+    assertEquals(600, callback.total);
+    assertEquals(600, callback.exported);
+  }
+
+  @Test
+  public void missingRegionLeavesNoFile() {
+    export(3);
+    assertNull(callback.path);
+    assertNotNull(callback.error);
+    assertFalse(target.exists());
+    assertFalse(new File(target.getPath() + ".tmp").exists());
+  }
+
+  @Test
+  public void unsupportedSchemaVersionFails() {
+    SQLiteDatabase database = open(source);
+    database.setVersion(5);
+    database.close();
+
+    export(1);
+    assertNotNull(callback.error);
+    assertFalse(target.exists());
+  }
+
+  @Test
+  public void canceledExportLeavesNoFileAndNoCallback() {
+    OfflineRegionExporter exporter = new OfflineRegionExporter(source, SQLiteOfflineDatabaseConnection.OPENER,
+      target, 1, callback);
+    exporter.cancel();
+    exporter.export();
+    ShadowLooper.idleMainLooper();
+
+    assertFalse(target.exists());
+    assertFalse(new File(target.getPath() + ".tmp").exists());
+    assertNull(callback.path);
+    assertNull(callback.error);
+  }
+
+  private void export(long regionId) {
+    new OfflineRegionExporter(source, SQLiteOfflineDatabaseConnection.OPENER, target, regionId, callback)
+      .export();
+    ShadowLooper.idleMainLooper();
+  }
+
+  private static SQLiteDatabase open(@NonNull File file) {
+    // without the flag, opening the database adds a table
+    return SQLiteDatabase.openDatabase(file.getPath(), null,
+      SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+  }
+
+  private static long queryLong(@NonNull SQLiteDatabase database, @NonNull String query) {
+    Cursor cursor = database.rawQuery(query, null);
+    try {
+      assertTrue(cursor.moveToFirst());
+      return cursor.getLong(0);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static byte[] queryBlob(@NonNull SQLiteDatabase database, @NonNull String query) {
+    Cursor cursor = database.rawQuery(query, null);
+    try {
+      assertTrue(cursor.moveToFirst());
+      return cursor.getBlob(0);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static List<String> queryStrings(@NonNull SQLiteDatabase database, @NonNull String query) {
+    List<String> values = new ArrayList<>();
+    Cursor cursor = database.rawQuery(query, null);
+    try {
+      while (cursor.moveToNext()) {
+        values.add(cursor.getString(0));
+      }
+    } finally {
+      cursor.close();
+    }
+    return values;
+  }
+
+  private static class RecordingCallback implements OfflineRegion.OfflineRegionExportCallback {
+
+    private long exported;
+    private long total;
+    private String path;
+    private String error;
+
+    @Override
+    public void onProgress(long exportedCount, long totalCount) {
+      exported = exportedCount;
+      total = totalCount;
+    }
+
+    @Override
+    public void onExport(@NonNull String path) {
+      this.path = path;
+    }
+
+    @Override
+    public void onError(String error) {
+      this.error = error;
+    }
+  }
+}
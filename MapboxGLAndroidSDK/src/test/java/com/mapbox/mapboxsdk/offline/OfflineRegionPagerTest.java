@@ -0,0 +1,164 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class OfflineRegionPagerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final RecordingLoader loader = new RecordingLoader();
+  private final RecordingCallback callback = new RecordingCallback();
+  private File file;
+
+  @Before
+  public void setUp() {
+    file = new File(folder.getRoot(), OfflineRegionExporter.DATABASE_FILE);
+    SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(file, null);
+    try {
+      for (String statement : OfflineRegionExporter.SCHEMA) {
+        database.execSQL(statement);
+      }
+      for (long region = 1; region <= 10; region++) {
+        database.execSQL("INSERT INTO regions (id, definition) VALUES (?, '{}')", new Object[] {region});
+      }
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void onlyTheRegionsOfThePageAreLoaded() {
+    list(new OfflineRegionQuery.Builder().startAfter(2).pageSize(3).build());
+
+    assertEquals(1, loader.batches.size());
+    assertArrayEquals(new long[] {3, 4, 5, 6}, loader.batches.get(0));
+    assertArrayEquals(new long[] {3, 4, 5}, callback.ids);
+    assertTrue(callback.hasMore);
+  }
+
+  @Test
+  public void lastPageHasNoMore() {
+    list(new OfflineRegionQuery.Builder().startAfter(7).pageSize(3).build());
+
+    assertArrayEquals(new long[] {8, 9, 10}, callback.ids);
+    assertFalse(callback.hasMore);
+  }
+
+  @Test
+  public void filteredRegionsAreLoadedUntilThePageIsFilled() {
+    loader.odd = true;
+    list(new OfflineRegionQuery.Builder().pageSize(2).build());
+
+    assertEquals(2, loader.batches.size());
+    assertArrayEquals(new long[] {1, 2, 3}, loader.batches.get(0));
+    assertArrayEquals(new long[] {4, 5, 6}, loader.batches.get(1));
+    assertArrayEquals(new long[] {1, 3}, callback.ids);
+    assertTrue(callback.hasMore);
+  }
+
+  @Test
+  public void missingDatabaseHasNoRegions() {
+    assertTrue(file.delete());
+    list(new OfflineRegionQuery.Builder().build());
+
+    assertTrue(loader.batches.isEmpty());
+    assertArrayEquals(new long[0], callback.ids);
+    assertFalse(callback.hasMore);
+  }
+
+  @Test
+  public void loadErrorsAreReported() {
+    loader.error = "failed";
+    list(new OfflineRegionQuery.Builder().build());
+
+    assertEquals("failed", callback.error);
+    assertNull(callback.ids);
+  }
+
+  private void list(@NonNull OfflineRegionQuery query) {
+    new OfflineRegionPager(file, SQLiteOfflineDatabaseConnection.OPENER, loader, query, callback).run();
+    long timeout = System.currentTimeMillis() + 5000;
+    while (callback.ids == null && callback.error == null && System.currentTimeMillis() < timeout) {
+      ShadowLooper.idleMainLooper();
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException exception) {
+        throw new AssertionError(exception);
+      }
+    }
+  }
+
+  private static OfflineRegion region(long id) {
+    OfflineRegion region = mock(OfflineRegion.class);
+    when(region.getID()).thenReturn(id);
+    return region;
+  }
+
+  private static class RecordingLoader implements OfflineRegionPager.Loader {
+
+    private final List<long[]> batches = new ArrayList<>();
+    private boolean odd;
+    private String error;
+
+    @Override
+    public synchronized void load(@NonNull long[] ids, @NonNull OfflineManager.ListOfflineRegionsCallback callback) {
+      batches.add(ids);
+      if (error != null) {
+        callback.onError(error);
+        return;
+      }
+      List<OfflineRegion> regions = new ArrayList<>();
+      for (long id : ids) {
+        if (!odd || id % 2 == 1) {
+          regions.add(region(id));
+        }
+      }
+      callback.onList(regions.toArray(new OfflineRegion[0]));
+    }
+  }
+
+  private static class RecordingCallback implements OfflineManager.ListOfflineRegionsPageCallback {
+
+    private long[] ids;
+    private boolean hasMore;
+    private String error;
+
+    @Override
+    public void onPage(OfflineRegion[] offlineRegions, boolean hasMore) {
+      long[] ids = new long[offlineRegions.length];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = offlineRegions[i].getID();
+      }
+      this.hasMore = hasMore;
+      this.ids = ids;
+    }
+
+    @Override
+    public void onError(String error) {
+      this.error = error;
+    }
+  }
+}
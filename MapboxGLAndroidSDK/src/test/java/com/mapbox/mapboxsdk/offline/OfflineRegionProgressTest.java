@@ -0,0 +1,86 @@
+package com.mapbox.mapboxsdk.offline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OfflineRegionProgressTest {
+
+  private static final double DELTA = 0.001;
+
+  private final OfflineRegionProgress recorded = new OfflineRegionProgress();
+  private final OfflineRegionProgress progress = new OfflineRegionProgress();
+
+  @Test
+  public void firstUpdateHasNoThroughput() {
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 10, 1000, 8, 800, 100, false);
+    progress.update(recorded, 1000);
+
+    assertEquals(10, progress.getCompletedResourceCount());
+    assertEquals(800, progress.getCompletedTileSize());
+    assertEquals(0, progress.getBytesPerSecond(), DELTA);
+    assertEquals(-1, progress.getEstimatedTimeRemaining());
+    assertFalse(progress.isComplete());
+  }
+
+  @Test
+  public void throughputIsAveraged() {
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 0, 0, 0, 0, 1000, true);
+    progress.update(recorded, 0);
+
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 100, 10000, 90, 9000, 1000, true);
+    progress.update(recorded, 1000);
+    assertEquals(100, progress.getResourcesPerSecond(), DELTA);
+    assertEquals(90, progress.getTilesPerSecond(), DELTA);
+    assertEquals(10000, progress.getBytesPerSecond(), DELTA);
+    assertEquals(9000, progress.getEstimatedTimeRemaining());
+
+    // 300 resources per second
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 250, 25000, 230, 23000, 1000, true);
+    progress.update(recorded, 1500);
+    double expected = OfflineRegionProgress.SMOOTHING * 300 + (1 - OfflineRegionProgress.SMOOTHING) * 100;
+    assertEquals(expected, progress.getResourcesPerSecond(), DELTA);
+    assertEquals((long) (750 * 1000 / expected), progress.getEstimatedTimeRemaining());
+  }
+
+  @Test
+  public void completeRegionHasNoTimeRemaining() {
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 1000, 10000, 900, 9000, 1000, true);
+    progress.update(recorded, 0);
+    assertTrue(progress.isComplete());
+    assertEquals(0, progress.getEstimatedTimeRemaining());
+  }
+
+  @Test
+  public void invalidatedRegionResetsThroughput() {
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 0, 0, 0, 0, 1000, true);
+    progress.update(recorded, 0);
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 100, 10000, 90, 9000, 1000, true);
+    progress.update(recorded, 1000);
+
+    recorded.setStatus(OfflineRegion.STATE_ACTIVE, 0, 0, 0, 0, 1000, true);
+    progress.update(recorded, 2000);
+    assertEquals(0, progress.getResourcesPerSecond(), DELTA);
+    assertEquals(-1, progress.getEstimatedTimeRemaining());
+  }
+
+  @Test
+  public void errorsAreCountedByReason() {
+    assertNull(progress.getLastErrorReason());
+    recorded.addError(OfflineRegionError.REASON_CONNECTION, "offline");
+    recorded.addError(OfflineRegionError.REASON_CONNECTION, "offline");
+    recorded.addError(OfflineRegionError.REASON_NOT_FOUND, "missing");
+    recorded.addError("REASON_RATE_LIMIT", "slow down");
+    progress.update(recorded, 0);
+
+    assertEquals(2, progress.getErrorCount(OfflineRegionError.REASON_CONNECTION));
+    assertEquals(1, progress.getErrorCount(OfflineRegionError.REASON_NOT_FOUND));
+    assertEquals(1, progress.getErrorCount(OfflineRegionError.REASON_OTHER));
+    assertEquals(4, progress.getErrorCount());
+    assertEquals("REASON_RATE_LIMIT", progress.getLastErrorReason());
+    assertEquals("slow down", progress.getLastErrorMessage());
+  }
+}
@@ -0,0 +1,56 @@
+package com.mapbox.mapboxsdk.offline;
+
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OfflineRegionQueryTest {
+
+  @Test
+  public void firstPageByDefault() {
+    OfflineRegionQuery query = new OfflineRegionQuery.Builder().build();
+    assertEquals(-1, query.getStartAfter());
+    assertEquals(OfflineRegionQuery.DEFAULT_PAGE_SIZE, query.getPageSize());
+    assertNull(query.getBounds());
+    assertNull(query.getMetadataKey());
+  }
+
+  @Test
+  public void nextPageStartsAfterTheLastRegion() {
+    LatLngBounds bounds = LatLngBounds.from(52.6, 13.5, 52.4, 13.2);
+    OfflineRegionQuery query = new OfflineRegionQuery.Builder()
+      .pageSize(2)
+      .bounds(bounds)
+      .metadataKey("name")
+      .build();
+
+    OfflineRegionQuery next = query.next(new OfflineRegion[] {region(4), region(9)});
+    assertEquals(9, next.getStartAfter());
+    assertEquals(2, next.getPageSize());
+    assertSame(bounds, next.getBounds());
+    assertEquals("name", next.getMetadataKey());
+  }
+
+  @Test
+  public void emptyPageKeepsThePosition() {
+    OfflineRegionQuery query = new OfflineRegionQuery.Builder().startAfter(12).build();
+    assertEquals(12, query.next(new OfflineRegion[0]).getStartAfter());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void pageSizeMustBePositive() {
+    new OfflineRegionQuery.Builder().pageSize(0);
+  }
+
+  private static OfflineRegion region(long id) {
+    OfflineRegion region = mock(OfflineRegion.class);
+    when(region.getID()).thenReturn(id);
+    return region;
+  }
+}
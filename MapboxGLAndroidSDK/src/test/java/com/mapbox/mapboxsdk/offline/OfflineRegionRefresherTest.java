@@ -0,0 +1,153 @@
+package com.mapbox.mapboxsdk.offline;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class OfflineRegionRefresherTest {
+
+  private final OfflineRegion region = mock(OfflineRegion.class);
+  private final RecordingCallback callback = new RecordingCallback();
+  private OfflineRegionRefresher refresher;
+
+  @Before
+  public void setUp() {
+    OfflineRegionRefreshOptions options = new OfflineRegionRefreshOptions.Builder().progressInterval(100).build();
+    refresher = new OfflineRegionRefresher(region, options, callback);
+  }
+
+  @After
+  public void tearDown() {
+    refresher.cancel();
+  }
+
+  @Test
+  public void startObservesAndActivatesWithoutReplacingTheRegionState() {
+    refresher.start();
+
+    assertTrue(OfflineRegionRefresher.isRefreshing());
+    verify(region).observeRefresh(refresher, 100);
+    verify(region).applyDownloadState(OfflineRegion.STATE_ACTIVE);
+    verify(region, never()).setDownloadState(anyInt());
+    verify(region, never()).setObserver(nullable(OfflineRegion.OfflineRegionObserver.class));
+    verify(region, never()).setProgressObserver(nullable(OfflineRegion.OfflineRegionProgressObserver.class),
+      anyLong());
+  }
+
+  @Test
+  public void cancelGivesTheRegionBack() {
+    refresher.start();
+    refresher.cancel();
+
+    assertFalse(OfflineRegionRefresher.isRefreshing());
+    verify(region).onRefreshEnded(refresher);
+    verify(region, never()).applyDownloadState(OfflineRegion.STATE_INACTIVE);
+    assertNotNull(callback.result);
+    assertEquals(OfflineRegionRefreshResult.END_CANCELED, callback.result.getEndReason());
+  }
+
+  @Test
+  public void completeProgressEndsTheRefresh() {
+    refresher.start();
+    OfflineRegionProgress progress = new OfflineRegionProgress();
+    progress.setStatus(OfflineRegion.STATE_ACTIVE, 10, 1000, 8, 800, 10, true);
+    refresher.onProgress(progress);
+
+    assertFalse(OfflineRegionRefresher.isRefreshing());
+    verify(region).onRefreshEnded(refresher);
+    assertEquals(OfflineRegionRefreshResult.END_COMPLETE, callback.result.getEndReason());
+    assertEquals(1, callback.progressCount);
+  }
+
+  @Test
+  public void progressAfterTheEndIsIgnored() {
+    refresher.start();
+    refresher.cancel();
+    OfflineRegionProgress progress = new OfflineRegionProgress();
+    progress.setStatus(OfflineRegion.STATE_ACTIVE, 10, 1000, 8, 800, 10, true);
+    refresher.onProgress(progress);
+
+    assertEquals(0, callback.progressCount);
+    verify(region).onRefreshEnded(refresher);
+  }
+
+  @Test
+  public void tileCountLimitEndsTheRefresh() {
+    refresher.start();
+    refresher.mapboxTileCountLimitExceeded(6000);
+
+    assertFalse(OfflineRegionRefresher.isRefreshing());
+    assertEquals(OfflineRegionRefreshResult.END_TILE_COUNT_LIMIT, callback.result.getEndReason());
+  }
+
+  @Test
+  public void fullRevalidationFailureReleasesTheRefresh() {
+    OfflineRegionRefreshOptions options = new OfflineRegionRefreshOptions.Builder().fullRevalidation(true).build();
+    refresher = new OfflineRegionRefresher(region, options, callback);
+    refresher.start();
+    assertTrue(OfflineRegionRefresher.isRefreshing());
+    verify(region, never()).applyDownloadState(anyInt());
+
+    refresher.cancel();
+    assertFalse(OfflineRegionRefresher.isRefreshing());
+    verify(region, never()).observeRefresh(eq(refresher), anyLong());
+    assertNull(callback.error);
+  }
+
+  @Test
+  public void otherRegionsAreSuspendedWhileRefreshing() {
+    OfflineRegion active = mock(OfflineRegion.class);
+    OfflineRegion activated = mock(OfflineRegion.class);
+    OfflineRegionRefresher.onDownloadState(active, OfflineRegion.STATE_ACTIVE);
+    try {
+      refresher.start();
+      verify(active).applyDownloadState(OfflineRegion.STATE_INACTIVE);
+      assertTrue(OfflineRegionRefresher.suspends(activated));
+      assertFalse(OfflineRegionRefresher.suspends(region));
+
+      refresher.cancel();
+      verify(active).resumeDownloadState();
+      verify(activated).resumeDownloadState();
+      assertFalse(OfflineRegionRefresher.suspends(activated));
+    } finally {
+      OfflineRegionRefresher.onDownloadState(active, OfflineRegion.STATE_INACTIVE);
+    }
+  }
+
+  private static class RecordingCallback implements OfflineRegion.OfflineRegionRefreshCallback {
+
+    private int progressCount;
+    private OfflineRegionRefreshResult result;
+    private String error;
+
+    @Override
+    public void onProgress(@NonNull OfflineRegionProgress progress) {
+      progressCount++;
+    }
+
+    @Override
+    public void onRefresh(@NonNull OfflineRegionRefreshResult result) {
+      this.result = result;
+    }
+
+    @Override
+    public void onError(String error) {
+      this.error = error;
+    }
+  }
+}
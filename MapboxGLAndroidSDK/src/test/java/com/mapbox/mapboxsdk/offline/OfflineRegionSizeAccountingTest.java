@@ -0,0 +1,180 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class OfflineRegionSizeAccountingTest {
+
+  private static final String PATH = "offline.db";
+
+  private final OfflineRegionSizeAccounting accounting =
+    new OfflineRegionSizeAccounting(SQLiteOfflineDatabaseConnection.OPENER) {
+      @Override
+      long getReplacementCount() {
+        return replacements;
+      }
+    };
+  private long replacements;
+  private SQLiteDatabase database;
+  private OfflineDatabaseConnection connection;
+
+  @Before
+  public void setUp() {
+    database = SQLiteDatabase.create(null);
+    connection = new SQLiteOfflineDatabaseConnection(database);
+    for (String statement : OfflineRegionExporter.SCHEMA) {
+      database.execSQL(statement);
+    }
+    insertRegion(1);
+    insertRegion(2);
+    for (int tile = 1; tile <= 4; tile++) {
+      database.execSQL("INSERT INTO tiles (id, url_template, pixel_ratio, z, x, y, data, accessed) "
+        + "VALUES (?, 'template', 1, 0, ?, 0, ?, ?)", new Object[] {tile, tile, new byte[10 * tile], tile});
+    }
+    database.execSQL("INSERT INTO resources (id, url, kind, data, accessed) VALUES (1, 'style', 1, ?, 0)",
+      new Object[] {new byte[100]});
+    insertTile(1, 1);
+    insertTile(1, 2);
+    insertTile(1, 3);
+    insertTile(2, 3);
+    insertTile(2, 4);
+    database.execSQL("INSERT INTO region_resources VALUES (1, 1)");
+    database.execSQL("INSERT INTO region_resources VALUES (2, 1)");
+  }
+
+  @After
+  public void tearDown() {
+    database.close();
+  }
+
+  @Test
+  public void sharedTilesAndResourcesAreNotUnique() {
+    OfflineRegionSize first = accounting.getSize(connection, PATH, 1);
+    assertEquals(4, first.getResourceCount());
+    assertEquals(2, first.getUniqueResourceCount());
+    assertEquals(160, first.getTotalBytes());
+    assertEquals(30, first.getUniqueBytes());
+    assertEquals(130, first.getSharedBytes());
+    assertEquals(30, first.getReclaimableBytes());
+
+    OfflineRegionSize second = accounting.getSize(connection, PATH, 2);
+    assertEquals(170, second.getTotalBytes());
+    assertEquals(40, second.getUniqueBytes());
+  }
+
+  @Test
+  public void missingRegionIsEmpty() {
+    OfflineRegionSize size = accounting.getSize(connection, PATH, 3);
+    assertEquals(0, size.getResourceCount());
+    assertEquals(0, size.getTotalBytes());
+  }
+
+  @Test
+  public void sizeIsKeptUntilRegionsChange() {
+    OfflineRegionSize size = accounting.getSize(connection, PATH, 1);
+    assertSame(size, accounting.getSize(connection, PATH, 1));
+
+    database.execSQL("DELETE FROM regions WHERE id = 2");
+    database.execSQL("DELETE FROM region_tiles WHERE region_id = 2");
+    database.execSQL("DELETE FROM region_resources WHERE region_id = 2");
+    OfflineRegionSize alone = accounting.getSize(connection, PATH, 1);
+    assertNotSame(size, alone);
+    assertEquals(160, alone.getUniqueBytes());
+  }
+
+  @Test
+  public void replacedDataIsCounted() {
+    OfflineRegionSize size = accounting.getSize(connection, PATH, 1);
+
+    database.execSQL("UPDATE tiles SET data = ?, accessed = 10 WHERE id = 1", new Object[] {new byte[50]});
+    replacements++;
+    OfflineRegionSize replaced = accounting.getSize(connection, PATH, 1);
+    assertNotSame(size, replaced);
+    assertEquals(70, replaced.getUniqueBytes());
+    assertEquals(200, replaced.getTotalBytes());
+  }
+
+  @Test
+  public void dataIsOnlyCheckedOnceResponsesWereReceived() {
+    OfflineRegionSize size = accounting.getSize(connection, PATH, 1);
+    ShadowLooper.idleMainLooper(2000, TimeUnit.MILLISECONDS);
+
+    // data is only replaced by responses, the size of the data isn't read without one
+    database.execSQL("UPDATE tiles SET data = ? WHERE id = 1", new Object[] {new byte[50]});
+    assertSame(size, accounting.getSize(connection, PATH, 1));
+
+    replacements++;
+    assertEquals(200, accounting.getSize(connection, PATH, 1).getTotalBytes());
+  }
+
+  @Test
+  public void dataWrittenAfterTheResponseIsChecked() {
+    OfflineRegionSize size = accounting.getSize(connection, PATH, 1);
+    ShadowLooper.idleMainLooper(2000, TimeUnit.MILLISECONDS);
+
+    // the response is counted before the core writes it
+    replacements++;
+    assertSame(size, accounting.getSize(connection, PATH, 1));
+    database.execSQL("UPDATE tiles SET data = ? WHERE id = 1", new Object[] {new byte[50]});
+    assertEquals(200, accounting.getSize(connection, PATH, 1).getTotalBytes());
+  }
+
+  @Test
+  public void readingTilesKeepsSizes() {
+    OfflineRegionSize size = accounting.getSize(connection, PATH, 1);
+
+    // the core sets the access time of the tiles maps read
+    database.execSQL("UPDATE tiles SET accessed = 20");
+    database.execSQL("UPDATE resources SET accessed = 20");
+    assertSame(size, accounting.getSize(connection, PATH, 1));
+  }
+
+  @Test
+  public void onlyRegionsHoldingReplacedDataAreComputedAgain() {
+    OfflineRegionSize first = accounting.getSize(connection, PATH, 1);
+    OfflineRegionSize second = accounting.getSize(connection, PATH, 2);
+
+    database.execSQL("UPDATE tiles SET data = ?, accessed = 10 WHERE id = 4", new Object[] {new byte[5]});
+    replacements++;
+    assertSame(first, accounting.getSize(connection, PATH, 1));
+    OfflineRegionSize replaced = accounting.getSize(connection, PATH, 2);
+    assertNotSame(second, replaced);
+    assertEquals(135, replaced.getTotalBytes());
+  }
+
+  @Test
+  public void onlyRegionsSharingAppendedRowsAreComputedAgain() {
+    OfflineRegionSize first = accounting.getSize(connection, PATH, 1);
+    OfflineRegionSize second = accounting.getSize(connection, PATH, 2);
+
+    // a third region holds a tile of the first region
+    insertRegion(3);
+    insertTile(3, 1);
+    assertSame(second, accounting.getSize(connection, PATH, 2));
+    OfflineRegionSize shared = accounting.getSize(connection, PATH, 1);
+    assertNotSame(first, shared);
+    assertEquals(20, shared.getUniqueBytes());
+    assertEquals(10, accounting.getSize(connection, PATH, 3).getTotalBytes());
+  }
+
+  private void insertRegion(long id) {
+    database.execSQL("INSERT INTO regions (id, definition) VALUES (?, '{}')", new Object[] {id});
+  }
+
+  private void insertTile(long region, long tile) {
+    database.execSQL("INSERT INTO region_tiles VALUES (?, ?)", new Object[] {region, tile});
+  }
+}
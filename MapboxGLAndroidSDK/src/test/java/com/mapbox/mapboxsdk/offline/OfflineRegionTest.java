@@ -0,0 +1,31 @@
+package com.mapbox.mapboxsdk.offline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class OfflineRegionTest {
+
+  @Test
+  public void definitionAndMetadataAreLoadedOnce() {
+    OfflineRegion region = mock(OfflineRegion.class, CALLS_REAL_METHODS);
+    OfflineRegionDefinition definition = mock(OfflineRegionDefinition.class);
+    byte[] metadata = new byte[] {1, 2};
+    doReturn(definition).when(region).loadDefinition();
+    doReturn(metadata).when(region).loadMetadata();
+
+    verify(region, never()).loadDefinition();
+    assertSame(definition, region.getDefinition());
+    assertSame(definition, region.getDefinition());
+    assertSame(metadata, region.getMetadata());
+    assertSame(metadata, region.getMetadata());
+    verify(region, times(1)).loadDefinition();
+    verify(region, times(1)).loadMetadata();
+  }
+}
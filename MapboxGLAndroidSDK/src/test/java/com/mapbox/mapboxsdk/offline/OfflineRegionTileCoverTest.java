@@ -0,0 +1,162 @@
+package com.mapbox.mapboxsdk.offline;
+
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+
+public class OfflineRegionTileCoverTest {
+
+  @Test
+  public void worldBounds() {
+    OfflineRegionTileCover cover = new OfflineRegionTileCover(LatLngBounds.world());
+    for (int zoom = 0; zoom < 8; zoom++) {
+      assertEquals(1L << (2 * zoom), cover.count(zoom));
+    }
+  }
+
+  @Test
+  public void point() {
+    OfflineRegionTileCover cover = new OfflineRegionTileCover(Point.fromLngLat(13.4, 52.5));
+    assertEquals(1, cover.count(0));
+    assertEquals(1, cover.count(22));
+  }
+
+  @Test
+  public void horizontalLine() {
+    // the equator crosses the middle of the map, between rows
+    LineString line = LineString.fromLngLats(Arrays.asList(Point.fromLngLat(-179.9, 0.1),
+      Point.fromLngLat(179.9, 0.1)));
+    assertEquals(1L << 10, new OfflineRegionTileCover(line).count(10));
+  }
+
+  @Test
+  public void polygonWithHole() {
+    List<Point> outer = ring(-10.05, -10.05, 10.05, 10.05);
+    List<Point> hole = ring(-5.05, -5.05, 5.05, 5.05);
+    Polygon polygon = Polygon.fromLngLats(Arrays.asList(outer, hole));
+    assertCover(polygon, 8);
+  }
+
+  @Test
+  public void overlappingPolygonsAreUnited() {
+    Polygon first = Polygon.fromLngLats(Collections.singletonList(ring(0.05, 0.05, 10.05, 10.05)));
+    Polygon second = Polygon.fromLngLats(Collections.singletonList(ring(5.05, 5.05, 15.05, 15.05)));
+    MultiPolygon both = MultiPolygon.fromPolygons(Arrays.asList(first, second));
+    assertEquals(count(first, 7) + count(second, 7) - count(intersection(), 7), count(both, 7));
+  }
+
+  @Test
+  public void randomPolygonsMatchBruteForce() {
+    Random random = new Random(42);
+    for (int i = 0; i < 50; i++) {
+      int vertices = 3 + random.nextInt(20);
+      double centerLon = random.nextDouble() * 300 - 150;
+      double centerLat = random.nextDouble() * 120 - 60;
+      double radius = 0.5 + random.nextDouble() * 20;
+      List<Point> ring = new ArrayList<>();
+      for (int v = 0; v < vertices; v++) {
+        double angle = 2 * Math.PI * v / vertices;
+        double distance = radius * (0.2 + random.nextDouble());
+        ring.add(Point.fromLngLat(centerLon + distance * Math.cos(angle), centerLat + distance * Math.sin(angle)));
+      }
+      ring.add(ring.get(0));
+      assertCover(Polygon.fromLngLats(Collections.singletonList(ring)), 3 + random.nextInt(5));
+    }
+  }
+
+  private static Polygon intersection() {
+    return Polygon.fromLngLats(Collections.singletonList(ring(5.05, 5.05, 10.05, 10.05)));
+  }
+
+  private static long count(com.mapbox.geojson.Geometry geometry, int zoom) {
+    return new OfflineRegionTileCover(geometry).count(zoom);
+  }
+
+  private static List<Point> ring(double west, double south, double east, double north) {
+    return Arrays.asList(Point.fromLngLat(west, south), Point.fromLngLat(east, south),
+      Point.fromLngLat(east, north), Point.fromLngLat(west, north), Point.fromLngLat(west, south));
+  }
+
+  private static void assertCover(Polygon polygon, int zoom) {
+    double scale = 1 << zoom;
+    List<double[]> rings = new ArrayList<>();
+    for (List<Point> ring : polygon.coordinates()) {
+      double[] coordinates = new double[ring.size() * 2];
+      for (int i = 0; i < ring.size(); i++) {
+        Point point = ring.get(i);
+        double sin = Math.sin(Math.toRadians(point.latitude()));
+        coordinates[2 * i] = (point.longitude() + 180) / 360 * scale;
+        coordinates[2 * i + 1] = (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * scale;
+      }
+      rings.add(coordinates);
+    }
+
+    long expected = 0;
+    for (int y = 0; y < scale; y++) {
+      for (int x = 0; x < scale; x++) {
+        if (intersects(rings, x, y)) {
+          expected++;
+        }
+      }
+    }
+    assertEquals(expected, new OfflineRegionTileCover(polygon).count(zoom));
+  }
+
+  private static boolean intersects(List<double[]> rings, int x, int y) {
+    boolean inside = false;
+    double centerX = x + 0.5;
+    double centerY = y + 0.5;
+    for (double[] ring : rings) {
+      for (int i = 0; i + 3 < ring.length; i += 2) {
+        double x0 = ring[i];
+        double y0 = ring[i + 1];
+        double x1 = ring[i + 2];
+        double y1 = ring[i + 3];
+        if (segmentIntersectsTile(x0, y0, x1, y1, x, y)) {
+          return true;
+        }
+        if ((y0 > centerY) != (y1 > centerY) && centerX < x0 + (centerY - y0) * (x1 - x0) / (y1 - y0)) {
+          inside = !inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+  private static boolean segmentIntersectsTile(double x0, double y0, double x1, double y1, int x, int y) {
+    // Liang-Barsky clipping against the tile square
+    double t0 = 0;
+    double t1 = 1;
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    double[] p = {-dx, dx, -dy, dy};
+    double[] q = {x0 - x, x + 1 - x0, y0 - y, y + 1 - y0};
+    for (int i = 0; i < 4; i++) {
+      if (p[i] == 0) {
+        if (q[i] < 0) {
+          return false;
+        }
+      } else {
+        double t = q[i] / p[i];
+        if (p[i] < 0) {
+          t0 = Math.max(t0, t);
+        } else {
+          t1 = Math.min(t1, t);
+        }
+      }
+    }
+    return t0 <= t1;
+  }
+}
@@ -0,0 +1,310 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class OfflineStorageQuotaTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<OfflineStorageQuota.RegionUsage> usages = Arrays.asList(
+    usage(1, 3000, 0),
+    usage(2, 1000, 5),
+    usage(3, 2000, -1),
+    usage(4, 1000, 0)
+  );
+
+  private final OfflineManager manager = mock(OfflineManager.class);
+  private final RecordingCallback callback = new RecordingCallback();
+  private File file;
+  private OfflineStorageQuota quota;
+  private OfflineRegion[] regions;
+
+  @Before
+  public void setUp() {
+    file = new File(folder.getRoot(), OfflineRegionExporter.DATABASE_FILE);
+    SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(file, null);
+    try {
+      for (String statement : OfflineRegionExporter.SCHEMA) {
+        database.execSQL(statement);
+      }
+      for (int tile = 1; tile <= 4; tile++) {
+        database.execSQL("INSERT INTO tiles (id, url_template, pixel_ratio, z, x, y, data, accessed) "
+          + "VALUES (?, 'template', 1, 0, ?, 0, ?, 0)", new Object[] {tile, tile, new byte[100 * tile]});
+      }
+      database.execSQL("INSERT INTO resources (id, url, kind, data, accessed) VALUES (1, 'style', 1, ?, 0)",
+        new Object[] {new byte[1000]});
+      // the first two regions share the second tile and the style, the third is a transient prewarm region
+      for (long region = 1; region <= 3; region++) {
+        database.execSQL("INSERT INTO regions (id, definition) VALUES (?, '{}')", new Object[] {region});
+      }
+      database.execSQL("INSERT INTO region_tiles VALUES (1, 1)");
+      database.execSQL("INSERT INTO region_tiles VALUES (1, 2)");
+      database.execSQL("INSERT INTO region_tiles VALUES (2, 2)");
+      database.execSQL("INSERT INTO region_tiles VALUES (2, 3)");
+      database.execSQL("INSERT INTO region_tiles VALUES (3, 4)");
+      database.execSQL("INSERT INTO region_resources VALUES (1, 1)");
+      database.execSQL("INSERT INTO region_resources VALUES (2, 1)");
+    } finally {
+      database.close();
+    }
+
+    regions = new OfflineRegion[] {
+      region(1, OfflineRegion.STATE_INACTIVE, null),
+      region(2, OfflineRegion.STATE_INACTIVE, null),
+      region(3, OfflineRegion.STATE_ACTIVE, AmbientCachePrewarm.REGION_METADATA)
+    };
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        OfflineManager.ListOfflineRegionsCallback listCallback = invocation.getArgument(0);
+        listCallback.onList(regions);
+        return null;
+      }
+    }).when(manager).listOfflineRegions(any(OfflineManager.ListOfflineRegionsCallback.class));
+
+    quota = new OfflineStorageQuota(manager,
+      RuntimeEnvironment.application.getSharedPreferences("quota", Context.MODE_PRIVATE), file,
+      new OfflineRegionSizeAccounting(SQLiteOfflineDatabaseConnection.OPENER), SQLiteOfflineDatabaseConnection.OPENER);
+    quota.setEvictionPolicy(OfflineStorageQuota.LOWEST_PRIORITY);
+  }
+
+  @Test
+  public void leastRecentlyViewedFirst() {
+    assertOrder(OfflineStorageQuota.LEAST_RECENTLY_VIEWED, 2, 4, 3, 1);
+  }
+
+  @Test
+  public void oldestFirst() {
+    assertOrder(OfflineStorageQuota.OLDEST, 1, 2, 3, 4);
+  }
+
+  @Test
+  public void lowestPriorityFirst() {
+    assertOrder(OfflineStorageQuota.LOWEST_PRIORITY, 3, 4, 1, 2);
+  }
+
+  @Test
+  public void sharedBytesAreCountedOnce() {
+    // 100 + 200 + 300 + 1000, the region tiles of the prewarm aren't counted
+    enforce(1600);
+    assertArrayEquals(new long[0], callback.evictedRegionIds);
+    assertEquals(1600, callback.regionBytes);
+  }
+
+  @Test
+  public void evictionStopsOnceTheSharedBytesFit() {
+    quota.setPriority(2, 1);
+
+    // deleting the first region reclaims its tile only, the shared bytes then belong to the second region
+    enforce(1500);
+    assertArrayEquals(new long[] {1}, callback.evictedRegionIds);
+    assertEquals(1500, callback.regionBytes);
+    verify(regions[1], never()).delete(any(OfflineRegion.OfflineRegionDeleteCallback.class));
+  }
+
+  @Test
+  public void evictionGoesOnWhileTheRegionsDontFit() {
+    quota.setPriority(2, 1);
+
+    enforce(1000);
+    assertArrayEquals(new long[] {1, 2}, callback.evictedRegionIds);
+    assertEquals(0, callback.regionBytes);
+  }
+
+  @Test
+  public void transientRegionsAreNotEvicted() {
+    enforce(0);
+    verify(regions[2], never()).delete(any(OfflineRegion.OfflineRegionDeleteCallback.class));
+  }
+
+  @Test
+  public void activeRegionsAreCountedButNotEvicted() {
+    regions[0] = region(1, OfflineRegion.STATE_ACTIVE, null);
+
+    enforce(0);
+    assertArrayEquals(new long[] {2}, callback.evictedRegionIds);
+    assertEquals(1300, callback.regionBytes);
+  }
+
+  @Test
+  public void regionsMarkedWhileListingAreNotForgotten() {
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        // a region created once the regions were listed
+        quota.markViewed(4);
+        OfflineManager.ListOfflineRegionsCallback listCallback = invocation.getArgument(0);
+        listCallback.onList(regions);
+        return null;
+      }
+    }).when(manager).listOfflineRegions(any(OfflineManager.ListOfflineRegionsCallback.class));
+
+    enforce(2000);
+    assertTrue(quota.getLastViewed(4) > 0);
+  }
+
+  @Test
+  public void scheduledRegionsAreCountedButNotEvicted() {
+    when(manager.isDownloadScheduled(1)).thenReturn(true);
+
+    enforce(0);
+    assertArrayEquals(new long[] {2}, callback.evictedRegionIds);
+    assertEquals(1300, callback.regionBytes);
+  }
+
+  @Test
+  public void lastViewIsReadFromTheTiles() {
+    // the map read the tile only the first region holds
+    setAccessed(1, 1000);
+    quota.setEvictionPolicy(OfflineStorageQuota.LEAST_RECENTLY_VIEWED);
+
+    enforce(1500);
+    assertArrayEquals(new long[] {2}, callback.evictedRegionIds);
+  }
+
+  @Test
+  public void markedViewsCountIfLater() {
+    setAccessed(1, 1000);
+    quota.markViewed(2);
+    quota.setEvictionPolicy(OfflineStorageQuota.LEAST_RECENTLY_VIEWED);
+
+    enforce(1500);
+    assertArrayEquals(new long[] {1}, callback.evictedRegionIds);
+  }
+
+  @Test
+  public void regionsCreatedTogetherAreEnforcedOnce() {
+    enforce(2000);
+    verify(manager).listOfflineRegions(any(OfflineManager.ListOfflineRegionsCallback.class));
+    clearInvocations(manager);
+
+    quota.onRegionCreated(regions[0]);
+    quota.onRegionCreated(regions[1]);
+    verify(manager, never()).listOfflineRegions(any(OfflineManager.ListOfflineRegionsCallback.class));
+
+    ShadowLooper.idleMainLooper(OfflineStorageQuota.CREATE_ENFORCEMENT_DELAY, TimeUnit.MILLISECONDS);
+    verify(manager).listOfflineRegions(any(OfflineManager.ListOfflineRegionsCallback.class));
+  }
+
+  private void setAccessed(long tile, long seconds) {
+    SQLiteDatabase database = SQLiteDatabase.openDatabase(file.getPath(), null,
+      SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+    try {
+      database.execSQL("UPDATE tiles SET accessed = ? WHERE id = ?", new Object[] {seconds, tile});
+    } finally {
+      database.close();
+    }
+  }
+
+  private void enforce(long maxBytes) {
+    quota.setMaxBytes(maxBytes, callback);
+    long timeout = System.currentTimeMillis() + 5000;
+    while (callback.evictedRegionIds == null && callback.error == null && System.currentTimeMillis() < timeout) {
+      ShadowLooper.idleMainLooper();
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException exception) {
+        throw new AssertionError(exception);
+      }
+    }
+    assertNull(callback.error);
+    assertNotNull(callback.evictedRegionIds);
+  }
+
+  private void assertOrder(java.util.Comparator<OfflineStorageQuota.RegionUsage> policy, long... ids) {
+    List<OfflineStorageQuota.RegionUsage> order = OfflineStorageQuota.evictionOrder(usages, policy);
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(ids[i], order.get(i).getId());
+    }
+  }
+
+  @NonNull
+  private OfflineRegion region(final long id, int downloadState, byte[] metadata) {
+    OfflineRegion region = mock(OfflineRegion.class);
+    when(region.getID()).thenReturn(id);
+    when(region.getMetadata()).thenReturn(metadata);
+    final OfflineRegionStatus status = mock(OfflineRegionStatus.class);
+    when(status.getDownloadState()).thenReturn(downloadState);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        OfflineRegion.OfflineRegionStatusCallback statusCallback = invocation.getArgument(0);
+        statusCallback.onStatus(status);
+        return null;
+      }
+    }).when(region).getStatus(any(OfflineRegion.OfflineRegionStatusCallback.class));
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        SQLiteDatabase database = SQLiteDatabase.openDatabase(file.getPath(), null,
+          SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try {
+          database.execSQL("DELETE FROM region_tiles WHERE region_id = ?", new Object[] {id});
+          database.execSQL("DELETE FROM region_resources WHERE region_id = ?", new Object[] {id});
+          database.execSQL("DELETE FROM regions WHERE id = ?", new Object[] {id});
+        } finally {
+          database.close();
+        }
+        OfflineRegion.OfflineRegionDeleteCallback deleteCallback = invocation.getArgument(0);
+        deleteCallback.onDelete();
+        return null;
+      }
+    }).when(region).delete(any(OfflineRegion.OfflineRegionDeleteCallback.class));
+    return region;
+  }
+
+  private static OfflineStorageQuota.RegionUsage usage(long id, long lastViewed, int priority) {
+    return new OfflineStorageQuota.RegionUsage(null, id, 100, lastViewed, priority);
+  }
+
+  private static class RecordingCallback implements OfflineStorageQuota.Callback {
+
+    private long regionBytes;
+    private long[] evictedRegionIds;
+    private String error;
+
+    @Override
+    public void onEnforce(long regionBytes, @NonNull long[] evictedRegionIds) {
+      this.regionBytes = regionBytes;
+      this.evictedRegionIds = evictedRegionIds;
+    }
+
+    @Override
+    public void onError(String error) {
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.mapbox.mapboxsdk.offline;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import androidx.annotation.NonNull;
+
+/**
+ * A connection opened with the SQLite of the framework, the tests don't load the core.
+ */
+final class SQLiteOfflineDatabaseConnection implements OfflineDatabaseConnection {
+
+  static final Opener OPENER = new Opener() {
+    @NonNull
+    @Override
+    public OfflineDatabaseConnection open(@NonNull String path, boolean readOnly) {
+      // without the flag, opening the database adds a table
+      int flags = SQLiteDatabase.NO_LOCALIZED_COLLATORS
+        | (readOnly ? SQLiteDatabase.OPEN_READONLY
+        : SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY);
+      return new SQLiteOfflineDatabaseConnection(SQLiteDatabase.openDatabase(path, null, flags));
+    }
+  };
+
+  private final SQLiteDatabase database;
+
+  SQLiteOfflineDatabaseConnection(@NonNull SQLiteDatabase database) {
+    this.database = database;
+  }
+
+  @Override
+  public long execute(@NonNull String sql, @NonNull String... arguments) {
+    if (!sql.startsWith("INSERT") && !sql.startsWith("UPDATE") && !sql.startsWith("DELETE")) {
+      database.execSQL(sql, arguments);
+      return 0;
+    }
+    SQLiteStatement statement = database.compileStatement(sql);
+    try {
+      statement.bindAllArgsAsStrings(arguments);
+      return statement.executeUpdateDelete();
+    } finally {
+      statement.close();
+    }
+  }
+
+  @NonNull
+  @Override
+  public long[] query(@NonNull String sql, int columns, @NonNull String... arguments) {
+    Cursor cursor = database.rawQuery(sql, arguments);
+    try {
+      long[] values = new long[cursor.getCount() * columns];
+      while (cursor.moveToNext()) {
+        for (int column = 0; column < columns; column++) {
+          values[cursor.getPosition() * columns + column] = cursor.getLong(column);
+        }
+      }
+      return values;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  public long incrementalVacuum(int pages) {
+    if (pages > 0) {
+      // the statement must be stepped to completion, which filling the cursor does
+      query("PRAGMA incremental_vacuum(" + pages + ")", 0);
+    }
+    return query("PRAGMA freelist_count", 1)[0];
+  }
+
+  @Override
+  public void close() {
+    database.close();
+  }
+}
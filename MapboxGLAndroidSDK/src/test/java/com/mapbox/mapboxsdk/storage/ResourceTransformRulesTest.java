@@ -0,0 +1,66 @@
+package com.mapbox.mapboxsdk.storage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class ResourceTransformRulesTest {
+
+  @Test
+  public void rulesKeepTheirOrder() {
+    ResourceTransformRules rules = new ResourceTransformRules.Builder()
+      .replacePrefix(Resource.TILE, "https://a.example.com/", "https://b.example.com/")
+      .replaceRegex("v(\\d+)/", "v$1-beta/")
+      .build();
+
+    assertArrayEquals(new int[] {1 << Resource.TILE, 0x7F}, rules.kindMasks);
+    assertArrayEquals(new int[] {ResourceTransformRules.TYPE_PREFIX, ResourceTransformRules.TYPE_REGEX}, rules.types);
+    assertArrayEquals(new String[] {"https://a.example.com/", "v(\\d+)/"}, rules.patterns);
+    assertArrayEquals(new String[] {"https://b.example.com/", "v$1-beta/"}, rules.replacements);
+  }
+
+  @Test
+  public void queryParametersAreEncodedPerKind() {
+    ResourceTransformRules rules = new ResourceTransformRules.Builder()
+      .addQueryParameter("app", "demo")
+      .addQueryParameter(Resource.TILE, "key", "a b&c")
+      .build();
+
+    assertEquals(Resource.SPRITE_JSON + 1, rules.queries.length);
+    assertEquals("app=demo", rules.queries[Resource.STYLE]);
+    assertEquals("app=demo&key=a+b%26c", rules.queries[Resource.TILE]);
+  }
+
+  @Test
+  public void noQueryParameters() {
+    ResourceTransformRules rules = new ResourceTransformRules.Builder().build();
+    assertNull(rules.queries[Resource.TILE]);
+    assertNull(rules.fallback);
+    assertEquals(ResourceTransformRules.Builder.DEFAULT_FALLBACK_CACHE_SIZE, rules.fallbackCacheSize);
+  }
+
+  @Test
+  public void fallback() {
+    FileSource.ResourceTransformCallback callback = mock(FileSource.ResourceTransformCallback.class);
+    ResourceTransformRules rules = new ResourceTransformRules.Builder()
+      .setFallback(callback)
+      .setFallbackCacheSize(0)
+      .build();
+    assertSame(callback, rules.fallback);
+    assertEquals(0, rules.fallbackCacheSize);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownKind() {
+    new ResourceTransformRules.Builder().replacePrefix(42, "a", "b");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeCacheSize() {
+    new ResourceTransformRules.Builder().setFallbackCacheSize(-1);
+  }
+}
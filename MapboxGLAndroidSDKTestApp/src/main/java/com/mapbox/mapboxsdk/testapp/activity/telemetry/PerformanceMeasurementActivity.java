@@ -14,17 +14,16 @@ import com.google.gson.JsonObject;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.module.http.HttpRequestListener;
+import com.mapbox.mapboxsdk.module.http.HttpRequestMetrics;
 import com.mapbox.mapboxsdk.module.http.HttpRequestUtil;
 import com.mapbox.mapboxsdk.testapp.R;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-import okhttp3.Call;
-import okhttp3.OkHttpClient;
 import timber.log.Timber;
 
 /**
@@ -33,6 +32,17 @@ import timber.log.Timber;
 public class PerformanceMeasurementActivity extends AppCompatActivity {
 
   private MapView mapView;
+  private final HttpRequestListener requestListener = metrics -> {
+    Timber.d("%s", metrics);
+    if (metrics.getCacheStatus() == HttpRequestMetrics.CACHE_MEMORY_HIT) {
+      // answered without a request
+      return;
+    }
+    String url = metrics.getUrl();
+    int queryIndex = url.indexOf('?');
+    triggerPerformanceEvent(queryIndex != -1 ? url.substring(0, queryIndex) : url,
+      TimeUnit.MILLISECONDS.toNanos(metrics.getTotalDuration()));
+  };
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -41,11 +51,7 @@ public class PerformanceMeasurementActivity extends AppCompatActivity {
     mapView = findViewById(R.id.mapView);
     mapView.onCreate(savedInstanceState);
 
-    EventListener eventListener = new EventListener();
-    OkHttpClient okHttpClient = new OkHttpClient.Builder()
-            .eventListener(eventListener)
-            .build();
-    HttpRequestUtil.setOkHttpClient(okHttpClient);
+    HttpRequestUtil.addRequestListener(requestListener);
 
     mapView.getMapAsync(mapboxMap -> mapboxMap.setStyle(
       new Style.Builder().fromUri(Style.MAPBOX_STREETS)));
@@ -84,7 +90,7 @@ public class PerformanceMeasurementActivity extends AppCompatActivity {
 
   @Override
   protected void onDestroy() {
-    HttpRequestUtil.setOkHttpClient(null);
+    HttpRequestUtil.removeRequestListener(requestListener);
     super.onDestroy();
     mapView.onDestroy();
   }
@@ -95,7 +101,7 @@ public class PerformanceMeasurementActivity extends AppCompatActivity {
     mapView.onSaveInstanceState(outState);
   }
 
-  private static void triggerPerformanceEvent(String style, long elapsed) {
+  private static void triggerPerformanceEvent(String style, long elapsedNanos) {
     List<Attribute<String>> attributes = new ArrayList<>();
     attributes.add(
             new Attribute<>("style_id", style));
@@ -103,7 +109,7 @@ public class PerformanceMeasurementActivity extends AppCompatActivity {
             new Attribute<>("test_perf_event", "true"));
 
     List<Attribute<Long>> counters = new ArrayList();
-    counters.add(new Attribute<>("elapsed", elapsed));
+    counters.add(new Attribute<>("elapsed", elapsedNanos));
 
 
     JsonObject metaData = new JsonObject();
@@ -147,33 +153,6 @@ public class PerformanceMeasurementActivity extends AppCompatActivity {
     return "{" + width + "," + height + "}";
   }
 
-  private static class EventListener extends okhttp3.EventListener {
-
-    private Map<String, Long> startTimes = new HashMap<>();
-
-    @Override
-    public void callStart(Call call) {
-      String url = call.request().url().toString();
-      startTimes.put(url, System.nanoTime());
-      super.callStart(call);
-      Timber.e("callStart: %s", url);
-    }
-
-    @Override
-    public void callEnd(Call call) {
-      String url = call.request().url().toString();
-      Timber.e("callEnd: %s", url);
-      Long start = startTimes.get(url);
-      if (start != null) {
-        long elapsed = System.nanoTime() - start;
-        triggerPerformanceEvent(url.substring(0, url.indexOf('?')), elapsed);
-        startTimes.remove(start);
-        Timber.e("callEnd: %s took %d", url, elapsed);
-      }
-      super.callEnd(call);
-    }
-  }
-
   private static class Attribute<T> {
 
     private String name;